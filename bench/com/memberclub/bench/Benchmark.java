@@ -0,0 +1,127 @@
+package com.memberclub.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal micro-benchmark runner for the service layer.
+ * Every benchmark is run once per dataset size: the setup builds the data outside the
+ * measurement, a number of warmup rounds let the JIT settle, and the measured rounds
+ * report the average time per operation.
+ *
+ * Settings are read from system properties:
+ * "bench.sizes" (default 100,1000,10000,100000,1000000),
+ * "bench.warmup" and "bench.rounds" (default 3 and 5),
+ * "bench.time" milliseconds per round (default 500).
+ */
+public class Benchmark {
+
+    private static final int[] DEFAULT_SIZES = {100, 1_000, 10_000, 100_000, 1_000_000};
+
+    // Results are folded into this field so the JIT cannot remove the measured work
+    private static volatile long sink;
+
+    private final String name;
+    private final IntFunction<LongSupplier> setup;
+
+    /**
+     * Creates a benchmark.
+     * @param name the name shown in the report
+     * @param setup builds the dataset for a size and returns the operation to measure
+     */
+    public Benchmark(String name, IntFunction<LongSupplier> setup) {
+        this.name = name;
+        this.setup = setup;
+    }
+
+    /**
+     * Runs every benchmark whose name contains the filter, for every configured size.
+     * @param benchmarks the benchmarks to run
+     * @param filter part of the benchmark name, or null to run all
+     */
+    public static void runAll(List<Benchmark> benchmarks, String filter) {
+        int[] sizes = parseSizes(System.getProperty("bench.sizes"));
+        int warmup = Integer.getInteger("bench.warmup", 3);
+        int rounds = Integer.getInteger("bench.rounds", 5);
+        long roundNanos = Long.getLong("bench.time", 500) * 1_000_000L;
+
+        System.out.printf("%-40s %10s %14s %14s %14s%n", "Benchmark", "Size", "ns/op", "min", "max");
+        for (Benchmark benchmark : benchmarks) {
+            if (filter != null && !benchmark.name.contains(filter)) {
+                continue;
+            }
+            for (int size : sizes) {
+                benchmark.run(size, warmup, rounds, roundNanos);
+            }
+        }
+    }
+
+    /**
+     * Builds the dataset for one size, warms up and prints the measured result.
+     */
+    private void run(int size, int warmup, int rounds, long roundNanos) {
+        LongSupplier operation = setup.apply(size);
+
+        // Let the JIT compile the operation before measuring
+        for (int i = 0; i < warmup; i++) {
+            measureRound(operation, roundNanos);
+        }
+
+        // Measure and keep the average, fastest and slowest round
+        double total = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        for (int i = 0; i < rounds; i++) {
+            double nanosPerOp = measureRound(operation, roundNanos);
+            total += nanosPerOp;
+            min = Math.min(min, nanosPerOp);
+            max = Math.max(max, nanosPerOp);
+        }
+
+        System.out.printf("%-40s %10d %14.1f %14.1f %14.1f%n", name, size, total / rounds, min, max);
+    }
+
+    /**
+     * Calls the operation repeatedly for about the given time.
+     * @return average nanoseconds per call
+     */
+    private static double measureRound(LongSupplier operation, long roundNanos) {
+        long result = 0;
+        long calls = 0;
+        long batch = 1;
+        long start = System.nanoTime();
+        long elapsed;
+
+        // Read the clock once per batch and grow the batch so timing overhead stays small
+        do {
+            for (long i = 0; i < batch; i++) {
+                result += operation.getAsLong();
+            }
+            calls += batch;
+            elapsed = System.nanoTime() - start;
+            if (elapsed < roundNanos / 10) {
+                batch *= 2;
+            }
+        } while (elapsed < roundNanos);
+
+        sink += result;
+        return (double) elapsed / calls;
+    }
+
+    /**
+     * Reads a comma separated list of sizes.
+     */
+    private static int[] parseSizes(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT_SIZES;
+        }
+
+        List<Integer> sizes = new ArrayList<>();
+        for (String part : value.split(",")) {
+            sizes.add(Integer.parseInt(part.trim()));
+        }
+        return sizes.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
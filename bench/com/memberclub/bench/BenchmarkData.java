@@ -0,0 +1,61 @@
+package com.memberclub.bench;
+
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.enums.ItemStatus;
+import com.memberclub.model.enums.RentalPeriod;
+import com.memberclub.system.ClubSystem;
+import com.memberclub.system.SyntheticDataGenerator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds an in-memory club with a given number of items, members and rentals.
+ * The data is the same on every run so results can be compared between commits.
+ */
+public class BenchmarkData {
+
+    // Same seed on every run
+    private static final long SEED = 42;
+
+    private final ClubSystem system;
+    private final List<Item> items;
+    private final List<Member> members;
+
+    /**
+     * Creates a club with size items, size members and size rentals of history,
+     * and rents out every fourth item that is still available.
+     * @param size number of items, members and rentals
+     */
+    public BenchmarkData(int size) {
+        this.system = new ClubSystem(null);
+
+        // Add a generated club of the requested size next to the sample data
+        new SyntheticDataGenerator(SEED, size, size, size, 3).generate(system);
+        this.items = new ArrayList<>(system.getInventory().getAllItems());
+        this.members = new ArrayList<>(system.getMemberRegistry().getAllMembers());
+        members.sort(Comparator.comparingInt(Member::getId));
+
+        // Keep a quarter of the items out so the active rentals grow with the size
+        for (int i = 0; i < items.size(); i += 4) {
+            Item item = items.get(i);
+            if (item.getStatus() == ItemStatus.AVAILABLE) {
+                system.getRentalService().rentItem(members.get(i % members.size()).getId(), item.getId(), 1, RentalPeriod.DAILY);
+            }
+        }
+    }
+
+    // Getters
+    public ClubSystem getSystem() {
+        return system;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public List<Member> getMembers() {
+        return members;
+    }
+}
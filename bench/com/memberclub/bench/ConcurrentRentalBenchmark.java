@@ -0,0 +1,141 @@
+package com.memberclub.bench;
+
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.Rental;
+import com.memberclub.model.enums.ItemStatus;
+import com.memberclub.model.enums.RentalPeriod;
+import com.memberclub.service.RentalService;
+import com.memberclub.system.ItemIdGenerator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Throughput of renting and returning from several threads at once.
+ *
+ * Builds one in-memory club and runs it with 1, 2, 4 and 8 threads in turn. Every thread
+ * has its own items and members, so the threads never compete for the same item and any
+ * slowdown comes from the locks they share. Each thread rents an item and returns it in a
+ * loop, and the report shows the rent and return pairs per second for every thread count.
+ *
+ * Settings are read from system properties:
+ * "bench.threads" (default 1,2,4,8), "bench.items" in the club (default 100000),
+ * "bench.warmup" seconds before the first measurement (default 2)
+ * and "bench.time" milliseconds per thread count (default 3000).
+ */
+public class ConcurrentRentalBenchmark {
+
+    // Items each thread cycles through
+    private static final int ITEMS_PER_THREAD = 256;
+
+    /**
+     * Runs the benchmark.
+     * @param args not used
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = parseCounts(System.getProperty("bench.threads", "1,2,4,8"));
+        int itemCount = Integer.getInteger("bench.items", 100_000);
+        long warmupMillis = Long.getLong("bench.warmup", 2) * 1000;
+        long roundMillis = Long.getLong("bench.time", 3000);
+
+        // Enough available items and members for the largest thread count
+        int maxThreads = 0;
+        for (int threads : threadCounts) {
+            maxThreads = Math.max(maxThreads, threads);
+        }
+        BenchmarkData data = new BenchmarkData(itemCount);
+        List<Item> available = new ArrayList<>();
+        for (Item item : data.getItems()) {
+            if (item.getStatus() == ItemStatus.AVAILABLE) {
+                available.add(item);
+            }
+        }
+        List<Member> members = data.getMembers();
+        if (available.size() < maxThreads * ITEMS_PER_THREAD || members.size() < maxThreads) {
+            throw new IllegalArgumentException("För få artiklar eller medlemmar för " + maxThreads + " trådar, öka bench.items");
+        }
+        RentalService rentals = data.getSystem().getRentalService();
+        System.out.println("Processorer: " + Runtime.getRuntime().availableProcessors());
+
+        // Let the JIT compile the rent and return path before measuring
+        run(rentals, available, members, maxThreads, warmupMillis);
+
+        System.out.printf("%-10s %16s %16s%n", "Threads", "pairs/s", "per thread");
+        for (int threads : threadCounts) {
+            long pairs = run(rentals, available, members, threads, roundMillis);
+            double perSecond = pairs * 1000.0 / roundMillis;
+            System.out.printf("%-10d %16.0f %16.0f%n", threads, perSecond, perSecond / threads);
+        }
+    }
+
+    /**
+     * Lets the given number of threads rent and return for about the given time.
+     * @return number of rent and return pairs completed by all threads
+     */
+    private static long run(RentalService rentals, List<Item> available, List<Member> members, int threads, long millis) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] pairs = new long[threads];
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            int[] keys = new int[ITEMS_PER_THREAD];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = ItemIdGenerator.toKey(available.get(thread * ITEMS_PER_THREAD + i).getId());
+            }
+            int memberId = members.get(thread).getId();
+
+            // Rent and return this thread's own items round robin
+            workers[t] = new Thread(() -> {
+                awaitStart(start);
+                long done = 0;
+                int next = 0;
+                while (!stop.get()) {
+                    Rental rental = rentals.rentItem(memberId, keys[next], 1, RentalPeriod.DAILY);
+                    rentals.returnItem(rental.getSequence());
+                    next = (next + 1) % keys.length;
+                    done++;
+                }
+                pairs[thread] = done;
+            }, "bench-" + t);
+            workers[t].start();
+        }
+
+        start.countDown();
+        Thread.sleep(millis);
+        stop.set(true);
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            total += pairs[t];
+        }
+        return total;
+    }
+
+    /**
+     * Waits until every thread has been started.
+     */
+    private static void awaitStart(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads a comma separated list of thread counts.
+     */
+    private static int[] parseCounts(String value) {
+        String[] parts = value.split(",");
+        int[] counts = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            counts[i] = Integer.parseInt(parts[i].trim());
+        }
+        return counts;
+    }
+}
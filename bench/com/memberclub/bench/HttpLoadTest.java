@@ -0,0 +1,252 @@
+package com.memberclub.bench;
+
+import com.memberclub.api.ClubServer;
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.enums.ItemStatus;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Local load test of the HTTP API with thousands of concurrent keep-alive connections.
+ *
+ * Starts a ClubServer on a free local port over an in-memory club, opens every connection
+ * first and only then starts sending, so all of them are open at the same time. Each
+ * connection rents an item, returns it, browses available items, searches members and
+ * reads the revenue, in a loop. The client is a single selector thread, so the number of
+ * connections is not limited by client threads.
+ *
+ * Settings are read from system properties:
+ * "bench.connections" (default 5000), "bench.requests" per connection (default 50)
+ * and "bench.items" in the club (default 20000).
+ */
+public class HttpLoadTest {
+
+    // Credentials of one of the sample users
+    private static final String AUTHORIZATION = "Basic " + Base64.getEncoder().encodeToString("danieleriksson:0000".getBytes(StandardCharsets.UTF_8));
+
+    // Requests in one round of a connection, the first two are the rent and the return
+    private static final int ROUND = 5;
+
+    /**
+     * Runs the load test.
+     * @param args not used
+     * @throws IOException if the server cannot be started or a connection cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int connections = Integer.getInteger("bench.connections", 5000);
+        int requestsPerConnection = Integer.getInteger("bench.requests", 50);
+        int itemCount = Integer.getInteger("bench.items", 20_000);
+
+        // A club with an available item per connection, when the size allows it
+        BenchmarkData data = new BenchmarkData(itemCount);
+        List<String> available = new ArrayList<>();
+        for (Item item : data.getItems()) {
+            if (item.getStatus() == ItemStatus.AVAILABLE) {
+                available.add(item.getId());
+            }
+        }
+        List<Member> members = data.getMembers();
+
+        ClubServer server = new ClubServer(data.getSystem(), new InetSocketAddress("127.0.0.1", 0), connections);
+        server.start();
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getPort());
+
+        try (Selector selector = Selector.open()) {
+
+            // Open every connection before any request is sent
+            long openStart = System.nanoTime();
+            Connection[] all = new Connection[connections];
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(address);
+                channel.configureBlocking(false);
+                all[i] = new Connection(channel,
+                        available.get(i % available.size()),
+                        members.get(i % members.size()).getId(),
+                        requestsPerConnection);
+            }
+            long openNanos = System.nanoTime() - openStart;
+
+            // Start every connection at once and drive them all from this thread
+            long start = System.nanoTime();
+            for (Connection connection : all) {
+                connection.channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.send();
+            }
+            int running = connections;
+            while (running > 0) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    if (connection.read()) {
+                        key.cancel();
+                        running--;
+                    }
+                }
+            }
+            long nanos = System.nanoTime() - start;
+
+            // Sum up every connection
+            long[] latencies = new long[connections * requestsPerConnection];
+            int count = 0;
+            int failed = 0;
+            Map<Integer, Integer> statuses = new TreeMap<>();
+            for (Connection connection : all) {
+                System.arraycopy(connection.latencies, 0, latencies, count, connection.completed);
+                count += connection.completed;
+                failed += connection.failed ? 1 : 0;
+                connection.statuses.forEach((status, n) -> statuses.merge(status, n, Integer::sum));
+                connection.channel.close();
+            }
+            Arrays.sort(latencies, 0, count);
+
+            System.out.printf("Connections open at once  %d (opened in %d ms)%n", connections, openNanos / 1_000_000);
+            System.out.printf("Requests                  %d in %.2f s, %.0f requests/s%n", count, nanos / 1e9, count / (nanos / 1e9));
+            System.out.printf("Latency p50 / p99 / max   %.2f / %.2f / %.2f ms%n",
+                    percentile(latencies, count, 0.50), percentile(latencies, count, 0.99), percentile(latencies, count, 1.0));
+            System.out.printf("Status codes              %s%n", statuses);
+            System.out.printf("Failed connections        %d%n", failed);
+        } finally {
+            server.stop(0);
+            data.getSystem().shutdown();
+        }
+    }
+
+    private static double percentile(long[] sorted, int count, double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        return sorted[Math.min(count - 1, (int) (count * fraction))] / 1e6;
+    }
+
+    /**
+     * One keep-alive connection that sends its next request when the previous response is complete.
+     */
+    private static final class Connection {
+
+        private final SocketChannel channel;
+        private final String itemId;
+        private final int memberId;
+        private final long[] latencies;
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+
+        private int completed;
+        private boolean failed;
+        private long sentAt;
+
+        // Rental made by the last rent request, returned by the next request
+        private String rentalId;
+
+        private Connection(SocketChannel channel, String itemId, int memberId, int requests) {
+            this.channel = channel;
+            this.itemId = itemId;
+            this.memberId = memberId;
+            this.latencies = new long[requests];
+        }
+
+        /**
+         * Sends the next request of the round.
+         */
+        private void send() throws IOException {
+            String request = switch (completed % ROUND) {
+                case 0 -> post("/api/rentals", "memberId=" + memberId + "&itemId=" + itemId + "&duration=1&period=DAILY");
+                case 1 -> rentalId == null ? get("/api/revenue") : post("/api/rentals/" + rentalId + "/return", "");
+                case 2 -> get("/api/items?status=AVAILABLE&type=KAYAK&limit=10");
+                case 3 -> get("/api/members?q=anna&limit=10");
+                default -> get("/api/revenue");
+            };
+            ByteBuffer out = ByteBuffer.wrap(request.getBytes(StandardCharsets.UTF_8));
+            sentAt = System.nanoTime();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+
+        /**
+         * Reads what has arrived and sends the next request when a response is complete.
+         * @return true when the connection is done, or has failed
+         */
+        private boolean read() throws IOException {
+            int read;
+            try {
+                read = channel.read(readBuffer);
+            } catch (IOException e) {
+                read = -1;
+            }
+            if (read < 0) {
+                failed = true;
+                return true;
+            }
+
+            // Wait for the headers and the whole body
+            String received = new String(readBuffer.array(), 0, readBuffer.position(), StandardCharsets.ISO_8859_1);
+            int headerEnd = received.indexOf("\r\n\r\n");
+            if (headerEnd < 0) {
+                return false;
+            }
+            int length = contentLength(received, headerEnd);
+            if (received.length() < headerEnd + 4 + length) {
+                return false;
+            }
+
+            // Record the response and keep the rental to return
+            latencies[completed] = System.nanoTime() - sentAt;
+            int status = Integer.parseInt(received.substring(9, 12));
+            statuses.merge(status, 1, Integer::sum);
+            if (completed % ROUND == 0) {
+                rentalId = status == 201 ? field(received, "rentalId") : null;
+            }
+            readBuffer.clear();
+            completed++;
+            if (completed == latencies.length) {
+                return true;
+            }
+            send();
+            return false;
+        }
+
+        private String get(String path) {
+            return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\nAuthorization: " + AUTHORIZATION + "\r\n\r\n";
+        }
+
+        private String post(String path, String form) {
+            return "POST " + path + " HTTP/1.1\r\nHost: localhost\r\nAuthorization: " + AUTHORIZATION
+                    + "\r\nContent-Type: application/x-www-form-urlencoded\r\nContent-Length: " + form.length() + "\r\n\r\n" + form;
+        }
+
+        private static int contentLength(String response, int headerEnd) {
+            String headers = response.substring(0, headerEnd).toLowerCase();
+            int at = headers.indexOf("content-length:");
+            if (at < 0) {
+                return 0;
+            }
+            int end = headers.indexOf("\r\n", at);
+            return Integer.parseInt(headers.substring(at + 15, end < 0 ? headerEnd : end).trim());
+        }
+
+        private static String field(String response, String name) {
+            String marker = "\"" + name + "\":\"";
+            int at = response.indexOf(marker);
+            return at < 0 ? null : response.substring(at + marker.length(), response.indexOf('"', at + marker.length()));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.memberclub.bench;
+
+import com.memberclub.export.ClubExporter;
+import com.memberclub.export.ClubImporter;
+import com.memberclub.export.ExportFormat;
+import com.memberclub.export.ImportResult;
+import com.memberclub.system.ClubSystem;
+import com.memberclub.system.SyntheticDataGenerator;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Round trip of a large item and member file through the bulk import.
+ *
+ * Generates a club with "bench.rows" items and as many members (default 1000000), exports
+ * both in every format to temporary files and imports each file into a fresh in-memory club,
+ * which is the branch onboarding case. Prints the file size, the import time and the
+ * throughput, and checks that every record came back.
+ */
+public class ImportLoadTest {
+
+    /**
+     * Runs the load test.
+     * @param args not used
+     * @throws IOException if a temporary file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = Integer.getInteger("bench.rows", 1_000_000);
+
+        // Source club without rentals, only the items and members are exported
+        ClubSystem source = new ClubSystem(null);
+        new SyntheticDataGenerator(42, rows, rows, 0, 3).generate(source);
+        ClubExporter exporter = new ClubExporter(source.getRentalService(), source.getMemberRegistry(), source.getInventory());
+        int items = source.getInventory().getItemCount();
+        int members = source.getMemberRegistry().getMemberCount();
+
+        Path directory = Files.createTempDirectory("memberclub-import");
+        try {
+            for (ExportFormat format : ExportFormat.values()) {
+                String extension = format == ExportFormat.CSV ? ".csv" : ".ndjson";
+
+                // Write both files before timing anything
+                Path itemFile = directory.resolve("items" + extension);
+                Path memberFile = directory.resolve("members" + extension);
+                try (FileChannel out = FileChannel.open(itemFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    exporter.exportItems(out, format, null, null);
+                }
+                try (FileChannel out = FileChannel.open(memberFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    exporter.exportMembers(out, format, null);
+                }
+
+                // Import into a fresh club, like a new branch
+                ClubSystem target = new ClubSystem(null);
+                ClubImporter importer = new ClubImporter(target);
+                try {
+                    ImportResult itemResult;
+                    long start = System.nanoTime();
+                    try (FileChannel in = FileChannel.open(itemFile)) {
+                        itemResult = importer.importItems(in, format);
+                    }
+                    long itemNanos = System.nanoTime() - start;
+
+                    ImportResult memberResult;
+                    start = System.nanoTime();
+                    try (FileChannel in = FileChannel.open(memberFile)) {
+                        memberResult = importer.importMembers(in, format);
+                    }
+                    long memberNanos = System.nanoTime() - start;
+
+                    print(format + " items", itemFile, itemResult, items, itemNanos);
+                    print(format + " members", memberFile, memberResult, members, memberNanos);
+                } finally {
+                    target.shutdown();
+                }
+            }
+        } finally {
+            source.shutdown();
+            for (Path file : Files.list(directory).toList()) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void print(String name, Path file, ImportResult result, int expected, long nanos) throws IOException {
+        System.out.printf("%-16s %,10d rows  %6.1f MB  %6.2f s  %,10.0f rows/s  rejected %d%s%n",
+                name, result.getImported(), Files.size(file) / 1e6, nanos / 1e9, result.getImported() / (nanos / 1e9),
+                result.getRejected(), result.getImported() == expected ? "" : "  MISSING " + (expected - result.getImported()));
+        for (String error : result.getErrors()) {
+            System.out.println("  " + error);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.memberclub.bench;
+
+import com.memberclub.export.ClubExporter;
+import com.memberclub.export.ExportFormat;
+import com.memberclub.export.RentalFilter;
+import com.memberclub.model.CartItem;
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.Money;
+import com.memberclub.model.Rental;
+import com.memberclub.model.enums.ItemStatus;
+import com.memberclub.model.enums.RentalPeriod;
+import com.memberclub.pricing.PricePolicy;
+import com.memberclub.pricing.PriceTable;
+import com.memberclub.pricing.PricingRules;
+import com.memberclub.pricing.PricingFactory;
+import com.memberclub.service.RentalService;
+import com.memberclub.system.ClubSystem;
+import com.memberclub.system.ItemIdGenerator;
+import com.memberclub.ui.UIHelper;
+import com.memberclub.ui.components.ItemSelector;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Benchmarks for the hot paths of the service layer.
+ * Run with an optional name filter, for example "Inventory" to only run the inventory benchmarks.
+ */
+public class ServiceBenchmarks {
+
+    // Search terms with many hits, few hits and no hits
+    private static final String[] SEARCH_TERMS = {"anna", "karlsson", "erik eriksson", "zzz"};
+
+    // Pricing rules with the fixed level discounts plus every other kind of rule
+    private static final List<String> SAMPLE_RULES = List.of(
+            "level STUDENT x0.8",
+            "level PREMIUM x0.7",
+            "type KAYAK x0.9",
+            "category FISHING x1.1",
+            "season 06-15..08-15 x1.25",
+            "season 12-20..01-06 x0.9",
+            "weekend x1.1",
+            "days >= 3 x0.9",
+            "days >= 7 x0.8");
+
+    /**
+     * Runs the benchmarks.
+     * @param args optional benchmark name filter
+     */
+    public static void main(String[] args) {
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        benchmarks.add(new Benchmark("RentalService.rentItem+returnItem", size -> {
+            BenchmarkData data = new BenchmarkData(size);
+            RentalService rentals = data.getSystem().getRentalService();
+            List<Integer> available = new ArrayList<>();
+            for (Item item : data.getItems()) {
+                if (item.getStatus() == ItemStatus.AVAILABLE) {
+                    available.add(ItemIdGenerator.toKey(item.getId()));
+                }
+            }
+            int[] availableKeys = available.stream().mapToInt(Integer::intValue).toArray();
+            List<Member> members = data.getMembers();
+            int[] next = {0};
+
+            // Rent the next available item and return it again, so the dataset stays the same
+            return () -> {
+                int i = next[0]++ % availableKeys.length;
+                Rental rental = rentals.rentItem(members.get(i % members.size()).getId(),
+                        availableKeys[i], 1, RentalPeriod.DAILY);
+                return rentals.returnItem(rental.getSequence()) ? 1 : 0;
+            };
+        }));
+
+        benchmarks.add(new Benchmark("RentalService.rentItems(30)+returnItem", size -> {
+            BenchmarkData data = new BenchmarkData(size);
+            RentalService rentals = data.getSystem().getRentalService();
+            List<CartItem> available = new ArrayList<>();
+            for (Item item : data.getItems()) {
+                if (item.getStatus() == ItemStatus.AVAILABLE) {
+                    available.add(new CartItem(item, 1, RentalPeriod.DAILY, item.getPricePerDayInOre()));
+                }
+            }
+            int batch = Math.min(30, available.size());
+            List<Member> members = data.getMembers();
+            int[] next = {0};
+
+            // Rent a group booking of 30 items and return them again, so the dataset stays the same
+            return () -> {
+                int i = next[0]++;
+                int start = i * batch % (available.size() - batch + 1);
+                List<Rental> created = rentals.rentItems(members.get(i % members.size()).getId(),
+                        available.subList(start, start + batch));
+                for (Rental rental : created) {
+                    rentals.returnItem(rental.getSequence());
+                }
+                return created.size();
+            };
+        }));
+
+        benchmarks.add(new Benchmark("RentalService.getActiveRentals", size -> {
+            RentalService rentals = new BenchmarkData(size).getSystem().getRentalService();
+            return () -> rentals.getActiveRentals().size();
+        }));
+
+        benchmarks.add(new Benchmark("Inventory.getAllItems", size -> {
+            BenchmarkData data = new BenchmarkData(size);
+            return () -> data.getSystem().getInventory().getAllItems().size();
+        }));
+
+        benchmarks.add(new Benchmark("MembershipService.searchMemberByName", size -> {
+            BenchmarkData data = new BenchmarkData(size);
+            int[] next = {0};
+            return () -> data.getSystem().getMembershipService()
+                    .searchMemberByName(SEARCH_TERMS[next[0]++ % SEARCH_TERMS.length]).size();
+        }));
+
+        benchmarks.add(new Benchmark("PricingFactory+PricePolicy.calculatePrice", size -> {
+            BenchmarkData data = new BenchmarkData(size);
+            List<Item> items = data.getItems();
+            List<Member> members = data.getMembers();
+            int[] next = {0};
+
+            // Price a different item and member every call, like a busy counter would
+            return () -> {
+                int i = next[0]++ % items.size();
+                Member member = members.get(i % members.size());
+                PricePolicy policy = PricingFactory.getPricing(member.getMembershipLevel());
+                return policy.calculatePrice(items.get(i), member, 1 + i % 7, RentalPeriod.DAILY);
+            };
+        }));
+
+        benchmarks.add(new Benchmark("PricingRules.calculatePrice", size -> {
+            BenchmarkData data = new BenchmarkData(size);
+            PricingRules rules = PricingRules.compile(SAMPLE_RULES);
+            List<Item> items = data.getItems();
+            List<Member> members = data.getMembers();
+            LocalDate[] days = new LocalDate[365];
+            for (int day = 0; day < days.length; day++) {
+                days[day] = LocalDate.now().plusDays(day);
+            }
+            int[] next = {0};
+
+            // Same mix as the strategy benchmark above, with every kind of rule in play on every day of the year
+            return () -> {
+                int i = next[0]++ % items.size();
+                Member member = members.get(i % members.size());
+                return rules.calculatePrice(items.get(i), member.getMembershipLevel(), 1 + i % 7, RentalPeriod.DAILY,
+                        days[i % days.length]);
+            };
+        }));
+
+        benchmarks.add(new Benchmark("PriceTable.quote", size -> {
+            BenchmarkData data = new BenchmarkData(size);
+            PriceTable prices = data.getSystem().getInventory().getPriceTable();
+            int[] keys = data.getItems().stream().mapToInt(item -> ItemIdGenerator.toKey(item.getId())).toArray();
+            List<Member> members = data.getMembers();
+            int[] next = {0};
+
+            // Same mix of items, members and durations as the strategy benchmark above
+            return () -> {
+                int i = next[0]++ % keys.length;
+                return prices.quote(keys[i], members.get(i % members.size()).getMembershipLevel(), 1 + i % 7, RentalPeriod.DAILY);
+            };
+        }));
+
+        benchmarks.add(new Benchmark("Money cart total(30)", size -> {
+            List<CartItem> cart = sampleCart(new BenchmarkData(size));
+
+            // Sum a cart and take off a student discount, the way carts and receipts do it
+            return () -> {
+                long total = 0;
+                for (int i = 0; i < cart.size(); i++) {
+                    total += cart.get(i).getPriceInOre();
+                }
+                return total - Money.scale(total, 0.20);
+            };
+        }));
+
+        benchmarks.add(new Benchmark("BigDecimal cart total(30)", size -> {
+            List<CartItem> cart = sampleCart(new BenchmarkData(size));
+            BigDecimal discount = new BigDecimal("0.20");
+
+            // Same sum as above with BigDecimal kronor, for comparison
+            return () -> {
+                BigDecimal total = BigDecimal.ZERO;
+                for (int i = 0; i < cart.size(); i++) {
+                    total = total.add(BigDecimal.valueOf(cart.get(i).getPriceInOre(), 2));
+                }
+                return total.subtract(total.multiply(discount).setScale(2, RoundingMode.HALF_UP)).unscaledValue().longValue();
+            };
+        }));
+
+        benchmarks.add(new Benchmark("ItemSelector.getAvailableItemsByCategory", size -> {
+            BenchmarkData data = new BenchmarkData(size);
+            Scanner scanner = new Scanner(System.in);
+            ItemSelector selector = new ItemSelector(scanner, data.getSystem(), new UIHelper(scanner));
+            int[] next = {0};
+            return () -> selector.getAvailableItemsByCategory(1 + next[0]++ % 3).size();
+        }));
+
+        benchmarks.add(new Benchmark("ClubExporter.exportRentals(NDJSON)", size -> {
+            ClubSystem system = new BenchmarkData(size).getSystem();
+            ClubExporter exporter = new ClubExporter(system.getRentalService(), system.getMemberRegistry(), system.getInventory());
+            CountingChannel channel = new CountingChannel();
+            return () -> {
+                try {
+                    return exporter.exportRentals(channel, ExportFormat.NDJSON, RentalFilter.ALL);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+        }));
+
+        benchmarks.add(new Benchmark("RentalService.getAllRentals toString", size -> {
+            RentalService rentals = new BenchmarkData(size).getSystem().getRentalService();
+
+            // What a report did before the export: build every rental and a line of text for it
+            return () -> {
+                long bytes = 0;
+                for (Rental rental : rentals.getAllRentals()) {
+                    bytes += rental.toString().length();
+                }
+                return bytes;
+            };
+        }));
+
+        Benchmark.runAll(benchmarks, args.length > 0 ? args[0] : null);
+    }
+
+    /**
+     * Channel that only counts the bytes written to it.
+     */
+    private static final class CountingChannel implements WritableByteChannel {
+
+        private long bytes;
+
+        @Override
+        public int write(ByteBuffer source) {
+            int count = source.remaining();
+            source.position(source.limit());
+            bytes += count;
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Builds a cart of up to 30 items priced by the day.
+     */
+    private static List<CartItem> sampleCart(BenchmarkData data) {
+        List<CartItem> cart = new ArrayList<>();
+        for (Item item : data.getItems()) {
+            if (cart.size() == 30) {
+                break;
+            }
+            cart.add(new CartItem(item, 3, RentalPeriod.DAILY, Money.times(item.getPricePerDayInOre(), 3)));
+        }
+        return cart;
+    }
+}
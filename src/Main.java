@@ -1,5 +1,14 @@
+import com.memberclub.api.ClubServer;
+import com.memberclub.export.ClubImporter;
+import com.memberclub.export.ExportFormat;
+import com.memberclub.export.ImportResult;
 import com.memberclub.system.*;
 import com.memberclub.ui.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 
 public class Main {
 
@@ -9,8 +18,86 @@ public class Main {
         System.setProperty("console.encoding", "UTF-8");
 
         ClubSystem system = new ClubSystem();
+
+        // Load the files of a new branch before anyone can use the club
+        importFiles(system);
+
         ConsoleMenu menu = new ConsoleMenu(system);
 
+        // Serve the HTTP API next to the console when a port is given
+        ClubServer server = startServer(system);
+
         menu.start();
+
+        // Let running requests finish, then flush saved state before exiting
+        if (server != null) {
+            server.stop(5);
+        }
+        system.shutdown();
+    }
+
+    /**
+     * Imports the items in "memberclub.import.items" and the members in "memberclub.import.members",
+     * when set. Files ending in .csv are read as CSV, all others as NDJSON.
+     * @param system the club system to import into
+     */
+    private static void importFiles(ClubSystem system) {
+        ClubImporter importer = new ClubImporter(system);
+        importFile(System.getProperty("memberclub.import.items"), "artiklar", importer::importItems);
+        importFile(System.getProperty("memberclub.import.members"), "medlemmar", importer::importMembers);
+    }
+
+    private static void importFile(String file, String what, Import load) {
+        if (file == null) {
+            return;
+        }
+
+        Path path = Path.of(file);
+        ExportFormat format = file.toLowerCase().endsWith(".csv") ? ExportFormat.CSV : ExportFormat.NDJSON;
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path)) {
+            ImportResult result = load.run(channel, format);
+            System.out.printf("Importerade %d %s från %s på %.1f s, %d rader avvisades%n", result.getImported(), what,
+                    path, (System.nanoTime() - start) / 1e9, result.getRejected());
+            for (String error : result.getErrors()) {
+                System.out.println("  " + error);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Kunde inte importera " + path + ": " + e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte importera " + path, e);
+        }
+    }
+
+    /**
+     * Imports one file into the club.
+     */
+    @FunctionalInterface
+    private interface Import {
+        ImportResult run(FileChannel channel, ExportFormat format) throws IOException;
+    }
+
+    /**
+     * Starts the HTTP API on "memberclub.http.port", listening on "memberclub.http.host"
+     * (default all addresses) with room for "memberclub.http.backlog" queued connections (default 4096).
+     * @param system the club system to serve
+     * @return the running server, or null when no port is set
+     */
+    private static ClubServer startServer(ClubSystem system) {
+        Integer port = Integer.getInteger("memberclub.http.port");
+        if (port == null) {
+            return null;
+        }
+
+        String host = System.getProperty("memberclub.http.host");
+        InetSocketAddress address = host == null ? new InetSocketAddress(port) : new InetSocketAddress(host, port);
+        try {
+            ClubServer server = new ClubServer(system, address, Integer.getInteger("memberclub.http.backlog", 4096));
+            server.start();
+            System.out.println("HTTP-API startat på port " + server.getPort());
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte starta HTTP-API på port " + port, e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,574 @@
+package com.memberclub.api;
+
+import com.memberclub.export.ClubExporter;
+import com.memberclub.export.ClubImporter;
+import com.memberclub.export.ExportFormat;
+import com.memberclub.export.ImportResult;
+import com.memberclub.export.RentalFilter;
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.Rental;
+import com.memberclub.model.enums.Color;
+import com.memberclub.model.enums.ItemStatus;
+import com.memberclub.model.enums.ItemType;
+import com.memberclub.model.enums.MembershipLevel;
+import com.memberclub.model.enums.RentalPeriod;
+import com.memberclub.model.enums.RentalStatus;
+import com.memberclub.model.enums.RevenueSource;
+import com.memberclub.service.Inventory;
+import com.memberclub.system.ClubSystem;
+import com.memberclub.system.ItemIdGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP/JSON front end for kiosks, the booking site and staff tablets, next to the console menu.
+ *
+ * Built on the JDK's own HttpServer: one dispatcher thread accepts and reads every connection,
+ * and each request is handled on the request executor. On Java 21 and later that executor
+ * starts one virtual thread per request, so a request waiting for the journal does not hold
+ * a platform thread. On older JDKs it is a fixed pool of "memberclub.http.threads" platform
+ * threads (default 256). Open connections do not take a thread either way, so thousands of
+ * kiosks can stay connected.
+ *
+ * Every request needs HTTP Basic authentication with a system user. Parameters are read from
+ * the query string, and from a form body for POST. Amounts are whole öre.
+ *
+ * GET  /api/items?type=&status=&color=&limit=   items matching the filters, with the total count
+ * GET  /api/items/{itemId}                      one item
+ * GET  /api/members?q=&limit=                   member search by name, email or phone
+ * GET  /api/members/{memberId}                  one member
+ * POST /api/rentals  memberId, itemId, duration, period   rents an item, 201 with the rental
+ * GET  /api/rentals/{rentalId}                  one rental, active or returned
+ * POST /api/rentals/{rentalId}/return           settles the late fee and returns the item
+ * GET  /api/revenue                             the revenue ledger
+ * GET  /api/export/rentals?format=&from=&to=&status=&type=   rentals streamed as NDJSON or CSV
+ * GET  /api/export/members?format=&level=      members streamed as NDJSON or CSV
+ * GET  /api/export/items?format=&type=&status= items streamed as NDJSON or CSV
+ * POST /api/import/items?format=                items from the NDJSON or CSV request body
+ * POST /api/import/members?format=              members from the NDJSON or CSV request body
+ */
+public class ClubServer {
+
+    // Rows returned by a list when the request gives no limit
+    private static final int DEFAULT_LIMIT = 100;
+
+    // Context whose request body is the file itself, read by the route instead of as a form
+    private static final String IMPORT_CONTEXT = "/api/import";
+
+    // Read by the JDK server when the first HttpServer is created, so they are set before that
+    static {
+
+        // Without this the server closes every keep-alive connection beyond 200 idle ones
+        setDefault("sun.net.httpserver.maxIdleConnections", String.valueOf(Integer.MAX_VALUE));
+
+        // Headers and body are written separately, without this small responses wait for the client's ACK
+        setDefault("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final ClubSystem system;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ClubExporter exporter;
+    private final ClubImporter importer;
+
+    /**
+     * Creates a server for a club system, without starting it.
+     * @param system the club system to serve
+     * @param address the address and port to listen on, port 0 picks a free port
+     * @param backlog the number of connections the OS may queue before they are accepted
+     * @throws IOException if the address cannot be bound
+     */
+    public ClubServer(ClubSystem system, InetSocketAddress address, int backlog) throws IOException {
+        this.system = system;
+        this.server = HttpServer.create(address, backlog);
+        this.executor = newRequestExecutor();
+        this.exporter = new ClubExporter(system.getRentalService(), system.getMemberRegistry(), system.getInventory());
+        this.importer = new ClubImporter(system);
+        server.setExecutor(executor);
+
+        // One context per resource, the handler picks the operation from the method and path
+        server.createContext("/api/items", exchange -> handle(exchange, this::items));
+        server.createContext("/api/members", exchange -> handle(exchange, this::members));
+        server.createContext("/api/rentals", exchange -> handle(exchange, this::rentals));
+        server.createContext("/api/revenue", exchange -> handle(exchange, this::revenue));
+        server.createContext("/api/export", exchange -> handle(exchange, this::export));
+        server.createContext(IMPORT_CONTEXT, exchange -> handle(exchange, this::importRecords));
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, lets running requests finish for up to the given time and
+     * then stops the request threads.
+     * @param delaySeconds the longest time to wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the port the server listens on, useful when it was created with port 0.
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Starts one virtual thread per request where the JDK has them, a fixed pool of platform threads otherwise.
+     */
+    private static ExecutorService newRequestExecutor() {
+
+        // Looked up at runtime, so the same build runs on Java 17 and uses virtual threads on 21
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Integer.getInteger("memberclub.http.threads", 256);
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "club-http-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    /**
+     * Authenticates the request, runs the route and writes its response.
+     * Bad parameters give 400, anything unexpected gives 500 without stopping the server.
+     */
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        Response response;
+        try {
+            if (!isAuthenticated(exchange)) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"memberclub\"");
+                response = new Response(401, Json.error("Inloggning krävs"));
+            } else {
+                response = route.handle(exchange, readParameters(exchange));
+            }
+        } catch (IllegalArgumentException e) {
+            response = new Response(400, Json.error(e.getMessage()));
+        } catch (RuntimeException e) {
+            System.err.println("Fel i " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + e);
+            response = new Response(500, Json.error("Internt fel"));
+        }
+
+        // Exports are streamed in chunks as they are read, without knowing the length up front
+        if (response.stream != null) {
+            exchange.getResponseHeaders().set("Content-Type", response.contentType);
+            exchange.sendResponseHeaders(response.status, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                response.stream.write(Channels.newChannel(out));
+            } catch (IOException | RuntimeException e) {
+
+                // The status is already sent, so the response can only be cut short
+                System.err.println("Export avbruten, " + exchange.getRequestURI() + ": " + e);
+                exchange.close();
+            }
+            return;
+        }
+
+        // Send the body with its length, so the connection can be kept open for the next request
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Checks the Basic credentials of a request against the system users.
+     */
+    private boolean isAuthenticated(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return false;
+        }
+
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        int colon = credentials.indexOf(':');
+        return colon > 0 && system.authenticateUser(credentials.substring(0, colon), credentials.substring(colon + 1)) != null;
+    }
+
+    // GET /api/items, GET /api/items/{itemId}
+    private Response items(HttpExchange exchange, Map<String, String> parameters) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return methodNotAllowed(exchange, "GET");
+        }
+        String id = pathId(exchange, "/api/items");
+
+        // One item
+        if (id != null) {
+            int key = ItemIdGenerator.parseKey(id);
+            Item item = key < 0 ? null : system.getInventory().getItem(key);
+            return item == null ? notFound("Artikeln hittades inte") : ok(Json.of(item, Json::appendItem));
+        }
+
+        // The first page of items matching the filters, the count covers the ones past the limit too
+        ItemType type = parseEnum(ItemType.class, parameters.get("type"));
+        ItemStatus status = parseEnum(ItemStatus.class, parameters.get("status"));
+        Color color = parseEnum(Color.class, parameters.get("color"));
+        int limit = parseLimit(parameters.get("limit"));
+        Inventory inventory = system.getInventory();
+        List<Item> items = new ArrayList<>();
+        inventory.findItems(type, status, color, 0, items, limit);
+        return ok(Json.list("items", inventory.countItems(type, status, color), items, Json::appendItem));
+    }
+
+    // GET /api/members?q=, GET /api/members/{memberId}
+    private Response members(HttpExchange exchange, Map<String, String> parameters) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return methodNotAllowed(exchange, "GET");
+        }
+        String id = pathId(exchange, "/api/members");
+
+        // One member
+        if (id != null) {
+            Member member = system.getMembershipService().getMember(parseInt(id, "medlems-ID"));
+            return member == null ? notFound("Medlemmen hittades inte") : ok(Json.of(member, Json::appendMember));
+        }
+
+        // Search, a search term is required so the whole register is never sent
+        String term = parameters.get("q");
+        if (term == null || term.isBlank()) {
+            throw new IllegalArgumentException("Sökord saknas (q)");
+        }
+        List<Member> members = system.getMembershipService().searchMemberByName(term);
+        int limit = parseLimit(parameters.get("limit"));
+        return ok(Json.list("members", members.size(), members.subList(0, Math.min(limit, members.size())), Json::appendMember));
+    }
+
+    // POST /api/rentals, GET /api/rentals/{rentalId}, POST /api/rentals/{rentalId}/return
+    private Response rentals(HttpExchange exchange, Map<String, String> parameters) {
+        String id = pathId(exchange, "/api/rentals");
+
+        // Rent an item
+        if (id == null) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                return methodNotAllowed(exchange, "POST");
+            }
+            return rent(parameters);
+        }
+
+        // Return an item
+        if (id.endsWith("/return")) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                return methodNotAllowed(exchange, "POST");
+            }
+            return returnItem(id.substring(0, id.length() - "/return".length()));
+        }
+
+        // One rental
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return methodNotAllowed(exchange, "GET");
+        }
+        Rental rental = system.getRentalService().getRental(id);
+        return rental == null ? notFound("Uthyrningen hittades inte") : ok(Json.of(rental, Json::appendRental));
+    }
+
+    private Response rent(Map<String, String> parameters) {
+        int memberId = parseInt(parameters.get("memberId"), "memberId");
+        String itemId = parameters.get("itemId");
+        int duration = parseInt(parameters.get("duration"), "duration");
+        RentalPeriod period = parseEnum(RentalPeriod.class, parameters.get("period"));
+        if (period == null) {
+            period = RentalPeriod.DAILY;
+        }
+        if (duration <= 0) {
+            throw new IllegalArgumentException("Hyrestiden måste vara minst 1");
+        }
+
+        // Try the rental first, the lookups below only tell the failures apart
+        Rental rental = system.getRentalService().rentItem(memberId, itemId, duration, period);
+        if (rental != null) {
+
+            // Book the rental fee, like a checkout at the counter
+            system.getRevenueService().addRevenueInOre(RevenueSource.RENTAL_FEE, rental.getTotalCostInOre());
+            return new Response(201, Json.of(rental, Json::appendRental));
+        }
+        if (system.getMembershipService().getMember(memberId) == null) {
+            return notFound("Medlemmen hittades inte");
+        }
+        int key = ItemIdGenerator.parseKey(itemId);
+        if (key < 0 || system.getInventory().getItem(key) == null) {
+            return notFound("Artikeln hittades inte");
+        }
+        return new Response(409, Json.error("Artikeln är inte tillgänglig"));
+    }
+
+    private Response returnItem(String rentalId) {
+        Rental rental = system.getRentalService().getRental(rentalId);
+        if (rental == null) {
+            return notFound("Uthyrningen hittades inte");
+        }
+
+        // Settles the late fee and books it, only one of two concurrent returns succeeds
+        if (!system.getLateFeeService().returnItem(rental.getSequence())) {
+            return new Response(409, Json.error("Uthyrningen är redan återlämnad"));
+        }
+        return ok(Json.of(system.getRentalService().getRental(rental.getSequence()), Json::appendRental));
+    }
+
+    // GET /api/revenue
+    private Response revenue(HttpExchange exchange, Map<String, String> parameters) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return methodNotAllowed(exchange, "GET");
+        }
+        return ok(Json.of(system.getRevenueService().getSummary(), Json::appendRevenue));
+    }
+
+    // GET /api/export/{rentals|members|items}?format=ndjson|csv and the filters of each
+    private Response export(HttpExchange exchange, Map<String, String> parameters) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return methodNotAllowed(exchange, "GET");
+        }
+        String what = pathId(exchange, "/api/export");
+        ExportFormat format = parseEnum(ExportFormat.class, parameters.get("format"));
+        if (format == null) {
+            format = ExportFormat.NDJSON;
+        }
+
+        // Check every parameter before the status is sent, the scan itself runs while streaming
+        ExportFormat chosen = format;
+        Export stream;
+        if ("rentals".equals(what)) {
+            RentalFilter filter = new RentalFilter(parseDate(parameters.get("from"), "from"), parseDate(parameters.get("to"), "to"),
+                    parseEnum(RentalStatus.class, parameters.get("status")), parseEnum(ItemType.class, parameters.get("type")));
+            stream = channel -> exporter.exportRentals(channel, chosen, filter);
+        } else if ("members".equals(what)) {
+            MembershipLevel level = parseEnum(MembershipLevel.class, parameters.get("level"));
+            stream = channel -> exporter.exportMembers(channel, chosen, level);
+        } else if ("items".equals(what)) {
+            ItemType type = parseEnum(ItemType.class, parameters.get("type"));
+            ItemStatus status = parseEnum(ItemStatus.class, parameters.get("status"));
+            stream = channel -> exporter.exportItems(channel, chosen, type, status);
+        } else {
+            return notFound("Okänd export, välj rentals, members eller items");
+        }
+
+        String contentType = format == ExportFormat.CSV ? "text/csv; charset=utf-8" : "application/x-ndjson; charset=utf-8";
+        exchange.getResponseHeaders().set("Content-Disposition",
+                "attachment; filename=\"" + what + (format == ExportFormat.CSV ? ".csv" : ".ndjson") + "\"");
+        return new Response(200, contentType, stream);
+    }
+
+    // POST /api/import/{items|members}?format=ndjson|csv with the file as the body
+    private Response importRecords(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            return methodNotAllowed(exchange, "POST");
+        }
+        String what = pathId(exchange, IMPORT_CONTEXT);
+        ExportFormat format = parseEnum(ExportFormat.class, parameters.get("format"));
+        if (format == null) {
+            format = ExportFormat.NDJSON;
+        }
+
+        // The body is parsed while it arrives, nothing is added before all of it is read
+        ImportResult result;
+        try (InputStream in = exchange.getRequestBody()) {
+            if ("items".equals(what)) {
+                result = importer.importItems(Channels.newChannel(in), format);
+            } else if ("members".equals(what)) {
+                result = importer.importMembers(Channels.newChannel(in), format);
+            } else {
+                return notFound("Okänd import, välj items eller members");
+            }
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Filen är inte giltig UTF-8");
+        }
+        return ok(Json.of(result, Json::appendImportResult));
+    }
+
+    /**
+     * Reads the query string, and the form body of a POST, into one map.
+     */
+    private static Map<String, String> readParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), parameters);
+
+        // An import body is the file, streamed by the route
+        if (exchange.getHttpContext().getPath().equals(IMPORT_CONTEXT)) {
+            return parameters;
+        }
+
+        // Read the body even when it is not a form, so the connection can be reused
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (body.length > 0 && contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+                parseForm(new String(body, StandardCharsets.UTF_8), parameters);
+            }
+        }
+        return parameters;
+    }
+
+    private static void parseForm(String form, Map<String, String> parameters) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Returns the part of the path after the context, such as "RENT-007/return", or null for the context itself.
+     */
+    private static String pathId(HttpExchange exchange, String context) {
+        String path = exchange.getRequestURI().getPath();
+        if (path.length() <= context.length() + 1) {
+            return null;
+        }
+        return path.substring(context.length() + 1);
+    }
+
+    private static int parseInt(String value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException("Parametern " + name + " saknas");
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ogiltigt värde för " + name + ": " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value, String name) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Ogiltigt datum för " + name + ", använd ÅÅÅÅ-MM-DD: " + value);
+        }
+    }
+
+    private static int parseLimit(String value) {
+        int limit = value == null ? DEFAULT_LIMIT : parseInt(value, "limit");
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit kan inte vara negativ");
+        }
+        return limit;
+    }
+
+    /**
+     * Parses an enum constant by name, ignoring case.
+     * @return the constant, or null when no value is given
+     * @throws IllegalArgumentException if the name is not a constant
+     */
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Okänt värde för " + type.getSimpleName() + ": " + value);
+        }
+    }
+
+    private static Response ok(String body) {
+        return new Response(200, body);
+    }
+
+    private static Response notFound(String message) {
+        return new Response(404, Json.error(message));
+    }
+
+    private static Response methodNotAllowed(HttpExchange exchange, String method) {
+        exchange.getResponseHeaders().set("Allow", method);
+        return new Response(405, Json.error("Metoden " + exchange.getRequestMethod() + " stöds inte här, använd " + method));
+    }
+
+    /**
+     * Handles one request to a context and returns the response to send.
+     */
+    @FunctionalInterface
+    private interface Route {
+        Response handle(HttpExchange exchange, Map<String, String> parameters) throws IOException;
+    }
+
+    /**
+     * Writes a streamed response body to a channel.
+     */
+    @FunctionalInterface
+    private interface Export {
+        void write(WritableByteChannel channel) throws IOException;
+    }
+
+    /**
+     * Status code and JSON body of a response, or a body that is streamed instead.
+     */
+    private static final class Response {
+
+        private final int status;
+        private final String body;
+        private final String contentType;
+        private final Export stream;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+            this.contentType = null;
+            this.stream = null;
+        }
+
+        private Response(int status, String contentType, Export stream) {
+            this.status = status;
+            this.body = null;
+            this.contentType = contentType;
+            this.stream = stream;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.memberclub.api;
+
+import com.memberclub.export.ImportResult;
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.Rental;
+import com.memberclub.model.RevenueSummary;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Writes the JSON bodies of the HTTP API.
+ * Each entity is appended field by field to a StringBuilder, so a response is built
+ * without a JSON library and without intermediate maps. Amounts are whole öre.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Appends a string as a JSON string literal, escaping quotes, backslashes and control characters.
+     * @param out the builder to append to
+     * @param value the string, or null for a JSON null
+     */
+    static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Returns an error body, such as {"error":"Medlemmen hittades inte"}.
+     * @param message the error message
+     * @return the JSON text
+     */
+    static String error(String message) {
+        StringBuilder out = new StringBuilder(64);
+        out.append("{\"error\":");
+        appendString(out, message);
+        return out.append('}').toString();
+    }
+
+    /**
+     * Appends an item with its status and unit prices.
+     */
+    static void appendItem(StringBuilder out, Item item) {
+        out.append("{\"id\":");
+        appendString(out, item.getId());
+        out.append(",\"name\":");
+        appendString(out, item.getName());
+        out.append(",\"type\":\"").append(item.getItemType())
+                .append("\",\"status\":\"").append(item.getStatus())
+                .append("\",\"color\":\"").append(item.getColor())
+                .append("\",\"year\":").append(item.getYear())
+                .append(",\"pricePerDayInOre\":").append(item.getPricePerDayInOre())
+                .append(",\"pricePerHourInOre\":").append(item.getPricePerHourInOre())
+                .append('}');
+    }
+
+    /**
+     * Appends a member with contact details and membership level.
+     */
+    static void appendMember(StringBuilder out, Member member) {
+        out.append("{\"id\":").append(member.getId()).append(",\"name\":");
+        appendString(out, member.getName());
+        out.append(",\"email\":");
+        appendString(out, member.getEmail());
+        out.append(",\"phone\":");
+        appendString(out, member.getPhone());
+        out.append(",\"level\":\"").append(member.getMembershipLevel())
+                .append("\",\"rentalCount\":").append(member.getRentalCount())
+                .append('}');
+    }
+
+    /**
+     * Appends a rental with its dates, cost and late fee.
+     */
+    static void appendRental(StringBuilder out, Rental rental) {
+        out.append("{\"rentalId\":\"").append(rental.getRentalId())
+                .append("\",\"memberId\":").append(rental.getMemberId())
+                .append(",\"itemId\":");
+        appendString(out, rental.getItemId());
+        out.append(",\"startDate\":");
+        appendDate(out, rental.getStartDate());
+        out.append(",\"expectedReturnDate\":");
+        appendDate(out, rental.getExpectedReturnDate());
+        out.append(",\"endDate\":");
+        appendDate(out, rental.getEndDate());
+        out.append(",\"totalCostInOre\":").append(rental.getTotalCostInOre())
+                .append(",\"lateFeeInOre\":").append(rental.getLateFeeInOre())
+                .append(",\"status\":\"").append(rental.getStatus())
+                .append("\"}");
+    }
+
+    /**
+     * Appends the revenue ledger.
+     */
+    static void appendRevenue(StringBuilder out, RevenueSummary summary) {
+        out.append("{\"rentalFeesInOre\":").append(summary.getRentalFeesInOre())
+                .append(",\"lateFeesInOre\":").append(summary.getLateFeesInOre())
+                .append(",\"totalInOre\":").append(summary.getTotalInOre())
+                .append('}');
+    }
+
+    /**
+     * Appends the outcome of an import with the reasons for the first rejected records.
+     */
+    static void appendImportResult(StringBuilder out, ImportResult result) {
+        out.append("{\"imported\":").append(result.getImported())
+                .append(",\"rejected\":").append(result.getRejected())
+                .append(",\"errors\":[");
+        List<String> errors = result.getErrors();
+        for (int i = 0; i < errors.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appendString(out, errors.get(i));
+        }
+        out.append("]}");
+    }
+
+    /**
+     * Returns a list as {"count":total,"items":[...]}, where count may be larger than the list
+     * when the list was cut off at a limit.
+     * @param name the name of the array field
+     * @param total the number of matches, shown or not
+     * @param values the values to write
+     * @param writer appends one value
+     * @return the JSON text
+     */
+    static <T> String list(String name, int total, List<T> values, Writer<T> writer) {
+        StringBuilder out = new StringBuilder(64 + values.size() * 160);
+        out.append("{\"count\":").append(total).append(",\"").append(name).append("\":[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            writer.append(out, values.get(i));
+        }
+        return out.append("]}").toString();
+    }
+
+    /**
+     * Returns one value as JSON.
+     * @param value the value to write
+     * @param writer appends the value
+     * @return the JSON text
+     */
+    static <T> String of(T value, Writer<T> writer) {
+        StringBuilder out = new StringBuilder(256);
+        writer.append(out, value);
+        return out.toString();
+    }
+
+    private static void appendDate(StringBuilder out, LocalDate date) {
+        if (date == null) {
+            out.append("null");
+        } else {
+            out.append('"').append(date).append('"');
+        }
+    }
+
+    /**
+     * Appends one value of a type, such as Json::appendItem.
+     */
+    @FunctionalInterface
+    interface Writer<T> {
+        void append(StringBuilder out, T value);
+    }
+}
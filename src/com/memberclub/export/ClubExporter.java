@@ -0,0 +1,300 @@
+package com.memberclub.export;
+
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.Rental;
+import com.memberclub.model.camping.*;
+import com.memberclub.model.enums.ItemStatus;
+import com.memberclub.model.enums.ItemType;
+import com.memberclub.model.enums.MembershipLevel;
+import com.memberclub.model.enums.RentalStatus;
+import com.memberclub.model.fishing.*;
+import com.memberclub.model.vehicles.*;
+import com.memberclub.persistence.RentalArchive;
+import com.memberclub.service.Inventory;
+import com.memberclub.service.MemberRegistry;
+import com.memberclub.service.RentalService;
+import com.memberclub.system.ItemIdGenerator;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams rentals, members and items to a channel as NDJSON or CSV.
+ *
+ * Nothing is collected first: finished rentals are read row by row from the archive columns,
+ * active rentals from a copy of their sequence numbers, members from the registry's table
+ * and items a page at a time from the inventory bitmaps. Filters are checked on the raw
+ * values during the scan, so skipped records are never built. Each record is encoded into
+ * a fixed buffer that is written out as it fills, so years of history take the same memory
+ * as one day. The channel should be blocking and is left open.
+ */
+public class ClubExporter {
+
+    // Items read per inventory page, the inventory lock is held for one page at a time
+    private static final int ITEM_PAGE = 1024;
+
+    // Rental columns
+    private static final String[] RENTAL_COLUMNS = {
+            "rentalId", "memberId", "itemId", "itemType", "startDate", "expectedReturnDate", "endDate", "status",
+            "totalCostInOre", "lateFeeInOre"
+    };
+
+    // Member columns, also read back by ClubImporter
+    static final String[] MEMBER_COLUMNS = {"id", "name", "email", "phone", "level", "rentalCount"};
+
+    // Item columns: every item, then category, water vehicle, boat and type-specific attributes.
+    // Also read back by ClubImporter
+    static final String[] ITEM_COLUMNS = {
+            "id", "type", "name", "status", "color", "year", "pricePerDayInOre", "pricePerHourInOre",
+            "material", "weight", "brand",
+            "capacity", "length",
+            "hasFishFinder", "maxSpeed",
+            "volume", "backpackType", "brightness", "powerSource", "temperatureRating", "seasonRating", "tentType",
+            "burners", "fuelType", "baitType", "quantity", "netSize", "meshSize", "rodLength", "rodType",
+            "seats", "kayakType", "batteryCapacity", "chargeTime", "enginePower", "oars"
+    };
+
+    private final RentalService rentalService;
+    private final MemberRegistry memberRegistry;
+    private final Inventory inventory;
+
+    /**
+     * Creates an exporter over the club's services.
+     * @param rentalService the service with the active rentals and the archive
+     * @param memberRegistry the member register
+     * @param inventory the inventory
+     */
+    public ClubExporter(RentalService rentalService, MemberRegistry memberRegistry, Inventory inventory) {
+        this.rentalService = rentalService;
+        this.memberRegistry = memberRegistry;
+        this.inventory = inventory;
+    }
+
+    /**
+     * Writes the rentals that match a filter, finished rentals first in the order they finished,
+     * then the active ones in the order they were made.
+     * Each rental is written once, also when it is returned while the export runs.
+     * @param channel the channel to write to
+     * @param format the output format
+     * @param filter the rentals to include
+     * @return the number of rentals written
+     * @throws IOException if writing to the channel fails
+     */
+    public long exportRentals(WritableByteChannel channel, ExportFormat format, RentalFilter filter) throws IOException {
+        RecordWriter writer = new RecordWriter(channel, format, RENTAL_COLUMNS);
+        RentalArchive archive = rentalService.getArchive();
+
+        // Active rentals first, so one returned from now on is archived past the rows read below
+        List<Rental> active = filter.includesActive() ? rentalService.getActiveRentals() : List.of();
+        int archivedRows = archive.size();
+
+        // Finished rentals straight from the columns, the filter columns are read first
+        for (int row = 0; row < archivedRows && filter.includesFinished(); row++) {
+            int startDay = archive.getStartDay(row);
+            RentalStatus status = archive.getStatus(row);
+            int itemKey = archive.getItemKey(row);
+            if (!filter.matches(startDay, status, itemKey)) {
+                continue;
+            }
+            writeRental(writer, archive.getSequence(row), archive.getMemberId(row), itemKey, startDay,
+                    archive.getExpectedDay(row), archive.getEndDay(row), status,
+                    archive.getCostInOre(row), archive.getLateFeeInOre(row));
+        }
+
+        // Active rentals, leaving out those that were returned into the rows above
+        for (Rental rental : active) {
+            int row = archive.findRow(rental.getSequence());
+            if (row != RentalArchive.NO_ROW && row < archivedRows) {
+                continue;
+            }
+            long startDay = rental.getStartDate().toEpochDay();
+            RentalStatus status = rental.getStatus();
+            int itemKey = rental.getItemKey();
+            if (!filter.matches(startDay, status, itemKey)) {
+                continue;
+            }
+            writeRental(writer, rental.getSequence(), rental.getMemberId(), itemKey, startDay,
+                    rental.getExpectedReturnDate().toEpochDay(),
+                    rental.getEndDate() == null ? RentalArchive.NO_END_DAY : rental.getEndDate().toEpochDay(), status,
+                    rental.getTotalCostInOre(), rental.getLateFeeInOre());
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Writes the members of one level, or every member.
+     * @param channel the channel to write to
+     * @param format the output format
+     * @param level the membership level to include, or null for all
+     * @return the number of members written
+     * @throws IOException if writing to the channel fails
+     */
+    public long exportMembers(WritableByteChannel channel, ExportFormat format, MembershipLevel level) throws IOException {
+        RecordWriter writer = new RecordWriter(channel, format, MEMBER_COLUMNS);
+        for (Member member : memberRegistry.scanMembers()) {
+            if (level != null && member.getMembershipLevel() != level) {
+                continue;
+            }
+            writer.begin();
+            writer.number(0, member.getId());
+            writer.text(1, member.getName());
+            writer.text(2, member.getEmail());
+            writer.text(3, member.getPhone());
+            writer.name(4, member.getMembershipLevel());
+            writer.number(5, member.getRentalCount());
+            writer.end();
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Writes the items of one type and status, with every attribute of their subclass.
+     * @param channel the channel to write to
+     * @param format the output format
+     * @param type the item type to include, or null for all
+     * @param status the item status to include, or null for all
+     * @return the number of items written
+     * @throws IOException if writing to the channel fails
+     */
+    public long exportItems(WritableByteChannel channel, ExportFormat format, ItemType type, ItemStatus status) throws IOException {
+        RecordWriter writer = new RecordWriter(channel, format, ITEM_COLUMNS);
+        List<Item> page = new ArrayList<>(ITEM_PAGE);
+        int slot = 0;
+        while (slot >= 0) {
+
+            // Take one page under the inventory lock, write it without
+            page.clear();
+            slot = inventory.findItems(type, status, slot, page, ITEM_PAGE);
+            for (Item item : page) {
+                writeItem(writer, item);
+            }
+        }
+        return writer.finish();
+    }
+
+    private static void writeRental(RecordWriter writer, long sequence, int memberId, int itemKey, long startDay,
+                                    long expectedDay, long endDay, RentalStatus status, long costInOre,
+                                    long lateFeeInOre) throws IOException {
+        writer.begin();
+        writer.text(0, RentalService.toRentalId(sequence));
+        writer.number(1, memberId);
+        writer.text(2, ItemIdGenerator.toId(itemKey));
+        writer.name(3, ItemIdGenerator.typeOf(itemKey));
+        writer.date(4, startDay);
+        writer.date(5, expectedDay);
+        if (endDay != RentalArchive.NO_END_DAY) {
+            writer.date(6, endDay);
+        }
+        writer.name(7, status);
+        writer.number(8, costInOre);
+        writer.number(9, lateFeeInOre);
+        writer.end();
+    }
+
+    /**
+     * Writes an item with the attributes of its category and type, in the order of ItemCodec.
+     */
+    private static void writeItem(RecordWriter writer, Item item) throws IOException {
+        writer.begin();
+
+        // Common Item fields
+        writer.text(0, item.getId());
+        writer.name(1, item.getItemType());
+        writer.text(2, item.getName());
+        writer.name(3, item.getStatus());
+        writer.name(4, item.getColor());
+        writer.number(5, item.getYear());
+        writer.number(6, item.getPricePerDayInOre());
+        writer.number(7, item.getPricePerHourInOre());
+
+        // Category fields
+        if (item instanceof CampingEquipment camping) {
+            writer.name(8, camping.getMaterial());
+            writer.decimal(9, camping.getWeight());
+            writer.text(10, camping.getBrand());
+        } else if (item instanceof FishingEquipment fishing) {
+            writer.name(8, fishing.getMaterial());
+            writer.decimal(9, fishing.getWeight());
+            writer.text(10, fishing.getBrand());
+        } else if (item instanceof WaterVehicle vehicle) {
+            writer.name(8, vehicle.getMaterial());
+            writer.decimal(9, vehicle.getWeight());
+            writer.text(10, vehicle.getBrand());
+            writer.number(11, vehicle.getCapacity());
+            writer.decimal(12, vehicle.getLength());
+        }
+
+        // Shared boat fields
+        if (item instanceof Boat boat) {
+            writer.bool(13, boat.isHasFishFinder());
+            writer.decimal(14, boat.getMaxSpeed());
+        }
+
+        // Type specific fields
+        switch (item.getItemType()) {
+            case BACKPACK -> {
+                Backpack backpack = (Backpack) item;
+                writer.number(15, backpack.getVolume());
+                writer.name(16, backpack.getBackpackType());
+            }
+            case LANTERN -> {
+                Lantern lantern = (Lantern) item;
+                writer.number(17, lantern.getBrightness());
+                writer.name(18, lantern.getPowerSource());
+            }
+            case SLEEPING_BAG -> {
+                SleepingBag bag = (SleepingBag) item;
+                writer.decimal(19, bag.getTemperatureRating());
+                writer.name(20, bag.getSeasonRating());
+            }
+            case TENT -> {
+                Tent tent = (Tent) item;
+                writer.number(11, tent.getCapacity());
+                writer.name(20, tent.getSeasonRating());
+                writer.name(21, tent.getTentType());
+            }
+            case TRANGIA_KITCHEN -> {
+                TrangiaKitchen trangia = (TrangiaKitchen) item;
+                writer.number(22, trangia.getBurners());
+                writer.name(23, trangia.getFuelType());
+            }
+            case FISHING_BAIT -> {
+                FishingBait bait = (FishingBait) item;
+                writer.name(24, bait.getBaitType());
+                writer.number(25, bait.getQuantity());
+            }
+            case FISHING_NET -> {
+                FishingNet net = (FishingNet) item;
+                writer.name(26, net.getNetSize());
+                writer.decimal(27, net.getMeshSize());
+            }
+            case FISHING_ROD -> {
+                FishingRod rod = (FishingRod) item;
+                writer.decimal(28, rod.getRodLength());
+                writer.name(29, rod.getRodType());
+            }
+            case KAYAK -> {
+                Kayak kayak = (Kayak) item;
+                writer.number(30, kayak.getSeats());
+                writer.name(31, kayak.getKayakType());
+            }
+            case ELECTRIC_BOAT -> {
+                ElectricBoat boat = (ElectricBoat) item;
+                writer.decimal(32, boat.getBatteryCapacity());
+                writer.number(33, boat.getChargeTime());
+            }
+            case MOTOR_BOAT -> {
+                MotorBoat boat = (MotorBoat) item;
+                writer.name(23, boat.getFuelType());
+                writer.number(34, boat.getEnginePower());
+            }
+            case ROW_BOAT -> {
+                RowBoat boat = (RowBoat) item;
+                writer.number(35, boat.getOars());
+            }
+        }
+        writer.end();
+    }
+}
@@ -0,0 +1,518 @@
+package com.memberclub.export;
+
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.Money;
+import com.memberclub.model.camping.*;
+import com.memberclub.model.enums.*;
+import com.memberclub.model.fishing.*;
+import com.memberclub.model.vehicles.*;
+import com.memberclub.service.Inventory;
+import com.memberclub.service.MemberRegistry;
+import com.memberclub.system.ClubSystem;
+import com.memberclub.system.ItemIdGenerator;
+import com.memberclub.system.MemberIdGenerator;
+import com.memberclub.ui.validation.InputValidator;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Imports items and members from NDJSON or CSV files, such as the stock and member list of a
+ * new branch, in the columns ClubExporter writes.
+ *
+ * The file is read as a stream. The calling thread cuts it into batches of records, and a
+ * pool of worker threads parses and validates the batches in parallel and builds the item
+ * of the right subclass, or the member, for every valid record. The calling thread takes
+ * the batches back in file order and gives out IDs from the club's generators, so the same
+ * file always gets the same IDs. At most two batches per worker are in flight, so the text
+ * of the file is never held in memory as a whole.
+ *
+ * Nothing is added to the club until the whole file is read. The records are then added in
+ * bulk: the inventory takes its lock once per large chunk and the member search index is
+ * updated once at the end. The records are journaled like any other change and the result
+ * is then saved as one snapshot (see ClubSystem.loadInBulk()).
+ *
+ * Records always get new IDs, so files from another branch never collide with IDs in use.
+ * The id and rentalCount columns of an export are ignored, and items that were rented or
+ * held when they were exported come in available. Invalid records are skipped and reported
+ * by line in the ImportResult, the rest of the file is still imported.
+ */
+public class ClubImporter {
+
+    // Records parsed by one task, large enough that handing batches between threads costs little
+    private static final int BATCH_SIZE = 2048;
+
+    // Items added to the inventory per lock, so requests are never held up for a whole import
+    private static final int INSERT_CHUNK = 65_536;
+
+    private final ClubSystem system;
+
+    /**
+     * Creates an importer into a club system.
+     * @param system the system to add the records to
+     */
+    public ClubImporter(ClubSystem system) {
+        this.system = system;
+    }
+
+    /**
+     * Imports items of every type. Each record needs the type, name, color, year, both prices
+     * in öre, the material, weight and brand, and the attributes of its own type.
+     * @param channel the channel to read from, left open
+     * @param format the file format
+     * @return the number of imported and rejected records
+     * @throws IOException if reading fails
+     * @throws IllegalArgumentException if a CSV header names none of the item columns
+     */
+    public synchronized ImportResult importItems(ReadableByteChannel channel, ExportFormat format) throws IOException {
+        RecordReader reader = new RecordReader(channel, format, ClubExporter.ITEM_COLUMNS);
+        ItemIdGenerator generator = system.getItemIdGenerator();
+
+        // Give out IDs in file order as the parsed batches come back
+        List<Item> items = new ArrayList<>();
+        ImportResult result = run(reader, ClubImporter::parseItem,
+                pending -> items.add(pending.create(ItemIdGenerator.toId(pending.type, generator.nextNumber(pending.type)))));
+
+        // Add everything in a few large batches, saved as one snapshot
+        if (!items.isEmpty()) {
+            Inventory inventory = system.getInventory();
+            system.loadInBulk(() -> {
+                for (int from = 0; from < items.size(); from += INSERT_CHUNK) {
+                    inventory.addItems(items.subList(from, Math.min(items.size(), from + INSERT_CHUNK)));
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Imports members. Each record needs a name, an email accepted by InputValidator.isValidEmail()
+     * and a phone number accepted by InputValidator.isValidPhone(). The level is STANDARD when
+     * it is left out.
+     * @param channel the channel to read from, left open
+     * @param format the file format
+     * @return the number of imported and rejected records
+     * @throws IOException if reading fails
+     * @throws IllegalArgumentException if a CSV header names none of the member columns
+     */
+    public synchronized ImportResult importMembers(ReadableByteChannel channel, ExportFormat format) throws IOException {
+        RecordReader reader = new RecordReader(channel, format, ClubExporter.MEMBER_COLUMNS);
+        MemberIdGenerator generator = system.getMemberIdGenerator();
+
+        // Give out IDs in file order as the parsed batches come back
+        List<Member> members = new ArrayList<>();
+        ImportResult result = run(reader, ClubImporter::parseMember,
+                factory -> members.add(factory.create(generator.generateMemberId())));
+
+        // Add everything at once, the search index is updated once for all of them
+        if (!members.isEmpty()) {
+            MemberRegistry registry = system.getMemberRegistry();
+            system.loadInBulk(() -> registry.addMembers(members));
+        }
+        return result;
+    }
+
+    /**
+     * Reads every record, parses the batches on worker threads and hands the parsed rows
+     * to the consumer in file order.
+     */
+    private static <T> ImportResult run(RecordReader reader, RowParser<T> parser, Consumer<T> consumer) throws IOException {
+        ImportResult result = new ImportResult();
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService workers = newWorkers(threads);
+        Deque<Future<Batch<T>>> inFlight = new ArrayDeque<>();
+        try {
+            Batch<T> batch;
+            while ((batch = Batch.read(reader)) != null) {
+                Batch<T> next = batch;
+                inFlight.add(workers.submit(() -> next.parse(reader, parser)));
+
+                // Let the workers run ahead by a few batches, then wait for the oldest one
+                if (inFlight.size() >= threads * 2) {
+                    take(inFlight.poll(), consumer, result);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                take(inFlight.poll(), consumer, result);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Waits for a parsed batch and hands its rows over, counting the rejected records.
+     */
+    private static <T> void take(Future<Batch<T>> future, Consumer<T> consumer, ImportResult result) throws IOException {
+        Batch<T> batch;
+        try {
+            batch = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Importen avbröts");
+        } catch (ExecutionException e) {
+
+            // Invalid records are rejected inside the task, anything else is a bug
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        for (int i = 0; i < batch.size; i++) {
+            if (batch.errors[i] != null) {
+                result.reject(batch.lines[i], batch.errors[i]);
+            } else {
+                consumer.accept(batch.row(i));
+                result.imported();
+            }
+        }
+    }
+
+    /**
+     * Starts daemon worker threads, so an import that is left hanging never keeps the JVM alive.
+     */
+    private static ExecutorService newWorkers(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "club-import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Parses and validates one item record and prepares the item of its type.
+     */
+    private static PendingItem parseItem(Fields fields) {
+
+        // Common Item fields
+        ItemType type = fields.constant(ItemType.class, 1);
+        String name = fields.text(2);
+        ItemStatus status = fields.optionalConstant(ItemStatus.class, 3, ItemStatus.AVAILABLE);
+        Color color = fields.constant(Color.class, 4);
+        int year = fields.integer(5);
+        double pricePerDay = Money.toKronor(fields.amount(6));
+        double pricePerHour = Money.toKronor(fields.amount(7));
+
+        // Category fields
+        Material material = fields.constant(Material.class, 8);
+        double weight = fields.decimal(9);
+        String brand = fields.text(10);
+
+        // Type specific fields, water vehicles and boats share the first few
+        ItemFactory factory = switch (type) {
+            case BACKPACK -> {
+                int volume = fields.integer(15);
+                BackpackType backpackType = fields.constant(BackpackType.class, 16);
+                yield id -> new Backpack(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        volume, backpackType);
+            }
+            case LANTERN -> {
+                int brightness = fields.integer(17);
+                PowerSource powerSource = fields.constant(PowerSource.class, 18);
+                yield id -> new Lantern(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        brightness, powerSource);
+            }
+            case SLEEPING_BAG -> {
+                double temperatureRating = fields.decimal(19);
+                SeasonRating seasonRating = fields.constant(SeasonRating.class, 20);
+                yield id -> new SleepingBag(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        temperatureRating, seasonRating);
+            }
+            case TENT -> {
+                int capacity = fields.integer(11);
+                SeasonRating seasonRating = fields.constant(SeasonRating.class, 20);
+                TentType tentType = fields.constant(TentType.class, 21);
+                yield id -> new Tent(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        capacity, seasonRating, tentType);
+            }
+            case TRANGIA_KITCHEN -> {
+                int burners = fields.integer(22);
+                FuelType fuelType = fields.constant(FuelType.class, 23);
+                yield id -> new TrangiaKitchen(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        burners, fuelType);
+            }
+            case FISHING_BAIT -> {
+                BaitType baitType = fields.constant(BaitType.class, 24);
+                int quantity = fields.integer(25);
+                yield id -> new FishingBait(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        baitType, quantity);
+            }
+            case FISHING_NET -> {
+                NetSize netSize = fields.constant(NetSize.class, 26);
+                double meshSize = fields.decimal(27);
+                yield id -> new FishingNet(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        netSize, meshSize);
+            }
+            case FISHING_ROD -> {
+                double rodLength = fields.decimal(28);
+                RodType rodType = fields.constant(RodType.class, 29);
+                yield id -> new FishingRod(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        rodLength, rodType);
+            }
+            case KAYAK -> {
+                int capacity = fields.integer(11);
+                double length = fields.decimal(12);
+                int seats = fields.integer(30);
+                KayakType kayakType = fields.constant(KayakType.class, 31);
+                yield id -> new Kayak(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        capacity, length, seats, kayakType);
+            }
+            case ELECTRIC_BOAT -> {
+                int capacity = fields.integer(11);
+                double length = fields.decimal(12);
+                boolean hasFishFinder = fields.bool(13);
+                double maxSpeed = fields.decimal(14);
+                double batteryCapacity = fields.decimal(32);
+                int chargeTime = fields.integer(33);
+                yield id -> new ElectricBoat(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        capacity, length, hasFishFinder, maxSpeed, batteryCapacity, chargeTime);
+            }
+            case MOTOR_BOAT -> {
+                int capacity = fields.integer(11);
+                double length = fields.decimal(12);
+                boolean hasFishFinder = fields.bool(13);
+                double maxSpeed = fields.decimal(14);
+                int enginePower = fields.integer(34);
+                FuelType fuelType = fields.constant(FuelType.class, 23);
+                yield id -> new MotorBoat(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        capacity, length, hasFishFinder, maxSpeed, enginePower, fuelType);
+            }
+            case ROW_BOAT -> {
+                int capacity = fields.integer(11);
+                double length = fields.decimal(12);
+                boolean hasFishFinder = fields.bool(13);
+                double maxSpeed = fields.decimal(14);
+                int oars = fields.integer(35);
+                yield id -> new RowBoat(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        capacity, length, hasFishFinder, maxSpeed, oars);
+            }
+        };
+
+        // No rentals or carts come along, so only a broken item keeps its status
+        return new PendingItem(type, status == ItemStatus.BROKEN, factory);
+    }
+
+    /**
+     * Parses and validates one member record with the rules of the member form.
+     */
+    private static MemberFactory parseMember(Fields fields) {
+        String name = fields.text(1);
+        String email = fields.text(2).trim();
+        String phone = fields.text(3).trim();
+        MembershipLevel level = fields.optionalConstant(MembershipLevel.class, 4, MembershipLevel.STANDARD);
+
+        if (!InputValidator.isValidEmail(email)) {
+            throw new IllegalArgumentException("Ogiltig email: " + email);
+        }
+        if (!InputValidator.isValidPhone(phone)) {
+            throw new IllegalArgumentException("Ogiltigt telefonnummer: " + phone);
+        }
+        return id -> new Member(id, name.trim(), email, phone, level);
+    }
+
+    /**
+     * Turns the fields of one record into a row, or rejects it with an IllegalArgumentException.
+     */
+    @FunctionalInterface
+    private interface RowParser<T> {
+        T parse(Fields fields);
+    }
+
+    /**
+     * Builds an item once its ID is known.
+     */
+    @FunctionalInterface
+    private interface ItemFactory {
+        Item create(String id);
+    }
+
+    /**
+     * Builds a member once its ID is known.
+     */
+    @FunctionalInterface
+    private interface MemberFactory {
+        Member create(int id);
+    }
+
+    /**
+     * A parsed item record waiting for its ID, the type decides which counter gives it out.
+     */
+    private static final class PendingItem {
+
+        private final ItemType type;
+        private final boolean broken;
+        private final ItemFactory factory;
+
+        private PendingItem(ItemType type, boolean broken, ItemFactory factory) {
+            this.type = type;
+            this.broken = broken;
+            this.factory = factory;
+        }
+
+        private Item create(String id) {
+            Item item = factory.create(id);
+            if (broken) {
+                item.setStatus(ItemStatus.BROKEN);
+            }
+            return item;
+        }
+    }
+
+    /**
+     * Up to BATCH_SIZE records with their line numbers, and after parsing the row or the
+     * reason for rejecting each of them.
+     */
+    private static final class Batch<T> {
+
+        private final String[] records = new String[BATCH_SIZE];
+        private final long[] lines = new long[BATCH_SIZE];
+        private final Object[] rows = new Object[BATCH_SIZE];
+        private final String[] errors = new String[BATCH_SIZE];
+        private int size;
+
+        /**
+         * Reads the next batch of records.
+         * @return the batch, or null when the stream has no more records
+         */
+        private static <T> Batch<T> read(RecordReader reader) throws IOException {
+            Batch<T> batch = new Batch<>();
+            String record;
+            while (batch.size < BATCH_SIZE && (record = reader.next()) != null) {
+                batch.records[batch.size] = record;
+                batch.lines[batch.size] = reader.getLine();
+                batch.size++;
+            }
+            return batch.size == 0 ? null : batch;
+        }
+
+        /**
+         * Parses every record, keeping the row or the reason it was rejected.
+         */
+        private Batch<T> parse(RecordReader reader, RowParser<T> parser) {
+            Fields fields = new Fields(reader.getColumns());
+            for (int i = 0; i < size; i++) {
+                try {
+                    reader.parse(records[i], fields.values);
+                    rows[i] = parser.parse(fields);
+                } catch (IllegalArgumentException e) {
+                    errors[i] = e.getMessage();
+                }
+
+                // The text is not needed any more
+                records[i] = null;
+            }
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T row(int index) {
+            return (T) rows[index];
+        }
+    }
+
+    /**
+     * The values of one record by column, with conversions that reject bad values by column name.
+     */
+    private static final class Fields {
+
+        private final String[] names;
+        private final String[] values;
+
+        private Fields(String[] names) {
+            this.names = names;
+            this.values = new String[names.length];
+        }
+
+        private String text(int column) {
+            String value = values[column];
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("Fältet " + names[column] + " saknas");
+            }
+            return value;
+        }
+
+        private int integer(int column) {
+            String value = text(column).trim();
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw invalid(column, value);
+            }
+        }
+
+        private double decimal(int column) {
+            String value = text(column).trim();
+            try {
+                double number = Double.parseDouble(value);
+                if (Double.isNaN(number) || Double.isInfinite(number)) {
+                    throw invalid(column, value);
+                }
+                return number;
+            } catch (NumberFormatException e) {
+                throw invalid(column, value);
+            }
+        }
+
+        /**
+         * Reads an amount in whole öre, which can not be negative.
+         */
+        private long amount(int column) {
+            String value = text(column).trim();
+            try {
+                long amount = Long.parseLong(value);
+                if (amount < 0) {
+                    throw invalid(column, value);
+                }
+                return amount;
+            } catch (NumberFormatException e) {
+                throw invalid(column, value);
+            }
+        }
+
+        private boolean bool(int column) {
+            String value = text(column).trim();
+            if (value.equalsIgnoreCase("true")) {
+                return true;
+            }
+            if (value.equalsIgnoreCase("false")) {
+                return false;
+            }
+            throw invalid(column, value);
+        }
+
+        /**
+         * Reads an enum constant by name, ignoring case.
+         */
+        private <E extends Enum<E>> E constant(Class<E> type, int column) {
+            String value = text(column).trim();
+            try {
+                return Enum.valueOf(type, value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw invalid(column, value);
+            }
+        }
+
+        private <E extends Enum<E>> E optionalConstant(Class<E> type, int column, E fallback) {
+            String value = values[column];
+            return value == null || value.isBlank() ? fallback : constant(type, column);
+        }
+
+        private IllegalArgumentException invalid(int column, String value) {
+            return new IllegalArgumentException("Ogiltigt värde för " + names[column] + ": " + value);
+        }
+    }
+}
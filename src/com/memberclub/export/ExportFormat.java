@@ -0,0 +1,13 @@
+package com.memberclub.export;
+
+/**
+ * File formats an export can be written in, and an import read from.
+ */
+public enum ExportFormat {
+
+    // One JSON object per line, fields that do not apply to a record are left out
+    NDJSON,
+
+    // Comma-separated values with a header row, fields that do not apply are left empty
+    CSV
+}
@@ -0,0 +1,62 @@
+package com.memberclub.export;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of an import: how many records were added, how many were rejected and why.
+ * Only the first MAX_ERRORS reasons are kept, so a broken file does not fill the heap.
+ */
+public class ImportResult {
+
+    // Rejected records reported by line, the rest are only counted
+    public static final int MAX_ERRORS = 100;
+
+    private long imported;
+    private long rejected;
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Counts one added record.
+     */
+    void imported() {
+        imported++;
+    }
+
+    /**
+     * Counts one rejected record and keeps the reason while there is room.
+     * @param line the line the record starts on
+     * @param message why the record was rejected
+     */
+    void reject(long line, String message) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("Rad " + line + ": " + message);
+        }
+    }
+
+    /**
+     * Returns the number of records that were added.
+     * @return imported record count
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * Returns the number of records that were rejected.
+     * @return rejected record count
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Returns why the first rejected records were rejected, such as "Rad 12: Ogiltig email: anna".
+     * @return up to MAX_ERRORS messages in file order
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+}
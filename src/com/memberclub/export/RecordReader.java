@@ -0,0 +1,401 @@
+package com.memberclub.export;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads NDJSON or CSV records, the format RecordWriter writes, against a fixed list of columns.
+ *
+ * Reading is split in two steps so they can run on different threads: next() cuts the stream
+ * into the text of one record at a time, which has to happen in order, and parse() turns that
+ * text into one value per column, which only reads state fixed by the constructor and is safe
+ * to call from any number of threads at once.
+ *
+ * CSV columns are matched by the names in the header row, in any order. NDJSON fields are
+ * matched by name. Fields that are not one of the columns are ignored, and columns missing
+ * from a record, empty or JSON null are read as null.
+ */
+class RecordReader {
+
+    // Size of the read buffer
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Byte order mark that spreadsheet programs put first in a UTF-8 file
+    private static final char BOM = '\uFEFF';
+
+    private final BufferedReader reader;
+    private final ExportFormat format;
+    private final String[] columns;
+
+    // CSV: column of every header field, -1 for fields that are not a column
+    private int[] headerColumns;
+
+    // NDJSON: column of every field name
+    private final Map<String, Integer> columnsByName;
+
+    // Lines read so far, and the line the last record started on
+    private long line;
+    private long recordLine;
+
+    /**
+     * Creates a reader and reads the CSV header.
+     * @param channel the channel to read UTF-8 text from, left open
+     * @param format the input format
+     * @param columns the column names to read
+     * @throws IOException if the header cannot be read
+     * @throws IllegalArgumentException if the CSV header names none of the columns
+     */
+    RecordReader(ReadableByteChannel channel, ExportFormat format, String[] columns) throws IOException {
+        this.reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.format = format;
+        this.columns = columns;
+        this.columnsByName = new HashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            columnsByName.put(columns[i], i);
+        }
+
+        // NDJSON names every field on every line instead
+        this.headerColumns = new int[0];
+        if (format == ExportFormat.CSV) {
+            readHeader(columns);
+        }
+    }
+
+    /**
+     * Reads the text of the next record, skipping blank lines.
+     * A quoted CSV field may run over several lines, they are joined into one record.
+     * @return the record, or null at the end of the stream
+     * @throws IOException if reading fails
+     */
+    String next() throws IOException {
+        String text = readLine();
+        while (text != null && text.isBlank()) {
+            text = readLine();
+        }
+        if (text == null) {
+            return null;
+        }
+        recordLine = line;
+
+        // An odd number of quotes so far means a quoted field goes on past the line break
+        if (format == ExportFormat.CSV && !isBalanced(text)) {
+            StringBuilder record = new StringBuilder(text);
+            String more;
+            while (!isBalanced(record) && (more = readLine()) != null) {
+                record.append('\n').append(more);
+            }
+            text = record.toString();
+        }
+        return text;
+    }
+
+    /**
+     * Returns the names of the columns that parse() fills, in order.
+     * @return the column names
+     */
+    String[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the line the record returned by the last call to next() started on, counting from 1.
+     * @return the line number
+     */
+    long getLine() {
+        return recordLine;
+    }
+
+    /**
+     * Splits the text of a record into one value per column.
+     * @param record the record returned by next()
+     * @param fields the array to fill, one entry per column, null where a record has no value
+     * @throws IllegalArgumentException if the record is not valid CSV or a flat JSON object
+     */
+    void parse(String record, String[] fields) {
+        Arrays.fill(fields, null);
+        if (format == ExportFormat.CSV) {
+            parseCsv(record, fields);
+        } else {
+            parseJson(record, fields);
+        }
+    }
+
+    /**
+     * Matches the fields of the header row to the columns.
+     */
+    private void readHeader(String[] columns) throws IOException {
+        String header = next();
+        if (header == null) {
+            return;
+        }
+
+        // Read the header as a record with one column per field, and look up every name
+        int fieldCount = 1;
+        for (int i = 0; i < header.length(); i++) {
+            if (header.charAt(i) == ',') {
+                fieldCount++;
+            }
+        }
+        int[] identity = new int[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            identity[i] = i;
+        }
+        headerColumns = identity;
+        String[] names = new String[fieldCount];
+        parseCsv(header, names);
+
+        int[] matched = new int[fieldCount];
+        boolean any = false;
+        for (int i = 0; i < fieldCount; i++) {
+            Integer column = names[i] == null ? null : columnsByName.get(names[i].trim());
+            matched[i] = column == null ? -1 : column;
+            any |= column != null;
+        }
+        if (!any) {
+            throw new IllegalArgumentException("Rubrikraden saknar kända kolumner, förväntade till exempel "
+                    + String.join(",", Arrays.copyOf(columns, Math.min(columns.length, 4))));
+        }
+        headerColumns = matched;
+    }
+
+    /**
+     * Reads one line and counts it, dropping a byte order mark at the start of the stream.
+     */
+    private String readLine() throws IOException {
+        String text = reader.readLine();
+        if (text == null) {
+            return null;
+        }
+        if (line++ == 0 && !text.isEmpty() && text.charAt(0) == BOM) {
+            text = text.substring(1);
+        }
+        return text;
+    }
+
+    private static boolean isBalanced(CharSequence text) {
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes % 2 == 0;
+    }
+
+    /**
+     * Splits a CSV record by the header, with quoted fields as in RFC 4180.
+     */
+    private void parseCsv(String record, String[] fields) {
+        int length = record.length();
+        int position = 0;
+        for (int field = 0; ; field++) {
+            int column = field < headerColumns.length ? headerColumns[field] : -1;
+            String value;
+
+            if (position < length && record.charAt(position) == '"') {
+
+                // Quoted field, a doubled quote stands for one quote
+                StringBuilder quoted = new StringBuilder();
+                position++;
+                while (true) {
+                    if (position >= length) {
+                        throw new IllegalArgumentException("Fält " + (field + 1) + " saknar avslutande citattecken");
+                    }
+                    char c = record.charAt(position++);
+                    if (c != '"') {
+                        quoted.append(c);
+                    } else if (position < length && record.charAt(position) == '"') {
+                        quoted.append('"');
+                        position++;
+                    } else {
+                        break;
+                    }
+                }
+                if (position < length && record.charAt(position) != ',') {
+                    throw new IllegalArgumentException("Fält " + (field + 1) + " har text efter avslutande citattecken");
+                }
+                value = quoted.toString();
+            } else {
+
+                // Plain field up to the next comma, only copied when it is a column
+                int end = record.indexOf(',', position);
+                if (end < 0) {
+                    end = length;
+                }
+                value = column >= 0 ? record.substring(position, end) : null;
+                position = end;
+            }
+
+            if (column >= 0 && !value.isEmpty()) {
+                fields[column] = value;
+            }
+            if (position >= length) {
+                return;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Reads a flat JSON object whose values are strings, numbers, booleans or null.
+     * Numbers and booleans are kept as their text, to be converted by the caller.
+     */
+    private void parseJson(String record, String[] fields) {
+        JsonCursor cursor = new JsonCursor(record);
+        cursor.expect('{');
+        if (!cursor.consume('}')) {
+            do {
+                String name = cursor.string();
+                cursor.expect(':');
+                String value = cursor.value(name);
+                Integer column = columnsByName.get(name);
+                if (column != null && value != null && !value.isEmpty()) {
+                    fields[column] = value;
+                }
+            } while (cursor.consume(','));
+            cursor.expect('}');
+        }
+        cursor.end();
+    }
+
+    /**
+     * Position in the text of one JSON object.
+     */
+    private static final class JsonCursor {
+
+        private final String text;
+        private int position;
+
+        private JsonCursor(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Skips whitespace and moves past the character if it is next.
+         */
+        private boolean consume(char expected) {
+            skipSpace();
+            if (position < text.length() && text.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char expected) {
+            if (!consume(expected)) {
+                throw invalid("förväntade '" + expected + "'");
+            }
+        }
+
+        private void end() {
+            skipSpace();
+            if (position < text.length()) {
+                throw invalid("text efter objektets slut");
+            }
+        }
+
+        /**
+         * Reads a string, a number, true, false or null.
+         * @return the value as text, or null for JSON null
+         */
+        private String value(String name) {
+            skipSpace();
+            if (position >= text.length()) {
+                throw invalid("värde saknas för " + name);
+            }
+            char c = text.charAt(position);
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw invalid("fältet " + name + " får inte vara ett objekt eller en lista");
+            }
+
+            // A literal runs until the next separator
+            int start = position;
+            while (position < text.length() && ",} \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty()) {
+                throw invalid("värde saknas för " + name);
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        /**
+         * Reads a quoted string with JSON escapes.
+         */
+        private String string() {
+            skipSpace();
+            if (position >= text.length() || text.charAt(position) != '"') {
+                throw invalid("förväntade '\"'");
+            }
+            int start = ++position;
+
+            // Without escapes the string is copied in one piece
+            int end = text.indexOf('"', start);
+            int escape = text.indexOf('\\', start);
+            if (end >= 0 && (escape < 0 || escape > end)) {
+                position = end + 1;
+                return text.substring(start, end);
+            }
+
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw invalid("strängen avslutas aldrig");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw invalid("strängen avslutas aldrig");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw invalid("ofullständig \\u-kod");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text, position, position + 4, 16));
+                        } catch (NumberFormatException e) {
+                            throw invalid("ogiltig \\u-kod");
+                        }
+                        position += 4;
+                    }
+                    default -> throw invalid("okänd escape-sekvens \\" + escaped);
+                }
+            }
+        }
+
+        private void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException invalid(String message) {
+            return new IllegalArgumentException("Ogiltig JSON vid tecken " + (position + 1) + ": " + message);
+        }
+    }
+}
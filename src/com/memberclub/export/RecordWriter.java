@@ -0,0 +1,340 @@
+package com.memberclub.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Encodes records as NDJSON or CSV straight into a fixed buffer that is drained to a channel.
+ *
+ * A record is written field by field against a fixed list of columns, in column order.
+ * Columns that a record skips are left out of a JSON line and left empty in a CSV row, so
+ * every CSV row has the same columns as the header. Numbers and dates are written digit by
+ * digit and text is encoded to UTF-8 as it is copied, so no strings are built on the way.
+ * The buffer is written to the channel whenever it fills up, so memory use stays the same
+ * however many records are exported.
+ */
+class RecordWriter {
+
+    // Size of the output buffer
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Room for a number, a date or a field prefix, the longest column name included
+    private static final int FIELD_ROOM = 128;
+
+    private final WritableByteChannel channel;
+    private final ExportFormat format;
+    private final byte[] buffer;
+    private final ByteBuffer output;
+    private int position;
+
+    // "name": of each column, written before its value in NDJSON
+    private final byte[][] prefixes;
+    private final int columnCount;
+
+    // Next column of the record being written, and whether a JSON field was written yet
+    private int nextColumn;
+    private boolean firstField;
+
+    // Records written so far
+    private long count;
+
+    /**
+     * Creates a writer and writes the CSV header.
+     * @param channel the channel to write to, left open
+     * @param format the output format
+     * @param columns the column names in record order
+     * @throws IOException if the header cannot be written
+     */
+    RecordWriter(WritableByteChannel channel, ExportFormat format, String[] columns) throws IOException {
+        this.channel = channel;
+        this.format = format;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.output = ByteBuffer.wrap(buffer);
+        this.columnCount = columns.length;
+        this.prefixes = new byte[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            prefixes[i] = ("\"" + columns[i] + "\":").getBytes(StandardCharsets.UTF_8);
+        }
+
+        // NDJSON names every field on every line instead
+        if (format == ExportFormat.CSV) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    put((byte) ',');
+                }
+                putText(columns[i]);
+            }
+            put((byte) '\n');
+        }
+    }
+
+    /**
+     * Starts a new record.
+     */
+    void begin() throws IOException {
+        ensure(FIELD_ROOM);
+        nextColumn = 0;
+        firstField = true;
+        if (format == ExportFormat.NDJSON) {
+            buffer[position++] = '{';
+        }
+    }
+
+    /**
+     * Writes a text field, null leaves the field out.
+     */
+    void text(int column, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        field(column);
+        if (format == ExportFormat.NDJSON) {
+            buffer[position++] = '"';
+            putEscaped(value, true);
+            put((byte) '"');
+        } else if (needsQuotes(value)) {
+            buffer[position++] = '"';
+            putEscaped(value, false);
+            put((byte) '"');
+        } else {
+            putText(value);
+        }
+    }
+
+    /**
+     * Writes an enum constant by name, null leaves the field out.
+     */
+    void name(int column, Enum<?> value) throws IOException {
+        text(column, value == null ? null : value.name());
+    }
+
+    /**
+     * Writes a whole number.
+     */
+    void number(int column, long value) throws IOException {
+        field(column);
+        putNumber(value);
+    }
+
+    /**
+     * Writes a decimal number.
+     */
+    void decimal(int column, double value) throws IOException {
+        field(column);
+        putText(Double.toString(value));
+    }
+
+    /**
+     * Writes true or false.
+     */
+    void bool(int column, boolean value) throws IOException {
+        field(column);
+        putText(value ? "true" : "false");
+    }
+
+    /**
+     * Writes a date given as an epoch day, as yyyy-mm-dd.
+     */
+    void date(int column, long epochDay) throws IOException {
+        field(column);
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        if (format == ExportFormat.NDJSON) {
+            buffer[position++] = '"';
+        }
+
+        // Years outside four digits get the sign and width rules of LocalDate.toString()
+        if (date.getYear() < 0 || date.getYear() > 9999) {
+            putText(date.toString());
+        } else {
+            putDigits(date.getYear(), 4);
+            buffer[position++] = '-';
+            putDigits(date.getMonthValue(), 2);
+            buffer[position++] = '-';
+            putDigits(date.getDayOfMonth(), 2);
+        }
+        if (format == ExportFormat.NDJSON) {
+            put((byte) '"');
+        }
+    }
+
+    /**
+     * Ends the record and its line.
+     */
+    void end() throws IOException {
+        ensure(columnCount + 2);
+        if (format == ExportFormat.NDJSON) {
+            buffer[position++] = '}';
+        } else {
+            for (; nextColumn < columnCount; nextColumn++) {
+                if (nextColumn > 0) {
+                    buffer[position++] = ',';
+                }
+            }
+        }
+        buffer[position++] = '\n';
+        count++;
+    }
+
+    /**
+     * Writes everything that is still buffered to the channel.
+     * @return the number of records written
+     */
+    long finish() throws IOException {
+        drain();
+        return count;
+    }
+
+    /**
+     * Writes the separator and name of a field, and the empty CSV fields of any skipped columns.
+     * Leaves at least FIELD_ROOM bytes free for the value.
+     */
+    private void field(int column) throws IOException {
+        ensure(FIELD_ROOM + columnCount);
+        if (format == ExportFormat.NDJSON) {
+            if (!firstField) {
+                buffer[position++] = ',';
+            }
+            firstField = false;
+            byte[] prefix = prefixes[column];
+            System.arraycopy(prefix, 0, buffer, position, prefix.length);
+            position += prefix.length;
+            return;
+        }
+
+        // One separator before every column but the first, skipped columns stay empty
+        if (column < nextColumn) {
+            throw new IllegalStateException("Kolumn " + column + " skrevs i fel ordning");
+        }
+        for (; nextColumn <= column; nextColumn++) {
+            if (nextColumn > 0) {
+                buffer[position++] = ',';
+            }
+        }
+    }
+
+    /**
+     * Writes a number in decimal, with room already made by field().
+     */
+    private void putNumber(long value) {
+        if (value < 0) {
+            buffer[position++] = '-';
+
+            // Long.MIN_VALUE has no positive counterpart, the last digit is written on its own
+            if (value == Long.MIN_VALUE) {
+                putNumber(-(value / 10));
+                buffer[position++] = (byte) ('0' - value % 10);
+                return;
+            }
+            value = -value;
+        }
+
+        // Count the digits, then fill them in from the back
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        putDigits(value, digits);
+    }
+
+    /**
+     * Writes the last digits of a non-negative number, padded with zeros to the given width.
+     */
+    private void putDigits(long value, int width) {
+        for (int i = position + width - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += width;
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes text as UTF-8, escaped for a JSON string or for a quoted CSV field.
+     */
+    private void putEscaped(String value, boolean json) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                putText(json ? "\\\"" : "\"\"");
+            } else if (json && c == '\\') {
+                putText("\\\\");
+            } else if (json && c < 0x20) {
+                putText(String.format("\\u%04x", (int) c));
+            } else {
+                i = putChar(value, i);
+            }
+        }
+    }
+
+    /**
+     * Writes text as UTF-8 without escaping.
+     */
+    private void putText(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            i = putChar(value, i);
+        }
+    }
+
+    /**
+     * Writes one character as UTF-8, or a surrogate pair as one code point.
+     * @return the index of the last char used
+     */
+    private int putChar(String value, int index) throws IOException {
+        ensure(4);
+        char c = value.charAt(index);
+        if (c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            return index + 1;
+        } else if (Character.isSurrogate(c)) {
+            buffer[position++] = '?';
+        } else {
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return index;
+    }
+
+    private void put(byte value) throws IOException {
+        ensure(1);
+        buffer[position++] = value;
+    }
+
+    /**
+     * Makes room for the given number of bytes, writing the buffer out when it is too full.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (BUFFER_SIZE - position < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        output.clear().limit(position);
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        position = 0;
+    }
+}
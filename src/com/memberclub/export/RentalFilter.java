@@ -0,0 +1,66 @@
+package com.memberclub.export;
+
+import com.memberclub.model.enums.ItemType;
+import com.memberclub.model.enums.RentalStatus;
+import com.memberclub.system.ItemIdGenerator;
+import java.time.LocalDate;
+
+/**
+ * Selects the rentals of an export, checked against the raw columns while they are scanned.
+ * Every part is optional, a rental matches when it passes all parts that are set.
+ */
+public class RentalFilter {
+
+    // Filter that lets every rental through
+    public static final RentalFilter ALL = new RentalFilter(null, null, null, null);
+
+    // Start days as epoch days, inclusive
+    private final long fromDay;
+    private final long toDay;
+
+    private final RentalStatus status;
+    private final ItemType itemType;
+
+    /**
+     * Creates a filter.
+     * @param from first start date to include, or null for no lower bound
+     * @param to last start date to include, or null for no upper bound
+     * @param status the rental status to include, or null for any
+     * @param itemType the item type to include, or null for any
+     */
+    public RentalFilter(LocalDate from, LocalDate to, RentalStatus status, ItemType itemType) {
+        this.fromDay = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        this.toDay = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        this.status = status;
+        this.itemType = itemType;
+    }
+
+    /**
+     * Checks a rental against the filter without building it.
+     * @param startDay the start date as an epoch day
+     * @param rentalStatus the status of the rental
+     * @param itemKey the key of the rented item
+     * @return true if the rental should be exported
+     */
+    public boolean matches(long startDay, RentalStatus rentalStatus, int itemKey) {
+        return startDay >= fromDay && startDay <= toDay
+                && (status == null || status == rentalStatus)
+                && (itemType == null || itemType == ItemIdGenerator.typeOf(itemKey));
+    }
+
+    /**
+     * Tells whether finished rentals can match at all, so the archive scan can be skipped.
+     * @return false if the filter only lets active rentals through
+     */
+    public boolean includesFinished() {
+        return status != RentalStatus.ACTIVE;
+    }
+
+    /**
+     * Tells whether active rentals can match at all.
+     * @return false if the filter only lets completed or cancelled rentals through
+     */
+    public boolean includesActive() {
+        return status == null || status == RentalStatus.ACTIVE;
+    }
+}
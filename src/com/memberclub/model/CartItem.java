@@ -1,7 +1,7 @@
-package com.memberclub.ui.components;
+package com.memberclub.model;
 
-import com.memberclub.model.Item;
 import com.memberclub.model.enums.RentalPeriod;
+import com.memberclub.system.ItemIdGenerator;
 
 /**
  * Represents a single item in the shopping cart before checkout
@@ -9,22 +9,24 @@ import com.memberclub.model.enums.RentalPeriod;
  */
 public class CartItem {
     private final Item item;
+    private final int itemKey;
     private final int duration;
     private final RentalPeriod period;
-    private final double price;
+    private final long priceInOre;
 
     /**
      * Creates a new cart item
      * @param item the item to rent
      * @param duration number of hours or days
      * @param period HOURLY or DAILY
-     * @param price calculated base price before member discount
+     * @param priceInOre calculated base price in öre before member discount
      */
-    public CartItem(Item item, int duration, RentalPeriod period, double price) {
+    public CartItem(Item item, int duration, RentalPeriod period, long priceInOre) {
         this.item = item;
+        this.itemKey = ItemIdGenerator.toKey(item.getId());
         this.duration = duration;
         this.period = period;
-        this.price = price;
+        this.priceInOre = priceInOre;
     }
 
     // Getters
@@ -32,6 +34,10 @@ public class CartItem {
         return item;
     }
 
+    public int getItemKey() {
+        return itemKey;
+    }
+
     public int getDuration() {
         return duration;
     }
@@ -40,7 +46,7 @@ public class CartItem {
         return period;
     }
 
-    public double getPrice() {
-        return price;
+    public long getPriceInOre() {
+        return priceInOre;
     }
 }
@@ -0,0 +1,135 @@
+package com.memberclub.model;
+
+import com.memberclub.model.enums.RentalStatus;
+import com.memberclub.service.RentalService;
+import com.memberclub.system.ItemIdGenerator;
+import java.time.LocalDate;
+
+/**
+ * A rental that keeps its own values instead of reading them from the rental store.
+ * Used for new rentals before they are stored and for rentals read from the journal,
+ * a snapshot or the archive.
+ */
+public class DetachedRental extends Rental {
+
+    private final long sequence;
+    private final int memberId;
+    private final int itemKey;
+    private final LocalDate startDate;
+    private final LocalDate expectedReturnDate;
+    private LocalDate endDate;
+    private final long totalCostInOre;
+    private long lateFeeInOre;
+    private RentalStatus status;
+
+    /**
+     * Constructor that creates a new rental transaction from numeric keys.
+     * @param sequence rental sequence number
+     * @param memberId ID of the member renting
+     * @param itemKey key of the item being rented
+     * @param startDate start date of rental period
+     * @param expectedReturnDate expected return date
+     * @param endDate end date of rental period
+     * @param totalCostInOre total cost in öre calculated by pricing policy
+     */
+    public DetachedRental(long sequence, int memberId, int itemKey, LocalDate startDate, LocalDate expectedReturnDate, LocalDate endDate, long totalCostInOre) {
+
+        // Initialize own fields
+        this.sequence = sequence;
+        this.memberId = memberId;
+        this.itemKey = itemKey;
+        this.startDate = startDate;
+        this.expectedReturnDate = expectedReturnDate;
+        this.endDate = endDate;
+        this.totalCostInOre = totalCostInOre;
+        this.status = RentalStatus.ACTIVE;
+    }
+
+    /**
+     * Constructor that creates a new rental transaction from display IDs.
+     * @param rentalId unique rental identifier
+     * @param memberId ID of the member renting
+     * @param itemId ID of the item being rented
+     * @param startDate start date of rental period
+     * @param expectedReturnDate expected return date
+     * @param endDate end date of rental period
+     * @param totalCostInOre total cost in öre calculated by pricing policy
+     */
+    public DetachedRental(String rentalId, int memberId, String itemId, LocalDate startDate, LocalDate expectedReturnDate, LocalDate endDate, long totalCostInOre) {
+        this(RentalService.toSequence(rentalId), memberId, ItemIdGenerator.toKey(itemId), startDate, expectedReturnDate, endDate, totalCostInOre);
+    }
+
+    // Getters
+    @Override
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String getRentalId() {
+        return RentalService.toRentalId(sequence);
+    }
+
+    @Override
+    public int getMemberId() {
+        return memberId;
+    }
+
+    @Override
+    public int getItemKey() {
+        return itemKey;
+    }
+
+    @Override
+    public String getItemId() {
+        return ItemIdGenerator.toId(itemKey);
+    }
+
+    @Override
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    @Override
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    @Override
+    public LocalDate getExpectedReturnDate() {
+        return expectedReturnDate;
+    }
+
+    @Override
+    public long getTotalCostInOre() {
+        return totalCostInOre;
+    }
+
+    @Override
+    public long getLateFeeInOre() {
+        return lateFeeInOre;
+    }
+
+    @Override
+    public RentalStatus getStatus() {
+        return status;
+    }
+
+    // Setters
+    public void setStatus(RentalStatus status) {
+        this.status = status;
+    }
+
+    public void setLateFeeInOre(long lateFeeInOre) {
+        this.lateFeeInOre = lateFeeInOre;
+    }
+
+    /**
+     * Marks the rental as completed on a given date.
+     * @param endDate the date the item was returned
+     */
+    public void complete(LocalDate endDate) {
+        this.endDate = endDate;
+        this.status = RentalStatus.COMPLETED;
+    }
+}
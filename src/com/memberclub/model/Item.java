@@ -3,6 +3,7 @@ package com.memberclub.model;
 import com.memberclub.model.enums.Color;
 import com.memberclub.model.enums.ItemStatus;
 import com.memberclub.model.enums.ItemType;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Abstract super class for all rental items.
@@ -12,12 +13,22 @@ public abstract class Item {
 
     private final String id;
     private String name;
-    private double pricePerDay;
-    private double pricePerHour;
-    private ItemStatus status;
+
+    // Prices are kept in öre, the kronor given to the constructor and setters are rounded once
+    private long pricePerDayInOre;
+    private long pricePerHourInOre;
+
+    // Atomic so that two rental counters can never both take the same item
+    private final AtomicReference<ItemStatus> status;
     private int year;
     private Color color;
 
+    // The cart hold that keeps the item while its status is HELD, set and cleared by ItemHold
+    private volatile ItemHold hold;
+
+    // Notified on status, color and price changes, set by the inventory that holds the item
+    private ItemChangeListener changeListener;
+
     /**
      * Creates a new item with the given information.
      * @param id unique identifier for the item
@@ -30,9 +41,9 @@ public abstract class Item {
     public Item(String id, String name, double pricePerDay, double pricePerHour, int year, Color color) {
         this.id = id;
         this.name = name;
-        this.pricePerDay = pricePerDay;
-        this.pricePerHour = pricePerHour;
-        this.status = ItemStatus.AVAILABLE;
+        this.pricePerDayInOre = Money.ofKronor(pricePerDay);
+        this.pricePerHourInOre = Money.ofKronor(pricePerHour);
+        this.status = new AtomicReference<>(ItemStatus.AVAILABLE);
         this.year = year;
         this.color = color;
     }
@@ -47,15 +58,23 @@ public abstract class Item {
     }
 
     public double getPricePerDay() {
-        return pricePerDay;
+        return Money.toKronor(pricePerDayInOre);
     }
 
     public double getPricePerHour() {
-        return pricePerHour;
+        return Money.toKronor(pricePerHourInOre);
+    }
+
+    public long getPricePerDayInOre() {
+        return pricePerDayInOre;
+    }
+
+    public long getPricePerHourInOre() {
+        return pricePerHourInOre;
     }
 
     public ItemStatus getStatus() {
-        return status;
+        return status.get();
     }
 
     public int getYear() {
@@ -66,21 +85,40 @@ public abstract class Item {
         return color;
     }
 
+    public ItemHold getHold() {
+        return hold;
+    }
+
     // Setters
     public void setName(String name) {
         this.name = name;
     }
 
     public void setPricePerDay(double pricePerDay) {
-        this.pricePerDay = pricePerDay;
+        this.pricePerDayInOre = Money.ofKronor(pricePerDay);
+
+        // Let the inventory reprice the item
+        if (changeListener != null) {
+            changeListener.priceChanged(this);
+        }
     }
 
     public void setPricePerHour(double pricePerHour) {
-        this.pricePerHour = pricePerHour;
+        this.pricePerHourInOre = Money.ofKronor(pricePerHour);
+
+        // Let the inventory reprice the item
+        if (changeListener != null) {
+            changeListener.priceChanged(this);
+        }
     }
 
     public void setStatus(ItemStatus status) {
-        this.status = status;
+        ItemStatus oldStatus = this.status.getAndSet(status);
+
+        // Let the inventory move the item between its status indexes
+        if (changeListener != null && oldStatus != status) {
+            changeListener.statusChanged(this, oldStatus, status);
+        }
     }
 
     public void setYear(int year) {
@@ -88,7 +126,40 @@ public abstract class Item {
     }
 
     public void setColor(Color color) {
+        Color oldColor = this.color;
         this.color = color;
+
+        // Let the inventory move the item between its color indexes
+        if (changeListener != null && oldColor != color) {
+            changeListener.colorChanged(this, oldColor, color);
+        }
+    }
+
+    public void setChangeListener(ItemChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    void setHold(ItemHold hold) {
+        this.hold = hold;
+    }
+
+    /**
+     * Changes the status only if it still has the expected value.
+     * Used to reserve an item, only one of several concurrent callers can succeed.
+     * @param expected the status the item must have
+     * @param newStatus the status to change to
+     * @return true if the status was changed, false if it had another value
+     */
+    public boolean compareAndSetStatus(ItemStatus expected, ItemStatus newStatus) {
+        if (!status.compareAndSet(expected, newStatus)) {
+            return false;
+        }
+
+        // Let the inventory move the item between its status indexes
+        if (changeListener != null && expected != newStatus) {
+            changeListener.statusChanged(this, expected, newStatus);
+        }
+        return true;
     }
 
     /**
@@ -96,7 +167,7 @@ public abstract class Item {
      * @return true if status is AVAILABLE, false otherwise
      */
     public boolean isAvailable() {
-        return status == ItemStatus.AVAILABLE;
+        return status.get() == ItemStatus.AVAILABLE;
     }
 
     /**
@@ -104,7 +175,15 @@ public abstract class Item {
      * @return true if status is RENTED, false otherwise
      */
     public boolean isRented() {
-        return status == ItemStatus.RENTED;
+        return status.get() == ItemStatus.RENTED;
+    }
+
+    /**
+     * This method checks if the item is held in a shopping cart.
+     * @return true if status is HELD, false otherwise
+     */
+    public boolean isHeld() {
+        return status.get() == ItemStatus.HELD;
     }
 
     /**
@@ -112,7 +191,7 @@ public abstract class Item {
      * @return true if status is BROKEN, false otherwise
      */
     public boolean isBroken() {
-        return status == ItemStatus.BROKEN;
+        return status.get() == ItemStatus.BROKEN;
     }
 
     /**
@@ -125,7 +204,7 @@ public abstract class Item {
     // Returns string representation of Item for easy printing or debugging
     @Override
     public String toString() {
-        return "Item{" + "id=" + id + ", namn=" + name + ", pris/dag=" + pricePerDay + ", pris/timme=" + pricePerHour
-                + ", år=" + year + ", färg=" + color + ", status=" + status + "}";
+        return "Item{" + "id=" + id + ", namn=" + name + ", pris/dag=" + Money.format(pricePerDayInOre) + ", pris/timme=" + Money.format(pricePerHourInOre)
+                + ", år=" + year + ", färg=" + color + ", status=" + status.get() + "}";
     }
 }
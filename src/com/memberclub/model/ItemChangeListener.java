@@ -0,0 +1,33 @@
+package com.memberclub.model;
+
+import com.memberclub.model.enums.Color;
+import com.memberclub.model.enums.ItemStatus;
+
+/**
+ * Gets notified when an indexed attribute of an item changes.
+ * Used by the inventory to keep its status and color indexes and its price table up to date.
+ */
+public interface ItemChangeListener {
+
+    /**
+     * Called after the status of an item has changed.
+     * @param item the item that changed
+     * @param oldStatus the status before the change
+     * @param newStatus the status after the change
+     */
+    void statusChanged(Item item, ItemStatus oldStatus, ItemStatus newStatus);
+
+    /**
+     * Called after the color of an item has changed.
+     * @param item the item that changed
+     * @param oldColor the color before the change
+     * @param newColor the color after the change
+     */
+    void colorChanged(Item item, Color oldColor, Color newColor);
+
+    /**
+     * Called after the price per day or per hour of an item has changed.
+     * @param item the item that changed
+     */
+    void priceChanged(Item item);
+}
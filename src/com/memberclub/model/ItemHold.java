@@ -0,0 +1,142 @@
+package com.memberclub.model;
+
+import com.memberclub.model.enums.ItemStatus;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A short-lived reservation of the items in one shopping cart.
+ * Held items have the status HELD, so they drop out of every availability list and
+ * no other counter can rent them, until the cart checks out or the hold expires.
+ *
+ * All items in a hold share one deadline. Extending the hold only moves the deadline,
+ * the expiry sweep (see HoldService) notices the new deadline when it reaches the old one.
+ * A released hold stays released, a cart that outlives its hold needs a new one.
+ */
+public class ItemHold {
+
+    private final List<Item> items;
+
+    // Time in milliseconds when the hold expires
+    private volatile long deadline;
+
+    // Set once the items have been given back, guarded by this hold
+    private boolean released;
+
+    /**
+     * Creates an empty hold.
+     * @param deadline time in milliseconds when the hold expires
+     */
+    public ItemHold(long deadline) {
+        this.items = new ArrayList<>();
+        this.deadline = deadline;
+    }
+
+    /**
+     * Holds an item if it is available.
+     * @param item the item to hold
+     * @return true if the item is now held by this hold, false if it was taken or the hold is released
+     */
+    public synchronized boolean add(Item item) {
+        if (released || !item.compareAndSetStatus(ItemStatus.AVAILABLE, ItemStatus.HELD)) {
+            return false;
+        }
+        item.setHold(this);
+        items.add(item);
+        return true;
+    }
+
+    /**
+     * Gives a held item back, for example when it is removed from the cart.
+     * @param item the item to release
+     * @return true if the item was held by this hold
+     */
+    public synchronized boolean remove(Item item) {
+        if (!items.remove(item)) {
+            return false;
+        }
+        giveBack(item);
+        return true;
+    }
+
+    /**
+     * Takes a held item out of the hold and marks it as rented.
+     * Used at checkout, where held items are rented instead of available ones.
+     * @param item the item to rent
+     * @return true if the item was held by this hold and is now rented
+     */
+    public synchronized boolean claim(Item item) {
+        if (released || item.getHold() != this || !item.compareAndSetStatus(ItemStatus.HELD, ItemStatus.RENTED)) {
+            return false;
+        }
+        item.setHold(null);
+        items.remove(item);
+        return true;
+    }
+
+    /**
+     * Puts an item taken by claim() back in the hold, when the checkout it was claimed for failed.
+     * A released hold makes the item available instead.
+     * @param item the item to put back
+     */
+    public synchronized void unclaim(Item item) {
+        if (released) {
+            item.compareAndSetStatus(ItemStatus.RENTED, ItemStatus.AVAILABLE);
+        } else if (item.compareAndSetStatus(ItemStatus.RENTED, ItemStatus.HELD)) {
+            item.setHold(this);
+            items.add(item);
+        }
+    }
+
+    /**
+     * Gives every held item back and ends the hold.
+     * @return number of items that were released
+     */
+    public synchronized int release() {
+        if (released) {
+            return 0;
+        }
+        released = true;
+        int count = items.size();
+        for (Item item : items) {
+            giveBack(item);
+        }
+        items.clear();
+        return count;
+    }
+
+    /**
+     * Makes an item available again if it is still held by this hold.
+     */
+    private void giveBack(Item item) {
+        if (item.getHold() == this) {
+            item.setHold(null);
+            item.compareAndSetStatus(ItemStatus.HELD, ItemStatus.AVAILABLE);
+        }
+    }
+
+    /**
+     * Moves the deadline of the hold.
+     * @param deadline time in milliseconds when the hold expires
+     * @return true if the hold is still active, false if it has already been released
+     */
+    public synchronized boolean extend(long deadline) {
+        if (released) {
+            return false;
+        }
+        this.deadline = deadline;
+        return true;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public synchronized boolean isReleased() {
+        return released;
+    }
+
+    public synchronized int getItemCount() {
+        return items.size();
+    }
+}
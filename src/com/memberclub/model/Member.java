@@ -2,12 +2,12 @@ package com.memberclub.model;
 
 import com.memberclub.model.enums.MembershipLevel;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Represents a member in the rental club.
  * Each member has an id, name, email, phone, membership level and rental history.
+ * The history holds rental sequence numbers in a growable long array, see Rental.getSequence().
  */
 public class Member {
 
@@ -16,7 +16,13 @@ public class Member {
     private String email;
     private String phone;
     private MembershipLevel membershipLevel;
-    private final List<String> rentalHistory;
+
+    // Rental sequence numbers, oldest first, guarded by the member's monitor
+    private long[] rentalHistory;
+    private int rentalCount;
+
+    // Notified on contact detail changes, set by the registry that holds the member
+    private MemberChangeListener changeListener;
 
     /**
      * Constructor that creates a new member with the given information.
@@ -32,7 +38,7 @@ public class Member {
         this.email = email;
         this.phone = phone;
         this.membershipLevel = membershipLevel;
-        this.rentalHistory = new ArrayList<>();
+        this.rentalHistory = new long[4];
     }
 
     // Getters
@@ -56,38 +62,65 @@ public class Member {
         return membershipLevel;
     }
 
-    public List<String> getRentalHistory() {
-        return rentalHistory;
+    /**
+     * Copies the rental history, safe to call while rentals are added from other threads.
+     * @return rental sequence numbers, oldest first
+     */
+    public synchronized long[] getRentalHistory() {
+        return Arrays.copyOf(rentalHistory, rentalCount);
+    }
+
+    public synchronized int getRentalCount() {
+        return rentalCount;
     }
 
     // Setters
     public void setName(String name) {
         this.name = name;
+        notifyContactChanged();
     }
 
     public void setEmail(String email) {
         this.email = email;
+        notifyContactChanged();
     }
 
     public void setPhone(String phone) {
         this.phone = phone;
+        notifyContactChanged();
     }
 
     public void setMembershipLevel(MembershipLevel membershipLevel) {
         this.membershipLevel = membershipLevel;
     }
 
+    public void setChangeListener(MemberChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Lets the registry re-index the member after a contact detail changed.
+     */
+    private void notifyContactChanged() {
+        if (changeListener != null) {
+            changeListener.contactChanged(this);
+        }
+    }
+
     /**
      * Adds a rental to the member's history.
-     * @param rentalId is the id of the rental to add
+     * @param sequence is the sequence number of the rental to add
      */
-    public void addRental(String rentalId) {
-        rentalHistory.add(rentalId);
+    public synchronized void addRental(long sequence) {
+        if (rentalCount == rentalHistory.length) {
+            rentalHistory = Arrays.copyOf(rentalHistory, rentalCount * 2);
+        }
+        rentalHistory[rentalCount++] = sequence;
     }
 
     // Returns string representation of Member for easy printing or debugging
     @Override
     public String toString() {
-        return "Medlem{" + "id=" + id + ", namn=" + name + ", nivå=" + membershipLevel + ", historik=" + rentalHistory.size() + "}";
+        return "Medlem{" + "id=" + id + ", namn=" + name + ", nivå=" + membershipLevel + ", historik=" + getRentalCount() + "}";
     }
 }
@@ -0,0 +1,14 @@
+package com.memberclub.model;
+
+/**
+ * Gets notified when the contact details of a member change.
+ * Used by the member registry to keep its search index up to date.
+ */
+public interface MemberChangeListener {
+
+    /**
+     * Called after the name, email or phone of a member has changed.
+     * @param member the member that changed
+     */
+    void contactChanged(Member member);
+}
@@ -0,0 +1,69 @@
+package com.memberclub.model;
+
+/**
+ * Arithmetic on amounts of money held as whole öre in a long.
+ *
+ * Prices, cart totals, rental costs and revenue are all kept as long öre, so sums are exact
+ * and nothing is allocated to add, multiply or discount them. Only multiplying by a factor
+ * rounds, once, to the nearest öre. Kronor as double are only used where an amount is read
+ * in, such as item prices in the item constructors.
+ */
+public final class Money {
+
+    // Öre per krona
+    public static final long ORE_PER_KRONA = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Converts kronor to öre, rounding to the nearest öre.
+     * @param kronor the amount in kronor
+     * @return the amount in öre
+     */
+    public static long ofKronor(double kronor) {
+        return Math.round(kronor * ORE_PER_KRONA);
+    }
+
+    /**
+     * Converts öre to kronor, for places that still read amounts as double.
+     * @param amountInOre the amount in öre
+     * @return the amount in kronor
+     */
+    public static double toKronor(long amountInOre) {
+        return amountInOre / (double) ORE_PER_KRONA;
+    }
+
+    /**
+     * Multiplies an amount by a whole number, such as a unit price by a duration.
+     * @param amountInOre the amount in öre
+     * @param count the number to multiply by
+     * @return the product in öre
+     * @throws ArithmeticException if the product does not fit in a long
+     */
+    public static long times(long amountInOre, int count) {
+        return Math.multiplyExact(amountInOre, count);
+    }
+
+    /**
+     * Multiplies an amount by a factor, such as 0.8 for a 20% discount.
+     * @param amountInOre the amount in öre
+     * @param factor the factor to multiply by
+     * @return the product, rounded to the nearest öre
+     */
+    public static long scale(long amountInOre, double factor) {
+        return Math.round(amountInOre * factor);
+    }
+
+    /**
+     * Formats an amount as kronor with two decimals, without the currency, such as 1234.50.
+     * Built from the öre digits, so the text always matches the amount exactly.
+     * @param amountInOre the amount in öre
+     * @return the formatted amount
+     */
+    public static String format(long amountInOre) {
+        long kronor = Math.abs(amountInOre / ORE_PER_KRONA);
+        long ore = Math.abs(amountInOre % ORE_PER_KRONA);
+        return (amountInOre < 0 ? "-" : "") + kronor + (ore < 10 ? ".0" : ".") + ore;
+    }
+}
@@ -6,86 +6,57 @@ import java.time.LocalDate;
 /**
  * Represents a rental transaction between a member and an item.
  * Acts as a receipt tracking who rented what, when, and for how much.
- * Status can transition between ACTIVE, COMPLETED, and CANCELLED.
+ * Status can transition between ACTIVE, COMPLETED, and CANCELLED, only through RentalService.
+ *
+ * Rentals handed out by the rental service are lightweight views that read their values
+ * from compact primitive storage. DetachedRental holds its own values and is used for
+ * rentals that are not stored yet, such as new rentals and rentals read back from disk.
+ * Views are read-only, only a DetachedRental can be changed, and changing it does not change
+ * the stored rental.
+ *
+ * Rentals and items are keyed by numbers internally. The display IDs such as "RENT-001"
+ * and "TENT-004" are only built when something asks for them.
  */
-public class Rental {
+public abstract class Rental {
 
-    private final String rentalId;
-    private final int memberId;
-    private final String itemId;
-    private final LocalDate startDate;
-    private final LocalDate expectedReturnDate;
-    private LocalDate endDate;
-    private final double totalCost;
-    private RentalStatus status;
+    // Getters
+    public abstract long getSequence();
 
-    /**
-     * Constructor that creates a new rental transaction.
-     * @param rentalId unique rental identifier
-     * @param memberId ID of the member renting
-     * @param itemId ID of the item being rented
-     * @param startDate start date of rental period
-     * @param expectedReturnDate expected return date
-     * @param endDate end date of rental period
-     * @param totalCost total cost calculated by pricing policy
-     */
-    public Rental(String rentalId, int memberId, String itemId, LocalDate startDate, LocalDate expectedReturnDate, LocalDate endDate, double totalCost) {
-
-        // Initialize own fields
-        this.rentalId = rentalId;
-        this.memberId = memberId;
-        this.itemId = itemId;
-        this.startDate = startDate;
-        this.expectedReturnDate = expectedReturnDate;
-        this.endDate = endDate;
-        this.totalCost = totalCost;
-        this.status = RentalStatus.ACTIVE;
-    }
+    public abstract String getRentalId();
 
-    // Getters
-    public String getRentalId() {
-        return rentalId;
-    }
+    public abstract int getMemberId();
 
-    public int getMemberId() {
-        return memberId;
-    }
+    public abstract int getItemKey();
 
-    public String getItemId() {
-        return itemId;
-    }
+    public abstract String getItemId();
 
-    public LocalDate getStartDate() {
-        return startDate;
-    }
+    public abstract LocalDate getStartDate();
 
-    public LocalDate getEndDate() {
-        return endDate;
-    }
+    public abstract LocalDate getEndDate();
 
-    public LocalDate getExpectedReturnDate() {
-        return expectedReturnDate;
-    }
+    public abstract LocalDate getExpectedReturnDate();
 
-    public double getTotalCost() {
-        return totalCost;
-    }
+    public abstract long getTotalCostInOre();
 
-    public RentalStatus getStatus() {
-        return status;
-    }
+    public abstract long getLateFeeInOre();
 
-    // Setter
-    public void setStatus(RentalStatus status) {
-        this.status = status;
-    }
+    public abstract RentalStatus getStatus();
 
     /**
      * Calculates the duration of the rental in days.
      * @return number of days between start and end date
      */
     public long getDurationInDays() {
-        return startDate.until(endDate).getDays();
+        return getStartDate().until(getEndDate()).getDays();
+    }
+
+    /**
+     * Counts the days the item is or was kept past the expected return date.
+     * @param asOf the return date, or today for a rental that is still out
+     * @return number of days late, 0 if not late
+     */
+    public long getOverdueDays(LocalDate asOf) {
+        return Math.max(0, asOf.toEpochDay() - getExpectedReturnDate().toEpochDay());
     }
 
     /**
@@ -93,7 +64,7 @@ public class Rental {
      * @return true if status is ACTIVE
      */
     public boolean isActive() {
-        return status == RentalStatus.ACTIVE;
+        return getStatus() == RentalStatus.ACTIVE;
     }
 
     /**
@@ -101,28 +72,14 @@ public class Rental {
      * @return true if status is COMPLETED
      */
     public boolean isCompleted() {
-        return status == RentalStatus.COMPLETED;
-    }
-
-    /**
-     * Marks the rental as completed.
-     */
-    public void complete() {
-        this.endDate = LocalDate.now();
-        this.status = RentalStatus.COMPLETED;
-    }
-
-    /**
-     * Marks the rental as cancelled.
-     */
-    public void cancel() {
-        this.status = RentalStatus.CANCELLED;
+        return getStatus() == RentalStatus.COMPLETED;
     }
 
     // Returns string representation for easy printing or debugging
     @Override
     public String toString() {
-        return "Rental{" + "id=" + rentalId + ", medlem=" + memberId + ", item=" + itemId + ", start=" + startDate
-                + ", slut=" + endDate + ", kostnad=" + totalCost + " kr, status=" + status + "}";
+        return "Rental{" + "id=" + getRentalId() + ", medlem=" + getMemberId() + ", item=" + getItemId() + ", start=" + getStartDate()
+                + ", slut=" + getEndDate() + ", kostnad=" + Money.format(getTotalCostInOre()) + " kr, förseningsavgift="
+                + Money.format(getLateFeeInOre()) + " kr, status=" + getStatus() + "}";
     }
 }
@@ -0,0 +1,41 @@
+package com.memberclub.model;
+
+/**
+ * Point-in-time view of the revenue ledger.
+ * All amounts are in öre, and the total is always the sum of the parts.
+ */
+public class RevenueSummary {
+
+    private final long rentalFeesInOre;
+    private final long lateFeesInOre;
+
+    /**
+     * Creates a summary from the amount of each source.
+     * @param rentalFeesInOre revenue from rental fees in öre
+     * @param lateFeesInOre revenue from late fees in öre
+     */
+    public RevenueSummary(long rentalFeesInOre, long lateFeesInOre) {
+        this.rentalFeesInOre = rentalFeesInOre;
+        this.lateFeesInOre = lateFeesInOre;
+    }
+
+    // Getters
+    public long getRentalFeesInOre() {
+        return rentalFeesInOre;
+    }
+
+    public long getLateFeesInOre() {
+        return lateFeesInOre;
+    }
+
+    public long getTotalInOre() {
+        return rentalFeesInOre + lateFeesInOre;
+    }
+
+    // Returns string representation of RevenueSummary for easy printing or debugging
+    @Override
+    public String toString() {
+        return "Intäkter{" + "hyror=" + Money.format(rentalFeesInOre) + ", förseningsavgifter=" + Money.format(lateFeesInOre)
+                + ", totalt=" + Money.format(getTotalInOre()) + "}";
+    }
+}
@@ -0,0 +1,30 @@
+package com.memberclub.model.enums;
+
+/**
+ * This represents the top-level category an item type belongs to.
+ * Matches the CampingEquipment, FishingEquipment and WaterVehicle branches of the hierarchy.
+ */
+public enum ItemCategory {
+
+    // Tents, sleeping bags, backpacks, kitchens and lanterns
+    CAMPING,
+
+    // Rods, nets and bait
+    FISHING,
+
+    // Boats and kayaks
+    WATER_VEHICLE;
+
+    /**
+     * Returns the category of an item type.
+     * @param type the item type
+     * @return the category the type belongs to
+     */
+    public static ItemCategory of(ItemType type) {
+        return switch (type) {
+            case TENT, SLEEPING_BAG, BACKPACK, TRANGIA_KITCHEN, LANTERN -> CAMPING;
+            case FISHING_ROD, FISHING_NET, FISHING_BAIT -> FISHING;
+            case MOTOR_BOAT, ELECTRIC_BOAT, ROW_BOAT, KAYAK -> WATER_VEHICLE;
+        };
+    }
+}
@@ -13,6 +13,9 @@ public enum ItemStatus {
     RENTED,
 
     // Needs repair before next rental
-    BROKEN
+    BROKEN,
+
+    // Held in a shopping cart until checkout or until the hold expires
+    HELD
 
 }
@@ -0,0 +1,14 @@
+package com.memberclub.model.enums;
+
+/**
+ * Represents where a revenue entry comes from.
+ * The ordinal is written to disk, so new sources must be added at the end.
+ */
+public enum RevenueSource {
+
+    // Paid when items are rented
+    RENTAL_FEE,
+
+    // Paid when items are returned late
+    LATE_FEE
+}
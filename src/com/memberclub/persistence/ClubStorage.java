@@ -0,0 +1,202 @@
+package com.memberclub.persistence;
+
+import com.memberclub.system.ClubSystem;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Manages the data directory with the latest snapshot and the journal written after it.
+ *
+ * Journals are numbered by generation (journal-0.log, journal-1.log, ...). A checkpoint
+ * writes a snapshot that points at the next generation and then switches to a new,
+ * empty journal file. The old journal is deleted afterwards, which keeps startup time
+ * bounded by the size of the state instead of the length of the history.
+ */
+public class ClubStorage implements AutoCloseable {
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    private final Path directory;
+    private final long snapshotInterval;
+    private final Consumer<Journal> journalSink;
+    private ClubSystem system;
+    private Journal journal;
+    private long generation;
+
+    // Mutations hold the read side while they change state and write their record,
+    // a checkpoint holds the write side so it only ever sees completed mutations
+    private final ReentrantReadWriteLock mutationGate = new ReentrantReadWriteLock();
+
+    /**
+     * Creates storage for a data directory.
+     * @param directory the data directory
+     * @param snapshotInterval number of journal records between automatic snapshots, 0 or less for none
+     * @param journalSink receives the current journal whenever it changes
+     */
+    public ClubStorage(Path directory, long snapshotInterval, Consumer<Journal> journalSink) {
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        this.journalSink = journalSink;
+    }
+
+    /**
+     * Loads the latest snapshot and replays the journal written after it.
+     * The services must not have a journal attached yet, the current journal is handed
+     * to the journal sink when restoring is done.
+     * @param system the empty system to restore into
+     * @return true if any saved state was found
+     * @throws IOException if the data cannot be read
+     */
+    public boolean restore(ClubSystem system) throws IOException {
+        this.system = system;
+        Files.createDirectories(directory);
+
+        // Load the snapshot if there is one
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        boolean hasSnapshot = Files.exists(snapshot);
+        generation = hasSnapshot ? SnapshotStore.read(snapshot, system) : 0;
+
+        // Without a snapshot no archived row is valid yet
+        if (!hasSnapshot) {
+            system.getRentalService().getArchive().truncate(0);
+        }
+
+        // Journals from older generations are already part of the snapshot
+        deleteJournalsExcept(generation);
+
+        // Replay only the tail written after the snapshot
+        journal = new Journal(journalPath(generation), mutationGate);
+        boolean hasTail = !journal.isEmpty();
+        if (hasTail) {
+            journal.replay(new JournalReplayer(system));
+        }
+
+        startJournal();
+        return hasSnapshot || hasTail;
+    }
+
+    /**
+     * Returns the journal currently in use.
+     * @return the current journal
+     */
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Writes a snapshot of the current state and starts a new, empty journal.
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void checkpoint() throws IOException {
+
+        // Wait for mutations in flight and keep new ones out until the switch is done
+        mutationGate.writeLock().lock();
+        try {
+
+            // Everything up to now must be durable in the current journal first
+            journal.sync();
+
+            // Open the journal for the next generation before the snapshot points at it
+            long nextGeneration = generation + 1;
+            Files.deleteIfExists(journalPath(nextGeneration));
+            Journal nextJournal = new Journal(journalPath(nextGeneration), mutationGate);
+
+            // Archived rows counted by the snapshot must be on disk before it
+            system.getRentalService().getArchive().force();
+
+            // Once this move succeeds the old journal is no longer needed
+            SnapshotStore.write(directory.resolve(SNAPSHOT_FILE), system, nextGeneration);
+
+            // Switch all services over and drop the old journal
+            Journal oldJournal = journal;
+            journal = nextJournal;
+            generation = nextGeneration;
+            startJournal();
+            oldJournal.setCheckpointTrigger(0, null);
+            oldJournal.close();
+            Files.deleteIfExists(journalPath(nextGeneration - 1));
+        } finally {
+            mutationGate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a large change, such as an import, and then writes one snapshot of the result.
+     * The change is journaled as usual. Snapshots that come due while it runs are put off
+     * until it is done, instead of saving the growing state again every few thousand records.
+     * Other threads keep mutating meanwhile, only a checkpoint they trigger waits for the change.
+     * @param change the change to run
+     * @throws IOException if the snapshot cannot be written, the change is then still in the journal
+     */
+    public void checkpointAfter(Runnable change) throws IOException {
+
+        // Holding the read side keeps checkpoints out, the snapshot below replaces the one that came due
+        mutationGate.readLock().lock();
+        try {
+            change.run();
+        } finally {
+            mutationGate.readLock().unlock();
+        }
+        checkpoint();
+    }
+
+    /**
+     * Takes a final snapshot and closes the journal.
+     * @throws IOException if flushing or writing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        checkpoint();
+        journal.close();
+        journal = null;
+    }
+
+    /**
+     * Hands the current journal to the services and arms the automatic snapshot.
+     */
+    private void startJournal() {
+        journal.setCheckpointTrigger(snapshotInterval, this::checkpointQuietly);
+        journalSink.accept(journal);
+    }
+
+    /**
+     * Runs a checkpoint from the journal trigger.
+     * The mutation that triggered it has already succeeded, so a failed snapshot is only
+     * reported and retried at the next interval; the journal still holds everything.
+     */
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Kunde inte skriva ögonblicksbild: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the journal file for a generation.
+     */
+    private Path journalPath(long journalGeneration) {
+        return directory.resolve("journal-" + journalGeneration + ".log");
+    }
+
+    /**
+     * Deletes journal files from every generation except the given one.
+     */
+    private void deleteJournalsExcept(long keepGeneration) throws IOException {
+        try (DirectoryStream<Path> journals = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path file : journals) {
+                if (!file.equals(journalPath(keepGeneration))) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
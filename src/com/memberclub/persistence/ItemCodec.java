@@ -0,0 +1,206 @@
+package com.memberclub.persistence;
+
+import com.memberclub.model.Item;
+import com.memberclub.model.camping.*;
+import com.memberclub.model.enums.*;
+import com.memberclub.model.fishing.*;
+import com.memberclub.model.vehicles.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads items in a compact binary form.
+ * Each record starts with the ItemType ordinal so the correct subclass can be rebuilt.
+ */
+public class ItemCodec {
+
+    /**
+     * Writes an item with all of its type-specific attributes.
+     * @param out the output to write to
+     * @param item the item to write
+     * @throws IOException if writing fails
+     */
+    public static void writeItem(DataOutput out, Item item) throws IOException {
+
+        // Common Item fields
+        out.writeByte(item.getItemType().ordinal());
+        out.writeUTF(item.getId());
+        out.writeUTF(item.getName());
+        out.writeDouble(item.getPricePerDay());
+        out.writeDouble(item.getPricePerHour());
+        out.writeInt(item.getYear());
+        out.writeByte(item.getColor().ordinal());
+
+        // Cart holds do not outlive the program, a held item is saved as available
+        ItemStatus status = item.getStatus() == ItemStatus.HELD ? ItemStatus.AVAILABLE : item.getStatus();
+        out.writeByte(status.ordinal());
+
+        // Category fields
+        if (item instanceof CampingEquipment camping) {
+            out.writeByte(camping.getMaterial().ordinal());
+            out.writeDouble(camping.getWeight());
+            out.writeUTF(camping.getBrand());
+        } else if (item instanceof FishingEquipment fishing) {
+            out.writeByte(fishing.getMaterial().ordinal());
+            out.writeDouble(fishing.getWeight());
+            out.writeUTF(fishing.getBrand());
+        } else if (item instanceof WaterVehicle vehicle) {
+            out.writeByte(vehicle.getMaterial().ordinal());
+            out.writeDouble(vehicle.getWeight());
+            out.writeUTF(vehicle.getBrand());
+            out.writeInt(vehicle.getCapacity());
+            out.writeDouble(vehicle.getLength());
+        }
+
+        // Shared boat fields
+        if (item instanceof Boat boat) {
+            out.writeBoolean(boat.isHasFishFinder());
+            out.writeDouble(boat.getMaxSpeed());
+        }
+
+        // Type specific fields
+        switch (item.getItemType()) {
+            case BACKPACK -> {
+                Backpack backpack = (Backpack) item;
+                out.writeInt(backpack.getVolume());
+                out.writeByte(backpack.getBackpackType().ordinal());
+            }
+            case LANTERN -> {
+                Lantern lantern = (Lantern) item;
+                out.writeInt(lantern.getBrightness());
+                out.writeByte(lantern.getPowerSource().ordinal());
+            }
+            case SLEEPING_BAG -> {
+                SleepingBag bag = (SleepingBag) item;
+                out.writeDouble(bag.getTemperatureRating());
+                out.writeByte(bag.getSeasonRating().ordinal());
+            }
+            case TENT -> {
+                Tent tent = (Tent) item;
+                out.writeInt(tent.getCapacity());
+                out.writeByte(tent.getSeasonRating().ordinal());
+                out.writeByte(tent.getTentType().ordinal());
+            }
+            case TRANGIA_KITCHEN -> {
+                TrangiaKitchen trangia = (TrangiaKitchen) item;
+                out.writeInt(trangia.getBurners());
+                out.writeByte(trangia.getFuelType().ordinal());
+            }
+            case FISHING_BAIT -> {
+                FishingBait bait = (FishingBait) item;
+                out.writeByte(bait.getBaitType().ordinal());
+                out.writeInt(bait.getQuantity());
+            }
+            case FISHING_NET -> {
+                FishingNet net = (FishingNet) item;
+                out.writeByte(net.getNetSize().ordinal());
+                out.writeDouble(net.getMeshSize());
+            }
+            case FISHING_ROD -> {
+                FishingRod rod = (FishingRod) item;
+                out.writeDouble(rod.getRodLength());
+                out.writeByte(rod.getRodType().ordinal());
+            }
+            case KAYAK -> {
+                Kayak kayak = (Kayak) item;
+                out.writeInt(kayak.getSeats());
+                out.writeByte(kayak.getKayakType().ordinal());
+            }
+            case ELECTRIC_BOAT -> {
+                ElectricBoat boat = (ElectricBoat) item;
+                out.writeDouble(boat.getBatteryCapacity());
+                out.writeInt(boat.getChargeTime());
+            }
+            case MOTOR_BOAT -> {
+                MotorBoat boat = (MotorBoat) item;
+                out.writeInt(boat.getEnginePower());
+                out.writeByte(boat.getFuelType().ordinal());
+            }
+            case ROW_BOAT -> {
+                RowBoat boat = (RowBoat) item;
+                out.writeInt(boat.getOars());
+            }
+        }
+    }
+
+    /**
+     * Reads an item written by writeItem and rebuilds the correct subclass.
+     * @param in the input to read from
+     * @return the rebuilt item
+     * @throws IOException if reading fails
+     */
+    public static Item readItem(DataInput in) throws IOException {
+
+        // Common Item fields
+        ItemType type = ItemType.values()[in.readByte()];
+        String id = in.readUTF();
+        String name = in.readUTF();
+        double pricePerDay = in.readDouble();
+        double pricePerHour = in.readDouble();
+        int year = in.readInt();
+        Color color = Color.values()[in.readByte()];
+        ItemStatus status = ItemStatus.values()[in.readByte()];
+
+        // Category fields, every item type has these three
+        Material material = Material.values()[in.readByte()];
+        double weight = in.readDouble();
+        String brand = in.readUTF();
+
+        Item item = switch (type) {
+            case BACKPACK -> new Backpack(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                    in.readInt(), BackpackType.values()[in.readByte()]);
+            case LANTERN -> new Lantern(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                    in.readInt(), PowerSource.values()[in.readByte()]);
+            case SLEEPING_BAG -> new SleepingBag(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                    in.readDouble(), SeasonRating.values()[in.readByte()]);
+            case TENT -> new Tent(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                    in.readInt(), SeasonRating.values()[in.readByte()], TentType.values()[in.readByte()]);
+            case TRANGIA_KITCHEN -> new TrangiaKitchen(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                    in.readInt(), FuelType.values()[in.readByte()]);
+            case FISHING_BAIT -> new FishingBait(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                    BaitType.values()[in.readByte()], in.readInt());
+            case FISHING_NET -> new FishingNet(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                    NetSize.values()[in.readByte()], in.readDouble());
+            case FISHING_ROD -> new FishingRod(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                    in.readDouble(), RodType.values()[in.readByte()]);
+            case KAYAK -> {
+
+                // Water vehicle fields come before the kayak fields
+                int capacity = in.readInt();
+                double length = in.readDouble();
+                yield new Kayak(id, name, pricePerDay, pricePerHour, year, color, material, weight, brand,
+                        capacity, length, in.readInt(), KayakType.values()[in.readByte()]);
+            }
+            case ELECTRIC_BOAT, MOTOR_BOAT, ROW_BOAT -> readBoat(in, type, id, name, pricePerDay, pricePerHour, year,
+                    color, material, weight, brand);
+        };
+
+        // Restore status last since constructors always start as AVAILABLE
+        item.setStatus(status);
+        return item;
+    }
+
+    /**
+     * Reads the water vehicle, boat and type-specific fields of a boat.
+     */
+    private static Item readBoat(DataInput in, ItemType type, String id, String name, double pricePerDay,
+                                 double pricePerHour, int year, Color color, Material material, double weight,
+                                 String brand) throws IOException {
+
+        // Water vehicle and boat fields
+        int capacity = in.readInt();
+        double length = in.readDouble();
+        boolean hasFishFinder = in.readBoolean();
+        double maxSpeed = in.readDouble();
+
+        return switch (type) {
+            case ELECTRIC_BOAT -> new ElectricBoat(id, name, pricePerDay, pricePerHour, year, color, material, weight,
+                    brand, capacity, length, hasFishFinder, maxSpeed, in.readDouble(), in.readInt());
+            case MOTOR_BOAT -> new MotorBoat(id, name, pricePerDay, pricePerHour, year, color, material, weight,
+                    brand, capacity, length, hasFishFinder, maxSpeed, in.readInt(), FuelType.values()[in.readByte()]);
+            default -> new RowBoat(id, name, pricePerDay, pricePerHour, year, color, material, weight,
+                    brand, capacity, length, hasFishFinder, maxSpeed, in.readInt());
+        };
+    }
+}
@@ -0,0 +1,671 @@
+package com.memberclub.persistence;
+
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.Rental;
+import com.memberclub.model.enums.MembershipLevel;
+import com.memberclub.model.enums.RevenueSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log for all state mutations in the club system.
+ *
+ * Every record on disk is framed as [length][crc32][type][payload], where length
+ * covers the type byte and the payload and the checksum is taken over the same bytes.
+ * Appends only copy the record into a memory buffer. A single writer thread drains
+ * everything that has piled up since its last write and calls fsync once for the whole
+ * batch (group commit), so many operations share the cost of one disk flush.
+ *
+ * A mutation does not return before its records are on disk: once it leaves the mutation
+ * gate (endMutation()) the thread waits until the writer has flushed the last record it
+ * appended. The wait happens outside the gate, so checkpoints are not held up by it, and
+ * threads that wait at the same time are released by the same fsync.
+ */
+public class Journal implements AutoCloseable {
+
+    // Size of the length and checksum header in front of every record
+    private static final int HEADER_SIZE = 8;
+
+    // Upper bound for a single record, anything larger is treated as corruption
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Object lock = new Object();
+    private final Thread writer;
+
+    // Records waiting for the writer, and the buffer the writer is currently flushing
+    private ByteBuffer pending;
+    private ByteBuffer flushing;
+
+    // Sequence numbers of the last appended and the last durable record
+    private long appendedSequence;
+    private long durableSequence;
+
+    private boolean closed;
+    private IOException failure;
+
+    // Called every checkpointInterval records so the owner can take a snapshot
+    private Runnable checkpointTrigger;
+    private long checkpointInterval;
+
+    // Shared by all journal generations: mutations hold the read side, checkpoints the write side
+    private final ReentrantReadWriteLock mutationGate;
+
+    // Set when a checkpoint came due while the appending thread was inside a mutation
+    private final AtomicBoolean checkpointDue = new AtomicBoolean();
+
+    // Last record each thread appended, waited for when its mutation ends. Kept across
+    // generations, since a checkpoint can switch journals while a mutation waits at the gate
+    private static final ThreadLocal<Unsynced> UNSYNCED = ThreadLocal.withInitial(Unsynced::new);
+
+    /**
+     * Opens a journal file, creating it if it does not exist.
+     * A torn or corrupt tail left by a crash is cut off so new records follow the last valid one.
+     * @param path the journal file
+     * @throws IOException if the file cannot be opened
+     */
+    public Journal(Path path) throws IOException {
+        this(path, new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Opens a journal file that shares its mutation gate with other journal generations.
+     * @param path the journal file
+     * @param mutationGate the lock held for reading by mutations and for writing by checkpoints
+     * @throws IOException if the file cannot be opened
+     */
+    public Journal(Path path, ReentrantReadWriteLock mutationGate) throws IOException {
+        this.path = path;
+        this.mutationGate = mutationGate;
+
+        // Make sure the data directory exists
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // Drop anything after the last valid record and continue from there
+        long validEnd = scan(channel, null);
+        channel.truncate(validEnd);
+        channel.position(validEnd);
+
+        this.pending = ByteBuffer.allocate(64 * 1024);
+        this.flushing = ByteBuffer.allocate(64 * 1024);
+
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Callback used when reading records back from the journal.
+     */
+    public interface RecordHandler {
+
+        /**
+         * Handles one valid record.
+         * @param type the record type
+         * @param payload stream positioned at the start of the payload
+         * @throws IOException if the payload cannot be decoded
+         */
+        void handle(JournalRecordType type, DataInputStream payload) throws IOException;
+    }
+
+    /**
+     * Reads every valid record in the journal, oldest first.
+     * @param handler the handler to call for each record
+     * @return number of records read
+     * @throws IOException if reading fails
+     */
+    public long replay(RecordHandler handler) throws IOException {
+
+        // Make sure everything appended so far is on disk before reading it back
+        sync();
+
+        // Read through a separate channel so the writer position is left alone
+        try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] count = new long[1];
+            scan(reader, (type, payload) -> {
+                handler.handle(type, payload);
+                count[0]++;
+            });
+            return count[0];
+        }
+    }
+
+    /**
+     * Checks if the journal contains any records.
+     * @return true if no records have been written
+     * @throws IOException if the file size cannot be read
+     */
+    public boolean isEmpty() throws IOException {
+        synchronized (lock) {
+            return appendedSequence == 0 && channel.size() == 0;
+        }
+    }
+
+    /**
+     * Registers a callback that runs after every interval appended records.
+     * The callback runs on the thread that appended the record, after the record was queued.
+     * @param interval number of records between calls, 0 or less to never call it
+     * @param trigger the callback, or null to remove it
+     */
+    public void setCheckpointTrigger(long interval, Runnable trigger) {
+        synchronized (lock) {
+            this.checkpointInterval = interval;
+            this.checkpointTrigger = trigger;
+        }
+    }
+
+    /**
+     * Marks the start of a mutation that will be recorded in the journal.
+     * Until endMutation() no checkpoint can run, so a snapshot never sees a change
+     * whose record is still to be written, or the other way around.
+     */
+    public void beginMutation() {
+        mutationGate.readLock().lock();
+    }
+
+    /**
+     * Marks the end of a mutation started with beginMutation().
+     * Runs a checkpoint that came due during the mutation, and then waits until the records
+     * the mutation appended are on disk.
+     * @throws UncheckedIOException if the records could not be written
+     */
+    public void endMutation() {
+        mutationGate.readLock().unlock();
+
+        // The checkpoint needs the write side, so it can only run once this thread holds no read side
+        if (mutationGate.getReadHoldCount() == 0) {
+            runDueCheckpoint();
+            awaitDurable();
+        }
+    }
+
+    // Typed record methods, one per mutation
+
+    /**
+     * Records that an item was added to the inventory.
+     * @param item the added item
+     */
+    public void logAddItem(Item item) {
+        append(JournalRecordType.ADD_ITEM, out -> ItemCodec.writeItem(out, item));
+    }
+
+    /**
+     * Records that many items were added to the inventory, as one ADD_ITEM record per item.
+     * The records are queued together, so the batch takes the journal lock once.
+     * @param items the added items
+     */
+    public void logAddItems(List<Item> items) {
+        byte[][] bodies = new byte[items.size()][];
+        for (int i = 0; i < bodies.length; i++) {
+            Item item = items.get(i);
+            bodies[i] = encode(JournalRecordType.ADD_ITEM, out -> ItemCodec.writeItem(out, item));
+        }
+        append(bodies);
+    }
+
+    /**
+     * Records that an item was removed from the inventory.
+     * @param itemId the ID of the removed item
+     */
+    public void logRemoveItem(String itemId) {
+        append(JournalRecordType.REMOVE_ITEM, out -> out.writeUTF(itemId));
+    }
+
+    /**
+     * Records that a member was added to the registry.
+     * @param member the added member
+     */
+    public void logAddMember(Member member) {
+        append(JournalRecordType.ADD_MEMBER, out -> {
+            out.writeInt(member.getId());
+            out.writeUTF(member.getName());
+            out.writeUTF(member.getEmail());
+            out.writeUTF(member.getPhone());
+            out.writeByte(member.getMembershipLevel().ordinal());
+        });
+    }
+
+    /**
+     * Records that a member was removed from the registry.
+     * @param memberId the ID of the removed member
+     */
+    public void logRemoveMember(int memberId) {
+        append(JournalRecordType.REMOVE_MEMBER, out -> out.writeInt(memberId));
+    }
+
+    /**
+     * Records that a member changed membership level.
+     * @param memberId the ID of the member
+     * @param level the new membership level
+     */
+    public void logUpdateMemberLevel(int memberId, MembershipLevel level) {
+        append(JournalRecordType.UPDATE_MEMBER_LEVEL, out -> {
+            out.writeInt(memberId);
+            out.writeByte(level.ordinal());
+        });
+    }
+
+    /**
+     * Records a new rental with its dates and cost so replay does not depend on the clock.
+     * @param rental the created rental
+     */
+    public void logRentItem(Rental rental) {
+        append(JournalRecordType.RENT_ITEM_BY_KEY, out -> writeRental(out, rental));
+    }
+
+    /**
+     * Records several rentals made together as one record, so a crash keeps all of them or none.
+     * @param rentals the created rentals
+     */
+    public void logRentItems(List<Rental> rentals) {
+        append(JournalRecordType.RENT_ITEMS_BY_KEY, out -> {
+            out.writeInt(rentals.size());
+            for (Rental rental : rentals) {
+                writeRental(out, rental);
+            }
+        });
+    }
+
+    /**
+     * Writes the keys, dates and cost of a new rental.
+     */
+    private static void writeRental(DataOutputStream out, Rental rental) throws IOException {
+        out.writeLong(rental.getSequence());
+        out.writeInt(rental.getMemberId());
+        out.writeInt(rental.getItemKey());
+        out.writeInt((int) rental.getStartDate().toEpochDay());
+        out.writeInt((int) rental.getExpectedReturnDate().toEpochDay());
+        out.writeLong(rental.getTotalCostInOre());
+    }
+
+    /**
+     * Records that a rental was returned.
+     * @param sequence the sequence number of the returned rental
+     * @param endDate the date the item came back
+     */
+    public void logReturnItem(long sequence, LocalDate endDate) {
+        append(JournalRecordType.RETURN_ITEM_BY_KEY, out -> {
+            out.writeLong(sequence);
+            out.writeInt((int) endDate.toEpochDay());
+        });
+    }
+
+    /**
+     * Records that the late fee of an active rental was raised.
+     * @param sequence the sequence number of the rental
+     * @param lateFeeInOre the new total late fee in öre
+     */
+    public void logLateFee(long sequence, long lateFeeInOre) {
+        append(JournalRecordType.LATE_FEE, out -> {
+            out.writeLong(sequence);
+            out.writeLong(lateFeeInOre);
+        });
+    }
+
+    /**
+     * Records revenue added to the ledger.
+     * @param source where the revenue comes from
+     * @param amountInOre the added amount in öre
+     */
+    public void logRevenueEntry(RevenueSource source, long amountInOre) {
+        append(JournalRecordType.REVENUE_ENTRY, out -> {
+            out.writeByte(source.ordinal());
+            out.writeLong(amountInOre);
+        });
+    }
+
+    /**
+     * Records that the revenue counter was reset.
+     */
+    public void logResetRevenue() {
+        append(JournalRecordType.RESET_REVENUE, out -> {});
+    }
+
+    /**
+     * Writes the payload of a single record.
+     */
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Encodes a record and hands it to the writer thread.
+     * Does not wait for the disk, use sync() for that.
+     * @param type the record type
+     * @param payloadWriter writes the payload
+     * @return sequence number of the appended record
+     */
+    private long append(JournalRecordType type, PayloadWriter payloadWriter) {
+        return append(new byte[][] {encode(type, payloadWriter)});
+    }
+
+    /**
+     * Encodes the type and payload of a record, outside the lock.
+     */
+    private static byte[] encode(JournalRecordType type, PayloadWriter payloadWriter) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type.ordinal());
+            payloadWriter.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte koda journalpost", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Frames encoded records and hands them to the writer thread in one step.
+     * @param bodies the encoded records, in order
+     * @return sequence number of the last appended record
+     */
+    private long append(byte[][] bodies) {
+
+        // Checksum covers type and payload
+        int[] checksums = new int[bodies.length];
+        int size = 0;
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < bodies.length; i++) {
+            crc.reset();
+            crc.update(bodies[i]);
+            checksums[i] = (int) crc.getValue();
+            size += HEADER_SIZE + bodies[i].length;
+        }
+
+        long sequence;
+        Runnable trigger;
+
+        synchronized (lock) {
+
+            // Refuse new records once the journal is unusable
+            if (failure != null) {
+                throw new UncheckedIOException("Journalen kan inte skrivas", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Journalen är stängd");
+            }
+
+            // Grow the pending buffer if the records do not fit
+            if (pending.remaining() < size) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+
+            // Frame the records and wake the writer
+            long first = appendedSequence + 1;
+            for (int i = 0; i < bodies.length; i++) {
+                pending.putInt(bodies[i].length);
+                pending.putInt(checksums[i]);
+                pending.put(bodies[i]);
+            }
+            appendedSequence += bodies.length;
+            sequence = appendedSequence;
+            lock.notifyAll();
+
+            // Check if the records passed a multiple of the interval, time for a checkpoint
+            trigger = (checkpointTrigger != null && checkpointInterval > 0
+                    && sequence / checkpointInterval > (first - 1) / checkpointInterval) ? checkpointTrigger : null;
+        }
+
+        // Run the checkpoint and wait for the disk outside the lock, since the checkpoint syncs
+        // and closes this journal, or leave both to endMutation() if this thread is inside a mutation
+        Unsynced unsynced = UNSYNCED.get();
+        unsynced.journal = this;
+        unsynced.sequence = sequence;
+        if (trigger != null) {
+            checkpointDue.set(true);
+        }
+        if (mutationGate.getReadHoldCount() == 0) {
+            runDueCheckpoint();
+            awaitDurable();
+        }
+        return sequence;
+    }
+
+    /**
+     * Runs the checkpoint trigger if a checkpoint is due and no other thread has taken it.
+     */
+    private void runDueCheckpoint() {
+        if (!checkpointDue.compareAndSet(true, false)) {
+            return;
+        }
+
+        Runnable trigger;
+        synchronized (lock) {
+            trigger = checkpointTrigger;
+        }
+        if (trigger != null) {
+            trigger.run();
+        }
+    }
+
+    /**
+     * Blocks until the last record this thread appended, to any journal generation, has been flushed to disk.
+     * @throws UncheckedIOException if the writer failed or the wait was interrupted
+     */
+    private static void awaitDurable() {
+        Unsynced unsynced = UNSYNCED.get();
+        Journal journal = unsynced.journal;
+        if (journal == null) {
+            return;
+        }
+        unsynced.journal = null;
+        journal.awaitDurable(unsynced.sequence);
+    }
+
+    /**
+     * Blocks until the record with the given sequence number has been flushed to disk.
+     */
+    private void awaitDurable(long target) {
+        synchronized (lock) {
+
+            // Wait for the writer to catch up, it drains everything before it stops
+            while (durableSequence < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new IOException("Avbruten i väntan på journalen", e));
+                }
+            }
+
+            if (durableSequence < target) {
+                throw new UncheckedIOException("Journalen kan inte skrivas", failure);
+            }
+        }
+    }
+
+    /**
+     * Blocks until every record appended so far has been written and flushed to disk.
+     * @throws IOException if the writer failed
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appendedSequence;
+
+            // Wait for the writer to catch up
+            while (durableSequence < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Avbruten i väntan på journalen", e);
+                }
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Background loop that writes batches of records and fsyncs once per batch.
+     */
+    private void writeLoop() {
+        while (true) {
+            long batchSequence;
+
+            synchronized (lock) {
+
+                // Sleep until there is something to write
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+
+                // Nothing left and closing, stop the writer
+                if (pending.position() == 0) {
+                    return;
+                }
+
+                // Swap buffers so appenders can keep going while we write
+                ByteBuffer batch = pending;
+                pending = flushing;
+                flushing = batch;
+                batchSequence = appendedSequence;
+            }
+
+            try {
+
+                // Write the whole batch and flush it with a single fsync
+                flushing.flip();
+                while (flushing.hasRemaining()) {
+                    channel.write(flushing);
+                }
+                channel.force(false);
+                flushing.clear();
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+
+            // Mark the batch as durable and wake anyone waiting in sync()
+            synchronized (lock) {
+                durableSequence = batchSequence;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Flushes outstanding records and closes the journal file.
+     * @throws IOException if flushing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+
+        // Let the writer drain what is left
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        channel.close();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Walks the records in a journal channel and stops at the first invalid one.
+     * @param source the channel to read from
+     * @param handler called for each valid record, may be null to only validate
+     * @return file offset just after the last valid record
+     * @throws IOException if reading fails
+     */
+    private static long scan(FileChannel source, RecordHandler handler) throws IOException {
+        long position = 0;
+        long size = source.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (position + HEADER_SIZE <= size) {
+
+            // Read length and checksum
+            header.clear();
+            source.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+
+            // Stop at impossible lengths or a record cut off at the end of the file
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + HEADER_SIZE + length > size) {
+                break;
+            }
+
+            // Read type and payload
+            ByteBuffer body = ByteBuffer.allocate(length);
+            while (body.hasRemaining()) {
+                if (source.read(body, position + HEADER_SIZE + body.position()) < 0) {
+                    break;
+                }
+            }
+
+            // Stop at the first record with a bad checksum
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            // Stop at unknown record types
+            int typeOrdinal = body.get(0);
+            if (typeOrdinal < 0 || typeOrdinal >= JournalRecordType.values().length) {
+                break;
+            }
+
+            if (handler != null) {
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(body.array(), 1, length - 1));
+                handler.handle(JournalRecordType.values()[typeOrdinal], payload);
+            }
+
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    /**
+     * The journal and record a thread last appended to.
+     */
+    private static final class Unsynced {
+        private Journal journal;
+        private long sequence;
+    }
+}
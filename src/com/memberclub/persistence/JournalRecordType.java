@@ -0,0 +1,36 @@
+package com.memberclub.persistence;
+
+/**
+ * Represents the kind of mutation stored in a journal record.
+ * The ordinal is written to disk, so new types must be added at the end.
+ */
+public enum JournalRecordType {
+
+    // Inventory mutations
+    ADD_ITEM,
+    REMOVE_ITEM,
+
+    // Member mutations
+    ADD_MEMBER,
+    REMOVE_MEMBER,
+    UPDATE_MEMBER_LEVEL,
+
+    // Retired formats, kept so the ordinals after them stay the same. Replay rejects them
+    RENT_ITEM,
+    RETURN_ITEM,
+    ADD_REVENUE,
+
+    // Revenue mutations
+    RESET_REVENUE,
+    REVENUE_ENTRY,
+
+    // Rental mutations keyed by number
+    RENT_ITEM_BY_KEY,
+    RETURN_ITEM_BY_KEY,
+
+    // Several rentals made together, replayed all or nothing
+    RENT_ITEMS_BY_KEY,
+
+    // New late fee total of an active rental, the revenue is recorded by its own REVENUE_ENTRY
+    LATE_FEE
+}
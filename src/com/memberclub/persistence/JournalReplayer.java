@@ -0,0 +1,73 @@
+package com.memberclub.persistence;
+
+import com.memberclub.model.DetachedRental;
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.enums.MembershipLevel;
+import com.memberclub.model.enums.RevenueSource;
+import com.memberclub.system.ClubSystem;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Applies journal records to the services of a ClubSystem.
+ * The services must not have a journal attached while replaying, otherwise
+ * every replayed record would be written to the journal a second time.
+ */
+public class JournalReplayer implements Journal.RecordHandler {
+
+    private final ClubSystem system;
+
+    /**
+     * Creates a replayer that rebuilds state in the given system.
+     * @param system the system to rebuild
+     */
+    public JournalReplayer(ClubSystem system) {
+        this.system = system;
+    }
+
+    // Applies one record to the matching service
+    @Override
+    public void handle(JournalRecordType type, DataInputStream in) throws IOException {
+
+        switch (type) {
+            case ADD_ITEM -> {
+                Item item = ItemCodec.readItem(in);
+                system.getInventory().addItem(item);
+                system.getItemIdGenerator().reserve(item.getId());
+            }
+            case REMOVE_ITEM -> system.getInventory().removeItem(in.readUTF());
+            case ADD_MEMBER -> {
+                Member member = new Member(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(),
+                        MembershipLevel.values()[in.readByte()]);
+                system.getMemberRegistry().addMember(member);
+                system.getMemberIdGenerator().reserve(member.getId());
+            }
+            case REMOVE_MEMBER -> system.getMemberRegistry().removeMember(in.readInt());
+            case UPDATE_MEMBER_LEVEL -> system.getMembershipService().updateMemberLevel(in.readInt(),
+                    MembershipLevel.values()[in.readByte()]);
+            case RENT_ITEM, RETURN_ITEM, ADD_REVENUE -> throw new IOException("Journalposten har ett format som inte längre stöds: " + type);
+            case RESET_REVENUE -> system.getRevenueService().resetRevenue();
+            case REVENUE_ENTRY -> system.getRevenueService().addRevenueInOre(RevenueSource.values()[in.readByte()],
+                    in.readLong());
+            case RENT_ITEM_BY_KEY -> system.getRentalService().restoreRental(readRental(in));
+            case RETURN_ITEM_BY_KEY -> system.getRentalService().restoreReturn(in.readLong(), LocalDate.ofEpochDay(in.readInt()));
+            case RENT_ITEMS_BY_KEY -> {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    system.getRentalService().restoreRental(readRental(in));
+                }
+            }
+            case LATE_FEE -> system.getRentalService().restoreLateFee(in.readLong(), in.readLong());
+        }
+    }
+
+    /**
+     * Reads a new rental written by Journal.logRentItem() or Journal.logRentItems().
+     */
+    private static DetachedRental readRental(DataInputStream in) throws IOException {
+        return new DetachedRental(in.readLong(), in.readInt(), in.readInt(),
+                LocalDate.ofEpochDay(in.readInt()), LocalDate.ofEpochDay(in.readInt()), null, in.readLong());
+    }
+}
@@ -0,0 +1,379 @@
+package com.memberclub.persistence;
+
+import com.memberclub.model.DetachedRental;
+import com.memberclub.model.Rental;
+import com.memberclub.model.enums.RentalStatus;
+import com.memberclub.service.RentalService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Columnar archive of finished (completed or cancelled) rentals backed by memory-mapped files.
+ *
+ * Each column lives in its own file with fixed-width values, so row i of every column
+ * belongs to the same rental. Reads go straight to the mapped pages without copying
+ * whole records onto the heap; only the requested row is turned into a Rental object.
+ * The number of valid rows is owned by the snapshot, anything after it is overwritten.
+ */
+public class RentalArchive implements AutoCloseable {
+
+    // Rows reserved when the archive is first mapped
+    private static final int INITIAL_CAPACITY = 4096;
+
+    // Marks a sequence number with no archived row
+    public static final int NO_ROW = -1;
+
+    // End day of a rental that has no end date
+    public static final int NO_END_DAY = Integer.MIN_VALUE;
+
+    // Column files and the width of one value in bytes, a column added later reads as zero in older rows
+    private static final String[] COLUMN_FILES = {
+            "sequence.col", "member.col", "item.col", "start.col", "expected.col", "end.col", "cost.col", "status.col",
+            "latefee.col"
+    };
+    private static final int[] COLUMN_WIDTHS = {8, 4, 4, 4, 4, 4, 8, 1, 8};
+
+    // Column positions in the arrays above
+    private static final int SEQUENCE = 0;
+    private static final int MEMBER = 1;
+    private static final int ITEM = 2;
+    private static final int START = 3;
+    private static final int EXPECTED = 4;
+    private static final int END = 5;
+    private static final int COST = 6;
+    private static final int STATUS = 7;
+    private static final int LATE_FEE = 8;
+
+    private final Path directory;
+    private final boolean temporary;
+    private final FileChannel[] channels;
+    private final MappedByteBuffer[] columns;
+    private int capacity;
+    private int rowCount;
+
+    // Lookup from rental sequence number to archive row
+    private int[] rowBySequence;
+
+    /**
+     * Opens or creates an archive in a directory.
+     * Existing rows are kept until truncate() is called with the valid row count.
+     * @param directory the directory holding the column files
+     * @return the opened archive
+     * @throws IOException if the files cannot be opened
+     */
+    public static RentalArchive open(Path directory) throws IOException {
+        return new RentalArchive(directory, false);
+    }
+
+    /**
+     * Creates an archive in a temporary directory that is removed when the program exits.
+     * Used when the system runs without a data directory.
+     * @return the new, empty archive
+     */
+    public static RentalArchive openTemporary() {
+        try {
+            return new RentalArchive(Files.createTempDirectory("memberclub-archive"), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte skapa tillfälligt arkiv", e);
+        }
+    }
+
+    /**
+     * Opens every column file and maps it into memory.
+     */
+    private RentalArchive(Path directory, boolean temporary) throws IOException {
+        this.directory = directory;
+        this.temporary = temporary;
+        Files.createDirectories(directory);
+
+        this.channels = new FileChannel[COLUMN_FILES.length];
+        this.columns = new MappedByteBuffer[COLUMN_FILES.length];
+        for (int c = 0; c < COLUMN_FILES.length; c++) {
+            channels[c] = FileChannel.open(directory.resolve(COLUMN_FILES[c]),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        // Temporary files are removed on exit even if close() is never called
+        if (temporary) {
+            directory.toFile().deleteOnExit();
+            for (String file : COLUMN_FILES) {
+                directory.resolve(file).toFile().deleteOnExit();
+            }
+        }
+
+        // Map enough room for the rows already on disk
+        long existingRows = channels[STATUS].size() / COLUMN_WIDTHS[STATUS];
+        this.capacity = (int) Math.max(INITIAL_CAPACITY, existingRows);
+        mapColumns();
+
+        this.rowCount = 0;
+        this.rowBySequence = new int[INITIAL_CAPACITY];
+        Arrays.fill(rowBySequence, NO_ROW);
+    }
+
+    /**
+     * Sets the number of valid rows, usually to the count stored in a snapshot.
+     * Rows after it are ignored and overwritten by later appends.
+     * @param validRows number of rows to keep
+     */
+    public synchronized void truncate(int validRows) {
+        rowCount = Math.min(validRows, capacity);
+
+        // Rebuild the sequence lookup from the sequence column
+        Arrays.fill(rowBySequence, NO_ROW);
+        for (int row = 0; row < rowCount; row++) {
+            indexRow(getSequence(row), row);
+        }
+    }
+
+    /**
+     * Appends a finished rental as a new row.
+     * @param rental the completed or cancelled rental
+     */
+    public void append(Rental rental) {
+        append(rental.getSequence(),
+                rental.getMemberId(),
+                rental.getItemKey(),
+                (int) rental.getStartDate().toEpochDay(),
+                (int) rental.getExpectedReturnDate().toEpochDay(),
+                rental.getEndDate() == null ? NO_END_DAY : (int) rental.getEndDate().toEpochDay(),
+                rental.getTotalCostInOre(),
+                rental.getLateFeeInOre(),
+                rental.getStatus());
+    }
+
+    /**
+     * Appends a finished rental from its column values.
+     * @param sequence the rental sequence number
+     * @param memberId the member ID
+     * @param itemKey the item key, see ItemIdGenerator.toKey()
+     * @param startDay the start date as epoch day
+     * @param expectedDay the expected return date as epoch day
+     * @param endDay the end date as epoch day, or NO_END_DAY
+     * @param costInOre the cost in öre
+     * @param lateFeeInOre the late fee in öre
+     * @param status the final rental status
+     */
+    public synchronized void append(long sequence, int memberId, int itemKey, int startDay, int expectedDay,
+                                    int endDay, long costInOre, long lateFeeInOre, RentalStatus status) {
+
+        // Double the mapping when it is full
+        if (rowCount == capacity) {
+            capacity *= 2;
+            try {
+                mapColumns();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Kunde inte utöka arkivet", e);
+            }
+        }
+
+        int row = rowCount;
+
+        // Write one value into every column
+        columns[SEQUENCE].putLong(row * 8, sequence);
+        columns[MEMBER].putInt(row * 4, memberId);
+        columns[ITEM].putInt(row * 4, itemKey);
+        columns[START].putInt(row * 4, startDay);
+        columns[EXPECTED].putInt(row * 4, expectedDay);
+        columns[END].putInt(row * 4, endDay);
+        columns[COST].putLong(row * 8, costInOre);
+        columns[STATUS].put(row, (byte) status.ordinal());
+        columns[LATE_FEE].putLong(row * 8, lateFeeInOre);
+
+        indexRow(sequence, row);
+        rowCount++;
+    }
+
+    /**
+     * Returns the number of archived rentals.
+     * @return row count
+     */
+    public synchronized int size() {
+        return rowCount;
+    }
+
+    /**
+     * Finds the archive row of a rental.
+     * @param sequence the rental sequence number
+     * @return the row, or -1 if the rental is not archived
+     */
+    public synchronized int findRow(long sequence) {
+        if (sequence < 0 || sequence >= rowBySequence.length) {
+            return NO_ROW;
+        }
+        return rowBySequence[(int) sequence];
+    }
+
+    /**
+     * Finds an archived rental by ID.
+     * @param rentalId the rental ID
+     * @return the rental, or null if it is not archived
+     */
+    public Rental getRental(String rentalId) {
+        int row = findRow(RentalService.toSequence(rentalId));
+        return row == NO_ROW ? null : getRental(row);
+    }
+
+    /**
+     * Builds a read-only Rental from one archive row.
+     * Changing the returned object does not change the archive.
+     * @param row the row to read
+     * @return the rental stored in the row
+     */
+    public synchronized Rental getRental(int row) {
+        int end = getEndDay(row);
+        DetachedRental rental = new DetachedRental(
+                getSequence(row),
+                getMemberId(row),
+                getItemKey(row),
+                LocalDate.ofEpochDay(getStartDay(row)),
+                LocalDate.ofEpochDay(getExpectedDay(row)),
+                end == NO_END_DAY ? null : LocalDate.ofEpochDay(end),
+                getCostInOre(row));
+        rental.setLateFeeInOre(getLateFeeInOre(row));
+        rental.setStatus(getStatus(row));
+        return rental;
+    }
+
+    // Column readers for scans that do not need whole Rental objects
+
+    /**
+     * Reads the rental sequence number of a row.
+     * @param row the row to read
+     * @return the sequence number
+     */
+    public synchronized long getSequence(int row) {
+        return columns[SEQUENCE].getLong(row * 8);
+    }
+
+    /**
+     * Reads the member ID of a row.
+     * @param row the row to read
+     * @return the member ID
+     */
+    public synchronized int getMemberId(int row) {
+        return columns[MEMBER].getInt(row * 4);
+    }
+
+    /**
+     * Reads the item key of a row.
+     * @param row the row to read
+     * @return the item key, see ItemIdGenerator.toKey()
+     */
+    public synchronized int getItemKey(int row) {
+        return columns[ITEM].getInt(row * 4);
+    }
+
+    /**
+     * Reads the start date of a row.
+     * @param row the row to read
+     * @return the start date as epoch day
+     */
+    public synchronized int getStartDay(int row) {
+        return columns[START].getInt(row * 4);
+    }
+
+    /**
+     * Reads the expected return date of a row.
+     * @param row the row to read
+     * @return the expected return date as epoch day
+     */
+    public synchronized int getExpectedDay(int row) {
+        return columns[EXPECTED].getInt(row * 4);
+    }
+
+    /**
+     * Reads the end date of a row.
+     * @param row the row to read
+     * @return the end date as epoch day, or NO_END_DAY
+     */
+    public synchronized int getEndDay(int row) {
+        return columns[END].getInt(row * 4);
+    }
+
+    /**
+     * Reads the cost of a row in öre.
+     * @param row the row to read
+     * @return the cost in öre
+     */
+    public synchronized long getCostInOre(int row) {
+        return columns[COST].getLong(row * 8);
+    }
+
+    /**
+     * Reads the late fee of a row in öre.
+     * @param row the row to read
+     * @return the late fee in öre, 0 if the rental was not late
+     */
+    public synchronized long getLateFeeInOre(int row) {
+        return columns[LATE_FEE].getLong(row * 8);
+    }
+
+    /**
+     * Reads the status of a row.
+     * @param row the row to read
+     * @return the rental status
+     */
+    public synchronized RentalStatus getStatus(int row) {
+        return RentalStatus.values()[columns[STATUS].get(row)];
+    }
+
+    /**
+     * Flushes all mapped pages to disk.
+     * Called before a snapshot that records the current row count.
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer column : columns) {
+            column.force();
+        }
+    }
+
+    /**
+     * Flushes and closes all column files.
+     * A temporary archive is deleted.
+     * @throws IOException if closing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+
+        // Remove files of a temporary archive
+        if (temporary) {
+            for (String file : COLUMN_FILES) {
+                Files.deleteIfExists(directory.resolve(file));
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Maps every column file with room for the current capacity.
+     */
+    private void mapColumns() throws IOException {
+        for (int c = 0; c < channels.length; c++) {
+            columns[c] = channels[c].map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * COLUMN_WIDTHS[c]);
+        }
+    }
+
+    /**
+     * Remembers which row holds a sequence number, growing the lookup if needed.
+     */
+    private void indexRow(long sequence, int row) {
+        if (sequence >= rowBySequence.length) {
+            int oldLength = rowBySequence.length;
+            rowBySequence = Arrays.copyOf(rowBySequence, (int) Math.max(oldLength * 2L, sequence + 1));
+            Arrays.fill(rowBySequence, oldLength, rowBySequence.length, NO_ROW);
+        }
+        rowBySequence[(int) sequence] = row;
+    }
+}
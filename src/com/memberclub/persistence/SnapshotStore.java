@@ -0,0 +1,250 @@
+package com.memberclub.persistence;
+
+import com.memberclub.model.DetachedRental;
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.Rental;
+import com.memberclub.model.RevenueSummary;
+import com.memberclub.model.enums.MembershipLevel;
+import com.memberclub.model.enums.RentalStatus;
+import com.memberclub.model.enums.RevenueSource;
+import com.memberclub.service.RentalService;
+import com.memberclub.system.ClubSystem;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes and reads point-in-time snapshots of the complete club state.
+ *
+ * A snapshot holds the ID generator counters, revenue, all items, all members with
+ * their rental history, the active rentals and the number of valid rows in the
+ * RentalArchive, followed by a CRC32 of everything before it. Finished rentals are
+ * not copied into the snapshot, the archive files are flushed before it is written.
+ * It also stores the journal generation that continues after it, so startup only
+ * has to replay the records written since the snapshot was taken.
+ */
+public class SnapshotStore {
+
+    // "MCLB" in ASCII, identifies a snapshot file
+    private static final int MAGIC = 0x4D434C42;
+    private static final int VERSION = 7;
+
+    // Marks a missing end date
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * Writes a snapshot of the system to disk.
+     * The file is written next to the target, flushed and then moved into place,
+     * so a crash never leaves a half-written snapshot behind.
+     * @param path the snapshot file
+     * @param system the system to save
+     * @param generation the journal generation that continues after this snapshot
+     * @throws IOException if writing fails
+     */
+    public static void write(Path path, ClubSystem system, long generation) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+
+            // Header
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+
+            // ID generator counters
+            int[] itemCounters = system.getItemIdGenerator().getCounters();
+            out.writeInt(itemCounters.length);
+            for (int counter : itemCounters) {
+                out.writeInt(counter);
+            }
+            out.writeInt(system.getMemberIdGenerator().getNextId());
+            out.writeLong(system.getRentalService().getRentalCounter());
+
+            // Revenue in öre per source
+            RevenueSummary revenue = system.getRevenueService().getSummary();
+            out.writeLong(revenue.getRentalFeesInOre());
+            out.writeLong(revenue.getLateFeesInOre());
+
+            // Items
+            List<Item> items = system.getInventory().getAllItems();
+            out.writeInt(items.size());
+            for (Item item : items) {
+                ItemCodec.writeItem(out, item);
+            }
+
+            // Members with rental history
+            List<Member> members = system.getMemberRegistry().getAllMembers();
+            out.writeInt(members.size());
+            for (Member member : members) {
+                out.writeInt(member.getId());
+                out.writeUTF(member.getName());
+                out.writeUTF(member.getEmail());
+                out.writeUTF(member.getPhone());
+                out.writeByte(member.getMembershipLevel().ordinal());
+                long[] history = member.getRentalHistory();
+                out.writeInt(history.length);
+                for (long sequence : history) {
+                    out.writeLong(sequence);
+                }
+            }
+
+            // Archived rentals are already on disk, only their row count is stored
+            out.writeInt(system.getRentalService().getArchive().size());
+
+            // Active rentals
+            List<Rental> rentals = system.getRentalService().getActiveRentals();
+            out.writeInt(rentals.size());
+            for (Rental rental : rentals) {
+                out.writeLong(rental.getSequence());
+                out.writeInt(rental.getMemberId());
+                out.writeInt(rental.getItemKey());
+                out.writeLong(rental.getStartDate().toEpochDay());
+                out.writeLong(rental.getExpectedReturnDate().toEpochDay());
+                out.writeLong(rental.getEndDate() == null ? NO_DATE : rental.getEndDate().toEpochDay());
+                out.writeLong(rental.getTotalCostInOre());
+                out.writeLong(rental.getLateFeeInOre());
+                out.writeByte(rental.getStatus().ordinal());
+            }
+
+            // Checksum trailer, written past the checked stream
+            out.flush();
+            long checksum = checked.getChecksum().getValue();
+            DataOutputStream trailer = new DataOutputStream(file);
+            trailer.writeLong(checksum);
+            trailer.flush();
+
+            // Make sure the snapshot is on disk before it replaces the old one
+            file.getFD().sync();
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot into an empty system.
+     * The checksum is verified before anything is loaded, so a corrupt snapshot leaves
+     * the system and the archive untouched.
+     * The services must not have a journal attached while loading.
+     * @param path the snapshot file
+     * @param system the system to load into
+     * @return the journal generation that continues after the snapshot
+     * @throws IOException if the file is unreadable or corrupt
+     */
+    public static long read(Path path, ClubSystem system) throws IOException {
+        verifyChecksum(path);
+
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), 64 * 1024)) {
+            DataInputStream in = new DataInputStream(file);
+
+            // Header
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Ogiltig ögonblicksbild: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Okänd version av ögonblicksbild: " + version);
+            }
+            long generation = in.readLong();
+
+            // ID generator counters
+            int[] itemCounters = new int[in.readInt()];
+            for (int i = 0; i < itemCounters.length; i++) {
+                itemCounters[i] = in.readInt();
+            }
+            system.getItemIdGenerator().restoreCounters(itemCounters);
+            system.getMemberIdGenerator().setNextId(in.readInt());
+            RentalService rentalService = system.getRentalService();
+            long rentalCounter = in.readLong();
+
+            // Revenue in öre per source
+            system.getRevenueService().addRevenueInOre(RevenueSource.RENTAL_FEE, in.readLong());
+            system.getRevenueService().addRevenueInOre(RevenueSource.LATE_FEE, in.readLong());
+
+            // Items
+            int itemCount = in.readInt();
+            for (int i = 0; i < itemCount; i++) {
+                system.getInventory().addItem(ItemCodec.readItem(in));
+            }
+
+            // Members with rental history
+            int memberCount = in.readInt();
+            for (int i = 0; i < memberCount; i++) {
+                Member member = new Member(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(),
+                        MembershipLevel.values()[in.readByte()]);
+                int historySize = in.readInt();
+                for (int h = 0; h < historySize; h++) {
+                    member.addRental(in.readLong());
+                }
+                system.getMemberRegistry().addMember(member);
+            }
+
+            // Keep exactly the archive rows that existed when the snapshot was taken
+            rentalService.getArchive().truncate(in.readInt());
+
+            // Active rentals
+            int rentalCount = in.readInt();
+            for (int i = 0; i < rentalCount; i++) {
+                long sequence = in.readLong();
+                int memberId = in.readInt();
+                int itemKey = in.readInt();
+                LocalDate startDate = LocalDate.ofEpochDay(in.readLong());
+                LocalDate expectedReturnDate = LocalDate.ofEpochDay(in.readLong());
+                long end = in.readLong();
+                LocalDate endDate = end == NO_DATE ? null : LocalDate.ofEpochDay(end);
+                long totalCostInOre = in.readLong();
+                long lateFeeInOre = in.readLong();
+                RentalStatus status = RentalStatus.values()[in.readByte()];
+
+                DetachedRental rental = new DetachedRental(sequence, memberId, itemKey, startDate, expectedReturnDate, endDate, totalCostInOre);
+                rental.setLateFeeInOre(lateFeeInOre);
+                rental.setStatus(status);
+                rentalService.loadRental(rental);
+            }
+            rentalService.setRentalCounter(rentalCounter);
+
+            return generation;
+        }
+    }
+
+    /**
+     * Reads the whole snapshot once and compares its CRC32 with the trailer.
+     * @throws IOException if the file is unreadable or the checksum does not match
+     */
+    private static void verifyChecksum(Path path) throws IOException {
+        long remaining = Files.size(path) - Long.BYTES;
+        if (remaining < 0) {
+            throw new IOException("Ögonblicksbilden är skadad: " + path);
+        }
+
+        try (InputStream file = Files.newInputStream(path)) {
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[64 * 1024];
+            while (remaining > 0) {
+                int read = file.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Ögonblicksbilden är avkortad: " + path);
+                }
+                crc.update(buffer, 0, read);
+                remaining -= read;
+            }
+            if (new DataInputStream(file).readLong() != crc.getValue()) {
+                throw new IOException("Ögonblicksbilden är skadad: " + path);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.memberclub.pricing;
 
 import com.memberclub.model.Item;
 import com.memberclub.model.Member;
+import com.memberclub.model.Money;
 import com.memberclub.model.enums.RentalPeriod;
 
 /**
@@ -15,13 +16,14 @@ public class PremiumPricing implements PricePolicy {
 
     // Implements the pricing calculation from PricePolicy interface
     @Override
-    public double calculatePrice(Item item, Member member, int duration, RentalPeriod period) {
+    public long calculatePrice(Item item, Member member, int duration, RentalPeriod period) {
 
-        // Calculate cost based on rental period (hourly or daily) with premium discount
+        // Calculate cost based on rental period (hourly or daily) with premium discount,
+        // rounded per hour or day like the rows of the PriceTable
         if (period == RentalPeriod.HOURLY) {
-            return item.getPricePerHour() * duration * PREMIUM_DISCOUNT;
+            return Money.times(Money.scale(item.getPricePerHourInOre(), PREMIUM_DISCOUNT), duration);
         } else {
-            return item.getPricePerDay() * duration * PREMIUM_DISCOUNT;
+            return Money.times(Money.scale(item.getPricePerDayInOre(), PREMIUM_DISCOUNT), duration);
         }
 
     }
@@ -3,10 +3,12 @@ package com.memberclub.pricing;
 import com.memberclub.model.Item;
 import com.memberclub.model.Member;
 import com.memberclub.model.enums.RentalPeriod;
+import java.time.LocalDate;
 
 /**
  * Interface defining the contract for pricing strategies.
  * Implementations calculate rental cost based on item, member, duration, and period.
+ * Costs are whole öre, see Money.
  */
 public interface PricePolicy {
 
@@ -16,7 +18,21 @@ public interface PricePolicy {
      * @param member the member renting
      * @param duration rental duration (hours or days depending on period)
      * @param period billing period (HOURLY or DAILY)
-     * @return total cost in SEK
+     * @return total cost in öre
      */
-    double calculatePrice(Item item, Member member, int duration, RentalPeriod period);
+    long calculatePrice(Item item, Member member, int duration, RentalPeriod period);
+
+    /**
+     * Calculates the total rental cost for a rental that starts on a given day.
+     * Strategies whose prices do not depend on the date use the price above.
+     * @param item the item being rented
+     * @param member the member renting
+     * @param duration rental duration (hours or days depending on period)
+     * @param period billing period (HOURLY or DAILY)
+     * @param startDate the day the rental starts
+     * @return total cost in öre
+     */
+    default long calculatePrice(Item item, Member member, int duration, RentalPeriod period, LocalDate startDate) {
+        return calculatePrice(item, member, duration, period);
+    }
 }
@@ -0,0 +1,273 @@
+package com.memberclub.pricing;
+
+import com.memberclub.model.CartItem;
+import com.memberclub.model.Item;
+import com.memberclub.model.Money;
+import com.memberclub.model.enums.ItemType;
+import com.memberclub.model.enums.MembershipLevel;
+import com.memberclub.model.enums.RentalPeriod;
+import com.memberclub.system.ItemIdGenerator;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Precomputed prices of every item for every membership level and billing period.
+ *
+ * Each item type has one long array, indexed by the running number of the item key
+ * (see ItemIdGenerator.toKey()). Every item gets a row of LEVELS * PERIODS prices in öre
+ * for one hour or one day, worked out once with the PricePolicy of each level. A quote is
+ * then a single array read and a multiplication, and a whole cart is a loop of those,
+ * with no strategy lookups and no allocation.
+ *
+ * When PricingRules are installed, the rows hold the level and type part of the rules and a
+ * quote multiplies in the season, weekend and duration factors. The rows and the rules they
+ * were built from are replaced together by reprice(), so a quote never mixes two rule sets.
+ *
+ * The inventory keeps the table up to date: a row is rebuilt when an item is added or
+ * its prices change, and cleared when the item is removed. Reads take no lock, a larger
+ * array is filled before it is published.
+ */
+public class PriceTable {
+
+    private static final MembershipLevel[] LEVELS = MembershipLevel.values();
+    private static final RentalPeriod[] PERIODS = RentalPeriod.values();
+
+    // Prices per item row
+    private static final int ROW = LEVELS.length * PERIODS.length;
+
+    // Rows reserved per item type when the table is created
+    private static final int INITIAL_ITEMS = 64;
+
+    // Marks a price slot that has no item
+    private static final long NO_PRICE = -1;
+
+    // Current rows and the rules they were built from, replaced as a whole by reprice()
+    private volatile Prices prices;
+
+    /**
+     * Creates an empty table for the rules installed in PricingFactory.
+     */
+    public PriceTable() {
+        this.prices = new Prices(PricingFactory.getRules());
+    }
+
+    /**
+     * Works out the prices of an item for every level and period.
+     * Called when the item is added and whenever one of its prices changes.
+     * @param key the item key
+     * @param item the item to price
+     */
+    public synchronized void update(int key, Item item) {
+        prices.update(key, item);
+    }
+
+    /**
+     * Works out the prices of many new items at once, such as a bulk import.
+     * The array of each item type grows at most once for the whole batch.
+     * @param keys the item keys, in the same order as the items
+     * @param items the items to price
+     */
+    public synchronized void updateAll(int[] keys, List<Item> items) {
+        prices.updateAll(keys, items);
+    }
+
+    /**
+     * Rebuilds every row with the rules now installed in PricingFactory, and then switches
+     * to the new rows in one step. Quotes keep using the old rows until then.
+     * @param items every item in the inventory
+     */
+    public synchronized void reprice(Iterable<Item> items) {
+        Prices rebuilt = new Prices(PricingFactory.getRules());
+        for (Item item : items) {
+            rebuilt.update(ItemIdGenerator.toKey(item.getId()), item);
+        }
+        prices = rebuilt;
+    }
+
+    /**
+     * Clears the prices of an item that left the inventory.
+     * @param key the item key
+     */
+    public synchronized void remove(int key) {
+        long[] row = prices.byType.get(ItemIdGenerator.typeOf(key).ordinal());
+        int start = ItemIdGenerator.numberOf(key) * ROW;
+        if (start + ROW <= row.length) {
+            Arrays.fill(row, start, start + ROW, NO_PRICE);
+        }
+    }
+
+    /**
+     * Returns the price of one hour or one day of an item, before any season, weekend or duration rules.
+     * @param key the item key
+     * @param level the membership level of the member renting
+     * @param period the billing period
+     * @return price in öre, or -1 if the item is not in the table
+     */
+    public long getUnitPrice(int key, MembershipLevel level, RentalPeriod period) {
+        return prices.getUnitPrice(key, level, period);
+    }
+
+    /**
+     * Returns the price of renting an item from today.
+     * @param key the item key
+     * @param level the membership level of the member renting
+     * @param duration rental duration (hours or days depending on period)
+     * @param period the billing period
+     * @return total price in öre, or -1 if the item is not in the table
+     */
+    public long quote(int key, MembershipLevel level, int duration, RentalPeriod period) {
+        return prices.quote(key, level, duration, period, null);
+    }
+
+    /**
+     * Returns the price of renting an item.
+     * @param key the item key
+     * @param level the membership level of the member renting
+     * @param duration rental duration (hours or days depending on period)
+     * @param period the billing period
+     * @param startDate the day the rental starts
+     * @return total price in öre, or -1 if the item is not in the table
+     */
+    public long quote(int key, MembershipLevel level, int duration, RentalPeriod period, LocalDate startDate) {
+        return prices.quote(key, level, duration, period, startDate);
+    }
+
+    /**
+     * Returns the price of renting every item in a cart from today.
+     * @param cartItems the items with their duration and period
+     * @param level the membership level of the member renting
+     * @return total price in öre, or -1 if any item is not in the table
+     */
+    public long quote(List<CartItem> cartItems, MembershipLevel level) {
+        return quote(cartItems, level, null);
+    }
+
+    /**
+     * Returns the price of renting every item in a cart.
+     * @param cartItems the items with their duration and period
+     * @param level the membership level of the member renting
+     * @param startDate the day the rentals start
+     * @return total price in öre, or -1 if any item is not in the table
+     */
+    public long quote(List<CartItem> cartItems, MembershipLevel level, LocalDate startDate) {
+
+        // Every item is priced from the same rows, rules and day
+        Prices current = prices;
+        if (startDate == null && current.rules != null) {
+            startDate = LocalDate.now();
+        }
+        long total = 0;
+        for (int i = 0; i < cartItems.size(); i++) {
+            CartItem cartItem = cartItems.get(i);
+            long price = current.quote(cartItem.getItemKey(), level, cartItem.getDuration(), cartItem.getPeriod(), startDate);
+            if (price < 0) {
+                return NO_PRICE;
+            }
+            total += price;
+        }
+        return total;
+    }
+
+    /**
+     * One generation of price rows, together with the rules they were built from.
+     */
+    private static final class Prices {
+
+        // Rules the rows were built from, null for the fixed strategies
+        private final PricingRules rules;
+
+        // Prices by key: [type ordinal] -> number * ROW + level * PERIODS + period -> öre per hour or day
+        private final AtomicReferenceArray<long[]> byType;
+
+        private Prices(PricingRules rules) {
+            this.rules = rules;
+            this.byType = new AtomicReferenceArray<>(ItemType.values().length);
+            for (int type = 0; type < byType.length(); type++) {
+                long[] rows = new long[INITIAL_ITEMS * ROW];
+                Arrays.fill(rows, NO_PRICE);
+                byType.set(type, rows);
+            }
+        }
+
+        private void update(int key, Item item) {
+            int type = ItemIdGenerator.typeOf(key).ordinal();
+            int start = ItemIdGenerator.numberOf(key) * ROW;
+
+            // Grow the array of this type, filled before it is published
+            long[] rows = grow(byType.get(type), start + ROW);
+            fill(rows, start, item);
+            byType.set(type, rows);
+        }
+
+        private void updateAll(int[] keys, List<Item> items) {
+
+            // Size every type for its highest item number first
+            int[] needed = new int[byType.length()];
+            for (int key : keys) {
+                int type = ItemIdGenerator.typeOf(key).ordinal();
+                needed[type] = Math.max(needed[type], (ItemIdGenerator.numberOf(key) + 1) * ROW);
+            }
+            long[][] rowsByType = new long[byType.length()][];
+            for (int type = 0; type < rowsByType.length; type++) {
+                rowsByType[type] = grow(byType.get(type), needed[type]);
+            }
+
+            // Fill the rows, then publish each type once
+            for (int i = 0; i < keys.length; i++) {
+                int key = keys[i];
+                fill(rowsByType[ItemIdGenerator.typeOf(key).ordinal()], ItemIdGenerator.numberOf(key) * ROW, items.get(i));
+            }
+            for (int type = 0; type < rowsByType.length; type++) {
+                byType.set(type, rowsByType[type]);
+            }
+        }
+
+        /**
+         * Returns the rows, or a larger copy with empty rows when they are shorter than the given length.
+         */
+        private static long[] grow(long[] rows, int length) {
+            if (length <= rows.length) {
+                return rows;
+            }
+            long[] larger = Arrays.copyOf(rows, Math.max(rows.length * 2, length));
+            Arrays.fill(larger, rows.length, larger.length, NO_PRICE);
+            return larger;
+        }
+
+        /**
+         * Writes one unit of every period at every level into the row at start.
+         */
+        private void fill(long[] rows, int start, Item item) {
+            for (MembershipLevel level : LEVELS) {
+                PricePolicy policy = PricingFactory.getStrategy(level);
+                for (RentalPeriod period : PERIODS) {
+                    long price = rules != null ? rules.getUnitPrice(item, level, period) : policy.calculatePrice(item, null, 1, period);
+                    rows[start + level.ordinal() * PERIODS.length + period.ordinal()] = price;
+                }
+            }
+        }
+
+        private long getUnitPrice(int key, MembershipLevel level, RentalPeriod period) {
+            long[] rows = byType.get(ItemIdGenerator.typeOf(key).ordinal());
+            int index = ItemIdGenerator.numberOf(key) * ROW + level.ordinal() * PERIODS.length + period.ordinal();
+            return index < rows.length ? rows[index] : NO_PRICE;
+        }
+
+        private long quote(int key, MembershipLevel level, int duration, RentalPeriod period, LocalDate startDate) {
+            long unitPrice = getUnitPrice(key, level, period);
+            if (unitPrice < 0) {
+                return NO_PRICE;
+            }
+            long price = Money.times(unitPrice, duration);
+            if (rules == null) {
+                return price;
+            }
+
+            // Only rules look at the date, so today is only looked up when it is needed
+            LocalDate day = startDate != null ? startDate : LocalDate.now();
+            return Money.scale(price, rules.getRentalFactor(duration, period, day));
+        }
+    }
+}
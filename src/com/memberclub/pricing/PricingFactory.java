@@ -5,9 +5,29 @@ import com.memberclub.model.enums.MembershipLevel;
 /**
  * Factory class that creates the appropriate pricing strategy
  * based on membership level.
+ * The strategies hold no state, so one instance per level is shared by every caller.
+ * When pricing rules are installed, every level is priced by a RulePricing instead.
  */
 public class PricingFactory {
 
+    private static final MembershipLevel[] LEVELS = MembershipLevel.values();
+
+    // Shared strategies, indexed by MembershipLevel ordinal
+    private static final PricePolicy[] POLICIES = new PricePolicy[LEVELS.length];
+    private static final PricePolicy[] RULE_POLICIES = new PricePolicy[LEVELS.length];
+
+    // Installed pricing rules, null for the fixed strategies above
+    private static volatile PricingRules rules;
+
+    static {
+        POLICIES[MembershipLevel.STANDARD.ordinal()] = new StandardPricing();
+        POLICIES[MembershipLevel.STUDENT.ordinal()] = new StudentPricing();
+        POLICIES[MembershipLevel.PREMIUM.ordinal()] = new PremiumPricing();
+        for (MembershipLevel level : LEVELS) {
+            RULE_POLICIES[level.ordinal()] = new RulePricing(level);
+        }
+    }
+
     /**
      * Returns the correct PricePolicy for a given membership level.
      * @param level the membership level
@@ -15,28 +35,56 @@ public class PricingFactory {
      */
     public static PricePolicy getPricing(MembershipLevel level) {
 
-        // Match membership level to corresponding pricing strategy
-        switch (level) {
+        // Fallback to standard pricing if level is null
+        if (level == null) {
+            level = MembershipLevel.STANDARD;
+        }
+        return rules != null ? RULE_POLICIES[level.ordinal()] : POLICIES[level.ordinal()];
+    }
+
+    /**
+     * Returns the fixed strategy for a level, whether or not rules are installed.
+     */
+    static PricePolicy getStrategy(MembershipLevel level) {
+        return POLICIES[level.ordinal()];
+    }
 
-            // No discount
-            case STANDARD -> {
-                return new StandardPricing();
-            }
+    /**
+     * Installs pricing rules, or goes back to the fixed strategies.
+     * Quotes already running finish with the rules they started with.
+     * The inventory's price table must be repriced afterwards, see Inventory.reprice().
+     * @param pricingRules the compiled rules, or null for the fixed strategies
+     */
+    public static void setRules(PricingRules pricingRules) {
+        rules = pricingRules;
+    }
 
-            // 20% discount
-            case STUDENT -> {
-                return new StudentPricing();
-            }
+    /**
+     * Returns the installed pricing rules.
+     * @return the rules, or null when the fixed strategies are used
+     */
+    public static PricingRules getRules() {
+        return rules;
+    }
 
-            // 30% discount
-            case PREMIUM -> {
-                return new PremiumPricing();
-            }
+    /**
+     * Returns the member discount for a membership level, for showing it on carts and receipts.
+     * @param level the membership level
+     * @return discount as decimal (0.0 = 0%, 0.20 = 20%, 0.30 = 30%)
+     */
+    public static double getDiscount(MembershipLevel level) {
 
-            // Fallback to standard pricing if level is null or unexpected
-            default -> {
-                return new StandardPricing();
-            }
+        // With rules installed the discount is whatever the level rules give, in whole percent
+        PricingRules current = rules;
+        if (current != null) {
+            return Math.round((1 - current.getLevelFactor(level)) * 100) / 100.0;
         }
+
+        // Return discount based on membership level
+        return switch (level) {
+            case STANDARD -> 0.0;
+            case STUDENT -> 0.20;
+            case PREMIUM -> 0.30;
+        };
     }
 }
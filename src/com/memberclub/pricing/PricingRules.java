@@ -0,0 +1,267 @@
+package com.memberclub.pricing;
+
+import com.memberclub.model.Item;
+import com.memberclub.model.Money;
+import com.memberclub.model.enums.ItemCategory;
+import com.memberclub.model.enums.ItemType;
+import com.memberclub.model.enums.MembershipLevel;
+import com.memberclub.model.enums.RentalPeriod;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of pricing rules, compiled once into flat factor tables.
+ *
+ * Rules are written one per line, every rule multiplies the price by a factor:
+ * <pre>
+ * # Member discounts
+ * level STUDENT x0.8
+ * level PREMIUM x0.7
+ *
+ * # Per item type or whole category
+ * type KAYAK x0.9
+ * category FISHING x1.1
+ *
+ * # Summer season, may wrap the new year
+ * season 06-15..08-15 x1.25
+ *
+ * # Rentals starting on a Saturday or Sunday
+ * weekend x1.1
+ *
+ * # Daily rentals of at least this many days, the longest matching tier counts
+ * days >= 3 x0.9
+ * days >= 7 x0.8
+ * </pre>
+ *
+ * Compiling turns the rules into tables: one factor per membership level and item type,
+ * one per day of the year, one per day of the week and one per rental length. Quoting is
+ * then the base price times a handful of array reads, however many rules there are.
+ * Rules that match several times multiply, except duration tiers. An instance never
+ * changes, so a new set of rules can replace it while quotes are running.
+ */
+public class PricingRules {
+
+    private static final MembershipLevel[] LEVELS = MembershipLevel.values();
+    private static final ItemType[] TYPES = ItemType.values();
+
+    // Factor per membership level, and level and type factors multiplied together: [level ordinal * TYPES + type ordinal]
+    private final double[] levelFactors;
+    private final double[] itemFactors;
+
+    // Season factor per day of the year, index 0 is January 1st, 366 days to cover leap years
+    private final double[] seasonFactors;
+
+    // Weekday factor per day of the week, index 0 is Monday
+    private final double[] weekdayFactors;
+
+    // Tier factor per rental length in days, longer daily rentals use the last entry
+    private final double[] tierFactors;
+
+    private PricingRules(double[] levelFactors, double[] itemFactors, double[] seasonFactors, double[] weekdayFactors,
+                         double[] tierFactors) {
+        this.levelFactors = levelFactors;
+        this.itemFactors = itemFactors;
+        this.seasonFactors = seasonFactors;
+        this.weekdayFactors = weekdayFactors;
+        this.tierFactors = tierFactors;
+    }
+
+    /**
+     * Reads and compiles the rules in a file.
+     * @param file the rule file, UTF-8
+     * @return the compiled rules
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a rule is not valid
+     */
+    public static PricingRules load(Path file) throws IOException {
+        return compile(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compiles rules written one per line.
+     * Empty lines and lines starting with # are skipped.
+     * @param lines the rules
+     * @return the compiled rules
+     * @throws IllegalArgumentException if a rule is not valid
+     */
+    public static PricingRules compile(List<String> lines) {
+        double[] levelFactors = ones(LEVELS.length);
+        double[] typeFactors = ones(TYPES.length);
+        double[] seasonFactors = ones(366);
+        double[] weekdayFactors = ones(7);
+
+        // Tier thresholds in days and their factors, by threshold
+        double[] tiers = new double[1];
+        Arrays.fill(tiers, Double.NaN);
+
+        for (int row = 0; row < lines.size(); row++) {
+            String line = lines.get(row).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            try {
+                String[] words = line.split("\\s+");
+                double factor = parseFactor(words[words.length - 1]);
+                switch (words[0]) {
+                    case "level" -> levelFactors[MembershipLevel.valueOf(words[1]).ordinal()] *= factor;
+                    case "type" -> typeFactors[ItemType.valueOf(words[1]).ordinal()] *= factor;
+                    case "category" -> {
+                        ItemCategory category = ItemCategory.valueOf(words[1]);
+                        for (ItemType type : TYPES) {
+                            if (ItemCategory.of(type) == category) {
+                                typeFactors[type.ordinal()] *= factor;
+                            }
+                        }
+                    }
+                    case "season" -> {
+                        String[] range = words[1].split("\\.\\.");
+                        int first = dayIndex(MonthDay.parse("--" + range[0]));
+                        int last = dayIndex(MonthDay.parse("--" + range[1]));
+
+                        // A season that ends before it starts runs over the new year
+                        for (int day = first; ; day = (day + 1) % 366) {
+                            seasonFactors[day] *= factor;
+                            if (day == last) {
+                                break;
+                            }
+                        }
+                    }
+                    case "weekend" -> {
+                        weekdayFactors[DayOfWeek.SATURDAY.ordinal()] *= factor;
+                        weekdayFactors[DayOfWeek.SUNDAY.ordinal()] *= factor;
+                    }
+                    case "days" -> {
+                        if (!words[1].equals(">=")) {
+                            throw new IllegalArgumentException("förväntade >=");
+                        }
+                        int days = Integer.parseInt(words[2]);
+                        if (days < 1) {
+                            throw new IllegalArgumentException("antal dagar måste vara minst 1");
+                        }
+                        if (days >= tiers.length) {
+                            int oldLength = tiers.length;
+                            tiers = Arrays.copyOf(tiers, days + 1);
+                            Arrays.fill(tiers, oldLength, tiers.length, Double.NaN);
+                        }
+                        tiers[days] = factor;
+                    }
+                    default -> throw new IllegalArgumentException("okänd regel " + words[0]);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Ogiltig prisregel på rad " + (row + 1) + ": " + line
+                        + " (" + e.getMessage() + ")", e);
+            }
+        }
+
+        // Flatten level and type into one table
+        double[] itemFactors = new double[LEVELS.length * TYPES.length];
+        for (int level = 0; level < LEVELS.length; level++) {
+            for (int type = 0; type < TYPES.length; type++) {
+                itemFactors[level * TYPES.length + type] = levelFactors[level] * typeFactors[type];
+            }
+        }
+
+        // Every length gets the factor of the longest tier it reaches
+        double[] tierFactors = new double[tiers.length];
+        double current = 1.0;
+        for (int days = 0; days < tiers.length; days++) {
+            if (!Double.isNaN(tiers[days])) {
+                current = tiers[days];
+            }
+            tierFactors[days] = current;
+        }
+        return new PricingRules(levelFactors, itemFactors, seasonFactors, weekdayFactors, tierFactors);
+    }
+
+    /**
+     * Returns the factor of the level rules alone, what a member pays compared to the standard price.
+     * @param level the membership level
+     * @return the level factor, 1.0 when there is no rule for the level
+     */
+    public double getLevelFactor(MembershipLevel level) {
+        return levelFactors[level.ordinal()];
+    }
+
+    /**
+     * Returns the price of one hour or one day of an item at a membership level.
+     * Covers the level, type and category rules, which do not depend on the rental itself.
+     * @param item the item
+     * @param level the membership level
+     * @param period the billing period
+     * @return unit price in öre
+     */
+    public long getUnitPrice(Item item, MembershipLevel level, RentalPeriod period) {
+        long base = period == RentalPeriod.HOURLY ? item.getPricePerHourInOre() : item.getPricePerDayInOre();
+        return Money.scale(base, itemFactors[level.ordinal() * TYPES.length + item.getItemType().ordinal()]);
+    }
+
+    /**
+     * Returns the factor of the season, weekend and duration rules for one rental.
+     * @param duration rental duration (hours or days depending on period)
+     * @param period the billing period
+     * @param startDate the day the rental starts
+     * @return the factor to multiply the unit price times duration by
+     */
+    public double getRentalFactor(int duration, RentalPeriod period, LocalDate startDate) {
+        double factor = seasonFactors[dayIndex(startDate)] * weekdayFactors[startDate.getDayOfWeek().ordinal()];
+        if (period == RentalPeriod.DAILY) {
+            factor *= tierFactors[Math.min(duration, tierFactors.length - 1)];
+        }
+        return factor;
+    }
+
+    /**
+     * Returns the total price of a rental, rounded the same way as a PriceTable quote.
+     * @param item the item
+     * @param level the membership level of the member renting
+     * @param duration rental duration (hours or days depending on period)
+     * @param period the billing period
+     * @param startDate the day the rental starts
+     * @return total price in öre
+     */
+    public long calculatePrice(Item item, MembershipLevel level, int duration, RentalPeriod period, LocalDate startDate) {
+        return Money.scale(Money.times(getUnitPrice(item, level, period), duration), getRentalFactor(duration, period, startDate));
+    }
+
+    /**
+     * Turns a factor written as x0.8 into its value.
+     */
+    private static double parseFactor(String word) {
+        if (!word.startsWith("x")) {
+            throw new IllegalArgumentException("faktorn ska skrivas som x0.8");
+        }
+        return Double.parseDouble(word.substring(1));
+    }
+
+    /**
+     * Returns the index of a day in a 366-day year, so February 29th always has its own index.
+     */
+    private static int dayIndex(MonthDay day) {
+        return day.atYear(2000).getDayOfYear() - 1;
+    }
+
+    /**
+     * Returns the index of a date in a 366-day year, skipping February 29th outside leap years.
+     */
+    private static int dayIndex(LocalDate date) {
+        int day = date.getDayOfYear() - 1;
+        return !date.isLeapYear() && day >= 59 ? day + 1 : day;
+    }
+
+    /**
+     * Returns an array of the given length filled with 1.0.
+     */
+    private static double[] ones(int length) {
+        double[] factors = new double[length];
+        Arrays.fill(factors, 1.0);
+        return factors;
+    }
+}
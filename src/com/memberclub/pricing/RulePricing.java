@@ -0,0 +1,43 @@
+package com.memberclub.pricing;
+
+import com.memberclub.model.Item;
+import com.memberclub.model.Member;
+import com.memberclub.model.enums.MembershipLevel;
+import com.memberclub.model.enums.RentalPeriod;
+import java.time.LocalDate;
+
+/**
+ * Pricing strategy that applies the compiled PricingRules for one membership level.
+ * Reads the current rules once per quote, so rules can be replaced while quotes are running
+ * and every quote uses either the old or the new rules, never a mix.
+ */
+public class RulePricing implements PricePolicy {
+
+    private final MembershipLevel level;
+
+    /**
+     * Creates the rule strategy for a membership level.
+     * @param level the level whose rules apply
+     */
+    public RulePricing(MembershipLevel level) {
+        this.level = level;
+    }
+
+    // Implements the pricing calculation from PricePolicy interface, for a rental starting today
+    @Override
+    public long calculatePrice(Item item, Member member, int duration, RentalPeriod period) {
+        return calculatePrice(item, member, duration, period, LocalDate.now());
+    }
+
+    // Applies the level, type, season, weekend and duration rules
+    @Override
+    public long calculatePrice(Item item, Member member, int duration, RentalPeriod period, LocalDate startDate) {
+        PricingRules rules = PricingFactory.getRules();
+
+        // Rules that were removed after this strategy was handed out give way to the fixed strategy
+        if (rules == null) {
+            return PricingFactory.getPricing(level).calculatePrice(item, member, duration, period, startDate);
+        }
+        return rules.calculatePrice(item, level, duration, period, startDate);
+    }
+}
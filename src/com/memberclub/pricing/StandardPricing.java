@@ -2,6 +2,7 @@ package com.memberclub.pricing;
 
 import com.memberclub.model.Item;
 import com.memberclub.model.Member;
+import com.memberclub.model.Money;
 import com.memberclub.model.enums.RentalPeriod;
 
 /**
@@ -12,13 +13,13 @@ public class StandardPricing implements PricePolicy {
 
     // Implements the pricing calculation from PricePolicy interface
     @Override
-    public double calculatePrice(Item item, Member member, int duration, RentalPeriod period) {
+    public long calculatePrice(Item item, Member member, int duration, RentalPeriod period) {
 
         // Calculate cost based on a rental period (hourly or daily)
         if (period == RentalPeriod.HOURLY) {
-            return item.getPricePerHour() * duration;
+            return Money.times(item.getPricePerHourInOre(), duration);
         } else {
-            return item.getPricePerDay() * duration;
+            return Money.times(item.getPricePerDayInOre(), duration);
         }
     }
 }
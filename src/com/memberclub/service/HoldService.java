@@ -0,0 +1,132 @@
+package com.memberclub.service;
+
+import com.memberclub.model.ItemHold;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates cart holds and releases them when they expire.
+ *
+ * Holds are kept in a timing wheel: a ring of buckets where bucket (tick % buckets) holds
+ * the holds due in that tick. Each sweep only reads the buckets of the ticks that have passed
+ * since the previous sweep, and releases every expired hold in them in one go. A hold that was
+ * extended, or is due a full turn of the wheel later, is moved on to the bucket of its current
+ * deadline, so extending a hold never touches the wheel.
+ */
+public class HoldService {
+
+    // Number of buckets in the wheel, a power of two
+    private static final int BUCKETS = 512;
+
+    private final long ttlMillis;
+    private final long tickMillis;
+
+    // Holds per bucket, guarded by this service
+    private final List<List<ItemHold>> wheel;
+
+    // Last tick that has been swept, guarded by this service
+    private long sweptTick;
+
+    /**
+     * Creates a hold service.
+     * @param ttlMillis how long a hold lasts after it is created or extended, in milliseconds
+     * @param tickMillis how often the wheel is expected to be swept, in milliseconds
+     */
+    public HoldService(long ttlMillis, long tickMillis) {
+        this.ttlMillis = ttlMillis;
+        this.tickMillis = tickMillis;
+        this.wheel = new ArrayList<>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.sweptTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    /**
+     * Creates an empty hold that expires one time-to-live from now.
+     * @return the new hold
+     */
+    public ItemHold createHold() {
+        ItemHold hold = new ItemHold(System.currentTimeMillis() + ttlMillis);
+        schedule(hold);
+        return hold;
+    }
+
+    /**
+     * Gives a hold one more time-to-live from now.
+     * Only writes the new deadline, the wheel picks it up when the old deadline is swept.
+     * @param hold the hold to extend
+     * @return true if the hold was extended, false if it has already been released
+     */
+    public boolean extend(ItemHold hold) {
+        return hold.extend(System.currentTimeMillis() + ttlMillis);
+    }
+
+    /**
+     * Releases every hold whose deadline has passed.
+     * Called by one background thread once per tick.
+     * @param now the current time in milliseconds
+     * @return number of holds released
+     */
+    public int sweep(long now) {
+        List<ItemHold> expired = new ArrayList<>();
+
+        synchronized (this) {
+            long tick = now / tickMillis;
+
+            // After a long pause every bucket is due, but each is read only once
+            long first = Math.max(sweptTick + 1, tick - BUCKETS + 1);
+            for (long t = first; t <= tick; t++) {
+                List<ItemHold> bucket = wheel.get((int) (t & (BUCKETS - 1)));
+                if (bucket.isEmpty()) {
+                    continue;
+                }
+
+                // Take the bucket and move on the holds that are not due yet
+                List<ItemHold> due = new ArrayList<>(bucket);
+                bucket.clear();
+                for (ItemHold hold : due) {
+                    if (hold.getDeadline() <= now) {
+                        expired.add(hold);
+                    } else if (!hold.isReleased()) {
+                        wheel.get(bucketOf(hold.getDeadline())).add(hold);
+                    }
+                }
+            }
+            sweptTick = Math.max(sweptTick, tick);
+        }
+
+        // Release outside the wheel, releasing re-indexes every item in the inventory
+        int released = 0;
+        for (ItemHold hold : expired) {
+            if (!hold.isReleased()) {
+                hold.release();
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Puts a hold in the bucket of its deadline.
+     */
+    private synchronized void schedule(ItemHold hold) {
+        wheel.get(bucketOf(hold.getDeadline())).add(hold);
+    }
+
+    /**
+     * Returns the bucket for a deadline, rounded up to the next tick so a hold is never released early.
+     */
+    private int bucketOf(long deadline) {
+        long tick = (deadline + tickMillis - 1) / tickMillis;
+        return (int) (tick & (BUCKETS - 1));
+    }
+
+    /**
+     * Returns how long a hold lasts after it is created or extended.
+     * @return time-to-live in milliseconds
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+}
@@ -1,25 +1,118 @@
 package com.memberclub.service;
 
 import com.memberclub.model.Item;
-import java.util.HashMap;
+import com.memberclub.model.ItemChangeListener;
+import com.memberclub.model.enums.Color;
+import com.memberclub.model.enums.ItemCategory;
+import com.memberclub.model.enums.ItemStatus;
+import com.memberclub.model.enums.ItemType;
+import com.memberclub.persistence.Journal;
+import com.memberclub.pricing.PriceTable;
+import com.memberclub.system.ItemIdGenerator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Manages all items available for rental.
- * Uses a Map for fast ID lookup.
+ * Items are looked up by their numeric key (see ItemIdGenerator.toKey()), which indexes
+ * straight into one array per item type. Every item also gets a dense slot number, and bitmaps
+ * per type, category, status and color record which slots match. Combined filters such as
+ * available red kayaks are answered by AND-ing the bitmaps a word (64 items) at a time,
+ * without allocating anything but the result list. Counts are kept per combination of
+ * type, status and color, so counting never has to scan at all. The prices of every item
+ * are kept in a PriceTable that follows the items in the same way.
+ *
+ * Item lookup by key or ID is lock-free. The slot indexes are guarded by the inventory's own
+ * monitor. A status or color change, such as a rental or a return, only puts the item key on
+ * a lock-free KeyQueue, and every query first moves the queued items to their new bitmaps
+ * under the monitor. Renting and returning therefore never wait for a query or for each other
+ * here, unless the queue is full because nothing has been queried for a long time.
  */
 public class Inventory {
 
-    // Map for ID-based lookup: itemId -> Item
-    private final Map<String, Item> items;
+    // Slots reserved when the inventory is created
+    private static final int INITIAL_SLOTS = 64;
+
+    // Status and color changes that can wait for the next query
+    private static final int CHANGE_QUEUE_CAPACITY = 4096;
+
+    // Enum values, cached since values() copies the array on every call
+    private static final ItemType[] TYPES = ItemType.values();
+    private static final ItemStatus[] STATUSES = ItemStatus.values();
+    private static final Color[] COLORS = Color.values();
+
+    // Items by key, readable without taking the lock: [type ordinal] -> item number -> item.
+    // Written under the monitor, a full array is replaced by a larger copy
+    private final AtomicReferenceArray<AtomicReferenceArray<Item>> itemsByKey;
+
+    // Slot of every item by key: [type ordinal][item number] -> slot + 1, 0 when unused
+    private final int[][] slotsByKey;
+
+    // Number of items in use
+    private int itemCount;
+
+    // Items by slot, and the status and color each slot is currently indexed under
+    private Item[] itemsBySlot;
+    private ItemStatus[] statusBySlot;
+    private Color[] colorBySlot;
+
+    // Slots that are in use, and slots freed by removed items that can be reused
+    private final Bitmap usedSlots;
+    private final BitSet freeSlots;
+
+    // Bitmap indexes: attribute value -> slots of the items that have it
+    private final Map<ItemType, Bitmap> slotsByType;
+    private final Map<ItemCategory, Bitmap> slotsByCategory;
+    private final Map<ItemStatus, Bitmap> slotsByStatus;
+    private final Map<Color, Bitmap> slotsByColor;
+
+    // Number of items per combination: [type][status][color]
+    private final int[][][] counts;
+
+    // Keys of items whose status or color changed since the bitmaps were last brought up to date
+    private final KeyQueue changedKeys;
+
+    // Prices of every item for every membership level and period
+    private final PriceTable priceTable;
+
+    // Journal that records mutations, null when running without persistence
+    private Journal journal;
 
     /**
      * Creates an empty inventory.
      */
     public Inventory() {
-        this.items = new HashMap<>();
+        this.itemsByKey = new AtomicReferenceArray<>(TYPES.length);
+        this.slotsByKey = new int[TYPES.length][];
+        for (int type = 0; type < TYPES.length; type++) {
+            itemsByKey.set(type, new AtomicReferenceArray<>(INITIAL_SLOTS));
+            slotsByKey[type] = new int[INITIAL_SLOTS];
+        }
+        this.itemsBySlot = new Item[INITIAL_SLOTS];
+        this.statusBySlot = new ItemStatus[INITIAL_SLOTS];
+        this.colorBySlot = new Color[INITIAL_SLOTS];
+        this.usedSlots = new Bitmap();
+        this.freeSlots = new BitSet();
+        this.slotsByType = createIndex(ItemType.class);
+        this.slotsByCategory = createIndex(ItemCategory.class);
+        this.slotsByStatus = createIndex(ItemStatus.class);
+        this.slotsByColor = createIndex(Color.class);
+        this.counts = new int[TYPES.length][STATUSES.length][COLORS.length];
+        this.changedKeys = new KeyQueue(CHANGE_QUEUE_CAPACITY);
+        this.priceTable = new PriceTable();
+    }
+
+    /**
+     * Sets the journal that records inventory mutations.
+     * @param journal the journal, or null to stop recording
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
     }
 
     /**
@@ -27,7 +120,68 @@ public class Inventory {
      * @param item the item to add
      */
     public void addItem(Item item) {
-        items.put(item.getId(), item);
+
+        // Keep checkpoints out until the change and its journal record are both done
+        Journal gate = journal;
+        if (gate != null) {
+            gate.beginMutation();
+        }
+        try {
+
+            // Index changes are guarded by the inventory monitor
+            synchronized (this) {
+                insert(item);
+            }
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
+        }
+    }
+
+    /**
+     * Adds many items at once, such as a bulk import.
+     * The inventory lock and the checkpoint gate are taken once for the whole batch, and the
+     * slot arrays grow once to fit it. Every item gets its slot first, and then the bitmaps,
+     * counts, price rows and journal records of the whole batch are written in one pass each.
+     * @param items the items to add, in the order their slots are given out
+     */
+    public void addItems(List<Item> items) {
+
+        // Keep checkpoints out until the changes and their journal records are all done
+        Journal gate = journal;
+        if (gate != null) {
+            gate.beginMutation();
+        }
+        try {
+            synchronized (this) {
+                ensureSlots(itemCount + items.size());
+                int[] keys = new int[items.size()];
+                int[] slots = new int[items.size()];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = ItemIdGenerator.toKey(items.get(i).getId());
+                    slots[i] = place(keys[i], items.get(i));
+                }
+
+                // Index the batch once per slot, skipping items replaced by a later one with the same ID
+                for (int i = 0; i < slots.length; i++) {
+                    Item item = items.get(i);
+                    if (itemsBySlot[slots[i]] == item && statusBySlot[slots[i]] == null) {
+                        index(item, slots[i]);
+                    }
+                }
+                priceTable.updateAll(keys, items);
+
+                // Record the mutations
+                if (journal != null) {
+                    journal.logAddItems(items);
+                }
+            }
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
+        }
     }
 
     /**
@@ -36,7 +190,25 @@ public class Inventory {
      * @return the item if found, null if not found
      */
     public Item getItem(String itemId) {
-        return items.get(itemId);
+
+        // Unknown ID formats are simply not found
+        int key = ItemIdGenerator.parseKey(itemId);
+        return key < 0 ? null : getItem(key);
+    }
+
+    /**
+     * Finds an item by its key.
+     * @param key the item key, see ItemIdGenerator.toKey()
+     * @return the item if found, null if not found
+     */
+    public Item getItem(int key) {
+        ItemType type = ItemIdGenerator.typeOf(key);
+        if (type == null) {
+            return null;
+        }
+        AtomicReferenceArray<Item> byNumber = itemsByKey.get(type.ordinal());
+        int number = ItemIdGenerator.numberOf(key);
+        return number < byNumber.length() ? byNumber.get(number) : null;
     }
 
     /**
@@ -45,28 +217,531 @@ public class Inventory {
      * @return true if removed, false if not found
      */
     public boolean removeItem(String itemId) {
-        if (items.containsKey(itemId)) {
-            items.remove(itemId);
-            return true;
-        } else {
-            return false;
+
+        // Keep checkpoints out until the change and its journal record are both done
+        Journal gate = journal;
+        if (gate != null) {
+            gate.beginMutation();
+        }
+        try {
+
+            // Index changes are guarded by the inventory monitor
+            synchronized (this) {
+                int key = ItemIdGenerator.parseKey(itemId);
+                int slot = key < 0 ? -1 : slotOf(key);
+                if (slot >= 0) {
+                    releaseSlot(slot);
+
+                    // Record the mutation
+                    if (journal != null) {
+                        journal.logRemoveItem(itemId);
+                    }
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
         }
     }
 
     /**
-     * Convert map.values() to an ArrayList and return.
+     * Returns all items in slot order.
      * @return list of all items
      */
-    public List<Item> getAllItems() {
-        List<Item> allItems = new ArrayList<>(items.values());
-        return allItems;
+    public synchronized List<Item> getAllItems() {
+        applyChanges();
+        return collect(usedSlots, null, null);
+    }
+
+    /**
+     * Returns all items of one type.
+     * @param type the item type
+     * @return list of matching items
+     */
+    public synchronized List<Item> getItemsByType(ItemType type) {
+        applyChanges();
+        return collect(slotsByType.get(type), null, null);
+    }
+
+    /**
+     * Returns all items of one type with the given status, for example available kayaks.
+     * @param type the item type
+     * @param status the status to match
+     * @return list of matching items
+     */
+    public List<Item> getItemsByType(ItemType type, ItemStatus status) {
+        return findItems(type, status, null);
+    }
+
+    /**
+     * Returns all items in one top-level category.
+     * @param category the category
+     * @return list of matching items
+     */
+    public synchronized List<Item> getItemsByCategory(ItemCategory category) {
+        applyChanges();
+        return collect(slotsByCategory.get(category), null, null);
+    }
+
+    /**
+     * Returns all items in one top-level category with the given status.
+     * @param category the category
+     * @param status the status to match
+     * @return list of matching items
+     */
+    public synchronized List<Item> getItemsByCategory(ItemCategory category, ItemStatus status) {
+        applyChanges();
+        return collect(slotsByCategory.get(category), slotsByStatus.get(status), null);
+    }
+
+    /**
+     * Returns all items with the given status.
+     * @param status the status to match
+     * @return list of matching items
+     */
+    public synchronized List<Item> getItemsByStatus(ItemStatus status) {
+        applyChanges();
+        return collect(slotsByStatus.get(status), null, null);
+    }
+
+    /**
+     * Finds items matching every given attribute, for example AVAILABLE red kayaks.
+     * Pass null for an attribute that should not be filtered on.
+     * @param type the item type, or null for any
+     * @param status the status, or null for any
+     * @param color the color, or null for any
+     * @return list of matching items in slot order
+     */
+    public synchronized List<Item> findItems(ItemType type, ItemStatus status, Color color) {
+        applyChanges();
+        return collect(type == null ? null : slotsByType.get(type),
+                status == null ? null : slotsByStatus.get(status),
+                color == null ? null : slotsByColor.get(color));
+    }
+
+    /**
+     * Finds the next page of items matching every given attribute, for scans that should not
+     * hold the inventory lock or a list of every item, such as exports.
+     * Pass null for an attribute that should not be filtered on.
+     * @param type the item type, or null for any
+     * @param status the status, or null for any
+     * @param fromSlot the slot to start at, 0 for the first page
+     * @param page the list to add the items to, in slot order
+     * @param limit the most items to add
+     * @return the slot to continue from, or -1 when there are no more matching items
+     */
+    public int findItems(ItemType type, ItemStatus status, int fromSlot, List<Item> page, int limit) {
+        return findItems(type, status, null, fromSlot, page, limit);
+    }
+
+    /**
+     * Finds the next page of items matching every given attribute, for example a page of
+     * AVAILABLE red kayaks. Pass null for an attribute that should not be filtered on.
+     * @param type the item type, or null for any
+     * @param status the status, or null for any
+     * @param color the color, or null for any
+     * @param fromSlot the slot to start at, 0 for the first page
+     * @param page the list to add the items to, in slot order
+     * @param limit the most items to add
+     * @return the slot to continue from, or -1 when there are no more matching items
+     */
+    public synchronized int findItems(ItemType type, ItemStatus status, Color color, int fromSlot, List<Item> page, int limit) {
+        applyChanges();
+        Bitmap first = type == null ? usedSlots : slotsByType.get(type);
+        Bitmap second = status == null ? null : slotsByStatus.get(status);
+        Bitmap third = color == null ? null : slotsByColor.get(color);
+        int words = wordsToScan(first, second, third);
+        int added = 0;
+
+        // Same word-at-a-time AND as collect(), with the bits below the start slot masked off
+        for (int w = fromSlot >>> 6; w < words; w++) {
+            long bits = word(first, w) & word(second, w) & word(third, w);
+            if (w == fromSlot >>> 6) {
+                bits &= -1L << (fromSlot & 63);
+            }
+            while (bits != 0) {
+                int slot = (w << 6) + Long.numberOfTrailingZeros(bits);
+                if (added == limit) {
+                    return slot;
+                }
+                page.add(itemsBySlot[slot]);
+                added++;
+                bits &= bits - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Counts items matching every given attribute without building a list.
+     * Pass null for an attribute that should not be filtered on.
+     * @param type the item type, or null for any
+     * @param status the status, or null for any
+     * @param color the color, or null for any
+     * @return number of matching items
+     */
+    public synchronized int countItems(ItemType type, ItemStatus status, Color color) {
+        applyChanges();
+        int count = 0;
+
+        // Sum the counters of every combination the filters allow
+        for (ItemType t : TYPES) {
+            if (type != null && t != type) {
+                continue;
+            }
+            for (ItemStatus s : STATUSES) {
+                if (status != null && s != status) {
+                    continue;
+                }
+                for (Color c : COLORS) {
+                    if (color == null || c == color) {
+                        count += counts[t.ordinal()][s.ordinal()][c.ordinal()];
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the items of one type with the given status without building a list.
+     * @param type the item type
+     * @param status the status to match
+     * @return number of matching items
+     */
+    public int countItems(ItemType type, ItemStatus status) {
+        return countItems(type, status, null);
+    }
+
+    /**
+     * Returns the table with the prices of every item.
+     * @return the price table
+     */
+    public PriceTable getPriceTable() {
+        return priceTable;
+    }
+
+    /**
+     * Works out the price of every item again, after new pricing rules have been installed.
+     * Quotes keep using the old prices until the new ones are complete.
+     */
+    public synchronized void reprice() {
+        priceTable.reprice(getAllItems());
     }
 
     /**
      * Returns the number of items in inventory.
      * @return item count
      */
-    public int getItemCount() {
-        return items.size();
+    public synchronized int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Copies the items in the slots set in every given bitmap into a list, skipping nulls.
+     */
+    private List<Item> collect(Bitmap first, Bitmap second, Bitmap third) {
+
+        // Without any filter every used slot matches
+        if (first == null && second == null && third == null) {
+            first = usedSlots;
+        }
+
+        // AND the bitmaps a word at a time and walk the bits that are left
+        List<Item> result = new ArrayList<>();
+        int words = wordsToScan(first, second, third);
+        for (int w = 0; w < words; w++) {
+            long bits = word(first, w) & word(second, w) & word(third, w);
+            while (bits != 0) {
+                result.add(itemsBySlot[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns how many words an AND of the given bitmaps can have, the shortest one decides.
+     */
+    private static int wordsToScan(Bitmap first, Bitmap second, Bitmap third) {
+        return Math.min(wordCount(first), Math.min(wordCount(second), wordCount(third)));
+    }
+
+    /**
+     * Returns the number of words in a bitmap, or no limit for a missing filter.
+     */
+    private static int wordCount(Bitmap bitmap) {
+        return bitmap == null ? Integer.MAX_VALUE : bitmap.words.length;
+    }
+
+    /**
+     * Returns one word of a bitmap, or all ones for a missing filter.
+     */
+    private static long word(Bitmap bitmap, int index) {
+        return bitmap == null ? -1L : bitmap.words[index];
+    }
+
+    /**
+     * Puts an item in a slot, every index and the price table, and journals it.
+     * Called with the inventory monitor held.
+     */
+    private void insert(Item item) {
+        int key = ItemIdGenerator.toKey(item.getId());
+        int slot = place(key, item);
+        index(item, slot);
+        priceTable.update(key, item);
+
+        // Record the mutation
+        if (journal != null) {
+            journal.logAddItem(item);
+        }
+    }
+
+    /**
+     * Gives an item a slot and a place under its key, without indexing or pricing it.
+     * Called with the inventory monitor held.
+     * @return the slot of the item
+     */
+    private int place(int key, Item item) {
+
+        // An item replaced under the same ID gives up its slot first
+        int previous = slotOf(key);
+        if (previous >= 0) {
+            releaseSlot(previous);
+        }
+
+        // Give the item a slot and follow its status and color from now on
+        int slot = claimSlot();
+        itemsBySlot[slot] = item;
+        item.setChangeListener(new IndexUpdater(key));
+        putKey(key, item, slot);
+        return slot;
+    }
+
+    /**
+     * Grows the slot arrays so they hold at least the given number of slots.
+     */
+    private void ensureSlots(int slots) {
+        if (slots > itemsBySlot.length) {
+            int capacity = Math.max(slots, itemsBySlot.length * 2);
+            itemsBySlot = Arrays.copyOf(itemsBySlot, capacity);
+            statusBySlot = Arrays.copyOf(statusBySlot, capacity);
+            colorBySlot = Arrays.copyOf(colorBySlot, capacity);
+        }
+    }
+
+    /**
+     * Returns the lowest free slot, growing the slot array when all are in use.
+     */
+    private int claimSlot() {
+        int slot = freeSlots.nextSetBit(0);
+        if (slot >= 0) {
+            freeSlots.clear(slot);
+        } else {
+            slot = itemCount;
+            ensureSlots(slot + 1);
+        }
+        usedSlots.set(slot);
+        itemCount++;
+        return slot;
+    }
+
+    /**
+     * Returns the slot of the item with the given key, or -1 if there is none.
+     */
+    private int slotOf(int key) {
+        int[] slots = slotsByKey[ItemIdGenerator.typeOf(key).ordinal()];
+        int number = ItemIdGenerator.numberOf(key);
+        return number < slots.length ? slots[number] - 1 : -1;
+    }
+
+    /**
+     * Stores an item and its slot under its key, growing the arrays of its type when needed.
+     * The larger item array is filled before it is published, so lock-free readers always
+     * see a complete array.
+     */
+    private void putKey(int key, Item item, int slot) {
+        int type = ItemIdGenerator.typeOf(key).ordinal();
+        int number = ItemIdGenerator.numberOf(key);
+        AtomicReferenceArray<Item> byNumber = itemsByKey.get(type);
+        if (number >= byNumber.length()) {
+            int capacity = Math.max(byNumber.length() * 2, number + 1);
+            AtomicReferenceArray<Item> larger = new AtomicReferenceArray<>(capacity);
+            for (int i = 0; i < byNumber.length(); i++) {
+                larger.lazySet(i, byNumber.get(i));
+            }
+            slotsByKey[type] = Arrays.copyOf(slotsByKey[type], capacity);
+            itemsByKey.set(type, larger);
+            byNumber = larger;
+        }
+        slotsByKey[type][number] = slot + 1;
+        byNumber.set(number, item);
+    }
+
+    /**
+     * Removes the item in a slot from every index and frees the slot.
+     */
+    private void releaseSlot(int slot) {
+        Item item = itemsBySlot[slot];
+        item.setChangeListener(null);
+        int key = ItemIdGenerator.toKey(item.getId());
+        int type = ItemIdGenerator.typeOf(key).ordinal();
+        slotsByKey[type][ItemIdGenerator.numberOf(key)] = 0;
+        itemsByKey.get(type).set(ItemIdGenerator.numberOf(key), null);
+        priceTable.remove(key);
+
+        // A slot placed by addItems() is not indexed until the whole batch is in
+        if (statusBySlot[slot] != null) {
+            unindex(item, slot);
+        }
+        itemsBySlot[slot] = null;
+        statusBySlot[slot] = null;
+        colorBySlot[slot] = null;
+        usedSlots.clear(slot);
+        freeSlots.set(slot);
+        itemCount--;
+    }
+
+    /**
+     * Moves every item whose key is queued to the bitmaps of its current status and color.
+     * Called under the monitor, which also makes it the only thread polling the queue.
+     */
+    private void applyChanges() {
+        int key;
+        while ((key = changedKeys.poll()) >= 0) {
+            reindex(key);
+        }
+    }
+
+    /**
+     * Moves the item with the given key to the bitmaps of its current status and color.
+     * The key may have been queued more than once, or for an item that has been removed since,
+     * so the item is re-indexed from the values it has now.
+     */
+    private void reindex(int key) {
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            Item item = itemsBySlot[slot];
+            unindex(item, slot);
+            index(item, slot);
+        }
+    }
+
+    /**
+     * Queues the item with the given key for re-indexing, or re-indexes it at once when the
+     * queue is full.
+     */
+    private void changed(int key) {
+        if (!changedKeys.offer(key)) {
+            synchronized (this) {
+                applyChanges();
+                reindex(key);
+            }
+        }
+    }
+
+    /**
+     * Sets the slot in the bitmap of every attribute of the item and remembers the values used.
+     */
+    private void index(Item item, int slot) {
+        ItemType type = item.getItemType();
+        ItemStatus status = item.getStatus();
+        Color color = item.getColor();
+        slotsByType.get(type).set(slot);
+        slotsByCategory.get(ItemCategory.of(type)).set(slot);
+        slotsByStatus.get(status).set(slot);
+        slotsByColor.get(color).set(slot);
+        counts[type.ordinal()][status.ordinal()][color.ordinal()]++;
+        statusBySlot[slot] = status;
+        colorBySlot[slot] = color;
+    }
+
+    /**
+     * Clears the slot in the bitmap of every attribute it was indexed under.
+     */
+    private void unindex(Item item, int slot) {
+        ItemType type = item.getItemType();
+        ItemStatus status = statusBySlot[slot];
+        Color color = colorBySlot[slot];
+        slotsByType.get(type).clear(slot);
+        slotsByCategory.get(ItemCategory.of(type)).clear(slot);
+        slotsByStatus.get(status).clear(slot);
+        slotsByColor.get(color).clear(slot);
+        counts[type.ordinal()][status.ordinal()][color.ordinal()]--;
+    }
+
+    /**
+     * Creates one empty bitmap per value of an enum.
+     */
+    private static <E extends Enum<E>> Map<E, Bitmap> createIndex(Class<E> keyType) {
+        Map<E, Bitmap> index = new EnumMap<>(keyType);
+        for (E key : keyType.getEnumConstants()) {
+            index.put(key, new Bitmap());
+        }
+        return index;
+    }
+
+    /**
+     * Queues one item for re-indexing when its status or color changes, and reprices it when a
+     * price changes. Holds the item key so the hot rent and return path never has to parse the
+     * item ID. Notifications from different threads can arrive out of order,
+     * so the item is always re-indexed from its current values.
+     */
+    private final class IndexUpdater implements ItemChangeListener {
+
+        private final int key;
+
+        private IndexUpdater(int key) {
+            this.key = key;
+        }
+
+        @Override
+        public void statusChanged(Item item, ItemStatus oldStatus, ItemStatus newStatus) {
+            changed(key);
+        }
+
+        @Override
+        public void colorChanged(Item item, Color oldColor, Color newColor) {
+            changed(key);
+        }
+
+        @Override
+        public void priceChanged(Item item) {
+
+            // Ignore items that were removed or replaced in the meantime
+            if (getItem(key) == item) {
+                priceTable.update(key, item);
+            }
+        }
+    }
+
+    /**
+     * Plain growable bitmap over slot numbers.
+     * Unlike BitSet its words can be read directly, so several bitmaps can be ANDed
+     * without copying any of them.
+     */
+    private static final class Bitmap {
+
+        // Bit (slot % 64) of word (slot / 64) is set when the slot is in the bitmap
+        private long[] words = new long[1];
+
+        private void set(int slot) {
+            int index = slot >>> 6;
+            if (index >= words.length) {
+                words = Arrays.copyOf(words, Math.max(words.length * 2, index + 1));
+            }
+            words[index] |= 1L << slot;
+        }
+
+        private void clear(int slot) {
+            int index = slot >>> 6;
+            if (index < words.length) {
+                words[index] &= ~(1L << slot);
+            }
+        }
     }
 }
@@ -0,0 +1,87 @@
+package com.memberclub.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded queue of int keys that any number of threads can add to without locking,
+ * emptied by one thread at a time. Every cell has a sequence number that tells whether it is
+ * free for the producer at a position or holds a key for the consumer, so producers only
+ * compete for the tail counter and never wait for each other or for the consumer.
+ *
+ * Callers of poll() must serialize themselves, the Inventory does it with its monitor.
+ */
+final class KeyQueue {
+
+    private final int mask;
+    private final int[] keys;
+
+    // Position a cell expects next: its index when free for the first round, position + 1 when full
+    private final AtomicLongArray sequences;
+
+    // Next position for producers
+    private final AtomicLong tail;
+
+    // Next position for the consumer, only touched by the thread that polls
+    private long head;
+
+    /**
+     * Creates an empty queue.
+     * @param capacity number of keys the queue holds, a power of two
+     */
+    KeyQueue(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Kapaciteten måste vara en tvåpotens: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.keys = new int[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.tail = new AtomicLong();
+    }
+
+    /**
+     * Adds a key.
+     * @param key the key, zero or more
+     * @return false if the queue is full
+     */
+    boolean offer(int key) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+
+                // The cell is free, claim the position and publish the key with the sequence
+                if (tail.compareAndSet(position, position + 1)) {
+                    keys[index] = key;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+
+                // The consumer has not emptied the cell from the previous round yet
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest key.
+     * @return the key, or -1 if the queue is empty
+     */
+    int poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return -1;
+        }
+        int key = keys[index];
+
+        // Free the cell for the producer one round later
+        sequences.set(index, head + mask + 1);
+        head++;
+        return key;
+    }
+}
@@ -0,0 +1,140 @@
+package com.memberclub.service;
+
+import com.memberclub.model.Member;
+import com.memberclub.model.Money;
+import com.memberclub.model.Rental;
+import com.memberclub.model.enums.MembershipLevel;
+import com.memberclub.model.enums.RentalPeriod;
+import com.memberclub.model.enums.RevenueSource;
+import com.memberclub.persistence.Journal;
+import java.time.LocalDate;
+
+/**
+ * Works out late fees and books them, once per rental and day.
+ *
+ * A rental is late for every day past its stored expected return date, and every late day
+ * costs one day of the item at the member's level, read from the inventory's PriceTable.
+ * The fee is kept as a total on the rental. Accruing raises that total to what is owed on
+ * a given day and books only the increase as late fee revenue, so the nightly accrual and
+ * the final settlement at the return never charge a day twice. Receipts and views read the
+ * stored fee instead of working it out again.
+ */
+public class LateFeeService {
+
+    private final RentalService rentalService;
+    private final Inventory inventory;
+    private final MemberRegistry memberRegistry;
+    private final RevenueService revenueService;
+
+    // Journal whose gate keeps the fee and its revenue in the same checkpoint, null without persistence
+    private Journal journal;
+
+    /**
+     * Creates a LateFeeService.
+     * @param rentalService the service holding the rentals and their fees
+     * @param inventory the inventory whose price table gives the daily prices
+     * @param memberRegistry the registry to look up membership levels in
+     * @param revenueService the ledger late fees are booked in
+     */
+    public LateFeeService(RentalService rentalService, Inventory inventory, MemberRegistry memberRegistry,
+                          RevenueService revenueService) {
+        this.rentalService = rentalService;
+        this.inventory = inventory;
+        this.memberRegistry = memberRegistry;
+        this.revenueService = revenueService;
+    }
+
+    /**
+     * Sets the journal whose gate covers a fee and its revenue entry.
+     * The records themselves are written by the RentalService and the RevenueService.
+     * @param journal the journal, or null to stop recording
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Works out the late fee of a rental as of a day, without storing it.
+     * @param rental the rental
+     * @param asOf the return date, or today for a rental that is still out
+     * @return the late fee in öre, 0 if the rental is not late
+     */
+    public long calculateLateFee(Rental rental, LocalDate asOf) {
+        long overdueDays = rental.getOverdueDays(asOf);
+        if (overdueDays == 0) {
+            return 0;
+        }
+
+        // One day at the member's level, members that have left pay the standard price
+        Member member = memberRegistry.getMember(rental.getMemberId());
+        MembershipLevel level = member != null ? member.getMembershipLevel() : MembershipLevel.STANDARD;
+        long pricePerDay = inventory.getPriceTable().getUnitPrice(rental.getItemKey(), level, RentalPeriod.DAILY);
+
+        // Items that have left the inventory have no price to charge
+        if (pricePerDay < 0) {
+            return 0;
+        }
+        return Money.times(pricePerDay, (int) overdueDays);
+    }
+
+    /**
+     * Raises the fee stored on an active rental to what is owed on a day and books the increase.
+     * @param rental the rental
+     * @param asOf the day to charge up to, usually today
+     * @return the increase in öre, 0 if nothing more is owed or the rental is not active
+     */
+    public long accrue(Rental rental, LocalDate asOf) {
+        long lateFee = calculateLateFee(rental, asOf);
+        if (lateFee == 0) {
+            return 0;
+        }
+
+        // Keep checkpoints out until the fee and its revenue are both recorded
+        Journal gate = journal;
+        if (gate != null) {
+            gate.beginMutation();
+        }
+        try {
+            long increase = rentalService.raiseLateFee(rental.getSequence(), lateFee);
+            revenueService.addRevenueInOre(RevenueSource.LATE_FEE, increase);
+            return increase;
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
+        }
+    }
+
+    /**
+     * Accrues the fees of every overdue rental, run once a night.
+     * Reads only the overdue part of the due day index.
+     * @param today the day to charge up to
+     * @return number of rentals whose fee went up
+     */
+    public int accrueOverdue(LocalDate today) {
+        int raised = 0;
+        for (Rental rental : rentalService.getOverdueRentals(today)) {
+            if (accrue(rental, today) > 0) {
+                raised++;
+            }
+        }
+        return raised;
+    }
+
+    /**
+     * Settles the late fee of a rental and returns its item.
+     * The final fee is stored on the rental and can be read from it afterwards.
+     * @param sequence the sequence number of the rental to return
+     * @return true if successful, false if the rental is not found or already returned
+     */
+    public boolean returnItem(long sequence) {
+        Rental rental = rentalService.getRental(sequence);
+        if (rental == null || !rental.isActive()) {
+            return false;
+        }
+
+        // Settle before the return, the fee moves to the archive together with the rental
+        accrue(rental, LocalDate.now());
+        return rentalService.returnItem(sequence);
+    }
+}
@@ -0,0 +1,219 @@
+package com.memberclub.service;
+
+import com.memberclub.model.Member;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Open-addressing map from member ID to Member, without boxed keys or entry objects.
+ *
+ * Keys sit in a plain int array and members in a parallel array, probed linearly from
+ * the slot given by the low bits of the ID. Member IDs are handed out in sequence, so
+ * they rarely collide and iteration comes out in ID order like the map it replaces.
+ *
+ * Lookups take no lock. Changes are made under the map's monitor, and a full table is
+ * replaced by a larger copy that is filled before it is published. A slot keeps its key
+ * for as long as the table lives, removing a member only clears the member, so a reader
+ * can never find a key next to the wrong member.
+ */
+public class MemberMap implements Iterable<Member> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Key of a slot that has never been used
+    private static final int FREE = Integer.MIN_VALUE;
+
+    // Current table, replaced as a whole when it grows
+    private volatile Table table;
+
+    // Members in the map, and slots with a key including removed members
+    private int size;
+    private int usedSlots;
+
+    /**
+     * Creates an empty map.
+     */
+    public MemberMap() {
+        this.table = new Table(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Finds a member by ID.
+     * @param memberId the member ID
+     * @return the member, or null if there is none with that ID
+     */
+    public Member get(int memberId) {
+        Table current = table;
+        int mask = current.keys.length - 1;
+        for (int slot = memberId & mask; ; slot = (slot + 1) & mask) {
+            int key = current.keys[slot];
+            if (key == memberId) {
+                return current.members.get(slot);
+            }
+            if (key == FREE) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Adds a member, replacing any member with the same ID.
+     * @param member the member to add
+     * @return the replaced member, or null if there was none
+     */
+    public synchronized Member put(Member member) {
+        int memberId = member.getId();
+
+        // Keep at least half the slots free so probes stay short
+        if ((usedSlots + 1) * 2 > table.keys.length) {
+            rehash();
+        }
+
+        Table current = table;
+        int mask = current.keys.length - 1;
+        int slot = memberId & mask;
+        while (current.keys[slot] != memberId && current.keys[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        if (current.keys[slot] == FREE) {
+            current.keys[slot] = memberId;
+            usedSlots++;
+        }
+        Member previous = current.members.getAndSet(slot, member);
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    /**
+     * Removes a member by ID.
+     * @param memberId the member ID
+     * @return the removed member, or null if there was none
+     */
+    public synchronized Member remove(int memberId) {
+        Table current = table;
+        int mask = current.keys.length - 1;
+        for (int slot = memberId & mask; current.keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if (current.keys[slot] == memberId) {
+                Member previous = current.members.getAndSet(slot, null);
+                if (previous != null) {
+                    size--;
+                }
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of members in the map.
+     * @return member count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Copies all members into a list in slot order.
+     * @return list of all members
+     */
+    public List<Member> values() {
+        Table current = table;
+        List<Member> result = new ArrayList<>();
+        for (int slot = 0; slot < current.keys.length; slot++) {
+            Member member = current.members.get(slot);
+            if (member != null) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Walks all members in slot order without copying them and without taking the lock.
+     * The walk sees the table as it was when it started: members added while it runs
+     * may be missed, and removed members may still be returned.
+     * @return iterator over the members
+     */
+    @Override
+    public Iterator<Member> iterator() {
+        Table current = table;
+        return new Iterator<>() {
+            private int slot;
+            private Member next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Member next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Member member = next;
+                next = advance();
+                return member;
+            }
+
+            // Reads the next slot with a member, null at the end of the table
+            private Member advance() {
+                while (slot < current.keys.length) {
+                    Member member = current.members.get(slot++);
+                    if (member != null) {
+                        return member;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Moves the members to a new table, dropping the keys of removed members.
+     * The table doubles when more than a quarter of it would be in use.
+     */
+    private void rehash() {
+        Table old = table;
+        int capacity = old.keys.length;
+        while ((size + 1) * 4 > capacity) {
+            capacity *= 2;
+        }
+        Table larger = new Table(capacity);
+        int mask = capacity - 1;
+        for (int slot = 0; slot < old.keys.length; slot++) {
+            Member member = old.members.get(slot);
+            if (member != null) {
+                int target = member.getId() & mask;
+                while (larger.keys[target] != FREE) {
+                    target = (target + 1) & mask;
+                }
+                larger.keys[target] = member.getId();
+                larger.members.lazySet(target, member);
+            }
+        }
+        usedSlots = size;
+        table = larger;
+    }
+
+    /**
+     * One generation of the table: keys and members by slot.
+     */
+    private static final class Table {
+
+        private final int[] keys;
+        private final AtomicReferenceArray<Member> members;
+
+        private Table(int capacity) {
+            this.keys = new int[capacity];
+            Arrays.fill(keys, FREE);
+            this.members = new AtomicReferenceArray<>(capacity);
+        }
+    }
+}
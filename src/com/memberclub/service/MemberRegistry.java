@@ -1,25 +1,39 @@
 package com.memberclub.service;
 
 import com.memberclub.model.Member;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.ArrayList;
+import com.memberclub.persistence.Journal;
 import java.util.List;
 
 /**
  * Manages all members in the member club.
- * Uses a Map for fast ID lookup.
+ * Uses an open-addressing MemberMap for fast ID lookup without boxing, and a trigram
+ * index for searching contact details.
  */
 public class MemberRegistry {
 
-    // Map for ID-based lookup: memberId -> Member
-    private final Map<Integer, Member> members;
+    // Map for ID-based lookup: memberId -> Member, safe to read from several rental counters
+    private final MemberMap members;
+
+    // Search index over name, email and phone
+    private final MemberSearchIndex searchIndex;
+
+    // Journal that records mutations, null when running without persistence
+    private Journal journal;
 
     /**
      * Creates an empty member registry.
      */
     public MemberRegistry() {
-        this.members = new HashMap<>();
+        this.members = new MemberMap();
+        this.searchIndex = new MemberSearchIndex();
+    }
+
+    /**
+     * Sets the journal that records member mutations.
+     * @param journal the journal, or null to stop recording
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
     }
 
     /**
@@ -27,7 +41,73 @@ public class MemberRegistry {
      * @param member the member to add
      */
     public void addMember(Member member) {
-        members.put(member.getId(), member);
+
+        // Keep checkpoints out until the change and its journal record are both done
+        Journal gate = journal;
+        if (gate != null) {
+            gate.beginMutation();
+        }
+        try {
+
+            // A member replaced under the same ID stops notifying the index
+            Member previous = members.put(member);
+            if (previous != null && previous != member) {
+                previous.setChangeListener(null);
+            }
+
+            // Index the member and re-index it whenever its contact details change
+            searchIndex.add(member);
+            member.setChangeListener(searchIndex::add);
+
+            // Record the mutation
+            if (journal != null) {
+                journal.logAddMember(member);
+            }
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
+        }
+    }
+
+    /**
+     * Adds many members at once, such as a bulk import.
+     * The members go into the map first and the search index is updated once for all of them
+     * at the end, under one lock, instead of once per member.
+     * @param added the members to add
+     */
+    public void addMembers(List<Member> added) {
+
+        // Keep checkpoints out until the changes and their journal records are all done
+        Journal gate = journal;
+        if (gate != null) {
+            gate.beginMutation();
+        }
+        try {
+
+            // A member replaced under the same ID stops notifying the index
+            for (Member member : added) {
+                Member previous = members.put(member);
+                if (previous != null && previous != member) {
+                    previous.setChangeListener(null);
+                }
+            }
+
+            // Index every member, then re-index each one whenever its contact details change
+            searchIndex.addAll(added);
+            for (Member member : added) {
+                member.setChangeListener(searchIndex::add);
+
+                // Record the mutation
+                if (journal != null) {
+                    journal.logAddMember(member);
+                }
+            }
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
+        }
     }
 
     /**
@@ -45,21 +125,57 @@ public class MemberRegistry {
      * @return true if removed, false if not found
      */
     public boolean removeMember(int memberId) {
-        if (members.containsKey(memberId)) {
-            members.remove(memberId);
-            return true;
-        } else {
-            return false;
+
+        // Keep checkpoints out until the change and its journal record are both done
+        Journal gate = journal;
+        if (gate != null) {
+            gate.beginMutation();
+        }
+        try {
+
+            Member member = members.remove(memberId);
+            if (member != null) {
+                member.setChangeListener(null);
+                searchIndex.remove(memberId);
+
+                // Record the mutation
+                if (journal != null) {
+                    journal.logRemoveMember(memberId);
+                }
+                return true;
+            } else {
+                return false;
+            }
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
         }
     }
 
     /**
-     * Convert map.values() to an ArrayList and return.
+     * Copies all members into a list and returns it.
      * @return list of all members
      */
     public List<Member> getAllMembers() {
-        List<Member> allMembers = new ArrayList<>(members.values());
-        return allMembers;
+        return members.values();
+    }
+
+    /**
+     * Walks all members without copying them into a list, for scans over the whole register.
+     * @return the members in ID order, as far as IDs were handed out in sequence
+     */
+    public Iterable<Member> scanMembers() {
+        return members;
+    }
+
+    /**
+     * Searches members by name, email or phone (case-insensitive, partial match).
+     * @param searchTerm the text to search for
+     * @return matching members, best matches first
+     */
+    public List<Member> searchMembers(String searchTerm) {
+        return searchIndex.search(searchTerm);
     }
 
     /**
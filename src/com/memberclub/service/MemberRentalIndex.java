@@ -0,0 +1,127 @@
+package com.memberclub.service;
+
+import java.util.Arrays;
+
+/**
+ * Index from member ID to the sequence numbers of that member's active rentals.
+ *
+ * Member IDs are handed out in sequence, so the index is a plain array per member ID
+ * instead of a map. Each member has a small sorted array of rental sequence numbers
+ * and a count, so counting a member's active rentals is a single array read and
+ * listing them only touches that member's rentals.
+ */
+public class MemberRentalIndex {
+
+    private static final int INITIAL_MEMBERS = 64;
+
+    private static final long[] NONE = new long[0];
+
+    // Active rental sequence numbers per member ID, sorted, null for members without any
+    private long[][] rentalsByMember;
+
+    // Number of active rentals per member ID
+    private int[] counts;
+
+    /**
+     * Creates an empty index.
+     */
+    public MemberRentalIndex() {
+        this.rentalsByMember = new long[INITIAL_MEMBERS][];
+        this.counts = new int[INITIAL_MEMBERS];
+    }
+
+    /**
+     * Adds an active rental to a member.
+     * @param memberId the ID of the member renting
+     * @param sequence the rental sequence number
+     */
+    public synchronized void add(int memberId, long sequence) {
+        if (memberId < 0) {
+            return;
+        }
+        if (memberId >= counts.length) {
+            int capacity = Math.max(counts.length * 2, memberId + 1);
+            rentalsByMember = Arrays.copyOf(rentalsByMember, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        long[] rentals = rentalsByMember[memberId];
+        int count = counts[memberId];
+        if (rentals == null) {
+            rentals = new long[4];
+        } else if (count == rentals.length) {
+            rentals = Arrays.copyOf(rentals, count * 2);
+        }
+
+        // New rentals almost always have the highest sequence and go last
+        int position = count;
+        while (position > 0 && rentals[position - 1] > sequence) {
+            rentals[position] = rentals[position - 1];
+            position--;
+        }
+        rentals[position] = sequence;
+        rentalsByMember[memberId] = rentals;
+        counts[memberId] = count + 1;
+    }
+
+    /**
+     * Removes a rental from a member once it has been returned.
+     * @param memberId the ID of the member
+     * @param sequence the rental sequence number
+     */
+    public synchronized void remove(int memberId, long sequence) {
+        if (memberId < 0 || memberId >= counts.length) {
+            return;
+        }
+        long[] rentals = rentalsByMember[memberId];
+        int count = counts[memberId];
+        int position = rentals == null ? -1 : Arrays.binarySearch(rentals, 0, count, sequence);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(rentals, position + 1, rentals, position, count - position - 1);
+        counts[memberId] = count - 1;
+
+        // Members without active rentals give their array back
+        if (count == 1) {
+            rentalsByMember[memberId] = null;
+        }
+    }
+
+    /**
+     * Returns the number of active rentals of a member.
+     * @param memberId the ID of the member
+     * @return active rental count
+     */
+    public synchronized int count(int memberId) {
+        return memberId < 0 || memberId >= counts.length ? 0 : counts[memberId];
+    }
+
+    /**
+     * Copies the sequence numbers of a member's active rentals, lowest first.
+     * @param memberId the ID of the member
+     * @return the sequence numbers
+     */
+    public synchronized long[] get(int memberId) {
+        int count = count(memberId);
+        return count == 0 ? NONE : Arrays.copyOf(rentalsByMember[memberId], count);
+    }
+
+    /**
+     * Returns the IDs of all members that have at least one active rental, lowest first.
+     * @return member IDs
+     */
+    public synchronized int[] getMemberIds() {
+        int[] result = new int[16];
+        int size = 0;
+        for (int memberId = 0; memberId < counts.length; memberId++) {
+            if (counts[memberId] > 0) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, size * 2);
+                }
+                result[size++] = memberId;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,467 @@
+package com.memberclub.service;
+
+import com.memberclub.model.Member;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Trigram index over the name, email and phone of every member.
+ *
+ * Each member gets a dense slot and a lowercased copy of its contact details. Every
+ * three-character sequence (trigram) of that text maps to a sorted list of slots.
+ * A search looks up the trigrams of the search term, takes the shortest slot list as
+ * candidates and confirms each one with a direct substring check. Terms shorter than
+ * three characters are checked against every member instead.
+ *
+ * Results are ranked: matches at the start of a field first, then matches at the start
+ * of a word, then other substring matches. The query path only works on reused scratch
+ * arrays and allocates nothing but the result list.
+ */
+public class MemberSearchIndex {
+
+    // Separates name, email and phone in the indexed text, never part of a search term
+    private static final char FIELD_SEPARATOR = '\u0001';
+
+    // Marks a free position in the trigram table, real keys always have bit 48 set
+    private static final long EMPTY = 0L;
+
+    // Ranks, lower is better
+    private static final int RANK_FIELD_START = 0;
+    private static final int RANK_WORD_START = 1;
+    private static final int RANK_SUBSTRING = 2;
+    private static final int NO_MATCH = 3;
+
+    // Slot of every member by ID: member ID -> slot + 1, 0 when not indexed.
+    // Member IDs are handed out in sequence, so a plain array replaces a map
+    private int[] slotsById;
+
+    // Members and their lowercased text by slot, null for free slots
+    private Member[] members;
+    private char[][] texts;
+
+    // Slots freed by removed members that can be reused
+    private final BitSet freeSlots;
+    private int slotCount;
+
+    // Open-addressing table: trigram key -> position in postings
+    private long[] trigramKeys;
+    private int[] trigramPostings;
+    private int trigramCount;
+
+    // Sorted slot lists, one per trigram
+    private int[][] postings;
+    private int[] postingSizes;
+
+    // Scratch space reused by every search
+    private char[] queryChars;
+    private int[] resultSlots;
+    private int[] resultRanks;
+
+    /**
+     * Creates an empty index.
+     */
+    public MemberSearchIndex() {
+        this.slotsById = new int[64];
+        this.members = new Member[64];
+        this.texts = new char[64][];
+        this.freeSlots = new BitSet();
+        this.trigramKeys = new long[1024];
+        this.trigramPostings = new int[1024];
+        this.postings = new int[512][];
+        this.postingSizes = new int[512];
+        this.queryChars = new char[32];
+        this.resultSlots = new int[64];
+        this.resultRanks = new int[64];
+    }
+
+    /**
+     * Adds a member, or re-indexes it if it is already in the index.
+     * @param member the member to index
+     */
+    public synchronized void add(Member member) {
+        insert(member);
+    }
+
+    /**
+     * Adds many members under one lock, such as a bulk import.
+     * Unless members were removed, new members get the slots after every indexed member,
+     * so each one is appended to the end of its trigram postings.
+     * @param added the members to index
+     */
+    public synchronized void addAll(List<Member> added) {
+        for (Member member : added) {
+            insert(member);
+        }
+    }
+
+    /**
+     * Indexes one member, called with the index lock held.
+     */
+    private void insert(Member member) {
+
+        // Reuse the slot of a member that is already indexed
+        int memberId = member.getId();
+        int slot = slotOf(memberId);
+        if (slot >= 0) {
+            removeTrigrams(slot);
+        } else {
+            slot = claimSlot();
+            if (memberId >= slotsById.length) {
+                slotsById = Arrays.copyOf(slotsById, Math.max(slotsById.length * 2, memberId + 1));
+            }
+            slotsById[memberId] = slot + 1;
+        }
+
+        members[slot] = member;
+        texts[slot] = normalize(member);
+        addTrigrams(slot);
+    }
+
+    /**
+     * Removes a member from the index.
+     * @param memberId the ID of the member to remove
+     */
+    public synchronized void remove(int memberId) {
+        int slot = slotOf(memberId);
+        if (slot < 0) {
+            return;
+        }
+        slotsById[memberId] = 0;
+
+        removeTrigrams(slot);
+        members[slot] = null;
+        texts[slot] = null;
+        freeSlots.set(slot);
+    }
+
+    /**
+     * Finds members whose name, email or phone contains the search term, ignoring case.
+     * Best matches come first, members with the same rank keep their index order.
+     * @param searchTerm the text to search for
+     * @return list of matching members
+     */
+    public synchronized List<Member> search(String searchTerm) {
+        int length = normalizeQuery(searchTerm);
+        int found = 0;
+
+        if (length < 3) {
+
+            // Too short for trigrams, check every member
+            for (int slot = 0; slot < slotCount; slot++) {
+                found = collect(slot, length, found);
+            }
+        } else {
+
+            // Use the rarest trigram of the term as the candidate list
+            int best = -1;
+            for (int i = 0; i + 3 <= length; i++) {
+                int posting = findPosting(trigramKey(queryChars[i], queryChars[i + 1], queryChars[i + 2]));
+                if (posting < 0 || postingSizes[posting] == 0) {
+                    return new ArrayList<>();
+                }
+                if (best < 0 || postingSizes[posting] < postingSizes[best]) {
+                    best = posting;
+                }
+            }
+
+            // Confirm every candidate with a direct substring check
+            int[] candidates = postings[best];
+            int candidateCount = postingSizes[best];
+            for (int i = 0; i < candidateCount; i++) {
+                found = collect(candidates[i], length, found);
+            }
+        }
+
+        // Emit the results rank by rank
+        List<Member> results = new ArrayList<>(found);
+        for (int rank = RANK_FIELD_START; rank <= RANK_SUBSTRING; rank++) {
+            for (int i = 0; i < found; i++) {
+                if (resultRanks[i] == rank) {
+                    results.add(members[resultSlots[i]]);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Ranks one slot against the current query and stores it if it matches.
+     * @return the new number of stored results
+     */
+    private int collect(int slot, int length, int found) {
+        char[] text = texts[slot];
+        if (text == null) {
+            return found;
+        }
+
+        int rank = rank(text, length);
+        if (rank == NO_MATCH) {
+            return found;
+        }
+
+        // Grow the scratch arrays when needed
+        if (found == resultSlots.length) {
+            resultSlots = Arrays.copyOf(resultSlots, found * 2);
+            resultRanks = Arrays.copyOf(resultRanks, found * 2);
+        }
+        resultSlots[found] = slot;
+        resultRanks[found] = rank;
+        return found + 1;
+    }
+
+    /**
+     * Finds the best rank of the query in a text, or NO_MATCH.
+     */
+    private int rank(char[] text, int length) {
+        int best = NO_MATCH;
+
+        for (int start = 0; start + length <= text.length && best != RANK_FIELD_START; start++) {
+
+            // Compare the query at this position
+            int i = 0;
+            while (i < length && text[start + i] == queryChars[i]) {
+                i++;
+            }
+            if (i < length) {
+                continue;
+            }
+
+            // Rank by what comes right before the match
+            int rank;
+            if (start == 0 || text[start - 1] == FIELD_SEPARATOR) {
+                rank = RANK_FIELD_START;
+            } else if (!Character.isLetterOrDigit(text[start - 1])) {
+                rank = RANK_WORD_START;
+            } else {
+                rank = RANK_SUBSTRING;
+            }
+            best = Math.min(best, rank);
+        }
+        return best;
+    }
+
+    /**
+     * Lowercases and trims the search term into the query scratch buffer.
+     * @return the length of the normalized term
+     */
+    private int normalizeQuery(String searchTerm) {
+        int start = 0;
+        int end = searchTerm.length();
+        while (start < end && Character.isWhitespace(searchTerm.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(searchTerm.charAt(end - 1))) {
+            end--;
+        }
+
+        int length = end - start;
+        if (length > queryChars.length) {
+            queryChars = new char[Math.max(length, queryChars.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            queryChars[i] = Character.toLowerCase(searchTerm.charAt(start + i));
+        }
+        return length;
+    }
+
+    /**
+     * Builds the lowercased text of a member: name, email and phone separated by FIELD_SEPARATOR.
+     */
+    private static char[] normalize(Member member) {
+        String joined = member.getName() + FIELD_SEPARATOR + member.getEmail() + FIELD_SEPARATOR + member.getPhone();
+        char[] text = joined.toCharArray();
+        for (int i = 0; i < text.length; i++) {
+            text[i] = Character.toLowerCase(text[i]);
+        }
+        return text;
+    }
+
+    /**
+     * Adds the slot to the posting of every trigram in its text.
+     */
+    private void addTrigrams(int slot) {
+        char[] text = texts[slot];
+        for (int i = 0; i + 3 <= text.length; i++) {
+            if (spansFields(text, i)) {
+                continue;
+            }
+            int posting = findOrCreatePosting(trigramKey(text[i], text[i + 1], text[i + 2]));
+            insertSlot(posting, slot);
+        }
+    }
+
+    /**
+     * Removes the slot from the posting of every trigram in its text.
+     */
+    private void removeTrigrams(int slot) {
+        char[] text = texts[slot];
+        for (int i = 0; i + 3 <= text.length; i++) {
+            if (spansFields(text, i)) {
+                continue;
+            }
+            int posting = findPosting(trigramKey(text[i], text[i + 1], text[i + 2]));
+            if (posting >= 0) {
+                deleteSlot(posting, slot);
+            }
+        }
+    }
+
+    /**
+     * Checks if the trigram at a position crosses from one field into the next.
+     */
+    private static boolean spansFields(char[] text, int start) {
+        return text[start] == FIELD_SEPARATOR || text[start + 1] == FIELD_SEPARATOR || text[start + 2] == FIELD_SEPARATOR;
+    }
+
+    /**
+     * Inserts a slot into a sorted posting, ignoring duplicates.
+     */
+    private void insertSlot(int posting, int slot) {
+        int[] slots = postings[posting];
+        int size = postingSizes[posting];
+
+        // New slots are usually the highest yet, they go at the end without a search,
+        // and a trigram that is in a text twice is usually the last slot already
+        int at;
+        if (size == 0 || slots[size - 1] < slot) {
+            at = size;
+        } else if (slots[size - 1] == slot) {
+            return;
+        } else {
+            at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+        }
+
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+            postings[posting] = slots;
+        }
+        System.arraycopy(slots, at, slots, at + 1, size - at);
+        slots[at] = slot;
+        postingSizes[posting] = size + 1;
+    }
+
+    /**
+     * Deletes a slot from a sorted posting if it is there.
+     */
+    private void deleteSlot(int posting, int slot) {
+        int[] slots = postings[posting];
+        int size = postingSizes[posting];
+        int at = Arrays.binarySearch(slots, 0, size, slot);
+        if (at < 0) {
+            return;
+        }
+        System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+        postingSizes[posting] = size - 1;
+    }
+
+    /**
+     * Packs three characters into a table key.
+     */
+    private static long trigramKey(char a, char b, char c) {
+        return (1L << 48) | ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /**
+     * Returns the table position a key starts probing from.
+     */
+    private int home(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & (trigramKeys.length - 1);
+    }
+
+    /**
+     * Finds the posting of a trigram.
+     * @return the posting position, or -1 if the trigram has never been indexed
+     */
+    private int findPosting(long key) {
+        int mask = trigramKeys.length - 1;
+        for (int i = home(key); trigramKeys[i] != EMPTY; i = (i + 1) & mask) {
+            if (trigramKeys[i] == key) {
+                return trigramPostings[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the posting of a trigram, creating an empty one if needed.
+     */
+    private int findOrCreatePosting(long key) {
+        int mask = trigramKeys.length - 1;
+        int i = home(key);
+        while (trigramKeys[i] != EMPTY) {
+            if (trigramKeys[i] == key) {
+                return trigramPostings[i];
+            }
+            i = (i + 1) & mask;
+        }
+
+        // Create a new posting
+        if (trigramCount == postings.length) {
+            postings = Arrays.copyOf(postings, trigramCount * 2);
+            postingSizes = Arrays.copyOf(postingSizes, trigramCount * 2);
+        }
+        int posting = trigramCount++;
+        postings[posting] = new int[4];
+        trigramKeys[i] = key;
+        trigramPostings[i] = posting;
+
+        // Keep the table at most half full
+        if (trigramCount * 2 > trigramKeys.length) {
+            rehash();
+        }
+        return posting;
+    }
+
+    /**
+     * Doubles the trigram table and reinserts every key.
+     */
+    private void rehash() {
+        long[] oldKeys = trigramKeys;
+        int[] oldPostings = trigramPostings;
+        trigramKeys = new long[oldKeys.length * 2];
+        trigramPostings = new int[oldKeys.length * 2];
+
+        int mask = trigramKeys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) {
+                continue;
+            }
+            int i = home(oldKeys[j]);
+            while (trigramKeys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            trigramKeys[i] = oldKeys[j];
+            trigramPostings[i] = oldPostings[j];
+        }
+    }
+
+    /**
+     * Returns the slot of an indexed member, or -1 if it is not in the index.
+     */
+    private int slotOf(int memberId) {
+        return memberId >= 0 && memberId < slotsById.length ? slotsById[memberId] - 1 : -1;
+    }
+
+    /**
+     * Returns the lowest free slot, growing the slot arrays when all are in use.
+     */
+    private int claimSlot() {
+        int slot = freeSlots.nextSetBit(0);
+        if (slot >= 0) {
+            freeSlots.clear(slot);
+            return slot;
+        }
+
+        if (slotCount == members.length) {
+            members = Arrays.copyOf(members, slotCount * 2);
+            texts = Arrays.copyOf(texts, slotCount * 2);
+        }
+        return slotCount++;
+    }
+}
@@ -2,8 +2,8 @@ package com.memberclub.service;
 
 import com.memberclub.model.*;
 import com.memberclub.model.enums.MembershipLevel;
+import com.memberclub.persistence.Journal;
 import com.memberclub.system.MemberIdGenerator;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,6 +15,9 @@ public class MembershipService {
     private final MemberRegistry memberRegistry;
     private final MemberIdGenerator memberIdGenerator;
 
+    // Journal that records level changes, null when running without persistence
+    private Journal journal;
+
     /**
      * Creates a MembershipService with access to the member registry and ID generator
      * @param memberRegistry the registry to manage members
@@ -25,6 +28,15 @@ public class MembershipService {
         this.memberIdGenerator = memberIdGenerator;
     }
 
+    /**
+     * Sets the journal that records membership level changes.
+     * Adding and removing members is recorded by the MemberRegistry.
+     * @param journal the journal, or null to stop recording
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
     /**
      * Adds a new member to the system.
      * @param member the member to add
@@ -74,19 +86,36 @@ public class MembershipService {
      */
     public boolean updateMemberLevel(int memberId, MembershipLevel newLevel) {
 
-        // Find member by ID
-        Member member = memberRegistry.getMember(memberId);
-
-        // If member not found, return false
-        if (member == null) {
-            return false;
+        // Keep checkpoints out until the change and its journal record are both done
+        Journal gate = journal;
+        if (gate != null) {
+            gate.beginMutation();
         }
+        try {
+
+            // Find member by ID
+            Member member = memberRegistry.getMember(memberId);
+
+            // If member not found, return false
+            if (member == null) {
+                return false;
+            }
+
+            // Update membership level
+            member.setMembershipLevel(newLevel);
 
-        // Update membership level
-        member.setMembershipLevel(newLevel);
+            // Record the mutation
+            if (journal != null) {
+                journal.logUpdateMemberLevel(memberId, newLevel);
+            }
 
-        // Return success
-        return true;
+            // Return success
+            return true;
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
+        }
     }
 
     /**
@@ -98,28 +127,13 @@ public class MembershipService {
     }
 
     /**
-     * Searches for members by name (case-insensitive, partial match).
-     * @param searchTerm the name to search for
+     * Searches for members by name, email or phone (case-insensitive, partial match).
+     * Uses the trigram index in the registry, so only candidate members are checked.
+     * Matches at the start of a field come first, then matches at the start of a word.
+     * @param searchTerm the text to search for
      * @return list of matching members
      */
     public List<Member> searchMemberByName(String searchTerm) {
-
-        // Get all members
-        List<Member> allMembers = memberRegistry.getAllMembers();
-
-        // Create an empty result list
-        List<Member> results = new ArrayList<>();
-
-        // Loop through all members
-        for (Member member : allMembers) {
-
-            // Check if name contains searchTerm (without any case sensitivity)
-            if (member.getName().toLowerCase().contains(searchTerm.toLowerCase())) {
-                results.add(member);
-            }
-        }
-
-        // Return matching members
-        return results;
+        return memberRegistry.searchMembers(searchTerm);
     }
 }
\ No newline at end of file
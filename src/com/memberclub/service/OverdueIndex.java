@@ -0,0 +1,216 @@
+package com.memberclub.service;
+
+import java.util.Arrays;
+
+/**
+ * Index of active rentals ordered by expected return date.
+ *
+ * Works like a timing wheel with one bucket per day: bucket i holds the rentals due
+ * back on day firstDay + i, as a sorted array of rental sequence numbers. Expected
+ * return dates are whole days and lie close together, so the buckets form a short
+ * array that grows at either end instead of wrapping. Empty buckets at the start are
+ * dropped as the days pass.
+ *
+ * Listing the rentals that are due before a day reads only those buckets, so finding
+ * the k overdue rentals costs O(k) plus one step per day in the window, never a scan
+ * of every active rental.
+ */
+public class OverdueIndex {
+
+    private static final int INITIAL_DAYS = 64;
+
+    private static final long[] NONE = new long[0];
+
+    // Epoch day of bucket 0
+    private int firstDay;
+
+    // Rental sequence numbers per day, sorted, null for days without any
+    private long[][] buckets;
+
+    // Number of rentals per day
+    private int[] counts;
+
+    // Number of rentals in the index
+    private int size;
+
+    /**
+     * Creates an empty index.
+     */
+    public OverdueIndex() {
+        this.buckets = new long[INITIAL_DAYS][];
+        this.counts = new int[INITIAL_DAYS];
+    }
+
+    /**
+     * Adds a rental under its expected return day.
+     * @param day the expected return date as epoch day
+     * @param sequence the rental sequence number
+     */
+    public synchronized void add(int day, long sequence) {
+
+        // An empty index starts its window at the new day
+        if (size == 0) {
+            firstDay = day;
+        }
+        int bucket = bucketOf(day);
+
+        long[] rentals = buckets[bucket];
+        int count = counts[bucket];
+        if (rentals == null) {
+            rentals = new long[4];
+        } else if (count == rentals.length) {
+            rentals = Arrays.copyOf(rentals, count * 2);
+        }
+
+        // New rentals almost always have the highest sequence and go last
+        int position = count;
+        while (position > 0 && rentals[position - 1] > sequence) {
+            rentals[position] = rentals[position - 1];
+            position--;
+        }
+        rentals[position] = sequence;
+        buckets[bucket] = rentals;
+        counts[bucket] = count + 1;
+        size++;
+    }
+
+    /**
+     * Removes a rental, usually because it has been returned.
+     * @param day the expected return date as epoch day
+     * @param sequence the rental sequence number
+     */
+    public synchronized void remove(int day, long sequence) {
+        int bucket = day - firstDay;
+        if (bucket < 0 || bucket >= buckets.length || buckets[bucket] == null) {
+            return;
+        }
+        long[] rentals = buckets[bucket];
+        int count = counts[bucket];
+        int position = Arrays.binarySearch(rentals, 0, count, sequence);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(rentals, position + 1, rentals, position, count - position - 1);
+        counts[bucket] = count - 1;
+        size--;
+
+        // Days without rentals give their array back
+        if (count == 1) {
+            buckets[bucket] = null;
+        }
+    }
+
+    /**
+     * Copies the sequence numbers of the rentals due back before a day,
+     * earliest due date first.
+     * @param day the first day that is not included, usually today
+     * @return the sequence numbers
+     */
+    public synchronized long[] dueBefore(int day) {
+        return due(Integer.MIN_VALUE, day);
+    }
+
+    /**
+     * Copies the sequence numbers of the rentals due back from one day up to another,
+     * earliest due date first.
+     * @param fromDay the first day included
+     * @param toDay the first day that is not included
+     * @return the sequence numbers
+     */
+    public synchronized long[] due(int fromDay, int toDay) {
+        int from = (int) Math.max(0, (long) fromDay - firstDay);
+        int to = (int) Math.min(buckets.length, (long) toDay - firstDay);
+        if (size == 0 || from >= to) {
+            return NONE;
+        }
+
+        // Size the result first so the copy is a single pass
+        int total = 0;
+        for (int bucket = from; bucket < to; bucket++) {
+            total += counts[bucket];
+        }
+        long[] result = new long[total];
+        int filled = 0;
+        for (int bucket = from; bucket < to; bucket++) {
+            if (counts[bucket] > 0) {
+                System.arraycopy(buckets[bucket], 0, result, filled, counts[bucket]);
+                filled += counts[bucket];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the rentals due back before a day without copying them.
+     * @param day the first day that is not included, usually today
+     * @return number of rentals
+     */
+    public synchronized int countBefore(int day) {
+        int to = (int) Math.min(buckets.length, (long) day - firstDay);
+        int total = 0;
+        for (int bucket = 0; bucket < to; bucket++) {
+            total += counts[bucket];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of rentals in the index.
+     * @return rental count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the bucket for a day, moving or growing the window when the day is outside it.
+     */
+    private int bucketOf(int day) {
+
+        // Days before the window grow it at the front
+        if (day < firstDay) {
+            shift(firstDay - day);
+            firstDay = day;
+            return 0;
+        }
+
+        // Days after the window first drop empty days at the front, then grow it at the end
+        if (day - firstDay >= buckets.length) {
+            int empty = 0;
+            while (empty < buckets.length && counts[empty] == 0) {
+                empty++;
+            }
+            if (empty > 0) {
+                shift(-empty);
+                firstDay += empty;
+            }
+            if (day - firstDay >= buckets.length) {
+                int capacity = Math.max(buckets.length * 2, day - firstDay + 1);
+                buckets = Arrays.copyOf(buckets, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+        }
+        return day - firstDay;
+    }
+
+    /**
+     * Moves every bucket the given number of days later (or earlier when negative),
+     * growing the arrays when the buckets would not fit.
+     */
+    private void shift(int days) {
+        int used = buckets.length;
+        while (used > 0 && counts[used - 1] == 0) {
+            used--;
+        }
+        int capacity = Math.max(buckets.length, used + days);
+        long[][] movedBuckets = new long[capacity][];
+        int[] movedCounts = new int[capacity];
+        int from = Math.max(0, -days);
+        if (used > from) {
+            System.arraycopy(buckets, from, movedBuckets, from + days, used - from);
+            System.arraycopy(counts, from, movedCounts, from + days, used - from);
+        }
+        buckets = movedBuckets;
+        counts = movedCounts;
+    }
+}
@@ -0,0 +1,19 @@
+package com.memberclub.service;
+
+import com.memberclub.model.Rental;
+import java.time.LocalDate;
+
+/**
+ * Gets notified when an active rental passes its expected return date.
+ * Registered with RentalService.addOverdueListener(). Called on the thread that runs
+ * the check, which is the club scheduler thread in a running ClubSystem.
+ */
+public interface OverdueListener {
+
+    /**
+     * Called once for every rental that has become overdue since the previous check.
+     * @param rental the overdue rental
+     * @param today the day of the check
+     */
+    void rentalOverdue(Rental rental, LocalDate today);
+}
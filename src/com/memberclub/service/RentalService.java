@@ -2,33 +2,114 @@ package com.memberclub.service;
 
 import com.memberclub.model.*;
 import com.memberclub.model.enums.ItemStatus;
+import com.memberclub.model.enums.MembershipLevel;
 import com.memberclub.model.enums.RentalPeriod;
-import com.memberclub.pricing.*;
+import com.memberclub.persistence.Journal;
+import com.memberclub.persistence.RentalArchive;
+import com.memberclub.pricing.PriceTable;
+import com.memberclub.system.ItemIdGenerator;
 import java.time.LocalDate;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages rental operations with creating and completing rentals.
- * Coordinates between Inventory, MemberRegistry, and PricingFactory.
+ * Coordinates between Inventory, MemberRegistry, and the inventory's PriceTable.
+ * Only active rentals are kept on the heap, in a compact RentalStore, and finished ones
+ * are moved to a RentalArchive. Rentals are handed out as views over the two.
+ *
+ * Safe to use from several rental counters at once. An item is reserved with a
+ * compare-and-set on its status, so two threads can never rent the same item. The inventory
+ * bitmaps are brought up to date by the next query, not by the rental. Rentals and returns
+ * of different items still take three short global monitors each, the RentalStore, the
+ * MemberRentalIndex and the OverdueIndex, and wait for each other there.
+ * ConcurrentRentalBenchmark measures the throughput with 1 to N threads.
+ *
+ * Rentals and items are looked up by their numeric keys. The methods that take display IDs
+ * such as "RENT-007" parse them once and then use the numeric methods.
  */
 public class RentalService {
 
     private final Inventory inventory;
     private final MemberRegistry memberRegistry;
-    private final List<Rental> rentals;
-    private int rentalCounter;
+
+    // Rentals that are still out, in primitive arrays
+    private final RentalStore activeRentals;
+
+    // Active rentals per member, so member screens never scan every rental
+    private final MemberRentalIndex rentalsByMember;
+
+    // Active rentals by expected return day, for the overdue list and overdue events
+    private final OverdueIndex rentalsByDueDay;
+    private final List<OverdueListener> overdueListeners;
+
+    // Rentals due before this epoch day have been announced as overdue, guarded by the listener list
+    private int overdueCheckedUntil;
+
+    // Completed and cancelled rentals, indexed by rental sequence number
+    private final RentalArchive archive;
+    private final AtomicLong rentalCounter;
+
+    // Journal that records rentals and returns, null when running without persistence
+    private Journal journal;
 
     /**
      * Creates a RentalService with access to inventory and the member registry.
+     * Finished rentals go to a temporary archive that is removed on exit.
      * @param inventory the inventory to check items from
      * @param memberRegistry the registry to check members from
      */
     public RentalService(Inventory inventory, MemberRegistry memberRegistry) {
+        this(inventory, memberRegistry, RentalArchive.openTemporary());
+    }
+
+    /**
+     * Creates a RentalService that moves finished rentals to the given archive.
+     * @param inventory the inventory to check items from
+     * @param memberRegistry the registry to check members from
+     * @param archive the archive for completed and cancelled rentals
+     */
+    public RentalService(Inventory inventory, MemberRegistry memberRegistry, RentalArchive archive) {
         this.inventory = inventory;
         this.memberRegistry = memberRegistry;
-        this.rentals = new ArrayList<>();
-        this.rentalCounter = 1;
+        this.activeRentals = new RentalStore(archive);
+        this.rentalsByMember = new MemberRentalIndex();
+        this.rentalsByDueDay = new OverdueIndex();
+        this.overdueListeners = new CopyOnWriteArrayList<>();
+        this.overdueCheckedUntil = Integer.MIN_VALUE;
+        this.archive = archive;
+        this.rentalCounter = new AtomicLong(1);
+    }
+
+    /**
+     * Sets the journal that records rentals and returns.
+     * @param journal the journal, or null to stop recording
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Enters the mutation gate and returns the journal to record the mutation in, or null without one.
+     * A checkpoint can switch to a new journal while this thread waits at the gate, the gate
+     * is then entered again so the returned journal stays current until endMutation().
+     */
+    private Journal beginMutation() {
+        while (true) {
+            Journal gate = journal;
+            if (gate == null) {
+                return null;
+            }
+            gate.beginMutation();
+            if (gate == journal) {
+                return gate;
+            }
+            gate.endMutation();
+        }
     }
 
     /**
@@ -41,59 +122,210 @@ public class RentalService {
      */
     public Rental rentItem(int memberId, String itemId, int duration, RentalPeriod period) {
 
-        // Find member
-        Member member = memberRegistry.getMember(memberId);
-
-        // If member is null then we return null
-        if (member == null) {
+        // Unknown ID formats are simply not found
+        int itemKey = ItemIdGenerator.parseKey(itemId);
+        if (itemKey < 0) {
             return null;
         }
+        return rentItem(memberId, itemKey, duration, period);
+    }
+
+    /**
+     * Creates a new rental for a member.
+     * @param memberId the ID of the member renting
+     * @param itemKey the key of the item to rent, see ItemIdGenerator.toKey()
+     * @param duration rental duration
+     * @param period billing period
+     * @return the created Rental object, or null if rental failed
+     */
+    public Rental rentItem(int memberId, int itemKey, int duration, RentalPeriod period) {
 
-        // Find item
-        Item item = inventory.getItem(itemId);
+        // Keep checkpoints out until the change and its journal record are both done
+        Journal gate = beginMutation();
+        try {
 
-        // If item is null then we return null
-        if (item == null) {
-            return null;
-        }
+            // Find member
+            Member member = memberRegistry.getMember(memberId);
 
-        // If item is not available then we return null
-        if (!item.isAvailable()) {
-            return null;
-        }
+            // If member is null then we return null
+            if (member == null) {
+                return null;
+            }
+
+            // Find item
+            Item item = inventory.getItem(itemKey);
+
+            // If item is null then we return null
+            if (item == null) {
+                return null;
+            }
 
-        // Get pricing based on member level
-        PricePolicy pricing = PricingFactory.getPricing(member.getMembershipLevel());
+            // Reserve the item, if another counter got there first we return null
+            if (!item.compareAndSetStatus(ItemStatus.AVAILABLE, ItemStatus.RENTED)) {
+                return null;
+            }
 
-        // Calculate total cost
-        double totalCost = pricing.calculatePrice(item, member, duration, period);
+            // Look up the total cost for the member level in the price table
+            LocalDate today = LocalDate.now();
+            long totalCost = inventory.getPriceTable().quote(itemKey, member.getMembershipLevel(), duration, period, today);
 
-        // Generate unique ID for rental
-        String rentalId = "RENT-" + String.format("%03d", rentalCounter);
-        rentalCounter++;
+            // Take the next rental number
+            long sequence = rentalCounter.getAndIncrement();
 
-        // Set end date -> same day for hourly, add duration for daily
-        LocalDate expectedReturnDate;
-        if (period == RentalPeriod.HOURLY) {
-            expectedReturnDate = LocalDate.now();
-        } else {
-            expectedReturnDate = LocalDate.now().plusDays(duration);
+            // Set end date -> same day for hourly, add duration for daily
+            LocalDate expectedReturnDate;
+            if (period == RentalPeriod.HOURLY) {
+                expectedReturnDate = today;
+            } else {
+                expectedReturnDate = today.plusDays(duration);
+            }
+
+            // Create a rental object
+            Rental rental = new DetachedRental(sequence, memberId, itemKey, today, expectedReturnDate, null, totalCost);
+
+            // Record the mutation before the rental can be returned, so the journal keeps the order.
+            // Without a record there is no rental, so the item is released for the next counter
+            if (gate != null) {
+                try {
+                    gate.logRentItem(rental);
+                } catch (RuntimeException e) {
+                    item.compareAndSetStatus(ItemStatus.RENTED, ItemStatus.AVAILABLE);
+                    throw e;
+                }
+            }
+
+            // Add rental to member history
+            member.addRental(sequence);
+
+            // Save rental in the store and return a view of it
+            Rental stored = activeRentals.add(rental);
+            index(rental);
+            return stored;
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
         }
+    }
 
-        // Create a rental object
-        Rental rental = new Rental(rentalId, memberId, itemId, LocalDate.now(), expectedReturnDate, null, totalCost);
+    /**
+     * Rents every item in a cart to one member, all or nothing.
+     * The items are reserved in item key order, so two carts that share items never
+     * both fail halfway: the one that reserves the first shared item gets all of them.
+     * If any item is missing or already rented, the items reserved so far are released
+     * and no rental is created. The member, membership level and date are looked up once
+     * for the whole cart, and the rentals are journaled as one record.
+     * @param memberId the ID of the member renting
+     * @param cartItems the items to rent with their duration and period
+     * @return the created rentals in cart order, or an empty list if the cart could not be rented
+     */
+    public List<Rental> rentItems(int memberId, List<CartItem> cartItems) {
+        return rentItems(memberId, cartItems, null);
+    }
 
-        // Mark item as rented
-        item.setStatus(ItemStatus.RENTED);
+    /**
+     * Rents every item in a cart to one member, all or nothing, including the items the cart holds.
+     * Items held by the given hold are rented as if they were available. If the cart cannot
+     * be rented they go back to the hold, so the cart keeps them.
+     * @param memberId the ID of the member renting
+     * @param cartItems the items to rent with their duration and period
+     * @param hold the hold of the cart, or null if the cart holds nothing
+     * @return the created rentals in cart order, or an empty list if the cart could not be rented
+     */
+    public List<Rental> rentItems(int memberId, List<CartItem> cartItems, ItemHold hold) {
+
+        // Keep checkpoints out until the change and its journal record are both done
+        Journal gate = beginMutation();
+        try {
+
+            // Find member, without one nothing is rented
+            Member member = memberRegistry.getMember(memberId);
+            int count = cartItems.size();
+            if (member == null || count == 0) {
+                return new ArrayList<>();
+            }
+
+            // Sort the cart by item key, keeping each item's cart position in the low bits
+            int[] keys = new int[count];
+            long[] order = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = ItemIdGenerator.toKey(cartItems.get(i).getItem().getId());
+                order[i] = (long) keys[i] << 32 | i;
+            }
+            Arrays.sort(order);
+
+            // Reserve every item in key order, and release them all if one is taken
+            Item[] items = new Item[count];
+            boolean[] claimed = new boolean[count];
+            for (int reserved = 0; reserved < count; reserved++) {
+                int position = (int) order[reserved];
+                Item item = inventory.getItem((int) (order[reserved] >>> 32));
+                if (item != null && !item.compareAndSetStatus(ItemStatus.AVAILABLE, ItemStatus.RENTED)) {
+                    claimed[position] = hold != null && hold.claim(item);
+                    if (!claimed[position]) {
+                        item = null;
+                    }
+                }
+                if (item == null) {
+                    release(items, claimed, order, reserved, hold);
+                    return new ArrayList<>();
+                }
+                items[position] = item;
+            }
 
-        // Add rental to member history
-        member.addRental(rentalId);
+            // Price the whole cart from the price table with one level and one date
+            PriceTable prices = inventory.getPriceTable();
+            MembershipLevel level = member.getMembershipLevel();
+            LocalDate today = LocalDate.now();
+            long firstSequence = rentalCounter.getAndAdd(count);
+            List<Rental> rentals = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                CartItem cartItem = cartItems.get(i);
+                int duration = cartItem.getDuration();
+                RentalPeriod period = cartItem.getPeriod();
+                long totalCost = prices.quote(keys[i], level, duration, period, today);
+                LocalDate expectedReturnDate = period == RentalPeriod.HOURLY ? today : today.plusDays(duration);
+                rentals.add(new DetachedRental(firstSequence + i, memberId, keys[i], today, expectedReturnDate, null, totalCost));
+            }
 
-        // Save rental in a list
-        rentals.add(rental);
+            // Record the whole cart before any rental can be returned, or give every item back without a record
+            if (gate != null) {
+                try {
+                    gate.logRentItems(rentals);
+                } catch (RuntimeException e) {
+                    release(items, claimed, order, count, hold);
+                    throw e;
+                }
+            }
+
+            // Add the rentals to the member history, the store and the indexes
+            List<Rental> created = new ArrayList<>(count);
+            for (Rental rental : rentals) {
+                member.addRental(rental.getSequence());
+                created.add(activeRentals.add(rental));
+                index(rental);
+            }
+            return created;
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
+        }
+    }
 
-        // Return the created rental
-        return rental;
+    /**
+     * Releases the first reserved items of a cart in rentItems(): held items go back to the
+     * hold and the others become available again.
+     */
+    private static void release(Item[] items, boolean[] claimed, long[] order, int reserved, ItemHold hold) {
+        for (int i = 0; i < reserved; i++) {
+            int taken = (int) order[i];
+            if (claimed[taken]) {
+                hold.unclaim(items[taken]);
+            } else {
+                items[taken].compareAndSetStatus(ItemStatus.RENTED, ItemStatus.AVAILABLE);
+            }
+        }
     }
 
     /**
@@ -102,61 +334,404 @@ public class RentalService {
      * @return true if successful, false if rental not found
      */
     public boolean returnItem(String rentalId) {
+        long sequence = parseSequence(rentalId);
+        return sequence >= 0 && returnItem(sequence);
+    }
+
+    /**
+     * Completes a rental and marks the item as available again.
+     * @param sequence the sequence number of the rental to complete
+     * @return true if successful, false if rental not found
+     */
+    public boolean returnItem(long sequence) {
+
+        // Keep checkpoints out until the change and its journal record are both done
+        Journal gate = beginMutation();
+        try {
+
+            // Complete the rental as of today, only one caller can succeed
+            LocalDate endDate = LocalDate.now();
+
+            // If rental is not found or already returned, return failure
+            if (!activeRentals.complete(sequence, endDate)) {
+                return false;
+            }
+
+            // Record the mutation before the item can be rented again.
+            // Without a record the return did not happen, so the rental is put back out
+            if (gate != null) {
+                try {
+                    gate.logReturnItem(sequence, endDate);
+                } catch (RuntimeException e) {
+                    activeRentals.reopen(sequence);
+                    throw e;
+                }
+            }
+
+            // Archive the rental and release the item
+            completeRental(sequence);
+
+            // Return success
+            return true;
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
+        }
+    }
+
+    /**
+     * Raises the late fee stored on an active rental to a new total.
+     * Used by the LateFeeService, which also books the increase as revenue.
+     * @param sequence the rental sequence number
+     * @param lateFeeInOre the new total late fee in öre
+     * @return how much the fee went up in öre, 0 if it did not or the rental is not active
+     */
+    public long raiseLateFee(long sequence, long lateFeeInOre) {
+
+        // Keep checkpoints out until the change and its journal record are both done
+        Journal gate = beginMutation();
+        try {
+            long increase = activeRentals.raiseLateFee(sequence, lateFeeInOre);
+
+            // Record the mutation
+            if (increase > 0 && gate != null) {
+                gate.logLateFee(sequence, lateFeeInOre);
+            }
+            return increase;
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
+        }
+    }
+
+    /**
+     * Restores a late fee read back from the journal.
+     * @param sequence the rental sequence number
+     * @param lateFeeInOre the total late fee in öre
+     */
+    public void restoreLateFee(long sequence, long lateFeeInOre) {
+        activeRentals.raiseLateFee(sequence, lateFeeInOre);
+    }
+
+    /**
+     * Moves a completed rental to the archive and releases its item.
+     * The rental must already be completed in the store.
+     * @param sequence the rental sequence number
+     */
+    private void completeRental(long sequence) {
+
+        // Look up the item, member and due day before the rental leaves the store
+        Rental rental = activeRentals.view(sequence);
+        Item item = inventory.getItem(rental.getItemKey());
+        int memberId = rental.getMemberId();
+        int dueDay = (int) rental.getExpectedReturnDate().toEpochDay();
+
+        // Move the rental to the archive
+        activeRentals.archive(sequence);
+        rentalsByMember.remove(memberId, sequence);
+        rentalsByDueDay.remove(dueDay, sequence);
 
-        // Loop through all rentals to find matching ID
-        for (Rental rental : rentals) {
+        // Mark item as available
+        item.setStatus(ItemStatus.AVAILABLE);
+    }
+
+    /**
+     * Restores a rental read back from the journal.
+     * Uses the stored ID, dates and cost instead of calculating new ones.
+     * @param rental the rental to restore
+     */
+    public void restoreRental(Rental rental) {
+
+        // Mark item as rented and add rental to member history
+        Item item = inventory.getItem(rental.getItemKey());
+        if (item != null) {
+            item.setStatus(ItemStatus.RENTED);
+        }
+        Member member = memberRegistry.getMember(rental.getMemberId());
+        if (member != null) {
+            member.addRental(rental.getSequence());
+        }
 
-            // Check if this rental matches the ID we are looking for
-            if (rental.getRentalId().equals(rentalId)) {
+        // Save rental in the store
+        activeRentals.add(rental);
+        index(rental);
+
+        // Keep the counter ahead of every restored ID
+        long next = rental.getSequence() + 1;
+        rentalCounter.accumulateAndGet(next, Math::max);
+    }
+
+    /**
+     * Adds a rental exactly as stored in a snapshot.
+     * Items and member history are restored separately, so neither is touched here.
+     * @param rental the rental to add, with its final status
+     */
+    public void loadRental(Rental rental) {
+
+        // Finished rentals belong in the archive
+        if (rental.isActive()) {
+            activeRentals.add(rental);
+            index(rental);
+        } else {
+            archive.append(rental);
+        }
+    }
 
-                // Mark rental as completed
-                rental.complete();
+    /**
+     * Adds an active rental to the per-member and due day indexes.
+     */
+    private void index(Rental rental) {
+        rentalsByMember.add(rental.getMemberId(), rental.getSequence());
+        rentalsByDueDay.add((int) rental.getExpectedReturnDate().toEpochDay(), rental.getSequence());
+    }
 
-                // Get the item that was rented
-                Item item = inventory.getItem(rental.getItemId());
+    /**
+     * Registers a listener that is told when active rentals become overdue.
+     * Events are sent by checkOverdue().
+     * @param listener the listener to add
+     */
+    public void addOverdueListener(OverdueListener listener) {
+        overdueListeners.add(listener);
+    }
 
-                // Mark item as available
-                item.setStatus(ItemStatus.AVAILABLE);
+    /**
+     * Removes a listener registered with addOverdueListener().
+     * @param listener the listener to remove
+     */
+    public void removeOverdueListener(OverdueListener listener) {
+        overdueListeners.remove(listener);
+    }
 
-                // Return success
-                return true;
+    /**
+     * Announces the rentals that have become overdue since the previous check.
+     * A rental is overdue once the expected return date has passed. Only the days
+     * between the previous check and today are read, so every overdue rental is
+     * announced once. The first check announces every rental that is overdue.
+     * @param today the current date
+     * @return number of rentals announced
+     */
+    public int checkOverdue(LocalDate today) {
+        int day = (int) today.toEpochDay();
+
+        // Take the newly overdue days, concurrent checks never get the same day twice
+        long[] sequences;
+        synchronized (overdueListeners) {
+            if (day <= overdueCheckedUntil) {
+                return 0;
             }
+            sequences = rentalsByDueDay.due(overdueCheckedUntil, day);
+            overdueCheckedUntil = day;
+        }
 
+        // Notify without holding any lock, the listeners may call back into the service
+        for (long sequence : sequences) {
+            Rental rental = activeRentals.get(sequence);
+            if (rental != null) {
+                for (OverdueListener listener : overdueListeners) {
+                    listener.rentalOverdue(rental, today);
+                }
+            }
         }
-        // If rental is not found, return failure
-        return false;
+        return sequences.length;
+    }
+
+    /**
+     * Returns the active rentals whose expected return date has passed, earliest first.
+     * Reads only the overdue part of the due day index.
+     * @param today the current date
+     * @return list of overdue rentals
+     */
+    public List<Rental> getOverdueRentals(LocalDate today) {
+        return views(rentalsByDueDay.dueBefore((int) today.toEpochDay()));
+    }
+
+    /**
+     * Counts the active rentals whose expected return date has passed.
+     * @param today the current date
+     * @return number of overdue rentals
+     */
+    public int getOverdueRentalCount(LocalDate today) {
+        return rentalsByDueDay.countBefore((int) today.toEpochDay());
+    }
+
+    /**
+     * Returns the archive holding completed and cancelled rentals.
+     * @return the rental archive
+     */
+    public RentalArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Returns the number used for the next rental ID.
+     * @return the rental counter
+     */
+    public long getRentalCounter() {
+        return rentalCounter.get();
+    }
+
+    /**
+     * Sets the number used for the next rental ID.
+     * Used when the counter is restored from a snapshot.
+     * @param rentalCounter the rental counter
+     */
+    public void setRentalCounter(long rentalCounter) {
+        this.rentalCounter.set(rentalCounter);
     }
 
     /**
-     * Returns all currently active rentals.
+     * Extracts the running number from a rental ID.
+     * @param rentalId the rental ID, for example "RENT-007"
+     * @return the rental sequence number
+     */
+    public static long toSequence(String rentalId) {
+        return Long.parseLong(rentalId.substring(rentalId.indexOf('-') + 1));
+    }
+
+    /**
+     * Builds the rental ID for a sequence number.
+     * @param sequence the rental sequence number
+     * @return the rental ID, for example "RENT-007"
+     */
+    public static String toRentalId(long sequence) {
+        return ItemIdGenerator.formatId("RENT", sequence);
+    }
+
+    /**
+     * Restores a return read back from the journal.
+     * @param sequence the sequence number of the returned rental
+     * @param endDate the date the item was returned
+     * @return true if the rental was found
+     */
+    public boolean restoreReturn(long sequence, LocalDate endDate) {
+        if (!activeRentals.complete(sequence, endDate)) {
+            return false;
+        }
+        completeRental(sequence);
+        return true;
+    }
+
+    /**
+     * Returns all currently active rentals, in the order they were created.
+     * The list is read-only and holds a fixed set of rentals, so callers can iterate
+     * while rentals are returned. Each rental is a view that is created when accessed.
      * @return list of active rentals
      */
     public List<Rental> getActiveRentals() {
 
-        // Create an empty list for results
-        List<Rental> activeRentals = new ArrayList<>();
+        // The store keeps its rows sorted, so a copy of the sequence column is all we need
+        return views(activeRentals.getSequences());
+    }
+
+    /**
+     * Returns the number of active rentals without building any rental objects.
+     * @return active rental count
+     */
+    public int getActiveRentalCount() {
+        return activeRentals.size();
+    }
+
+    /**
+     * Returns the active rentals of one member, in the order they were created.
+     * Only touches that member's rentals, however many the club has.
+     * @param memberId the ID of the member
+     * @return list of the member's active rentals
+     */
+    public List<Rental> getActiveRentals(int memberId) {
+        return views(rentalsByMember.get(memberId));
+    }
+
+    /**
+     * Returns the number of active rentals of one member without building any rental objects.
+     * @param memberId the ID of the member
+     * @return the member's active rental count
+     */
+    public int getActiveRentalCount(int memberId) {
+        return rentalsByMember.count(memberId);
+    }
+
+    /**
+     * Returns the IDs of all members that have items out right now.
+     * @return member IDs, lowest first
+     */
+    public int[] getMembersWithActiveRentals() {
+        return rentalsByMember.getMemberIds();
+    }
 
-        // Loop through all rentals
-        for (Rental rental : rentals) {
+    /**
+     * Returns every rental a member has made, active and finished, oldest first.
+     * Rentals that can no longer be found are left out.
+     * @param memberId the ID of the member
+     * @return list of the member's rentals, empty if the member is unknown
+     */
+    public List<Rental> getRentalHistory(int memberId) {
+        Member member = memberRegistry.getMember(memberId);
+        if (member == null) {
+            return new ArrayList<>();
+        }
 
-            // Check if this rental is active and add to results
-            if (rental.isActive()) {
-                activeRentals.add(rental);
+        // Look up each rental from the member's own history
+        long[] sequences = member.getRentalHistory();
+        List<Rental> history = new ArrayList<>(sequences.length);
+        for (long sequence : sequences) {
+            Rental rental = getRental(sequence);
+            if (rental != null) {
+                history.add(rental);
             }
         }
+        return history;
+    }
+
+    /**
+     * Wraps a fixed set of sequence numbers in a read-only list of rental views.
+     */
+    private List<Rental> views(long[] sequences) {
+        return new AbstractList<>() {
+            @Override
+            public Rental get(int index) {
+                return activeRentals.view(sequences[index]);
+            }
+
+            @Override
+            public int size() {
+                return sequences.length;
+            }
+        };
+    }
 
-        // Return the filtered list
-        return activeRentals;
+    /**
+     * Returns the number of completed and cancelled rentals without reading them.
+     * @return archived rental count
+     */
+    public int getArchivedRentalCount() {
+        return archive.size();
     }
 
     /**
      * Returns all rentals (active and completed).
+     * Archived rentals come first in the order they finished, followed by the active ones.
+     * The list is a read-only view, archived rentals are only read when they are accessed.
      * @return list of all rentals
      */
     public List<Rental> getAllRentals() {
 
-        // Return the complete rentals list
-        return rentals;
+        // Take a fixed view of the archive size and the active rentals
+        int archivedCount = archive.size();
+        List<Rental> active = getActiveRentals();
+
+        return new AbstractList<>() {
+            @Override
+            public Rental get(int index) {
+                return index < archivedCount ? activeRentals.view(archive.getSequence(index)) : active.get(index - archivedCount);
+            }
+
+            @Override
+            public int size() {
+                return archivedCount + active.size();
+            }
+        };
     }
 
     /**
@@ -166,16 +741,43 @@ public class RentalService {
      */
     public Rental getRental(String rentalId) {
 
-        // Loop through all rentals to find matching ID
-        for (Rental rental : rentals) {
+        // Unknown ID formats are simply not found
+        long sequence = parseSequence(rentalId);
+        return sequence < 0 ? null : getRental(sequence);
+    }
 
-            // Check if current rental ID matches the search ID
-            if (rental.getRentalId().equals(rentalId)) {
-                return rental;
-            }
+    /**
+     * Finds and returns a specific rental by sequence number.
+     * @param sequence the sequence number of the rental to find
+     * @return the Rental object, or null if not found
+     */
+    public Rental getRental(long sequence) {
+
+        // Active rentals are in the store
+        Rental rental = activeRentals.get(sequence);
+        if (rental != null) {
+            return rental;
         }
 
-        // Return null if not found
-        return null;
+        // Otherwise look it up in the archive
+        return archive.findRow(sequence) == RentalArchive.NO_ROW ? null : activeRentals.view(sequence);
+    }
+
+    /**
+     * Extracts the sequence number from a rental ID that may come from user input.
+     * @param rentalId the rental ID
+     * @return the sequence number, or -1 if the ID is not a rental ID
+     */
+    private static long parseSequence(String rentalId) {
+
+        // Only "RENT-" followed by the digits of the running number is a rental ID
+        if (rentalId == null || !rentalId.startsWith("RENT-") || rentalId.length() == 5 || !Character.isDigit(rentalId.charAt(5))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(rentalId, 5, rentalId.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 }
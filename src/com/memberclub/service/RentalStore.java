@@ -0,0 +1,465 @@
+package com.memberclub.service;
+
+import com.memberclub.model.Rental;
+import com.memberclub.model.enums.RentalStatus;
+import com.memberclub.persistence.RentalArchive;
+import com.memberclub.system.ItemIdGenerator;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Compact store for the rentals that are still out, kept as parallel primitive arrays.
+ *
+ * Row i of every array belongs to the same rental, and rows are sorted by rental sequence
+ * number. A rental takes 45 bytes: sequence (8), member ID (4), item key (4), start,
+ * expected and end date as epoch days (3 x 4), cost and late fee in öre (2 x 8) and status (1).
+ * That is over the target of less than 40 bytes per rental: both amounts keep the full long
+ * range like all other öre values. Scans walk the arrays in order instead of chasing one
+ * object and its strings and dates per rental.
+ *
+ * Rental objects are only handed out as views that hold the sequence number and read
+ * everything else from here. When a rental is archived the view reads from the archive
+ * instead, so a view stays valid for the whole life of the rental.
+ */
+public class RentalStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Status of a row whose rental has been removed, the row is dropped at the next compaction
+    private static final byte REMOVED = -1;
+
+    private static final int NO_ROW = -1;
+
+    // Status values by ordinal, read once instead of copying values() on every access
+    private static final RentalStatus[] STATUSES = RentalStatus.values();
+
+    // Archive that views fall back to once their rental has left the store
+    private final RentalArchive archive;
+
+    // One array per column
+    private long[] sequences;
+    private int[] memberIds;
+    private int[] itemKeys;
+    private int[] startDays;
+    private int[] expectedDays;
+    private int[] endDays;
+    private long[] costsInOre;
+    private long[] lateFeesInOre;
+    private byte[] statuses;
+
+    // Rows in use including removed ones, and rows still holding a rental
+    private int rowCount;
+    private int liveCount;
+
+    /**
+     * Creates an empty store.
+     * @param archive the archive finished rentals are moved to
+     */
+    public RentalStore(RentalArchive archive) {
+        this.archive = archive;
+        this.sequences = new long[INITIAL_CAPACITY];
+        this.memberIds = new int[INITIAL_CAPACITY];
+        this.itemKeys = new int[INITIAL_CAPACITY];
+        this.startDays = new int[INITIAL_CAPACITY];
+        this.expectedDays = new int[INITIAL_CAPACITY];
+        this.endDays = new int[INITIAL_CAPACITY];
+        this.costsInOre = new long[INITIAL_CAPACITY];
+        this.lateFeesInOre = new long[INITIAL_CAPACITY];
+        this.statuses = new byte[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Copies a rental into the store, replacing a stored rental with the same ID.
+     * @param rental the rental to store
+     * @return a view of the stored rental
+     */
+    public synchronized Rental add(Rental rental) {
+        long sequence = rental.getSequence();
+        int row = findRow(sequence);
+
+        // New rentals almost always have the highest sequence and go last
+        if (row == NO_ROW) {
+            row = insertionRow(sequence);
+            insertRow(row);
+            liveCount++;
+        } else if (statuses[row] == REMOVED) {
+            liveCount++;
+        }
+
+        sequences[row] = sequence;
+        memberIds[row] = rental.getMemberId();
+        itemKeys[row] = rental.getItemKey();
+        startDays[row] = (int) rental.getStartDate().toEpochDay();
+        expectedDays[row] = (int) rental.getExpectedReturnDate().toEpochDay();
+        endDays[row] = rental.getEndDate() == null ? RentalArchive.NO_END_DAY : (int) rental.getEndDate().toEpochDay();
+        costsInOre[row] = rental.getTotalCostInOre();
+        lateFeesInOre[row] = rental.getLateFeeInOre();
+        statuses[row] = (byte) rental.getStatus().ordinal();
+        return new View(sequence, row);
+    }
+
+    /**
+     * Returns a view of a stored rental.
+     * @param sequence the rental sequence number
+     * @return the view, or null if the rental is not in the store
+     */
+    public synchronized Rental get(long sequence) {
+        int row = findRow(sequence);
+        return row == NO_ROW || statuses[row] == REMOVED ? null : new View(sequence, row);
+    }
+
+    /**
+     * Returns a view of a rental that is either in the store or in the archive.
+     * @param sequence the rental sequence number
+     * @return the view
+     */
+    public Rental view(long sequence) {
+        return new View(sequence, NO_ROW);
+    }
+
+    /**
+     * Marks an active rental as completed, only one caller can succeed.
+     * @param sequence the rental sequence number
+     * @param endDate the date the item was returned
+     * @return true if the rental was active, false if it is unknown or already finished
+     */
+    public synchronized boolean complete(long sequence, LocalDate endDate) {
+        int row = findRow(sequence);
+        if (row == NO_ROW || statuses[row] != RentalStatus.ACTIVE.ordinal()) {
+            return false;
+        }
+        endDays[row] = (int) endDate.toEpochDay();
+        statuses[row] = (byte) RentalStatus.COMPLETED.ordinal();
+        return true;
+    }
+
+    /**
+     * Puts a rental completed with complete() back to active, for a return that could not be journaled.
+     * @param sequence the rental sequence number
+     */
+    public synchronized void reopen(long sequence) {
+        int row = findRow(sequence);
+        if (row != NO_ROW && statuses[row] == RentalStatus.COMPLETED.ordinal()) {
+            endDays[row] = RentalArchive.NO_END_DAY;
+            statuses[row] = (byte) RentalStatus.ACTIVE.ordinal();
+        }
+    }
+
+    /**
+     * Raises the late fee of an active rental to a new total.
+     * A total that is not higher than the stored fee is ignored, so accruing the same
+     * day twice, or after the fee was settled, never charges anything again.
+     * @param sequence the rental sequence number
+     * @param lateFeeInOre the new total late fee in öre
+     * @return how much the fee went up in öre, 0 if it did not or the rental is not active
+     */
+    public synchronized long raiseLateFee(long sequence, long lateFeeInOre) {
+        int row = findRow(sequence);
+        if (row == NO_ROW || statuses[row] != RentalStatus.ACTIVE.ordinal() || lateFeeInOre <= lateFeesInOre[row]) {
+            return 0;
+        }
+        long increase = lateFeeInOre - lateFeesInOre[row];
+        lateFeesInOre[row] = lateFeeInOre;
+        return increase;
+    }
+
+    /**
+     * Copies a finished rental to the archive and then removes it from the store.
+     * The row is read under the store lock and written to the archive after releasing it,
+     * so a view never sees the rental in neither place.
+     * @param sequence the rental sequence number
+     * @return true if the rental was archived, false if it is not in the store
+     */
+    public boolean archive(long sequence) {
+        int memberId;
+        int itemKey;
+        int startDay;
+        int expectedDay;
+        int endDay;
+        long costInOre;
+        long lateFeeInOre;
+        RentalStatus status;
+
+        synchronized (this) {
+            int row = findRow(sequence);
+            if (row == NO_ROW || statuses[row] == REMOVED) {
+                return false;
+            }
+            memberId = memberIds[row];
+            itemKey = itemKeys[row];
+            startDay = startDays[row];
+            expectedDay = expectedDays[row];
+            endDay = endDays[row];
+            costInOre = costsInOre[row];
+            lateFeeInOre = lateFeesInOre[row];
+            status = STATUSES[statuses[row]];
+        }
+
+        archive.append(sequence, memberId, itemKey, startDay, expectedDay, endDay, costInOre, lateFeeInOre, status);
+        remove(sequence);
+        return true;
+    }
+
+    /**
+     * Removes a rental, usually after it has been archived.
+     * @param sequence the rental sequence number
+     */
+    public synchronized void remove(long sequence) {
+        int row = findRow(sequence);
+        if (row == NO_ROW || statuses[row] == REMOVED) {
+            return;
+        }
+        statuses[row] = REMOVED;
+        liveCount--;
+
+        // Drop removed rows once they make up half the store
+        if (rowCount - liveCount > rowCount / 2 && rowCount > INITIAL_CAPACITY) {
+            compact();
+        }
+    }
+
+    /**
+     * Returns the number of stored rentals.
+     * @return rental count
+     */
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    /**
+     * Copies the sequence numbers of all stored rentals, lowest first.
+     * @return the sequence numbers
+     */
+    public synchronized long[] getSequences() {
+        long[] result = new long[liveCount];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (statuses[row] != REMOVED) {
+                result[count++] = sequences[row];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the row of a sequence number with a binary search.
+     * Removed rows keep their sequence number, so the rows stay sorted.
+     */
+    private int findRow(long sequence) {
+        int row = Arrays.binarySearch(sequences, 0, rowCount, sequence);
+        return row < 0 ? NO_ROW : row;
+    }
+
+    /**
+     * Returns the row a new sequence number belongs in.
+     */
+    private int insertionRow(long sequence) {
+        if (rowCount == 0 || sequence > sequences[rowCount - 1]) {
+            return rowCount;
+        }
+        return -(Arrays.binarySearch(sequences, 0, rowCount, sequence) + 1);
+    }
+
+    /**
+     * Opens an empty row at the given position, growing the arrays when they are full.
+     */
+    private void insertRow(int row) {
+        if (rowCount == sequences.length) {
+            int capacity = sequences.length * 2;
+            sequences = Arrays.copyOf(sequences, capacity);
+            memberIds = Arrays.copyOf(memberIds, capacity);
+            itemKeys = Arrays.copyOf(itemKeys, capacity);
+            startDays = Arrays.copyOf(startDays, capacity);
+            expectedDays = Arrays.copyOf(expectedDays, capacity);
+            endDays = Arrays.copyOf(endDays, capacity);
+            costsInOre = Arrays.copyOf(costsInOre, capacity);
+            lateFeesInOre = Arrays.copyOf(lateFeesInOre, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+
+        // Shift later rows one step, only needed when rentals arrive out of order
+        int tail = rowCount - row;
+        if (tail > 0) {
+            System.arraycopy(sequences, row, sequences, row + 1, tail);
+            System.arraycopy(memberIds, row, memberIds, row + 1, tail);
+            System.arraycopy(itemKeys, row, itemKeys, row + 1, tail);
+            System.arraycopy(startDays, row, startDays, row + 1, tail);
+            System.arraycopy(expectedDays, row, expectedDays, row + 1, tail);
+            System.arraycopy(endDays, row, endDays, row + 1, tail);
+            System.arraycopy(costsInOre, row, costsInOre, row + 1, tail);
+            System.arraycopy(lateFeesInOre, row, lateFeesInOre, row + 1, tail);
+            System.arraycopy(statuses, row, statuses, row + 1, tail);
+        }
+        rowCount++;
+    }
+
+    /**
+     * Moves the remaining rows together, keeping them in order.
+     */
+    private void compact() {
+        int target = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (statuses[row] == REMOVED) {
+                continue;
+            }
+            sequences[target] = sequences[row];
+            memberIds[target] = memberIds[row];
+            itemKeys[target] = itemKeys[row];
+            startDays[target] = startDays[row];
+            expectedDays[target] = expectedDays[row];
+            endDays[target] = endDays[row];
+            costsInOre[target] = costsInOre[row];
+            lateFeesInOre[target] = lateFeesInOre[row];
+            statuses[target] = statuses[row];
+            target++;
+        }
+        rowCount = target;
+    }
+
+    /**
+     * Flyweight rental that only holds its sequence number.
+     * Every getter reads the current value from the store, or from the archive once the
+     * rental has been moved there. Views are read-only, rentals only change through RentalService,
+     * which also moves the item, the indexes and the archive and writes the journal.
+     * The archive is never read while holding the store lock, since archiving reads views
+     * while holding the archive lock.
+     */
+    private final class View extends Rental {
+
+        private final long sequence;
+
+        // Last known row, checked on every access because rows move when the store changes
+        private int row;
+
+        private View(long sequence, int row) {
+            this.sequence = sequence;
+            this.row = row;
+        }
+
+        /**
+         * Returns the current store row of the rental, or NO_ROW if it has left the store.
+         * Must be called while holding the store lock.
+         */
+        private int storeRow() {
+            if (row < 0 || row >= rowCount || sequences[row] != sequence || statuses[row] == REMOVED) {
+                int found = findRow(sequence);
+                row = found == NO_ROW || statuses[found] == REMOVED ? NO_ROW : found;
+            }
+            return row;
+        }
+
+        /**
+         * Returns the archive row of a rental that has left the store.
+         */
+        private int archiveRow() {
+            int archived = archive.findRow(sequence);
+            if (archived == RentalArchive.NO_ROW) {
+                throw new IllegalStateException("Uthyrningen finns inte längre: " + getRentalId());
+            }
+            return archived;
+        }
+
+        // Getters
+        @Override
+        public long getSequence() {
+            return sequence;
+        }
+
+        @Override
+        public String getRentalId() {
+            return RentalService.toRentalId(sequence);
+        }
+
+        @Override
+        public int getMemberId() {
+            synchronized (RentalStore.this) {
+                if (storeRow() != NO_ROW) {
+                    return memberIds[row];
+                }
+            }
+            return archive.getMemberId(archiveRow());
+        }
+
+        @Override
+        public int getItemKey() {
+            synchronized (RentalStore.this) {
+                if (storeRow() != NO_ROW) {
+                    return itemKeys[row];
+                }
+            }
+            return archive.getItemKey(archiveRow());
+        }
+
+        @Override
+        public String getItemId() {
+            return ItemIdGenerator.toId(getItemKey());
+        }
+
+        @Override
+        public LocalDate getStartDate() {
+            synchronized (RentalStore.this) {
+                if (storeRow() != NO_ROW) {
+                    return LocalDate.ofEpochDay(startDays[row]);
+                }
+            }
+            return LocalDate.ofEpochDay(archive.getStartDay(archiveRow()));
+        }
+
+        @Override
+        public LocalDate getEndDate() {
+            synchronized (RentalStore.this) {
+                if (storeRow() != NO_ROW) {
+                    return toEndDate(endDays[row]);
+                }
+            }
+            return toEndDate(archive.getEndDay(archiveRow()));
+        }
+
+        @Override
+        public LocalDate getExpectedReturnDate() {
+            synchronized (RentalStore.this) {
+                if (storeRow() != NO_ROW) {
+                    return LocalDate.ofEpochDay(expectedDays[row]);
+                }
+            }
+            return LocalDate.ofEpochDay(archive.getExpectedDay(archiveRow()));
+        }
+
+        @Override
+        public long getTotalCostInOre() {
+            synchronized (RentalStore.this) {
+                if (storeRow() != NO_ROW) {
+                    return costsInOre[row];
+                }
+            }
+            return archive.getCostInOre(archiveRow());
+        }
+
+        @Override
+        public long getLateFeeInOre() {
+            synchronized (RentalStore.this) {
+                if (storeRow() != NO_ROW) {
+                    return lateFeesInOre[row];
+                }
+            }
+            return archive.getLateFeeInOre(archiveRow());
+        }
+
+        @Override
+        public RentalStatus getStatus() {
+            synchronized (RentalStore.this) {
+                if (storeRow() != NO_ROW) {
+                    return STATUSES[statuses[row]];
+                }
+            }
+            return archive.getStatus(archiveRow());
+        }
+
+        /**
+         * Turns a stored end day into a date, rentals that are still out have none.
+         */
+        private LocalDate toEndDate(int day) {
+            return day == RentalArchive.NO_END_DAY ? null : LocalDate.ofEpochDay(day);
+        }
+    }
+}
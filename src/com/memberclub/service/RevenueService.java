@@ -1,44 +1,123 @@
 package com.memberclub.service;
 
+import com.memberclub.model.Money;
+import com.memberclub.model.RevenueSummary;
+import com.memberclub.model.enums.RevenueSource;
+import com.memberclub.persistence.Journal;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Service for tracking revenue and financial statistics.
  * Manages all revenue from rentals and late fees.
+ *
+ * Amounts are kept as whole öre in one immutable RevenueSummary that is replaced with a
+ * compare-and-set on every change, so concurrent rental counters can add revenue without
+ * locking and without floating-point rounding, and a reader always sees every source as
+ * of the same moment.
  */
 public class RevenueService {
 
-    private double totalRevenue;
+    // Revenue in öre of every source, replaced as a whole
+    private final AtomicReference<RevenueSummary> ledger;
+
+    // Journal that records revenue, null when running without persistence
+    private Journal journal;
 
     /**
      * Creates a new revenue service.
      */
     public RevenueService() {
-        this.totalRevenue = 0.0;
+        this.ledger = new AtomicReference<>(new RevenueSummary(0, 0));
+    }
+
+    /**
+     * Sets the journal that records revenue changes.
+     * @param journal the journal, or null to stop recording
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
     }
 
     /**
-     * Adds revenue to the total.
-     * @param amount the amount to add
+     * Adds revenue in öre.
+     * @param source where the revenue comes from
+     * @param amountInOre the amount to add in öre
      */
-    public void addRevenue(double amount) {
+    public void addRevenueInOre(RevenueSource source, long amountInOre) {
 
-        if (amount > 0) {
-            this.totalRevenue += amount;
+        if (amountInOre > 0) {
+
+            // Keep checkpoints out until the change and its journal record are both done
+            Journal gate = journal;
+            if (gate != null) {
+                gate.beginMutation();
+            }
+            try {
+                ledger.updateAndGet(summary -> add(summary, source, amountInOre));
+
+                // Record the mutation
+                if (journal != null) {
+                    journal.logRevenueEntry(source, amountInOre);
+                }
+            } finally {
+                if (gate != null) {
+                    gate.endMutation();
+                }
+            }
         }
     }
 
+    /**
+     * Reads the revenue of every source as of the same moment.
+     * The total of the returned summary always matches its parts.
+     * @return summary of the ledger
+     */
+    public RevenueSummary getSummary() {
+        return ledger.get();
+    }
+
     /**
      * Gets the total revenue.
-     * @return total revenue amount
+     * @return total revenue amount in kronor
      */
     public double getTotalRevenue() {
-        return totalRevenue;
+        return Money.toKronor(getSummary().getTotalInOre());
     }
 
     /**
      * Resets the revenue counter to zero.
-     * This clears all revenue history.
+     * This clears all revenue history. Revenue added by other threads
+     * is either cleared with the rest or added after the reset, never lost halfway.
      */
     public void resetRevenue() {
-        this.totalRevenue = 0.0;
+
+        // Keep checkpoints out until the change and its journal record are both done
+        Journal gate = journal;
+        if (gate != null) {
+            gate.beginMutation();
+        }
+        try {
+
+            ledger.set(new RevenueSummary(0, 0));
+
+            // Record the mutation
+            if (journal != null) {
+                journal.logResetRevenue();
+            }
+        } finally {
+            if (gate != null) {
+                gate.endMutation();
+            }
+        }
+    }
+
+    /**
+     * Returns a summary with an amount added to one source.
+     */
+    private static RevenueSummary add(RevenueSummary summary, RevenueSource source, long amountInOre) {
+        return switch (source) {
+            case RENTAL_FEE -> new RevenueSummary(summary.getRentalFeesInOre() + amountInOre, summary.getLateFeesInOre());
+            case LATE_FEE -> new RevenueSummary(summary.getRentalFeesInOre(), summary.getLateFeesInOre() + amountInOre);
+        };
     }
-}
\ No newline at end of file
+}
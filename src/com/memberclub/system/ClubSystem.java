@@ -1,10 +1,26 @@
 package com.memberclub.system;
 
 import com.memberclub.model.*;
+import com.memberclub.persistence.ClubStorage;
+import com.memberclub.persistence.Journal;
+import com.memberclub.persistence.RentalArchive;
+import com.memberclub.pricing.PricingFactory;
+import com.memberclub.pricing.PricingRules;
 import com.memberclub.service.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Central system class that initializes and coordinates all services.
@@ -12,39 +28,342 @@ import java.util.List;
  */
 public class ClubSystem {
 
+    // How often expired cart holds are released
+    private static final long HOLD_TICK_MILLIS = 1000;
+
     private final Inventory inventory;
     private final MemberRegistry memberRegistry;
     private final RentalService rentalService;
     private final MembershipService membershipService;
     private final RevenueService revenueService;
+    private final LateFeeService lateFeeService;
+    private final HoldService holdService;
     private final ItemIdGenerator itemIdGenerator;
     private final MemberIdGenerator memberIdGenerator;
-    private final HashMap<String, User> users;
+    // Read by the HTTP request threads while the console may add users
+    private final ConcurrentHashMap<String, User> users;
+
+    // Snapshot and journal storage, null when running in memory only
+    private ClubStorage storage;
+
+    // Runs periodic work such as the overdue check on one daemon thread
+    private final ScheduledExecutorService scheduler;
+
+    // Pricing rule file and the modification time of the version in use, null without rules
+    private final Path pricingRulesFile;
+    private volatile FileTime pricingRulesModified;
 
     /**
      * Creates and initializes the complete club system.
-     * Sets up all services and their dependencies.
+     * State is stored in the directory given by the system property
+     * "memberclub.data.dir" (default "data") and restored on the next start.
+     * A snapshot is taken every "memberclub.snapshot.interval" journal records (default 10000,
+     * 0 or less turns the automatic snapshot off), and overdue rentals are checked every "memberclub.overdue.interval" minutes (default 60).
+     * Late fees of overdue rentals are accrued at start and every midnight.
+     * Items in a shopping cart are held for "memberclub.hold.ttl" seconds (default 900).
+     * Prices follow the rules in the file "memberclub.pricing.rules" when it is set (see PricingRules),
+     * and the file is read again within "memberclub.pricing.reload" seconds (default 60) of a change.
+     * A fresh system is filled with sample data, or with generated data when
+     * "memberclub.generate.items" is set (see loadSampleData()).
      */
     public ClubSystem() {
+        this(Path.of(System.getProperty("memberclub.data.dir", "data")));
+    }
+
+    /**
+     * Creates and initializes the complete club system.
+     * Sets up all services and their dependencies.
+     * @param dataDirectory directory for persistent state, or null to keep everything in memory
+     */
+    public ClubSystem(Path dataDirectory) {
 
         // Initialize ID generators first
         this.itemIdGenerator = new ItemIdGenerator();
         this.memberIdGenerator = new MemberIdGenerator();
 
+        // Install pricing rules before any item is priced
+        String rules = System.getProperty("memberclub.pricing.rules");
+        this.pricingRulesFile = rules == null ? null : Path.of(rules);
+        if (pricingRulesFile != null) {
+            loadPricingRules();
+        }
+
         // Initialize core services
         this.inventory = new Inventory();
         this.memberRegistry = new MemberRegistry();
-        this.rentalService = new RentalService(inventory, memberRegistry);
+        this.rentalService = new RentalService(inventory, memberRegistry, openArchive(dataDirectory));
         this.membershipService = new MembershipService(memberRegistry, memberIdGenerator);
         this.revenueService = new RevenueService();
-        this.users = new HashMap<>();
+        this.lateFeeService = new LateFeeService(rentalService, inventory, memberRegistry, revenueService);
+        this.holdService = new HoldService(TimeUnit.SECONDS.toMillis(Long.getLong("memberclub.hold.ttl", 900)), HOLD_TICK_MILLIS);
+        this.users = new ConcurrentHashMap<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "club-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Tell the staff about rentals that become overdue
+        rentalService.addOverdueListener(ClubSystem::announceOverdue);
 
         // Load sample users
         loadUsers();
 
-        // Load sample data using generators
-        SampleDataLoader.loadSampleItems(inventory, itemIdGenerator);
-        SampleDataLoader.loadSampleMembers(memberRegistry, memberIdGenerator);
+        // Without a data directory we only load the sample data
+        if (dataDirectory == null) {
+            loadSampleData();
+            scheduleOverdueCheck();
+            scheduleLateFeeAccrual();
+            scheduleHoldSweep();
+            schedulePricingReload();
+            return;
+        }
+
+        // Restore the latest snapshot and journal tail, or start fresh with sample data
+        try {
+            long snapshotInterval = Long.getLong("memberclub.snapshot.interval", 10_000);
+            this.storage = new ClubStorage(dataDirectory, snapshotInterval, this::attachJournal);
+
+            if (!storage.restore(this)) {
+                loadSampleData();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte läsa in sparad data från " + dataDirectory, e);
+        }
+        scheduleOverdueCheck();
+        scheduleLateFeeAccrual();
+        scheduleHoldSweep();
+        schedulePricingReload();
+    }
+
+    /**
+     * Checks for newly overdue rentals right away and then at a fixed interval, so
+     * overdue listeners hear about a rental within one interval of it becoming overdue.
+     */
+    private void scheduleOverdueCheck() {
+        long minutes = Long.getLong("memberclub.overdue.interval", 60);
+        scheduler.scheduleAtFixedRate(() -> {
+
+            // A failing listener must not stop the checks that follow
+            try {
+                rentalService.checkOverdue(LocalDate.now());
+            } catch (RuntimeException e) {
+                System.err.println("Kunde inte kontrollera försenade uthyrningar: " + e.getMessage());
+            }
+        }, 0, minutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Prints a notice for a rental that has just become overdue.
+     */
+    private static void announceOverdue(Rental rental, LocalDate today) {
+        System.out.println("Försenad uthyrning: " + rental.getRentalId() + ", artikel " + rental.getItemId()
+                + ", medlem " + rental.getMemberId() + ", skulle ha lämnats " + rental.getExpectedReturnDate());
+    }
+
+    /**
+     * Accrues the late fees of every overdue rental right away, to catch up on nights the
+     * system was not running, and then just after every midnight.
+     */
+    private void scheduleLateFeeAccrual() {
+        Runnable accrual = () -> {
+
+            // A failure must not stop the nights that follow, fees missed tonight are caught up then
+            try {
+                lateFeeService.accrueOverdue(LocalDate.now());
+            } catch (RuntimeException e) {
+                System.err.println("Kunde inte beräkna förseningsavgifter: " + e.getMessage());
+            }
+        };
+        long untilMidnight = Duration.between(LocalDateTime.now(), LocalDate.now().plusDays(1).atStartOfDay()).toMillis();
+        scheduler.execute(accrual);
+        scheduler.scheduleAtFixedRate(accrual, untilMidnight, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Releases expired cart holds once per tick, on the same thread as the overdue check.
+     */
+    private void scheduleHoldSweep() {
+        scheduler.scheduleAtFixedRate(() -> {
+
+            // A failure must not stop the sweeps that follow, or held items would never come back
+            try {
+                holdService.sweep(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                System.err.println("Kunde inte släppa reserverade artiklar: " + e.getMessage());
+            }
+        }, HOLD_TICK_MILLIS, HOLD_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads the pricing rule file again whenever it has changed, when there is one.
+     */
+    private void schedulePricingReload() {
+        if (pricingRulesFile == null) {
+            return;
+        }
+        long seconds = Long.getLong("memberclub.pricing.reload", 60);
+        scheduler.scheduleWithFixedDelay(() -> {
+
+            // A broken rule file keeps the current rules, the next change is tried again
+            try {
+                if (!Files.getLastModifiedTime(pricingRulesFile).equals(pricingRulesModified)) {
+                    reloadPricingRules();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Kunde inte läsa prisreglerna: " + e.getMessage());
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Reads and installs the pricing rules from "memberclub.pricing.rules" and reprices every item.
+     * Quotes that are running keep the old rules, the next ones use the new rules.
+     * Does nothing when no rule file is configured.
+     * @throws UncheckedIOException if the file cannot be read
+     * @throws IllegalArgumentException if a rule is not valid, the current rules are then kept
+     */
+    public synchronized void reloadPricingRules() {
+        if (pricingRulesFile == null) {
+            return;
+        }
+        loadPricingRules();
+        inventory.reprice();
+    }
+
+    /**
+     * Compiles the rule file and installs the rules, without repricing anything.
+     */
+    private void loadPricingRules() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(pricingRulesFile);
+            PricingFactory.setRules(PricingRules.load(pricingRulesFile));
+            pricingRulesModified = modified;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte läsa prisreglerna i " + pricingRulesFile, e);
+        }
+    }
+
+    /**
+     * Opens the rental archive in the data directory, or a temporary one when running in memory only.
+     * @param dataDirectory directory for persistent state, or null
+     * @return the opened archive
+     */
+    private static RentalArchive openArchive(Path dataDirectory) {
+        if (dataDirectory == null) {
+            return RentalArchive.openTemporary();
+        }
+
+        try {
+            return RentalArchive.open(dataDirectory.resolve("archive"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte öppna arkivet i " + dataDirectory, e);
+        }
+    }
+
+    /**
+     * Loads sample items and members using the ID generators.
+     * When the system property "memberclub.generate.items" is set, a synthetic dataset is
+     * generated instead. It is sized by "memberclub.generate.items", "memberclub.generate.members"
+     * and "memberclub.generate.rentals", covers "memberclub.generate.years" years of history
+     * (default 3) and is seeded by "memberclub.generate.seed" (default 42).
+     */
+    private void loadSampleData() {
+        int itemCount = Integer.getInteger("memberclub.generate.items", 0);
+        if (itemCount <= 0) {
+            SampleDataLoader.loadSampleItems(inventory, itemIdGenerator);
+            SampleDataLoader.loadSampleMembers(memberRegistry, memberIdGenerator);
+            return;
+        }
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(
+                Long.getLong("memberclub.generate.seed", 42),
+                itemCount,
+                Integer.getInteger("memberclub.generate.members", itemCount),
+                Integer.getInteger("memberclub.generate.rentals", itemCount * 10),
+                Integer.getInteger("memberclub.generate.years", 3));
+
+        // Nothing else runs yet, so the generated data can skip the journal and go straight into a snapshot
+        if (storage == null) {
+            generator.generate(this);
+            return;
+        }
+        attachJournal(null);
+        try {
+            generator.generate(this);
+        } finally {
+            attachJournal(storage.getJournal());
+            checkpoint();
+        }
+    }
+
+    /**
+     * Runs a bulk load, such as an import, and saves the result as one snapshot.
+     * The load is journaled like any other change, and so is everything other threads change
+     * while it runs, so nothing is lost if the process stops before the snapshot is written.
+     * @param load the load to run
+     * @throws UncheckedIOException if the snapshot cannot be written, the load is then kept in the journal
+     */
+    public void loadInBulk(Runnable load) {
+
+        // Without storage there is nothing to save
+        if (storage == null) {
+            load.run();
+            return;
+        }
+
+        try {
+            storage.checkpointAfter(load);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Inläsningen är sparad i journalen men ögonblicksbilden kunde inte skrivas", e);
+        }
+    }
+
+    /**
+     * Connects a journal to every service that mutates state.
+     * @param journal the journal to record mutations in
+     */
+    private void attachJournal(Journal journal) {
+        inventory.setJournal(journal);
+        memberRegistry.setJournal(journal);
+        rentalService.setJournal(journal);
+        membershipService.setJournal(journal);
+        revenueService.setJournal(journal);
+        lateFeeService.setJournal(journal);
+    }
+
+    /**
+     * Writes a snapshot of the current state and truncates the journal.
+     * Does nothing when running in memory only.
+     */
+    public void checkpoint() {
+        if (storage == null) {
+            return;
+        }
+
+        try {
+            storage.checkpoint();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte skriva ögonblicksbild", e);
+        }
+    }
+
+    /**
+     * Writes a final snapshot and closes the journal and the rental archive.
+     * Should be called once when the program exits.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+
+            // Only a persistent system has a snapshot to write
+            if (storage != null) {
+                storage.close();
+            }
+            rentalService.getArchive().close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte spara data", e);
+        }
     }
 
     // Getters
@@ -68,6 +387,14 @@ public class ClubSystem {
         return revenueService;
     }
 
+    public LateFeeService getLateFeeService() {
+        return lateFeeService;
+    }
+
+    public HoldService getHoldService() {
+        return holdService;
+    }
+
     public ItemIdGenerator getItemIdGenerator() {
         return itemIdGenerator;
     }
@@ -178,7 +505,7 @@ public class ClubSystem {
      */
     public User authenticateUser(String username, String password) {
 
-        // Get user from HashMap by username
+        // Get user from the map by username
         User user = users.get(username);
 
         // If user doesn't exist, return null
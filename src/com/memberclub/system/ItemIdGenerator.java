@@ -1,11 +1,38 @@
 package com.memberclub.system;
 
+import com.memberclub.model.enums.ItemType;
+
 /**
  * Generates unique IDs for different item types.
  * Maintains separate counters for each category.
  */
 public class ItemIdGenerator {
 
+    // ID prefix for every item type, indexed by ItemType ordinal
+    private static final String[] PREFIXES = new String[ItemType.values().length];
+
+    static {
+        PREFIXES[ItemType.FISHING_ROD.ordinal()] = "ROD";
+        PREFIXES[ItemType.FISHING_NET.ordinal()] = "NET";
+        PREFIXES[ItemType.FISHING_BAIT.ordinal()] = "BAIT";
+        PREFIXES[ItemType.TENT.ordinal()] = "TENT";
+        PREFIXES[ItemType.SLEEPING_BAG.ordinal()] = "SLEEP";
+        PREFIXES[ItemType.BACKPACK.ordinal()] = "BACK";
+        PREFIXES[ItemType.TRANGIA_KITCHEN.ordinal()] = "TRANG";
+        PREFIXES[ItemType.LANTERN.ordinal()] = "LANT";
+        PREFIXES[ItemType.MOTOR_BOAT.ordinal()] = "MBOAT";
+        PREFIXES[ItemType.ELECTRIC_BOAT.ordinal()] = "EBOAT";
+        PREFIXES[ItemType.ROW_BOAT.ordinal()] = "RBOAT";
+        PREFIXES[ItemType.KAYAK.ordinal()] = "KAY";
+    }
+
+    // Number of low bits in an item key that hold the running number
+    private static final int NUMBER_BITS = 24;
+    private static final int NUMBER_MASK = (1 << NUMBER_BITS) - 1;
+
+    // Item types by ordinal, the high byte of an item key
+    private static final ItemType[] TYPES = ItemType.values();
+
     // Camping equipment counters
     private int backpackCounter = 1;
     private int lanternCounter = 1;
@@ -26,52 +53,253 @@ public class ItemIdGenerator {
 
     // Camping
     public String generateBackpackId() {
-        return "BACK-" + String.format("%03d", backpackCounter++);
+        return formatId("BACK", backpackCounter++);
     }
 
     public String generateLanternId() {
-        return "LANT-" + String.format("%03d", lanternCounter++);
+        return formatId("LANT", lanternCounter++);
     }
 
     public String generateSleepingBagId() {
-        return "SLEEP-" + String.format("%03d", sleepingBagCounter++);
+        return formatId("SLEEP", sleepingBagCounter++);
     }
 
     public String generateTentId() {
-        return "TENT-" + String.format("%03d", tentCounter++);
+        return formatId("TENT", tentCounter++);
     }
 
     public String generateTrangiaId() {
-        return "TRANG-" + String.format("%03d", trangiaCounter++);
+        return formatId("TRANG", trangiaCounter++);
     }
 
     // Fishing
     public String generateBaitId() {
-        return "BAIT-" + String.format("%03d", baitCounter++);
+        return formatId("BAIT", baitCounter++);
     }
 
     public String generateNetId() {
-        return "NET-" + String.format("%03d", netCounter++);
+        return formatId("NET", netCounter++);
     }
 
     public String generateRodId() {
-        return "ROD-" + String.format("%03d", rodCounter++);
+        return formatId("ROD", rodCounter++);
     }
 
     // Water vehicles
     public String generateKayakId() {
-        return "KAY-" + String.format("%03d", kayakCounter++);
+        return formatId("KAY", kayakCounter++);
     }
 
     public String generateElectricBoatId() {
-        return "EBOAT-" + String.format("%03d", electricBoatCounter++);
+        return formatId("EBOAT", electricBoatCounter++);
     }
 
     public String generateMotorBoatId() {
-        return "MBOAT-" + String.format("%03d", motorBoatCounter++);
+        return formatId("MBOAT", motorBoatCounter++);
     }
 
     public String generateRowBoatId() {
-        return "RBOAT-" + String.format("%03d", rowBoatCounter++);
+        return formatId("RBOAT", rowBoatCounter++);
+    }
+
+    /**
+     * Takes the next running number for an item type without building the ID string.
+     * Used by bulk loaders that build many IDs in parallel with toId(type, number).
+     * @param type the item type
+     * @return the number the next item of the type gets
+     */
+    public int nextNumber(ItemType type) {
+        return switch (type) {
+            case BACKPACK -> backpackCounter++;
+            case LANTERN -> lanternCounter++;
+            case SLEEPING_BAG -> sleepingBagCounter++;
+            case TENT -> tentCounter++;
+            case TRANGIA_KITCHEN -> trangiaCounter++;
+            case FISHING_BAIT -> baitCounter++;
+            case FISHING_NET -> netCounter++;
+            case FISHING_ROD -> rodCounter++;
+            case KAYAK -> kayakCounter++;
+            case ELECTRIC_BOAT -> electricBoatCounter++;
+            case MOTOR_BOAT -> motorBoatCounter++;
+            case ROW_BOAT -> rowBoatCounter++;
+        };
+    }
+
+    /**
+     * Builds the item ID for a type and running number.
+     * @param type the item type
+     * @param number the running number
+     * @return the item ID, for example "TENT-004"
+     */
+    public static String toId(ItemType type, int number) {
+        return formatId(PREFIXES[type.ordinal()], number);
+    }
+
+    /**
+     * Packs an item ID into an int key: the ItemType ordinal in the high byte
+     * and the running number in the low 24 bits. "TENT-004" and "KAY-004" get different keys.
+     * @param itemId the item ID, for example "TENT-004"
+     * @return the item key
+     */
+    public static int toKey(String itemId) {
+        int dash = itemId.indexOf('-');
+        String prefix = itemId.substring(0, dash);
+        int number = Integer.parseInt(itemId.substring(dash + 1));
+
+        // Find the item type that uses this prefix
+        for (int type = 0; type < PREFIXES.length; type++) {
+            if (PREFIXES[type].equals(prefix)) {
+                return (type << NUMBER_BITS) | number;
+            }
+        }
+        throw new IllegalArgumentException("Okänt artikel-ID: " + itemId);
+    }
+
+    /**
+     * Turns an item key back into the item ID it was made from.
+     * @param key the item key
+     * @return the item ID, for example "TENT-004"
+     */
+    public static String toId(int key) {
+        return formatId(PREFIXES[key >>> NUMBER_BITS], key & NUMBER_MASK);
+    }
+
+    /**
+     * Packs an item type and running number into an item key.
+     * @param type the item type
+     * @param number the running number
+     * @return the item key
+     */
+    public static int toKey(ItemType type, int number) {
+        return (type.ordinal() << NUMBER_BITS) | number;
+    }
+
+    /**
+     * Turns an item ID into its key, without failing on IDs that are not item IDs.
+     * Used for IDs that come from outside, such as user input.
+     * @param itemId the item ID
+     * @return the item key, or -1 if the ID is not a valid item ID
+     */
+    public static int parseKey(String itemId) {
+        int dash = itemId == null ? -1 : itemId.indexOf('-');
+        if (dash < 0) {
+            return -1;
+        }
+
+        // The running number must fit in the low bits of the key
+        int number;
+        try {
+            number = Integer.parseInt(itemId, dash + 1, itemId.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (number < 0 || number > NUMBER_MASK) {
+            return -1;
+        }
+
+        // Find the item type that uses this prefix
+        for (int type = 0; type < PREFIXES.length; type++) {
+            if (PREFIXES[type].length() == dash && itemId.startsWith(PREFIXES[type])) {
+                return (type << NUMBER_BITS) | number;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the item type stored in an item key.
+     * @param key the item key
+     * @return the item type, or null if the key does not hold a valid type
+     */
+    public static ItemType typeOf(int key) {
+        int type = key >>> NUMBER_BITS;
+        return type < TYPES.length ? TYPES[type] : null;
+    }
+
+    /**
+     * Returns the running number stored in an item key.
+     * @param key the item key
+     * @return the running number
+     */
+    public static int numberOf(int key) {
+        return key & NUMBER_MASK;
+    }
+
+    /**
+     * Builds a display ID from a prefix and a running number padded to three digits,
+     * for example "TENT-004". Much cheaper than String.format on hot paths.
+     * @param prefix the ID prefix
+     * @param number the running number
+     * @return the display ID
+     */
+    public static String formatId(String prefix, long number) {
+        String digits = Long.toString(number);
+        return switch (digits.length()) {
+            case 1 -> prefix + "-00" + digits;
+            case 2 -> prefix + "-0" + digits;
+            default -> prefix + "-" + digits;
+        };
+    }
+
+    /**
+     * Returns all counters so they can be saved in a snapshot.
+     * Order: camping (backpack, lantern, sleeping bag, tent, trangia),
+     * fishing (bait, net, rod), water vehicles (kayak, electric, motor, row boat).
+     * @return the next number for every prefix
+     */
+    public int[] getCounters() {
+        return new int[] {
+                backpackCounter, lanternCounter, sleepingBagCounter, tentCounter, trangiaCounter,
+                baitCounter, netCounter, rodCounter,
+                kayakCounter, electricBoatCounter, motorBoatCounter, rowBoatCounter
+        };
+    }
+
+    /**
+     * Restores counters saved with getCounters().
+     * @param counters the next number for every prefix, in getCounters() order
+     */
+    public void restoreCounters(int[] counters) {
+        backpackCounter = counters[0];
+        lanternCounter = counters[1];
+        sleepingBagCounter = counters[2];
+        tentCounter = counters[3];
+        trangiaCounter = counters[4];
+        baitCounter = counters[5];
+        netCounter = counters[6];
+        rodCounter = counters[7];
+        kayakCounter = counters[8];
+        electricBoatCounter = counters[9];
+        motorBoatCounter = counters[10];
+        rowBoatCounter = counters[11];
+    }
+
+    /**
+     * Marks an existing item ID as used so it is never generated again.
+     * Used when items are restored from disk.
+     * @param itemId the ID that is already taken, for example "TENT-004"
+     */
+    public void reserve(String itemId) {
+
+        // Split into prefix and number
+        int dash = itemId.indexOf('-');
+        String prefix = itemId.substring(0, dash);
+        int next = Integer.parseInt(itemId.substring(dash + 1)) + 1;
+
+        // Move the matching counter past the reserved number
+        switch (prefix) {
+            case "BACK" -> backpackCounter = Math.max(backpackCounter, next);
+            case "LANT" -> lanternCounter = Math.max(lanternCounter, next);
+            case "SLEEP" -> sleepingBagCounter = Math.max(sleepingBagCounter, next);
+            case "TENT" -> tentCounter = Math.max(tentCounter, next);
+            case "TRANG" -> trangiaCounter = Math.max(trangiaCounter, next);
+            case "BAIT" -> baitCounter = Math.max(baitCounter, next);
+            case "NET" -> netCounter = Math.max(netCounter, next);
+            case "ROD" -> rodCounter = Math.max(rodCounter, next);
+            case "KAY" -> kayakCounter = Math.max(kayakCounter, next);
+            case "EBOAT" -> electricBoatCounter = Math.max(electricBoatCounter, next);
+            case "MBOAT" -> motorBoatCounter = Math.max(motorBoatCounter, next);
+            case "RBOAT" -> rowBoatCounter = Math.max(rowBoatCounter, next);
+        }
     }
 }
\ No newline at end of file
@@ -14,4 +14,30 @@ public class MemberIdGenerator {
     public int generateMemberId() {
         return counter++;
     }
+
+    /**
+     * Returns the ID that will be generated next.
+     * @return next member ID
+     */
+    public int getNextId() {
+        return counter;
+    }
+
+    /**
+     * Sets the ID that will be generated next.
+     * Used when the counter is restored from a snapshot.
+     * @param nextId next member ID
+     */
+    public void setNextId(int nextId) {
+        this.counter = nextId;
+    }
+
+    /**
+     * Marks an existing member ID as used so it is never generated again.
+     * Used when members are restored from disk.
+     * @param memberId the ID that is already taken
+     */
+    public void reserve(int memberId) {
+        counter = Math.max(counter, memberId + 1);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,323 @@
+package com.memberclub.system;
+
+import com.memberclub.model.*;
+import com.memberclub.model.camping.*;
+import com.memberclub.model.enums.*;
+import com.memberclub.model.fishing.*;
+import com.memberclub.model.vehicles.*;
+import com.memberclub.pricing.PricingFactory;
+import com.memberclub.service.*;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates large, realistic datasets for load testing.
+ * Builds items of all twelve item types, members on every membership level and
+ * years of finished rentals, where a few members and items account for most of them.
+ *
+ * The output only depends on the seed and today's date: every item, member and rental
+ * gets its own random stream derived from the seed and its index, so the objects can be
+ * built in parallel and still come out the same on every run. Only adding them to the
+ * services is done in index order.
+ */
+public class SyntheticDataGenerator {
+
+    // Separate random streams for items, members and rentals
+    private static final long ITEM_STREAM = 1;
+    private static final long MEMBER_STREAM = 2;
+    private static final long RENTAL_STREAM = 3;
+
+    // How common each item type is, indexed by ItemType ordinal (small gear is more common than boats)
+    private static final int[] TYPE_WEIGHTS = {
+            12, 6, 14,          // rod, net, bait
+            10, 10, 10, 6, 10,  // tent, sleeping bag, backpack, trangia, lantern
+            3, 3, 4, 6          // motor boat, electric boat, row boat, kayak
+    };
+
+    // Share of members on each level in percent: standard, student, premium
+    private static final int[] LEVEL_PERCENT = {60, 25, 15};
+
+    private static final String[] FIRST_NAMES = {
+            "Anna", "Erik", "Maria", "Lars", "Karin", "Anders", "Sara", "Johan", "Emma", "Per",
+            "Elin", "Nils", "Ida", "Karl", "Linnea", "Oskar", "Maja", "Gustav", "Sofia", "Axel"
+    };
+    private static final String[] LAST_NAMES = {
+            "Andersson", "Johansson", "Karlsson", "Nilsson", "Eriksson", "Larsson", "Olsson", "Persson",
+            "Svensson", "Gustafsson", "Pettersson", "Jonsson", "Jansson", "Hansson", "Bengtsson", "Lindberg"
+    };
+    private static final String[] BRANDS = {
+            "Fjällräven", "Hilleberg", "Haglöfs", "Primus", "Trangia", "Abu Garcia", "Rapala", "Shimano",
+            "Hobie", "Linder", "Yamaha", "Torqeedo"
+    };
+
+    private final long seed;
+    private final int itemCount;
+    private final int memberCount;
+    private final int rentalCount;
+    private final int years;
+
+    /**
+     * Creates a generator.
+     * @param seed the seed, the same seed gives the same data
+     * @param itemCount number of items to create
+     * @param memberCount number of members to create
+     * @param rentalCount number of rentals to create over the whole history
+     * @param years how many years back the rental history goes
+     */
+    public SyntheticDataGenerator(long seed, int itemCount, int memberCount, int rentalCount, int years) {
+        this.seed = seed;
+        this.itemCount = itemCount;
+        this.memberCount = memberCount;
+        this.rentalCount = rentalCount;
+        this.years = years;
+    }
+
+    /**
+     * Adds the generated items, members and rentals to a system.
+     * Rentals that would still be out today become active rentals, all others are archived.
+     * @param system the system to fill
+     */
+    public void generate(ClubSystem system) {
+        Item[] items = generateItems(system.getItemIdGenerator());
+        for (Item item : items) {
+            system.getInventory().addItem(item);
+        }
+
+        Member[] members = generateMembers(system.getMemberIdGenerator());
+        for (Member member : members) {
+            system.getMemberRegistry().addMember(member);
+        }
+
+        // Rentals need both items and members
+        if (items.length > 0 && members.length > 0 && rentalCount > 0) {
+            loadRentals(system, generateRentals(system.getRentalService().getRentalCounter(), items, members));
+        }
+    }
+
+    /**
+     * Builds all items in parallel.
+     * Item numbers are taken in index order first, so the IDs do not depend on thread timing.
+     */
+    private Item[] generateItems(ItemIdGenerator generator) {
+
+        // Pick a type for every item
+        ItemType[] types = new ItemType[itemCount];
+        IntStream.range(0, itemCount).parallel()
+                .forEach(i -> types[i] = pickType(random(ITEM_STREAM, i)));
+
+        // Take the running numbers in order
+        int[] numbers = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            numbers[i] = generator.nextNumber(types[i]);
+        }
+
+        Item[] items = new Item[itemCount];
+        IntStream.range(0, itemCount).parallel()
+                .forEach(i -> items[i] = createItem(types[i], ItemIdGenerator.toId(types[i], numbers[i]), random(ITEM_STREAM, i)));
+        return items;
+    }
+
+    /**
+     * Builds all members in parallel with IDs following the ones already in use.
+     */
+    private Member[] generateMembers(MemberIdGenerator generator) {
+
+        // Reserve a block of member IDs
+        int firstId = generator.getNextId();
+        generator.setNextId(firstId + memberCount);
+
+        Member[] members = new Member[memberCount];
+        IntStream.range(0, memberCount).parallel().forEach(i -> {
+            SplittableRandom random = random(MEMBER_STREAM, i);
+            int id = firstId + i;
+            String first = pick(random, FIRST_NAMES);
+            String last = pick(random, LAST_NAMES);
+            String email = first.toLowerCase() + "." + last.toLowerCase() + id + "@example.se";
+            String phone = "07" + String.format("%08d", random.nextInt(100_000_000));
+            members[i] = new Member(id, first + " " + last, email, phone, pickLevel(random));
+        });
+        return members;
+    }
+
+    /**
+     * Builds all rentals in parallel, spread evenly over the history in sequence order.
+     * Rentals that end before today are completed, the rest are left active.
+     */
+    private DetachedRental[] generateRentals(long firstSequence, Item[] items, Member[] members) {
+        LocalDate today = LocalDate.now();
+        LocalDate historyStart = today.minusYears(years);
+        long historyDays = today.toEpochDay() - historyStart.toEpochDay();
+
+        DetachedRental[] rentals = new DetachedRental[rentalCount];
+        IntStream.range(0, rentalCount).parallel().forEach(r -> {
+            SplittableRandom random = random(RENTAL_STREAM, r);
+
+            // Heavy users and popular items get most rentals
+            Member member = members[skewedIndex(random, members.length)];
+            Item item = items[skewedIndex(random, items.length)];
+
+            // Most rentals are a few days, every tenth is by the hour
+            RentalPeriod period = random.nextInt(10) == 0 ? RentalPeriod.HOURLY : RentalPeriod.DAILY;
+            int duration = period == RentalPeriod.HOURLY ? 1 + random.nextInt(8) : 1 + skewedIndex(random, 14);
+
+            // Later sequence numbers start later, so the history reads in date order
+            LocalDate start = historyStart.plusDays(r * historyDays / rentalCount);
+            LocalDate expected = period == RentalPeriod.HOURLY ? start : start.plusDays(duration);
+            long cost = PricingFactory.getPricing(member.getMembershipLevel()).calculatePrice(item, member, duration, period);
+
+            DetachedRental rental = new DetachedRental(firstSequence + r, member.getId(), ItemIdGenerator.toKey(item.getId()),
+                    start, expected, null, cost);
+
+            // Every tenth rental comes back a few days late
+            LocalDate end = random.nextInt(10) == 0 ? expected.plusDays(1 + random.nextInt(5)) : expected;
+            if (end.isBefore(today)) {
+                rental.complete(end);
+            }
+            rentals[r] = rental;
+        });
+        return rentals;
+    }
+
+    /**
+     * Adds rentals in sequence order: finished ones to the archive, the rest as active rentals.
+     * A rental that would still be out on an item that is already rented is returned today instead.
+     */
+    private static void loadRentals(ClubSystem system, DetachedRental[] rentals) {
+        RentalService rentalService = system.getRentalService();
+        Inventory inventory = system.getInventory();
+        MemberRegistry registry = system.getMemberRegistry();
+
+        for (DetachedRental rental : rentals) {
+            if (rental.isActive() && inventory.getItem(rental.getItemKey()).getStatus() == ItemStatus.AVAILABLE) {
+                rentalService.restoreRental(rental);
+                continue;
+            }
+
+            // Archive the rental and add it to the member history
+            if (rental.isActive()) {
+                rental.complete(LocalDate.now());
+            }
+            rentalService.loadRental(rental);
+            registry.getMember(rental.getMemberId()).addRental(rental.getSequence());
+        }
+
+        // Keep new rental IDs after the generated ones
+        long next = rentals[rentals.length - 1].getSequence() + 1;
+        rentalService.setRentalCounter(Math.max(rentalService.getRentalCounter(), next));
+    }
+
+    /**
+     * Creates one item of the given type with random attributes.
+     */
+    private static Item createItem(ItemType type, String id, SplittableRandom random) {
+        int year = 2015 + random.nextInt(11);
+        Color color = pick(random, Color.values());
+        String brand = pick(random, BRANDS);
+
+        return switch (type) {
+            case BACKPACK -> new Backpack(id, brand + " Pack " + id, price(random, 100, 300), price(random, 20, 60),
+                    year, color, Material.NYLON, 1 + random.nextDouble() * 2, brand,
+                    20 + random.nextInt(60), pick(random, BackpackType.values()));
+            case LANTERN -> new Lantern(id, brand + " Lykta " + id, price(random, 50, 120), price(random, 10, 25),
+                    year, color, Material.PLASTIC, 0.3 + random.nextDouble(), brand,
+                    100 + random.nextInt(900), pick(random, PowerSource.values()));
+            case SLEEPING_BAG -> new SleepingBag(id, brand + " Sovsäck " + id, price(random, 120, 250), price(random, 25, 50),
+                    year, color, Material.SYNTHETIC, 1 + random.nextDouble() * 1.5, brand,
+                    -20 + random.nextInt(30), pick(random, SeasonRating.values()));
+            case TENT -> new Tent(id, brand + " Tält " + id, price(random, 200, 650), price(random, 40, 130),
+                    year, color, Material.RIPSTOP_NYLON, 2 + random.nextDouble() * 6, brand,
+                    1 + random.nextInt(6), pick(random, SeasonRating.values()), pick(random, TentType.values()));
+            case TRANGIA_KITCHEN -> new TrangiaKitchen(id, brand + " Kök " + id, price(random, 100, 200), price(random, 20, 40),
+                    year, color, Material.ALUMINUM, 0.8 + random.nextDouble(), brand,
+                    1 + random.nextInt(2), pick(random, FuelType.values()));
+            case FISHING_BAIT -> new FishingBait(id, brand + " Bete " + id, price(random, 20, 60), price(random, 5, 15),
+                    year, color, Material.PLASTIC, 0.05 + random.nextDouble() * 0.2, brand,
+                    pick(random, BaitType.values()), 1 + random.nextInt(10));
+            case FISHING_NET -> new FishingNet(id, brand + " Håv " + id, price(random, 60, 200), price(random, 10, 40),
+                    year, color, Material.NYLON, 0.5 + random.nextDouble() * 1.5, brand,
+                    pick(random, NetSize.values()), 0.5 + random.nextDouble() * 2);
+            case FISHING_ROD -> new FishingRod(id, brand + " Spö " + id, price(random, 120, 300), price(random, 25, 60),
+                    year, color, Material.CARBON_FIBER, 0.2 + random.nextDouble() * 0.4, brand,
+                    0.8 + random.nextDouble() * 2.5, pick(random, RodType.values()));
+            case KAYAK -> new Kayak(id, brand + " Kajak " + id, price(random, 600, 1000), price(random, 120, 200),
+                    year, color, Material.PLASTIC, 20 + random.nextDouble() * 15, brand,
+                    1 + random.nextInt(2), 3 + random.nextDouble() * 2, 1 + random.nextInt(2), pick(random, KayakType.values()));
+            case MOTOR_BOAT -> new MotorBoat(id, brand + " Motorbåt " + id, price(random, 1500, 2500), price(random, 300, 500),
+                    year, color, Material.FIBERGLASS, 500 + random.nextDouble() * 500, brand,
+                    4 + random.nextInt(5), 5 + random.nextDouble() * 3, random.nextBoolean(),
+                    20 + random.nextDouble() * 20, 50 + random.nextInt(200), FuelType.GASOLINE);
+            case ELECTRIC_BOAT -> new ElectricBoat(id, brand + " Elbåt " + id, price(random, 1000, 1500), price(random, 200, 300),
+                    year, color, Material.FIBERGLASS, 300 + random.nextDouble() * 300, brand,
+                    2 + random.nextInt(5), 4 + random.nextDouble() * 2, random.nextBoolean(),
+                    6 + random.nextDouble() * 6, 20 + random.nextDouble() * 60, 4 + random.nextInt(6));
+            case ROW_BOAT -> new RowBoat(id, brand + " Roddbåt " + id, price(random, 250, 450), price(random, 50, 90),
+                    year, color, Material.WOOD, 80 + random.nextDouble() * 80, brand,
+                    2 + random.nextInt(3), 3.5 + random.nextDouble() * 1.5, random.nextBoolean(),
+                    4 + random.nextDouble() * 2, 2);
+        };
+    }
+
+    /**
+     * Returns the random stream for one object, derived from the seed, the stream and the index.
+     */
+    private SplittableRandom random(long stream, int index) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + (stream << 40) + index);
+    }
+
+    /**
+     * Picks an item type according to TYPE_WEIGHTS.
+     */
+    private static ItemType pickType(SplittableRandom random) {
+        int total = 0;
+        for (int weight : TYPE_WEIGHTS) {
+            total += weight;
+        }
+
+        int roll = random.nextInt(total);
+        for (int type = 0; type < TYPE_WEIGHTS.length; type++) {
+            roll -= TYPE_WEIGHTS[type];
+            if (roll < 0) {
+                return ItemType.values()[type];
+            }
+        }
+        return ItemType.values()[TYPE_WEIGHTS.length - 1];
+    }
+
+    /**
+     * Picks a membership level according to LEVEL_PERCENT.
+     */
+    private static MembershipLevel pickLevel(SplittableRandom random) {
+        int roll = random.nextInt(100);
+        if (roll < LEVEL_PERCENT[0]) {
+            return MembershipLevel.STANDARD;
+        }
+        if (roll < LEVEL_PERCENT[0] + LEVEL_PERCENT[1]) {
+            return MembershipLevel.STUDENT;
+        }
+        return MembershipLevel.PREMIUM;
+    }
+
+    /**
+     * Picks an index below bound where low indexes are much more likely than high ones.
+     * Squaring a uniform number gives the first percent of indexes about a tenth of all picks.
+     */
+    private static int skewedIndex(SplittableRandom random, int bound) {
+        double u = random.nextDouble();
+        return Math.min(bound - 1, (int) (u * u * bound));
+    }
+
+    /**
+     * Picks a random element of an array.
+     */
+    private static <T> T pick(SplittableRandom random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Returns a price between min and max, rounded to whole kronor.
+     */
+    private static double price(SplittableRandom random, int min, int max) {
+        return min + random.nextInt(max - min + 1);
+    }
+}
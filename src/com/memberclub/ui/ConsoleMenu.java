@@ -5,6 +5,7 @@ import com.memberclub.model.User;
 import com.memberclub.ui.validation.InputValidator;
 import java.util.Scanner;
 import java.io.InputStreamReader;
+import java.time.LocalDate;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -272,6 +273,7 @@ public class ConsoleMenu {
         System.out.println("[4] Hantera medlemmar");
         System.out.println("[5] Visa alla artiklar");
         System.out.println("[6] Kassavy");
+        System.out.println("[7] Försenade uthyrningar (" + system.getRentalService().getOverdueRentalCount(LocalDate.now()) + " st)");
         System.out.println();
         System.out.println("[0] Logga ut");
         System.out.println();
@@ -311,7 +313,7 @@ public class ConsoleMenu {
             while (loggedIn) {
                 printMainMenu();
 
-                int choice = InputValidator.getIntInRange(scanner, 0, 6, "Välj alternativ: ");
+                int choice = InputValidator.getIntInRange(scanner, 0, 7, "Välj alternativ: ");
 
                 // Handle menu navigation - delegates to view classes
                 switch (choice) {
@@ -321,6 +323,7 @@ public class ConsoleMenu {
                     case 4 -> memberView.manageMembers();
                     case 5 -> itemView.viewAllItems();
                     case 6 -> rentalView.showRevenue();
+                    case 7 -> rentalView.viewOverdueRentals();
                     case 0 -> loggedIn = false;
                 }
             }
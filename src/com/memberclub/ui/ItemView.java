@@ -1,13 +1,11 @@
 package com.memberclub.ui;
 
 import com.memberclub.model.Item;
+import com.memberclub.model.Money;
+import com.memberclub.model.enums.ItemCategory;
 import com.memberclub.model.enums.ItemStatus;
-import com.memberclub.model.camping.CampingEquipment;
-import com.memberclub.model.fishing.FishingEquipment;
-import com.memberclub.model.vehicles.WaterVehicle;
 import com.memberclub.system.ClubSystem;
 import com.memberclub.ui.components.ItemSelector;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
@@ -41,24 +39,10 @@ public class ItemView {
         helper.clearScreen();
         helper.printHeader("       ALLA TILLGÄNGLIGA ARTIKLAR");
 
-        // Get all items from inventory
-        List<Item> allItems = system.getInventory().getAllItems();
-
-        // Separate items by category
-        List<Item> campingItems = new ArrayList<>();
-        List<Item> fishingItems = new ArrayList<>();
-        List<Item> vehicleItems = new ArrayList<>();
-
-        // Loop through all items and categorize them
-        for (Item item : allItems) {
-            if (item instanceof CampingEquipment) {
-                campingItems.add(item);
-            } else if (item instanceof FishingEquipment) {
-                fishingItems.add(item);
-            } else if (item instanceof WaterVehicle) {
-                vehicleItems.add(item);
-            }
-        }
+        // Get items per category from the inventory index
+        List<Item> campingItems = system.getInventory().getItemsByCategory(ItemCategory.CAMPING);
+        List<Item> fishingItems = system.getInventory().getItemsByCategory(ItemCategory.FISHING);
+        List<Item> vehicleItems = system.getInventory().getItemsByCategory(ItemCategory.WATER_VEHICLE);
 
         // Display Camping Equipment section
         helper.printDivider();
@@ -126,7 +110,7 @@ public class ItemView {
      */
     private void displayItemInfo(Item item) {
         System.out.println(formatItemShort(item));
-        System.out.printf("Pris: %.2f kr/timme | %.2f kr/dag%n", item.getPricePerHour(), item.getPricePerDay());
+        System.out.println("Pris: " + Money.format(item.getPricePerHourInOre()) + " kr/timme | " + Money.format(item.getPricePerDayInOre()) + " kr/dag");
         System.out.println("Status: " + translateStatus(item.getStatus()));
         System.out.println();
     }
@@ -140,6 +124,7 @@ public class ItemView {
             case AVAILABLE -> "TILLGÄNGLIG";
             case RENTED -> "UTHYRD";
             case BROKEN -> "TRASIG";
+            case HELD -> "RESERVERAD";
         };
     }
 }
\ No newline at end of file
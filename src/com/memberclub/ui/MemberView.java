@@ -1,6 +1,7 @@
 package com.memberclub.ui;
 
 import com.memberclub.model.Member;
+import com.memberclub.model.Money;
 import com.memberclub.model.enums.MembershipLevel;
 import com.memberclub.model.Rental;
 import com.memberclub.model.enums.RentalStatus;
@@ -9,7 +10,6 @@ import com.memberclub.system.ClubSystem;
 import com.memberclub.ui.components.ItemSelector;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
@@ -485,11 +485,11 @@ public class MemberView {
         helper.clearScreen();
         helper.printHeader("   HISTORIK: " + member.getName());
 
-        // Get member's rental IDs
-        List<String> rentalIds = member.getRentalHistory();
+        // Get member's rentals, active and finished
+        List<Rental> history = system.getRentalService().getRentalHistory(member.getId());
 
         // Check if member has no rental history
-        if (rentalIds.isEmpty()) {
+        if (history.isEmpty()) {
             System.out.println("Denna medlem har ingen uthyrningshistorik.");
             System.out.println();
             System.out.println(UIHelper.GREEN + "=====================================" + UIHelper.RESET);
@@ -497,17 +497,6 @@ public class MemberView {
             return;
         }
 
-        // Get actual Rental objects from RentalService
-        List<Rental> history = new ArrayList<>();
-        for (String rentalId : rentalIds) {
-            Rental rental = system.getRentalService().getRental(rentalId);
-
-            // Add to history if found
-            if (rental != null) {
-                history.add(rental);
-            }
-        }
-
         System.out.println("Totalt antal uthyrningar: " + history.size());
         System.out.println();
 
@@ -519,7 +508,7 @@ public class MemberView {
 
         System.out.println("Returnerat i tid: " + onTimeReturns + " st");
         System.out.println("Försenade returer: " + delayedReturns + " st");
-        System.out.println("Aktiva uthyrningar: " + history.stream().filter(Rental::isActive).count() + " st");
+        System.out.println("Aktiva uthyrningar: " + system.getRentalService().getActiveRentalCount(member.getId()) + " st");
         System.out.println();
         helper.printDivider();
 
@@ -530,7 +519,7 @@ public class MemberView {
             Rental rental = history.get(i);
 
             // Get item from inventory
-            Item item = system.getInventory().getItem(rental.getItemId());
+            Item item = system.getInventory().getItem(rental.getItemKey());
             String itemName = (item != null) ? item.getName() : "Okänd artikel";
 
             System.out.println();
@@ -578,7 +567,12 @@ public class MemberView {
             }
 
             // Display rental cost
-            System.out.println("Kostnad: " + String.format("%.2f", rental.getTotalCost()) + " kr");
+            System.out.println("Kostnad: " + Money.format(rental.getTotalCostInOre()) + " kr");
+
+            // Display the late fee stored on the rental
+            if (rental.getLateFeeInOre() > 0) {
+                System.out.println("Förseningsavgift: " + Money.format(rental.getLateFeeInOre()) + " kr");
+            }
 
             // Add divider between rentals
             if (i < history.size() - 1) {
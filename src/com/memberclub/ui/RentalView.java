@@ -1,11 +1,16 @@
 package com.memberclub.ui;
 
 import com.memberclub.model.*;
+import com.memberclub.model.enums.MembershipLevel;
 import com.memberclub.model.enums.RentalPeriod;
+import com.memberclub.model.enums.RevenueSource;
 import com.memberclub.system.ClubSystem;
+import com.memberclub.system.ItemIdGenerator;
 import com.memberclub.ui.components.*;
 import com.memberclub.ui.validation.InputValidator;
 import com.memberclub.service.RevenueService;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -43,7 +48,7 @@ public class RentalView {
         this.itemSelector = new ItemSelector(scanner, system, helper);
         this.memberSelector = new MemberSelector(scanner, system, helper);
         this.receiptGenerator = new ReceiptGenerator(helper, scanner);
-        this.returnHandler = new ReturnHandler(scanner, system, helper, receiptGenerator, revenueService);
+        this.returnHandler = new ReturnHandler(scanner, system, helper, receiptGenerator, system.getLateFeeService());
     }
 
     /**
@@ -60,7 +65,7 @@ public class RentalView {
         }
 
         // Create shopping cart
-        ShoppingCart cart = new ShoppingCart(scanner, helper);
+        ShoppingCart cart = new ShoppingCart(scanner, helper, system.getHoldService(), system.getInventory().getPriceTable());
 
         // Shopping loop, continues until checkout or cancel
         boolean continueShopping = true;
@@ -90,7 +95,8 @@ public class RentalView {
             switch (mainChoice) {
                 case 0 -> {
 
-                    // Cancel and exit
+                    // Cancel, give the held items back and exit
+                    cart.release();
                     return;
                 }
                 case 1 -> {
@@ -106,11 +112,14 @@ public class RentalView {
                             System.out.println();
                             System.out.println("Denna artikel finns redan i kundvagnen!");
                             helper.pressEnterToContinue();
-                        } else {
-                            cart.addCartItem(cartItem);
+                        } else if (cart.addCartItem(cartItem)) {
                             System.out.println();
                             System.out.println("Artikel tillagd i kundvagnen!");
                             helper.pressEnterToContinue();
+                        } else {
+                            System.out.println();
+                            System.out.println("Artikeln har precis hyrts ut eller reserverats vid en annan kassa!");
+                            helper.pressEnterToContinue();
                         }
                     }
                 }
@@ -137,13 +146,24 @@ public class RentalView {
                         }
                     }
 
-                    cart.addAll(itemsToAdd);
+                    List<CartItem> added = cart.addAll(itemsToAdd);
 
                     helper.clearScreen();
 
                     // Show success message if any items were added
-                    if (!itemsToAdd.isEmpty()) {
-                        System.out.println(itemsToAdd.size() + " artiklar tillagda i kundvagnen!");
+                    if (!added.isEmpty()) {
+                        System.out.println(added.size() + " artiklar tillagda i kundvagnen!");
+                    }
+
+                    // Show warning message if any items were taken by another counter
+                    if (added.size() < itemsToAdd.size()) {
+                        System.out.println();
+                        System.out.println("Följande artiklar har precis hyrts ut eller reserverats vid en annan kassa:");
+                        for (CartItem item : itemsToAdd) {
+                            if (!added.contains(item)) {
+                                System.out.println("- " + item.getItem().getName());
+                            }
+                        }
                     }
 
                     // Show warning message if any items were skipped
@@ -208,11 +228,21 @@ public class RentalView {
         // Let user select rental duration
         int duration = itemSelector.selectDuration(period);
 
-        // Calculate base price
-        double basePrice = (period == RentalPeriod.HOURLY) ? selectedItem.getPricePerHour() * duration : selectedItem.getPricePerDay() * duration;
+        // Return new cart item with its base price
+        return createCartItem(selectedItem, duration, period);
+    }
 
-        // Return new cart item
-        return new CartItem(selectedItem, duration, period, basePrice);
+    /**
+     * Creates a cart item priced at the standard level from the price table.
+     * @param item the item to rent
+     * @param duration number of hours or days
+     * @param period HOURLY or DAILY
+     * @return the cart item with its base price
+     */
+    private CartItem createCartItem(Item item, int duration, RentalPeriod period) {
+        int key = ItemIdGenerator.toKey(item.getId());
+        long basePrice = system.getInventory().getPriceTable().quote(key, MembershipLevel.STANDARD, duration, period);
+        return new CartItem(item, duration, period, basePrice);
     }
 
     /**
@@ -274,11 +304,8 @@ public class RentalView {
             // Create cart items for all selected items with same period
             for (Item selectedItem : selectedItems) {
 
-                // Calculate base price
-                double basePrice = (period == RentalPeriod.HOURLY) ? selectedItem.getPricePerHour() * duration : selectedItem.getPricePerDay() * duration;
-
-                // Add to items list
-                items.add(new CartItem(selectedItem, duration, period, basePrice));
+                // Add to items list with its base price
+                items.add(createCartItem(selectedItem, duration, period));
             }
         } else {
 
@@ -297,11 +324,8 @@ public class RentalView {
                 // Get rental duration for this item
                 int duration = itemSelector.selectDuration(period);
 
-                // Calculate base price
-                double basePrice = (period == RentalPeriod.HOURLY) ? selectedItem.getPricePerHour() * duration : selectedItem.getPricePerDay() * duration;
-
-                // Add to items list
-                items.add(new CartItem(selectedItem, duration, period, basePrice));
+                // Add to items list with its base price
+                items.add(createCartItem(selectedItem, duration, period));
             }
         }
         return items;
@@ -323,34 +347,22 @@ public class RentalView {
         System.out.println();
 
         // Get total before discount
-        double totalBeforeDiscount = cart.getTotalBeforeDiscount();
+        long totalBeforeDiscount = cart.getTotalBeforeDiscountInOre();
 
         // Display each cart item
         for (CartItem cartItem : cart.getItems()) {
             System.out.print(ItemView.formatItemShort(cartItem.getItem()));
             System.out.print(" - " + cartItem.getDuration() + " ");
             System.out.print(cartItem.getPeriod() == RentalPeriod.HOURLY ? (cartItem.getDuration() == 1 ? "timme" : "timmar") : (cartItem.getDuration() == 1 ? "dag" : "dagar"));
-            System.out.printf(" (%.2f kr)%n", cartItem.getPrice());
+            System.out.println(" (" + Money.format(cartItem.getPriceInOre()) + " kr)");
         }
 
         System.out.println();
 
-        // Calculate pricing breakdown
-        double discount = getDiscount(member);
-        double discountAmount = totalBeforeDiscount * discount;
-        double totalAfterDiscount = totalBeforeDiscount - discountAmount;
-
+        // Quote the whole cart at the member's level, the same prices the rentals get
         helper.printDivider();
         System.out.println();
-        System.out.printf("Summa: %.2f kr%n", totalBeforeDiscount);
-
-        // Display discount if applicable
-        if (discount > 0) {
-            System.out.printf("Din rabatt (%d%%): -%.2f kr%n", (int)(discount * 100), discountAmount);
-        }
-
-        System.out.println();
-        System.out.printf("ATT BETALA: %.2f kr%n", totalAfterDiscount);
+        helper.printPriceSummary(totalBeforeDiscount, system.getInventory().getPriceTable().quote(cart.getItems(), member.getMembershipLevel()), "ATT BETALA");
         System.out.println();
         System.out.println(UIHelper.GREEN + "=====================================" + UIHelper.RESET);
         System.out.println();
@@ -358,40 +370,34 @@ public class RentalView {
         // Get user confirmation
         boolean confirmed = InputValidator.getYesNoConfirmation(scanner, "Vill du genomföra beställningen? (Ja/Nej): ");
 
-        // Check if user cancelled
+        // Check if user cancelled, the cart is left so its items are given back
         if (!confirmed) {
+            cart.release();
             helper.clearScreen();
             System.out.println("Beställning avbruten.");
             helper.pressEnterToContinue();
             return;
         }
 
-        // Create rentals
-        List<Rental> createdRentals = new ArrayList<>();
+        // Create all rentals at once, either every item is rented or none, and give back anything still held
+        List<Rental> createdRentals = system.getRentalService().rentItems(member.getId(), cart.getItems(), cart.getHold());
+        cart.release();
 
-        // Process each cart item
-        for (CartItem cartItem : cart.getItems()) {
-
-            // Create rental in system
-            Rental rental = system.getRentalService().rentItem(member.getId(), cartItem.getItem().getId(), cartItem.getDuration(), cartItem.getPeriod());
-
-            // Add to created rentals if successful
-            if (rental != null) {
-                createdRentals.add(rental);
-            }
-        }
-
-        // Check if any rentals were created successfully
+        // Check if the rentals were created successfully
         if (!createdRentals.isEmpty()) {
 
-            // Add revenue
-            revenueService.addRevenue(totalAfterDiscount);
+            // Add revenue, exactly what the rentals were charged
+            long charged = 0;
+            for (Rental rental : createdRentals) {
+                charged += rental.getTotalCostInOre();
+            }
+            revenueService.addRevenueInOre(RevenueSource.RENTAL_FEE, charged);
 
             // Display receipt
-            receiptGenerator.displayRentalReceipt(cart.getItems(), member, totalBeforeDiscount);
+            receiptGenerator.displayRentalReceipt(cart.getItems(), member, totalBeforeDiscount, charged);
         } else {
             System.out.println();
-            System.out.println("Något gick fel vid skapandet av uthyrningar.");
+            System.out.println("Någon artikel i varukorgen är inte längre tillgänglig. Inga uthyrningar skapades.");
             helper.pressEnterToContinue();
         }
     }
@@ -452,7 +458,7 @@ public class RentalView {
             for (Rental rental : activeRentals) {
 
                 // Get item and member from rental
-                Item item = system.getInventory().getItem(rental.getItemId());
+                Item item = system.getInventory().getItem(rental.getItemKey());
                 Member member = system.getMemberRegistry().getMember(rental.getMemberId());
 
                 // Display rental information
@@ -460,7 +466,7 @@ public class RentalView {
                 System.out.println(ItemView.formatItemFull(item));
                 System.out.println("Medlem: " + MemberView.formatMemberFull(member));
                 System.out.println("Hyrd från: " + rental.getStartDate());
-                System.out.printf("Pris: %.2f kr%n", rental.getTotalCost());
+                System.out.println("Pris: " + Money.format(rental.getTotalCostInOre()) + " kr");
             }
         }
 
@@ -482,7 +488,7 @@ public class RentalView {
             for (Rental rental : completedRentals) {
 
                 // Get item and member from rental
-                Item item = system.getInventory().getItem(rental.getItemId());
+                Item item = system.getInventory().getItem(rental.getItemKey());
                 Member member = system.getMemberRegistry().getMember(rental.getMemberId());
 
                 // Display rental information
@@ -490,7 +496,7 @@ public class RentalView {
                 System.out.println(ItemView.formatItemFull(item));
                 System.out.println("Medlem: " + MemberView.formatMemberFull(member));
                 System.out.println("Period: " + rental.getStartDate() + " - " + rental.getEndDate());
-                System.out.printf("Betalt: %.2f kr%n", rental.getTotalCost());
+                System.out.println("Betalt: " + Money.format(rental.getTotalCostInOre()) + " kr");
             }
         }
         System.out.println();
@@ -505,13 +511,10 @@ public class RentalView {
         helper.clearScreen();
         helper.printHeader("              KASSAVY");
 
-        // Get all rentals
-        List<Rental> allRentals = system.getRentalService().getAllRentals();
-        int totalRentals = allRentals.size();
-
-        // Count active and completed rentals
-        long activeCount = allRentals.stream().filter(r -> r.getEndDate() == null).count();
-        long completedCount = allRentals.stream().filter(r -> r.getEndDate() != null).count();
+        // Count active and completed rentals straight from the rental store and archive
+        int activeCount = system.getRentalService().getActiveRentalCount();
+        int completedCount = system.getRentalService().getArchivedRentalCount();
+        int totalRentals = activeCount + completedCount;
 
         // Display statistics
         System.out.println("Statistik:");
@@ -522,25 +525,57 @@ public class RentalView {
         helper.printDivider();
         System.out.println();
 
+        // Read all revenue sources at once so the total matches the parts
+        RevenueSummary revenue = revenueService.getSummary();
+        System.out.println("Hyresintäkter: " + Money.format(revenue.getRentalFeesInOre()) + " kr");
+        System.out.println("Förseningsavgifter: " + Money.format(revenue.getLateFeesInOre()) + " kr");
+        System.out.println();
+
         // Display total revenue
-        System.out.printf("TOTALA INTÄKTER: %.2f kr%n", revenueService.getTotalRevenue());
+        System.out.println("TOTALA INTÄKTER: " + Money.format(revenue.getTotalInOre()) + " kr");
         System.out.println();
         System.out.println(UIHelper.GREEN + "=====================================" + UIHelper.RESET);
         helper.pressEnterToContinue();
     }
 
     /**
-     * Get discount based on membership level.
-     * @param member the member
-     * @return discount as decimal
+     * Menu option 7: View overdue rentals, the longest overdue first.
      */
-    private double getDiscount(Member member) {
-
-        // Return discount based on membership level
-        return switch (member.getMembershipLevel()) {
-            case STANDARD -> 0.0;
-            case STUDENT -> 0.20;
-            case PREMIUM -> 0.30;
-        };
+    public void viewOverdueRentals() {
+        helper.clearScreen();
+        helper.printHeader("     FÖRSENADE UTHYRNINGAR");
+
+        // Read only the overdue part of the due date index
+        LocalDate today = LocalDate.now();
+        List<Rental> overdueRentals = system.getRentalService().getOverdueRentals(today);
+
+        // Check if any rentals are overdue
+        if (overdueRentals.isEmpty()) {
+            System.out.println("Inga försenade uthyrningar finns!");
+            helper.pressEnterToContinue();
+            return;
+        }
+
+        System.out.println("Försenade uthyrningar: " + overdueRentals.size() + " st");
+
+        // Display each overdue rental
+        for (Rental rental : overdueRentals) {
+
+            // Get item and member from rental
+            Item item = system.getInventory().getItem(rental.getItemKey());
+            Member member = system.getMemberRegistry().getMember(rental.getMemberId());
+            long daysLate = ChronoUnit.DAYS.between(rental.getExpectedReturnDate(), today);
+
+            // Display rental information
+            System.out.println();
+            System.out.println(ItemView.formatItemFull(item));
+            System.out.println("Medlem: " + MemberView.formatMemberFull(member));
+            System.out.println("Förväntad retur: " + rental.getExpectedReturnDate());
+            System.out.println("Försenad: " + daysLate + " dag" + (daysLate > 1 ? "ar" : ""));
+            System.out.println("Upplupen förseningsavgift: " + Money.format(rental.getLateFeeInOre()) + " kr");
+        }
+        System.out.println();
+        System.out.println(UIHelper.GREEN + "=====================================" + UIHelper.RESET);
+        helper.pressEnterToContinue();
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.memberclub.ui;
 
+import com.memberclub.model.Money;
 import java.io.IOException;
 import java.util.Scanner;
 import java.io.BufferedReader;
@@ -121,4 +122,33 @@ public class UIHelper {
     public void printDivider() {
         System.out.println(GREEN + "-------------------------------------" + RESET);
     }
+
+    /**
+     * Prints the sum of the item prices, the difference to the total and the total.
+     * The difference is taken from the total the price table quoted or the rentals were
+     * charged, so every screen shows the amount that is booked.
+     * @param totalBeforeDiscount sum of the item prices in öre
+     * @param total the total in öre, negative if an item has no price
+     * @param totalLabel the label of the total line
+     */
+    public void printPriceSummary(long totalBeforeDiscount, long total, String totalLabel) {
+        System.out.println("Summa: " + Money.format(totalBeforeDiscount) + " kr");
+
+        // An item that was removed from the inventory has no price
+        if (total < 0) {
+            System.out.println();
+            System.out.println(totalLabel + ": pris saknas för någon artikel");
+            return;
+        }
+
+        // The member's discount and the pricing rules can lower or raise the price
+        long difference = totalBeforeDiscount - total;
+        if (difference > 0) {
+            System.out.println("Rabatt: -" + Money.format(difference) + " kr");
+        } else if (difference < 0) {
+            System.out.println("Pristillägg: +" + Money.format(-difference) + " kr");
+        }
+        System.out.println();
+        System.out.println(totalLabel + ": " + Money.format(total) + " kr");
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.memberclub.ui.components;
 
 import com.memberclub.model.*;
 import com.memberclub.model.camping.*;
+import com.memberclub.model.enums.ItemCategory;
 import com.memberclub.model.enums.ItemStatus;
 import com.memberclub.model.enums.RentalPeriod;
 import com.memberclub.model.fishing.*;
@@ -209,40 +210,21 @@ public class ItemSelector {
      */
     public List<Item> getAvailableItemsByCategory(int categoryChoice) {
 
-        // Get all items from inventory
-        List<Item> allItems = system.getInventory().getAllItems();
-
-        // Initialize list for filtered items
-        List<Item> availableItems = new ArrayList<>();
-
-        // Filter items by availability and category
-        for (Item item : allItems) {
-
-            // Skip if item is not available
-            if (item.getStatus() != ItemStatus.AVAILABLE) {
-                continue;
-            }
-
-            // Add item if it matches selected category
-            switch (categoryChoice) {
-                case 1 -> {
-                    if (item instanceof CampingEquipment) {
-                        availableItems.add(item);
-                    }
-                }
-                case 2 -> {
-                    if (item instanceof FishingEquipment) {
-                        availableItems.add(item);
-                    }
-                }
-                case 3 -> {
-                    if (item instanceof WaterVehicle) {
-                        availableItems.add(item);
-                    }
-                }
-            }
+        // Map the menu choice to a category
+        ItemCategory category = switch (categoryChoice) {
+            case 1 -> ItemCategory.CAMPING;
+            case 2 -> ItemCategory.FISHING;
+            case 3 -> ItemCategory.WATER_VEHICLE;
+            default -> null;
+        };
+
+        // Unknown choices have no items
+        if (category == null) {
+            return new ArrayList<>();
         }
-        return availableItems;
+
+        // Look up the available items directly in the inventory index
+        return system.getInventory().getItemsByCategory(category, ItemStatus.AVAILABLE);
     }
 
     /**
@@ -262,7 +244,7 @@ public class ItemSelector {
             displayItemDetails(item);
 
             // Display pricing
-            System.out.printf("Pris: %.2f kr/timme | %.2f kr/dag%n", item.getPricePerHour(), item.getPricePerDay());
+            System.out.println("Pris: " + Money.format(item.getPricePerHourInOre()) + " kr/timme | " + Money.format(item.getPricePerDayInOre()) + " kr/dag");
             System.out.println();
         }
     }
@@ -7,6 +7,7 @@ import com.memberclub.ui.MemberView;
 import com.memberclub.ui.UIHelper;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Scanner;
 
@@ -33,9 +34,10 @@ public class ReceiptGenerator {
      * Displays a receipt after successful rental checkout.
      * @param cart the shopping cart items
      * @param member the member
-     * @param totalBeforeDiscount total price before discount
+     * @param totalBeforeDiscount total price before discount in öre
+     * @param chargedInOre the sum the created rentals were charged, in öre
      */
-    public void displayRentalReceipt(List<CartItem> cart, Member member, double totalBeforeDiscount) {
+    public void displayRentalReceipt(List<CartItem> cart, Member member, long totalBeforeDiscount, long chargedInOre) {
         helper.clearScreen();
         helper.printHeader("         ORDERBEKRÄFTELSE");
         System.out.println("Medlem: " + MemberView.formatMemberFull(member));
@@ -71,22 +73,14 @@ public class ReceiptGenerator {
             }
 
             // Display item price
-            System.out.printf("Pris: %.2f kr%n", cartItem.getPrice());
+            System.out.println("Pris: " + Money.format(cartItem.getPriceInOre()) + " kr");
             System.out.println();
         }
 
-        // Calculate and display pricing breakdown
-        double discount = getDiscount(member);
-        double discountAmount = totalBeforeDiscount * discount;
-        double totalAfterDiscount = totalBeforeDiscount - discountAmount;
-
-        // Display pricing summary
+        // Display pricing summary, the total is what the rentals were charged
         helper.printDivider();
         System.out.println();
-        System.out.printf("Totalt (före rabatt): %.2f kr%n", totalBeforeDiscount);
-        System.out.printf("Rabatt (%d%%): -%.2f kr%n", (int)(discount * 100), discountAmount);
-        System.out.println();
-        System.out.printf("TOTALT ATT BETALA: %.2f kr%n", totalAfterDiscount);
+        helper.printPriceSummary(totalBeforeDiscount, chargedInOre, "TOTALT ATT BETALA");
         System.out.println();
         System.out.println(UIHelper.GREEN + "=====================================" + UIHelper.RESET);
         helper.pressEnterToContinue();
@@ -154,12 +148,12 @@ public class ReceiptGenerator {
 
     /**
      * Displays a return receipt for a single item.
-     * @param rental the rental being returned
+     * The late fee is the one the LateFeeService settled and stored on the rental.
+     * @param rental the returned rental
      * @param item the item being returned
      * @param member the member returning the item
-     * @return the late fee amount (0 if on time)
      */
-    public double displaySingleReturnReceipt(Rental rental, Item item, Member member) {
+    public void displaySingleReturnReceipt(Rental rental, Item item, Member member) {
         helper.clearScreen();
         helper.printHeader("        ARTIKEL RETURNERAD");
         System.out.println(ItemView.formatItemFull(item));
@@ -177,32 +171,36 @@ public class ReceiptGenerator {
         helper.printDivider();
 
         // Display original rental cost
-        double originalCost = rental.getTotalCost();
-        System.out.printf("Betalt pris: %.2f kr%n", originalCost);
-
-        // Calculate late fee
-        double lateFee = calculateLateFee(rental, item, member, actualReturnDate);
+        System.out.println("Betalt pris: " + Money.format(rental.getTotalCostInOre()) + " kr");
 
         // Display late fee if applicable
+        long lateFee = rental.getLateFeeInOre();
         if (lateFee > 0) {
+            long expectedDays = rental.getStartDate().until(rental.getExpectedReturnDate(), ChronoUnit.DAYS);
+            long overdueDays = rental.getOverdueDays(rental.getEndDate());
+
             System.out.println();
-            System.out.printf("TOTALT ATT BETALA: %.2f kr%n", lateFee);
+            System.out.println("FÖRSENAD RETUR");
+            System.out.println("Förväntad retur: Efter " + expectedDays + " dagar");
+            System.out.println("Faktisk retur: Efter " + (expectedDays + overdueDays) + " dagar");
+            System.out.println("Försenad: " + overdueDays + " dagar");
+            System.out.println("Senavgift: " + Money.format(lateFee) + " kr");
+            System.out.println();
+            System.out.println("TOTALT ATT BETALA: " + Money.format(lateFee) + " kr");
         }
 
         System.out.println();
         System.out.println(UIHelper.GREEN + "=====================================" + UIHelper.RESET);
         helper.pressEnterToContinue();
-
-        return lateFee;
     }
 
     /**
      * Displays a bulk return receipt for multiple items.
      * @param returnedItems list of item descriptions
-     * @param totalLateFees total late fees across all returns
+     * @param totalLateFees total late fees across all returns in öre
      * @param successCount number of successfully returned items
      */
-    public void displayBulkReturnReceipt(List<String> returnedItems, double totalLateFees, int successCount) {
+    public void displayBulkReturnReceipt(List<String> returnedItems, long totalLateFees, int successCount) {
         helper.clearScreen();
         helper.printHeader("    RETURSAMMANFATTNING");
         System.out.println("RETURNERADE ARTIKLAR (" + successCount + " st):");
@@ -219,7 +217,7 @@ public class ReceiptGenerator {
         // Display late fees or success message
         if (totalLateFees > 0) {
             System.out.println();
-            System.out.printf("TOTALA FÖRSENINGSAVGIFTER: %.2f kr%n", totalLateFees);
+            System.out.println("TOTALA FÖRSENINGSAVGIFTER: " + Money.format(totalLateFees) + " kr");
         } else {
             System.out.println();
             System.out.println("Alla artiklar returnerade i tid!");
@@ -231,127 +229,15 @@ public class ReceiptGenerator {
     }
 
     /**
-     * Calculates late fee for a returned rental.
-     * @param rental the rental
-     * @param item the item
-     * @param member the member
-     * @param actualReturnDate the actual return date
-     * @return late fee amount (0 if on time)
-     */
-    private double calculateLateFee(Rental rental, Item item, Member member, LocalDateTime actualReturnDate) {
-
-        // Get original rental cost and member discount
-        double originalCost = rental.getTotalCost();
-        double discount = getDiscount(member);
-
-        // Calculate days rented
-        LocalDateTime rentalStartDateTime = rental.getStartDate().atStartOfDay();
-        long daysRented = java.time.temporal.ChronoUnit.DAYS.between(rentalStartDateTime.toLocalDate(), actualReturnDate.toLocalDate());
-
-        // Estimate expected rental period
-        double pricePerDay = item.getPricePerDay() * (1 - discount);
-        long expectedDays = Math.round(originalCost / pricePerDay);
-
-        //Check if returnal date is overdue
-        if (daysRented > expectedDays) {
-
-            // Calculate late fee
-            long overdueDays = daysRented - expectedDays;
-            double lateFee = overdueDays * pricePerDay;
-
-            System.out.println();
-            System.out.println("FÖRSENAD RETUR");
-            System.out.println("Förväntad retur: Efter " + expectedDays + " dagar");
-            System.out.println("Faktisk retur: Efter " + daysRented + " dagar");
-            System.out.println("Försenad: " + overdueDays + " dagar");
-            System.out.printf("Senavgift: %.2f kr%n", lateFee);
-
-            return lateFee;
-        }
-
-        // No late fee if returned on time
-        return 0;
-    }
-
-    /**
-     * Calculates late fee info for bulk returns.
-     * @param rental the rental
-     * @param item the item
-     * @param member the member
+     * Formats the late fee line of a returned rental for the bulk receipt.
+     * @param rental the returned rental
      * @return formatted string with late fee info, or empty string if on time
      */
-    public String calculateBulkLateFeeInfo(Rental rental, Item item, Member member) {
-
-        // Get current time as return date
-        LocalDateTime actualReturnDate = LocalDateTime.now();
-
-        // Get original cost and member discount
-        double originalCost = rental.getTotalCost();
-        double discount = getDiscount(member);
-
-        // Calculate days rented
-        LocalDateTime rentalStartDateTime = rental.getStartDate().atStartOfDay();
-        long daysRented = java.time.temporal.ChronoUnit.DAYS.between(rentalStartDateTime.toLocalDate(), actualReturnDate.toLocalDate());
-
-        // Calculate expected days
-        double pricePerDay = item.getPricePerDay() * (1 - discount);
-        long expectedDays = Math.round(originalCost / pricePerDay);
-
-        // Return late fee info if overdue
-        if (daysRented > expectedDays) {
-            long overdueDays = daysRented - expectedDays;
-            double lateFee = overdueDays * pricePerDay;
-            return String.format("%n    Försenad %d dagar - Avgift: %.2f kr", overdueDays, lateFee);
-        }
-        return "";
-    }
-
-    /**
-     * Calculates late fee amount for bulk returns.
-     * @param rental the rental
-     * @param item the item
-     * @param member the member
-     * @return late fee amount
-     */
-    public double calculateBulkLateFeeAmount(Rental rental, Item item, Member member) {
-
-        // Get current time as return date
-        LocalDateTime actualReturnDate = LocalDateTime.now();
-
-        // Get original cost and member discount
-        double originalCost = rental.getTotalCost();
-        double discount = getDiscount(member);
-
-        // Calculate days rented
-        LocalDateTime rentalStartDateTime = rental.getStartDate().atStartOfDay();
-        long daysRented = java.time.temporal.ChronoUnit.DAYS.between(rentalStartDateTime.toLocalDate(), actualReturnDate.toLocalDate());
-
-        // Calculate expected rental period
-        double pricePerDay = item.getPricePerDay() * (1 - discount);
-        long expectedDays = Math.round(originalCost / pricePerDay);
-
-        // Calculate and return late fee if overdue
-        if (daysRented > expectedDays) {
-            long overdueDays = daysRented - expectedDays;
-            return overdueDays * pricePerDay;
+    public String formatBulkLateFeeInfo(Rental rental) {
+        long lateFee = rental.getLateFeeInOre();
+        if (lateFee == 0) {
+            return "";
         }
-
-        // No late fee if returned on time
-        return 0;
-    }
-
-    /**
-     * Get discount multiplier based on membership level.
-     * @param member the member
-     * @return discount as decimal (0.0 = 0%, 0.20 = 20%, 0.30 = 30%)
-     */
-    private double getDiscount(Member member) {
-
-        // Return discount based on membership level
-        return switch (member.getMembershipLevel()) {
-            case STANDARD -> 0.0;
-            case STUDENT -> 0.20;
-            case PREMIUM -> 0.30;
-        };
+        return String.format("%n    Försenad %d dagar - Avgift: %s kr", rental.getOverdueDays(rental.getEndDate()), Money.format(lateFee));
     }
-}
\ No newline at end of file
+}
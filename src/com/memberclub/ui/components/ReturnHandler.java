@@ -1,7 +1,7 @@
 package com.memberclub.ui.components;
 
 import com.memberclub.model.*;
-import com.memberclub.service.RevenueService;
+import com.memberclub.service.LateFeeService;
 import com.memberclub.system.ClubSystem;
 import com.memberclub.ui.ItemView;
 import com.memberclub.ui.MemberView;
@@ -20,7 +20,7 @@ public class ReturnHandler {
     private ClubSystem system;
     private UIHelper helper;
     private ReceiptGenerator receiptGenerator;
-    private RevenueService revenueService;
+    private LateFeeService lateFeeService;
 
     /**
      * Creates a new return handler.
@@ -28,14 +28,14 @@ public class ReturnHandler {
      * @param system the club system
      * @param helper the UI helper
      * @param receiptGenerator the receipt generator
-     * @param revenueService the revenue service
+     * @param lateFeeService the service that settles late fees on return
      */
-    public ReturnHandler(Scanner scanner, ClubSystem system, UIHelper helper, ReceiptGenerator receiptGenerator, RevenueService revenueService) {
+    public ReturnHandler(Scanner scanner, ClubSystem system, UIHelper helper, ReceiptGenerator receiptGenerator, LateFeeService lateFeeService) {
         this.scanner = scanner;
         this.system = system;
         this.helper = helper;
         this.receiptGenerator = receiptGenerator;
-        this.revenueService = revenueService;
+        this.lateFeeService = lateFeeService;
     }
 
     /**
@@ -74,7 +74,7 @@ public class ReturnHandler {
             }
             case 1 -> returnSingleItem(activeRentals);
             case 2 -> returnMultipleItems(activeRentals);
-            case 3 -> returnAllItems(activeRentals);
+            case 3 -> returnAllItems();
         }
     }
 
@@ -102,7 +102,7 @@ public class ReturnHandler {
 
         // Get selected rental
         Rental rental = activeRentals.get(choice - 1);
-        Item item = system.getInventory().getItem(rental.getItemId());
+        Item item = system.getInventory().getItem(rental.getItemKey());
 
         helper.clearScreen();
         helper.printHeader("       BEKRÄFTA RETURNERING");
@@ -190,7 +190,7 @@ public class ReturnHandler {
         // Display selected items
         for (int i = 0; i < toReturn.size(); i++) {
             Rental rental = toReturn.get(i);
-            Item item = system.getInventory().getItem(rental.getItemId());
+            Item item = system.getInventory().getItem(rental.getItemKey());
             System.out.println(ItemView.formatItemForList(i + 1, item));
         }
 
@@ -215,23 +215,31 @@ public class ReturnHandler {
 
     /**
      * Return all items after confirmation.
-     * @param activeRentals list of all active rentals
+     * Members and their rentals come from the rental service's per-member index,
+     * so this never scans the active rentals of the whole club.
      */
-    private void returnAllItems(List<Rental> activeRentals) {
+    private void returnAllItems() {
         helper.clearScreen();
         helper.printHeader("       RETURNERA ALLT");
 
-        // Group rentals by member
+        // Members that have items out right now
         List<Member> membersWithRentals = new ArrayList<>();
-        for (Rental rental : activeRentals) {
-            Member member = system.getMemberRegistry().getMember(rental.getMemberId());
+        for (int memberId : system.getRentalService().getMembersWithActiveRentals()) {
+            Member member = system.getMemberRegistry().getMember(memberId);
 
-            // Add member only if not already in list
-            if (!membersWithRentals.contains(member)) {
+            // Skip rentals of members that have been removed
+            if (member != null) {
                 membersWithRentals.add(member);
             }
         }
 
+        // Check if the members were removed or returned everything in the meantime
+        if (membersWithRentals.isEmpty()) {
+            System.out.println("Inga aktiva uthyrningar finns!");
+            helper.pressEnterToContinue();
+            return;
+        }
+
         Member selectedMember;
 
         // If only one member, select automatically
@@ -245,16 +253,7 @@ public class ReturnHandler {
             // Display each member with their rental count
             for (int i = 0; i < membersWithRentals.size(); i++) {
                 Member member = membersWithRentals.get(i);
-                int rentalCount = 0;
-
-                // Count how many rentals belong to this member
-                for (Rental rental : activeRentals) {
-
-                    // Check if rental belongs to current member
-                    if (rental.getMemberId() == member.getId()) {
-                        rentalCount++;
-                    }
-                }
+                int rentalCount = system.getRentalService().getActiveRentalCount(member.getId());
                 System.out.println("[" + (i + 1) + "] " + member.getName() + " (" + rentalCount + " artiklar)");
             }
 
@@ -275,15 +274,8 @@ public class ReturnHandler {
             selectedMember = membersWithRentals.get(choice - 1);
         }
 
-        // Filter rentals for selected member
-        List<Rental> memberRentals = new ArrayList<>();
-        for (Rental rental : activeRentals) {
-
-            // Add rental if it belongs to selected member
-            if (rental.getMemberId() == selectedMember.getId()) {
-                memberRentals.add(rental);
-            }
-        }
+        // Get the active rentals of the selected member
+        List<Rental> memberRentals = system.getRentalService().getActiveRentals(selectedMember.getId());
 
         // Show confirmation with item summary
         helper.clearScreen();
@@ -296,7 +288,7 @@ public class ReturnHandler {
         // Display all items
         for (int i = 0; i < memberRentals.size(); i++) {
             Rental rental = memberRentals.get(i);
-            Item item = system.getInventory().getItem(rental.getItemId());
+            Item item = system.getInventory().getItem(rental.getItemKey());
             System.out.println(ItemView.formatItemForList(i + 1, item));
         }
 
@@ -326,22 +318,17 @@ public class ReturnHandler {
     private void processReturn(Rental rental) {
 
         // Get item and member from rental
-        Item item = system.getInventory().getItem(rental.getItemId());
+        Item item = system.getInventory().getItem(rental.getItemKey());
         Member member = system.getMemberRegistry().getMember(rental.getMemberId());
 
-        // Process return in rental service
-        boolean returned = system.getRentalService().returnItem(rental.getRentalId());
+        // Settle the late fee and return the item, the fee is booked as revenue and stored on the rental
+        boolean returned = lateFeeService.returnItem(rental.getSequence());
 
         // Check if return was successful
         if (returned) {
 
-            // Display receipt and get late fee
-            double lateFee = receiptGenerator.displaySingleReturnReceipt(rental, item, member);
-
-            // Add late fee to revenue if applicable
-            if (lateFee > 0) {
-                revenueService.addRevenue(lateFee);
-            }
+            // Display receipt with the settled late fee
+            receiptGenerator.displaySingleReturnReceipt(rental, item, member);
         } else {
             System.out.println();
             System.out.println("Returneringen misslyckades.");
@@ -357,18 +344,17 @@ public class ReturnHandler {
 
         // Initialize tracking variables
         List<String> returnedItems = new ArrayList<>();
-        double totalLateFees = 0.0;
+        long totalLateFees = 0;
         int successCount = 0;
 
         // Process each rental
         for (Rental rental : rentals) {
 
-            // Get item and member from rental
-            Item item = system.getInventory().getItem(rental.getItemId());
-            Member member = system.getMemberRegistry().getMember(rental.getMemberId());
+            // Get item from rental
+            Item item = system.getInventory().getItem(rental.getItemKey());
 
-            // Process return in rental service
-            boolean returned = system.getRentalService().returnItem(rental.getRentalId());
+            // Settle the late fee and return the item
+            boolean returned = lateFeeService.returnItem(rental.getSequence());
 
             // Check if return was successful
             if (returned) {
@@ -379,9 +365,8 @@ public class ReturnHandler {
                 // Build item info string
                 String itemInfo = item.getName() + " [" + item.getId() + "] (" + ItemSelector.getItemTypeDescription(item) + ")";
 
-                // Add late fee info if applicable
-                String lateFeeInfo = receiptGenerator.calculateBulkLateFeeInfo(rental, item, member);
-                double lateFee = receiptGenerator.calculateBulkLateFeeAmount(rental, item, member);
+                // Read the late fee settled on the rental
+                long lateFee = rental.getLateFeeInOre();
 
                 // Check if late fee exists
                 if (lateFee > 0) {
@@ -390,7 +375,7 @@ public class ReturnHandler {
                     totalLateFees += lateFee;
 
                     // Append late fee info to item string
-                    itemInfo += lateFeeInfo;
+                    itemInfo += receiptGenerator.formatBulkLateFeeInfo(rental);
                 }
 
                 // Add to returned items list
@@ -398,11 +383,6 @@ public class ReturnHandler {
             }
         }
 
-        // Add late fees to revenue
-        if (totalLateFees > 0) {
-            revenueService.addRevenue(totalLateFees);
-        }
-
         // Display bulk receipt
         receiptGenerator.displayBulkReturnReceipt(returnedItems, totalLateFees, successCount);
     }
@@ -420,13 +400,13 @@ public class ReturnHandler {
 
             // Get rental and related data
             Rental rental = activeRentals.get(i);
-            Item item = system.getInventory().getItem(rental.getItemId());
+            Item item = system.getInventory().getItem(rental.getItemKey());
             Member member = system.getMemberRegistry().getMember(rental.getMemberId());
 
             System.out.println(ItemView.formatItemForList(i + 1, item));
             System.out.println("Medlem: " + MemberView.formatMemberShort(member));
             System.out.println("Hyrd: " + rental.getStartDate());
-            System.out.printf("Pris: %.2f kr%n", rental.getTotalCost());
+            System.out.println("Pris: " + Money.format(rental.getTotalCostInOre()) + " kr");
             System.out.println();
         }
     }
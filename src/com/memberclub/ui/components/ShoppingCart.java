@@ -1,8 +1,13 @@
 package com.memberclub.ui.components;
 
+import com.memberclub.model.CartItem;
 import com.memberclub.model.Item;
+import com.memberclub.model.ItemHold;
 import com.memberclub.model.Member;
+import com.memberclub.model.Money;
 import com.memberclub.model.enums.RentalPeriod;
+import com.memberclub.pricing.PriceTable;
+import com.memberclub.service.HoldService;
 import com.memberclub.ui.ItemView;
 import com.memberclub.ui.UIHelper;
 import com.memberclub.ui.validation.InputValidator;
@@ -13,49 +18,106 @@ import java.util.Scanner;
 /**
  * Manages shopping cart functionality for rental items
  * Handles adding, removing, viewing cart items
+ * Items in the cart are held, so no other counter can rent them before checkout.
+ * The hold is extended every time the cart is used and expires when the cart is left alone.
  */
 public class ShoppingCart {
 
     private final List<CartItem> items;
     private final Scanner scanner;
     private final UIHelper helper;
+    private final HoldService holdService;
+
+    // Prices the whole cart the same way checkout charges it
+    private final PriceTable priceTable;
+
+    // Hold on the items in the cart, replaced if it expires while the cart is still in use
+    private ItemHold hold;
 
     /**
      * Creates a new shopping cart
      * @param scanner the scanner for user input
      * @param helper the UI helper for display operations
+     * @param holdService the service that holds the items in the cart
+     * @param priceTable the price table that checkout quotes the cart from
      */
-    public ShoppingCart(Scanner scanner, UIHelper helper) {
+    public ShoppingCart(Scanner scanner, UIHelper helper, HoldService holdService, PriceTable priceTable) {
         this.items = new ArrayList<>();
         this.scanner = scanner;
         this.helper = helper;
+        this.holdService = holdService;
+        this.priceTable = priceTable;
+        this.hold = holdService.createHold();
     }
 
     /**
-     * Adds an item to the cart
+     * Adds an item to the cart if it can be held
      * @param item the item to add
      * @param duration rental duration
      * @param period rental period (HOURLY or DAILY)
-     * @param price calculated price
+     * @param priceInOre calculated price in öre
+     * @return true if added, false if the item is no longer available
      */
-    public void addItem(Item item, int duration, RentalPeriod period, double price) {
-        items.add(new CartItem(item, duration, period, price));
+    public boolean addItem(Item item, int duration, RentalPeriod period, long priceInOre) {
+        return addCartItem(new CartItem(item, duration, period, priceInOre));
     }
 
     /**
-     * Adds a pre created cart item.
+     * Adds a pre created cart item if its item can be held.
      * @param cartItem the cart item to add
+     * @return true if added, false if the item is no longer available
      */
-    public void addCartItem(CartItem cartItem) {
+    public boolean addCartItem(CartItem cartItem) {
+        keepHold();
+        if (!hold.add(cartItem.getItem())) {
+            return false;
+        }
         items.add(cartItem);
+        return true;
     }
 
     /**
-     * Adds multiple cart items at once
+     * Adds multiple cart items at once, skipping items that can no longer be held
      * @param cartItems list of cart items to add
+     * @return the cart items that were added
      */
-    public void addAll(List<CartItem> cartItems) {
-        items.addAll(cartItems);
+    public List<CartItem> addAll(List<CartItem> cartItems) {
+        List<CartItem> added = new ArrayList<>();
+        for (CartItem cartItem : cartItems) {
+            if (addCartItem(cartItem)) {
+                added.add(cartItem);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Extends the hold on the items in the cart.
+     * If the hold has already expired, a new one is taken for the items that are still available.
+     */
+    public void keepHold() {
+        if (holdService.extend(hold)) {
+            return;
+        }
+        hold = holdService.createHold();
+        for (CartItem cartItem : items) {
+            hold.add(cartItem.getItem());
+        }
+    }
+
+    /**
+     * Gets the hold on the items in the cart
+     * @return the current hold
+     */
+    public ItemHold getHold() {
+        return hold;
+    }
+
+    /**
+     * Gives every held item back, when the cart is checked out or abandoned
+     */
+    public void release() {
+        hold.release();
     }
 
     /**
@@ -79,9 +141,11 @@ public class ShoppingCart {
      */
     public CartItem removeItem(int index) {
 
-        // Validate index and remove item
+        // Validate index, remove item and give it back
         if (index >= 0 && index < items.size()) {
-            return items.remove(index);
+            CartItem removed = items.remove(index);
+            hold.remove(removed.getItem());
+            return removed;
         }
 
         // Return null for invalid index
@@ -89,9 +153,12 @@ public class ShoppingCart {
     }
 
     /**
-     * Clears all items from the cart
+     * Clears all items from the cart and gives them back
      */
     public void clear() {
+        for (CartItem cartItem : items) {
+            hold.remove(cartItem.getItem());
+        }
         items.clear();
     }
 
@@ -121,35 +188,20 @@ public class ShoppingCart {
 
     /**
      * Calculates total price before discount
-     * @return sum of all item prices
+     * @return sum of all item prices in öre
      */
-    public double getTotalBeforeDiscount() {
+    public long getTotalBeforeDiscountInOre() {
 
         // Initialize total
-        double total = 0;
+        long total = 0;
 
         // Sum up all item prices
         for (CartItem cartItem : items) {
-            total += cartItem.getPrice();
+            total += cartItem.getPriceInOre();
         }
         return total;
     }
 
-    /**
-     * Calculates discount amount based on member level
-     * @param member the member
-     * @return discount as decimal
-     */
-    private double getDiscount(Member member) {
-
-        // Return discount based on membership level
-        return switch (member.getMembershipLevel()) {
-            case STANDARD -> 0.0;
-            case STUDENT -> 0.20;
-            case PREMIUM -> 0.30;
-        };
-    }
-
     /**
      * Displays the cart contents with pricing breakdown
      * @param member the member, for discount calculation
@@ -178,22 +230,14 @@ public class ShoppingCart {
             CartItem cartItem = items.get(i);
             System.out.println(ItemView.formatItemForList(i + 1, cartItem.getItem()));
             System.out.println("    Längd: " + cartItem.getDuration() + " " + (cartItem.getPeriod() == RentalPeriod.HOURLY ? (cartItem.getDuration() == 1 ? "timme" : "timmar") : (cartItem.getDuration() == 1 ? "dag" : "dagar")));
-            System.out.printf("    Pris: %.2f kr%n", cartItem.getPrice());
+            System.out.println("    Pris: " + Money.format(cartItem.getPriceInOre()) + " kr");
             System.out.println();
         }
 
-        // Calculate totals
-        double totalBeforeDiscount = getTotalBeforeDiscount();
-        double discount = getDiscount(member);
-        double totalAfterDiscount = totalBeforeDiscount * (1 - discount);
-
-        // Display price breakdown
+        // Display price breakdown, quoted like checkout will charge it
         helper.printDivider();
         System.out.println();
-        System.out.printf("Pris (före rabatt): %.2f kr%n", totalBeforeDiscount);
-        System.out.println("Rabatt (" + (int)(discount * 100) + "%): -" +
-                String.format("%.2f", totalBeforeDiscount - totalAfterDiscount) + " kr");
-        System.out.printf("Totalt: %.2f kr%n", totalAfterDiscount);
+        helper.printPriceSummary(getTotalBeforeDiscountInOre(), priceTable.quote(items, member.getMembershipLevel()), "Totalt");
         System.out.println();
         System.out.println(UIHelper.GREEN + "=====================================" + UIHelper.RESET);
     }
@@ -210,6 +254,9 @@ public class ShoppingCart {
         // Continue loop until user exits
         while (inCart) {
 
+            // Using the cart keeps its items held
+            keepHold();
+
             // Display current cart
             display(member);
 
@@ -1,12 +1,16 @@
 package com.memberclub.ui.validation;
 
 import java.util.Scanner;
+import java.util.regex.Pattern;
 
 /**Utility class for validating user input from the console
  * Minimizes code duplication across the UI classes
  */
 public class InputValidator {
 
+    // Digits and common separators, compiled once since bulk imports check every row
+    private static final Pattern PHONE = Pattern.compile("^[0-9\\s\\-+()]+$");
+
     /**
      * Reads an integer within a specified range from user
      * Keeps prompting until valid input is received.
@@ -207,6 +211,20 @@ public class InputValidator {
         return email.contains("@") && email.contains(".") && email.indexOf("@") < email.lastIndexOf(".");
     }
 
+    /**
+     * Validates a phone number: only digits, spaces and +()-
+     * @param phone the phone number to validate
+     * @return true if phone format is valid
+     */
+    public static boolean isValidPhone(String phone) {
+
+        // Check if phone is null or empty
+        if (phone == null || phone.trim().isEmpty()) {
+            return false;
+        }
+        return PHONE.matcher(phone).matches();
+    }
+
     /**
      * Reads a valid email from user
      * @param scanner the scanner to read from
@@ -280,7 +298,7 @@ public class InputValidator {
                 System.out.print(prompt);
 
               // Validate phone format
-            } else if (!phone.matches("^[0-9\\s\\-+()]+$")) {
+            } else if (!isValidPhone(phone)) {
                 System.out.println();
                 System.out.println("Ogiltigt nummer! Använd endast siffror, mellanslag och +()-");
                 System.out.println();